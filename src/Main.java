@@ -1,5 +1,14 @@
+import fr.univ.controller.BatchController;
 import fr.univ.controller.Controller;
+import fr.univ.controller.HttpController;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 
 /**
@@ -9,10 +18,39 @@ public class Main
 {
     /**
      * La méthode main, point d'entrée du programme
-     * @param args paramètres d'entrée de l'application. Non utilisé.
+     * @param args paramètres d'entrée de l'application. Sans paramètre, l'application console est lancée. Avec
+     * "--http [port]", le Gala est servi en HTTP/JSON à plusieurs utilisateurs (port 8080 par défaut). Avec
+     * "--batch [fichier]", les commandes du fichier (de l'entrée standard sinon) sont appliquées au Gala sans
+     * interaction (voir {@link BatchController}). Avec "--rebuild", le Gala est reconstruit en rejouant tout son
+     * historique depuis l'instantané d'origine (voir {@link BatchController#rebuild(LocalDate, PrintWriter)}).
+     * @throws IOException Le port HTTP ne peut être ouvert, ou le fichier de commandes ne peut être lu
      */
-    public static void main(String [] args)
+    public static void main(String [] args) throws IOException
     {
-        new Controller(LocalDate.of(2022, 1, 1));
+        LocalDate galaDate = LocalDate.of(2022, 1, 1);
+
+        if(args.length > 0 && args[0].equals("--http"))
+        {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : HttpController.PORT;
+            HttpController server = new HttpController(galaDate, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop)); // flush the journal on Ctrl+C
+            server.start();
+        }
+        else if(args.length > 0 && args[0].equals("--batch"))
+        {
+            BatchController batch = new BatchController(galaDate);
+            try(BufferedReader in = args.length > 1 ? Files.newBufferedReader(Path.of(args[1]))
+                                                    : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)))
+            {
+                batch.run(in, new PrintWriter(System.out));
+            } finally
+            {
+                batch.close();
+            }
+        }
+        else if(args.length > 0 && args[0].equals("--rebuild"))
+            BatchController.rebuild(galaDate, new PrintWriter(System.out));
+        else
+            new Controller(galaDate);
     }
 }
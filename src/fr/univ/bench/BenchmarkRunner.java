@@ -0,0 +1,248 @@
+package fr.univ.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Harnais de micro-benchmarks, sur le modèle de JMH : chaque benchmark est d'abord exécuté pendant des itérations de
+ * chauffe (le temps que le JIT compile le chemin mesuré), puis pendant des itérations de mesure. Une itération répète
+ * l'opération pendant une durée fixe et en déduit le temps moyen par opération. Le score est la moyenne des
+ * itérations de mesure, l'erreur la demi-largeur de son intervalle de confiance à 99,9 %.
+ *
+ * Les résultats sont affichés sous forme de tableau et peuvent être exportés en JSON, dans le format produit par JMH
+ * (-rf json), afin de suivre leur évolution avec les mêmes outils.
+ */
+public final class BenchmarkRunner
+{
+    /**
+     * Une opération mesurée. Le résultat est conservé afin que le JIT ne puisse pas supprimer le calcul.
+     */
+    @FunctionalInterface
+    public interface Operation
+    {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Prépare l'état d'un benchmark, hors mesure, et retourne l'opération à mesurer.
+     */
+    @FunctionalInterface
+    public interface Setup
+    {
+        Operation create() throws Exception;
+    }
+
+    /**
+     * Quantiles de la loi de Student à 99,95 % (intervalle bilatéral à 99,9 %), pour 1 à 10 degrés de liberté.
+     */
+    private static final double[] STUDENT_T = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781,
+                                               4.587};
+
+    /**
+     * Le dernier résultat d'une opération.
+     */
+    private static Object sink;
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final Pattern filter;
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Crée un harnais.
+     * @param warmupIterations le nombre d'itérations de chauffe
+     * @param measurementIterations le nombre d'itérations de mesure, au moins 1
+     * @param iterationMillis la durée d'une itération, en millisecondes
+     * @param filter expression régulière sélectionnant les benchmarks à exécuter (par leur nom), ou null pour tous
+     */
+    public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis, String filter)
+    {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = Math.max(1, measurementIterations);
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.filter = filter == null ? null : Pattern.compile(filter);
+    }
+
+    /**
+     * Indique si un benchmark est sélectionné par le filtre. Permet d'éviter une préparation coûteuse inutile.
+     * @param name le nom du benchmark
+     * @return true s'il doit être exécuté
+     */
+    public boolean selected(String name)
+    {
+        return filter == null || filter.matcher(name).find();
+    }
+
+    /**
+     * Exécute un benchmark, s'il est sélectionné, et affiche son résultat.
+     * @param name le nom du benchmark
+     * @param params les paramètres du benchmark, dans l'ordre d'affichage (peut être vide)
+     * @param setup la préparation du benchmark
+     * @throws Exception La préparation ou l'opération a échoué
+     */
+    public void run(String name, Map<String, String> params, Setup setup) throws Exception
+    {
+        if(!selected(name))
+            return;
+
+        Operation operation = setup.create();
+        for(int i = 0; i < warmupIterations; i++)
+            iteration(operation);
+
+        double[] samples = new double[measurementIterations];
+        for(int i = 0; i < measurementIterations; i++)
+            samples[i] = iteration(operation);
+
+        Result result = new Result(name, params, samples);
+        results.add(result);
+        System.out.println(result);
+    }
+
+    /**
+     * Exécute l'opération pendant la durée d'une itération, au moins une fois.
+     * @param operation l'opération
+     * @return le temps moyen par opération, en nanosecondes
+     * @throws Exception L'opération a échoué
+     */
+    private double iteration(Operation operation) throws Exception
+    {
+        long start = System.nanoTime();
+        long end = start + iterationNanos;
+        long count = 0;
+        int batch = 1;
+        long now;
+        do
+        {
+            // read the clock once per batch: it costs as much as the fastest operations. Slow operations (a save of a
+            // million members) keep a batch of one, fast ones grow it so the clock is read rarely.
+            for(int i = 0; i < batch; i++)
+                sink = operation.run();
+            count += batch;
+            now = System.nanoTime();
+            if(batch < 1024 && now - start < iterationNanos / 100)
+                batch <<= 1;
+        } while(now < end);
+        return (double)(now - start) / count;
+    }
+
+    /**
+     * Exporte tous les résultats au format JSON de JMH.
+     * @param file le fichier de destination, remplacé s'il existe
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public void writeJson(Path file) throws IOException
+    {
+        try(Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            out.write("[\n");
+            for(int r = 0; r < results.size(); r++)
+            {
+                Result result = results.get(r);
+                out.write("  {\n");
+                out.write("    \"benchmark\" : " + quote(result.name) + ",\n");
+                out.write("    \"mode\" : \"avgt\",\n");
+                out.write("    \"threads\" : 1,\n");
+                out.write("    \"forks\" : 0,\n");
+                out.write("    \"jvm\" : " + quote(System.getProperty("java.home")) + ",\n");
+                out.write("    \"jdkVersion\" : " + quote(System.getProperty("java.version")) + ",\n");
+                out.write("    \"warmupIterations\" : " + warmupIterations + ",\n");
+                out.write("    \"warmupTime\" : \"" + iterationNanos / 1_000_000 + " ms\",\n");
+                out.write("    \"measurementIterations\" : " + measurementIterations + ",\n");
+                out.write("    \"measurementTime\" : \"" + iterationNanos / 1_000_000 + " ms\",\n");
+                if(!result.params.isEmpty())
+                {
+                    out.write("    \"params\" : {\n");
+                    int p = 0;
+                    for(Map.Entry<String, String> param : result.params.entrySet())
+                        out.write("      " + quote(param.getKey()) + " : " + quote(param.getValue()) +
+                                  (++p < result.params.size() ? ",\n" : "\n"));
+                    out.write("    },\n");
+                }
+                out.write("    \"primaryMetric\" : {\n");
+                out.write("      \"score\" : " + number(result.score()) + ",\n");
+                out.write("      \"scoreError\" : " + number(result.error()) + ",\n");
+                out.write("      \"scoreUnit\" : \"ns/op\",\n");
+                out.write("      \"rawData\" : [ [ ");
+                for(int i = 0; i < result.samples.length; i++)
+                    out.write((i > 0 ? ", " : "") + number(result.samples[i]));
+                out.write(" ] ]\n");
+                out.write("    }\n");
+                out.write(r + 1 < results.size() ? "  },\n" : "  }\n");
+            }
+            out.write("]\n");
+        }
+    }
+
+    private static String number(double value)
+    {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.3f", value) : "\"NaN\"";
+    }
+
+    private static String quote(String value)
+    {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Résultat d'un benchmark.
+     */
+    private static final class Result
+    {
+        private final String name;
+        private final Map<String, String> params;
+        /**
+         * Le temps moyen par opération de chaque itération de mesure, en nanosecondes.
+         */
+        private final double[] samples;
+
+        private Result(String name, Map<String, String> params, double[] samples)
+        {
+            this.name = name;
+            this.params = params;
+            this.samples = samples;
+        }
+
+        private double score()
+        {
+            double sum = 0;
+            for(double sample : samples)
+                sum += sample;
+            return sum / samples.length;
+        }
+
+        private double error()
+        {
+            int n = samples.length;
+            if(n < 2)
+                return Double.NaN;
+            double mean = score();
+            double variance = 0;
+            for(double sample : samples)
+                variance += (sample - mean) * (sample - mean);
+            variance /= n - 1;
+            double t = n - 1 <= STUDENT_T.length ? STUDENT_T[n - 2] : 3.291; // normal quantile beyond 10 degrees
+            return t * Math.sqrt(variance / n);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-46s", name));
+            StringBuilder p = new StringBuilder();
+            for(Map.Entry<String, String> param : params.entrySet())
+                p.append(p.length() == 0 ? "" : ", ").append(param.getKey()).append('=').append(param.getValue());
+            line.append(String.format(Locale.ROOT, " %-32s avgt %3d %16.3f ± %12.3f ns/op", p, samples.length, score(),
+                                      error()));
+            return line.toString();
+        }
+    }
+}
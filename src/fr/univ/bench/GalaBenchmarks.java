@@ -0,0 +1,323 @@
+package fr.univ.bench;
+
+import fr.univ.io.ImportMembres;
+import fr.univ.io.ServiceStockage;
+import fr.univ.io.ServiceStockageBinaire;
+import fr.univ.modele.Gala;
+import fr.univ.modele.Reservation;
+import fr.univ.modele.Staff;
+import fr.univ.modele.Table;
+import fr.univ.modele.Venue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks des chemins critiques du Gala : réservations (placement automatique et table choisie) selon le taux de
+ * remplissage, suppression d'une réservation d'une table, liste des tables, import des jeux de données et sauvegarde /
+ * chargement du Gala pour des effectifs de 200 à 1 000 000 membres.
+ *
+ * Les jeux de données de grande taille sont générés dans un répertoire temporaire, supprimé à la fin. Les opérations
+ * qui modifient le Gala sont mesurées par paire (ajout puis suppression) afin que l'état, donc la mesure, reste
+ * identique d'une opération à l'autre.
+ *
+ * Options : --filter regex (nom des benchmarks), --sizes 200,10000,... (effectifs), --json fichier (export des
+ * résultats, bench-results.json par défaut), --dataset répertoire (jeuDeDonnees par défaut), --quick (mesures courtes).
+ * Exemple : java -Xmx4g fr.univ.bench.GalaBenchmarks --filter Stockage --sizes 200,1000000
+ */
+public final class GalaBenchmarks
+{
+    /**
+     * Date de début du Gala utilisée par les benchmarks.
+     */
+    private static final LocalDate GALA_DATE = LocalDate.of(2022, 1, 1);
+    /**
+     * Premier identifiant des membres générés.
+     */
+    private static final int FIRST_ID = 1_000_000;
+    /**
+     * Nombre de places autour des tables des étudiants (15 tables de 8 places).
+     */
+    private static final int STUDENT_SEATS = 15 * 8;
+
+    private GalaBenchmarks() {}
+
+    public static void main(String[] args) throws Exception
+    {
+        String filter = null;
+        String json = "bench-results.json";
+        String dataset = "jeuDeDonnees";
+        int[] sizes = {200, 10_000, 100_000, 1_000_000};
+        boolean quick = false;
+        for(int i = 0; i < args.length; i++)
+        {
+            switch(args[i])
+            {
+                case "--filter" -> filter = args[++i];
+                case "--json" -> json = args[++i];
+                case "--dataset" -> dataset = args[++i];
+                case "--sizes" -> sizes = Stream.of(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--quick" -> quick = true;
+                default -> throw new IllegalArgumentException("Option inconnue : " + args[i]);
+            }
+        }
+
+        BenchmarkRunner runner = quick ? new BenchmarkRunner(1, 3, 200, filter) : new BenchmarkRunner(3, 5, 1000, filter);
+        Path work = Files.createTempDirectory("gala-bench");
+        try
+        {
+            reservations(runner, work);
+            tables(runner, work);
+            import_(runner, work, Path.of(dataset), sizes);
+            storage(runner, work, sizes);
+        } finally
+        {
+            try(Stream<Path> files = Files.walk(work))
+            {
+                for(Path file : files.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(file);
+            }
+        }
+
+        runner.writeJson(Path.of(json));
+        System.out.println("Résultats exportés dans " + json);
+    }
+
+    //---------------------------------- BENCHMARKS
+
+    /**
+     * Gala.addReservation, placement automatique et table choisie, pour des tables étudiantes remplies à 0, 50 et 90 %.
+     */
+    private static void reservations(BenchmarkRunner runner, Path work) throws Exception
+    {
+        for(int fill : new int[]{0, 50, 90})
+        {
+            Map<String, String> params = params("fill", fill + "%");
+
+            runner.run("Gala.addReservation(auto)+removeReservation", params, () -> {
+                Gala gala = filledGala(work, fill);
+                int memberId = FIRST_ID + STUDENT_SEATS; // never reserved by filledGala
+                return () -> {
+                    int price = gala.addReservation(memberId, 0);
+                    gala.removeReservation(memberId);
+                    return price;
+                };
+            });
+
+            runner.run("Gala.addReservation(table)+removeReservation", params, () -> {
+                Gala gala = filledGala(work, fill);
+                int memberId = FIRST_ID + STUDENT_SEATS;
+                int tableId = 15; // auto placement fills the tables in order, the last one has room below 100 %
+                return () -> {
+                    int price = gala.addReservation(memberId, 0, tableId);
+                    gala.removeReservation(memberId);
+                    return price;
+                };
+            });
+        }
+
+        for(int size : new int[]{8, 1_000, 100_000})
+        {
+            runner.run("Table.removeReservation+addReservation", params("reservations", String.valueOf(size)), () -> {
+                Table table = new Table(1, size);
+                Reservation[] reservations = new Reservation[size];
+                for(int i = 0; i < size; i++)
+                {
+                    reservations[i] = new Reservation(1, new Staff(FIRST_ID + i, "NOM", "Prénom", "0600000000",
+                                                                   "nom@ec.fr"), 1, 20, GALA_DATE);
+                    table.addReservation(reservations[i]);
+                }
+                int[] next = {0};
+                return () -> {
+                    int i = next[0];
+                    next[0] = i + 1 == size ? 0 : i + 1;
+                    table.removeReservation(FIRST_ID + i);
+                    table.addReservation(reservations[i]);
+                    return table;
+                };
+            });
+        }
+    }
+
+    /**
+     * Gala.getStudentTables, Gala.getStaffTables, et la lecture sans verrou des tables des étudiants dans le plan des
+     * places publié.
+     */
+    private static void tables(BenchmarkRunner runner, Path work) throws Exception
+    {
+        if(!runner.selected("Gala.get"))
+            return;
+        Gala gala = filledGala(work, 50);
+        runner.run("Gala.getStudentTables", params(), () -> gala::getStudentTables);
+        runner.run("Gala.getStaffTables", params(), () -> gala::getStaffTables);
+        runner.run("Gala.getSeatingPlan", params(),
+                   () -> () -> gala.getSeatingPlan().getTables(Venue.Audience.STUDENT, 0));
+    }
+
+    /**
+     * ImportMembres.importer, sur le jeu de données fourni puis sur des jeux de données générés.
+     */
+    private static void import_(BenchmarkRunner runner, Path work, Path dataset, int[] sizes) throws Exception
+    {
+        String name = "ImportMembres.importer";
+        if(!runner.selected(name))
+            return;
+
+        Path students = dataset.resolve("etudiants.txt");
+        if(Files.exists(students))
+            runner.run(name, params("roster", dataset.getFileName().toString()),
+                       () -> () -> ImportMembres.importer(students, ImportMembres.Type.STUDENT));
+
+        for(int size : sizes)
+        {
+            Path roster = work.resolve("import-" + size + ".txt");
+            writeRoster(roster, ImportMembres.Type.STUDENT, FIRST_ID, size);
+            runner.run(name, params("roster", "generated", "members", String.valueOf(size)),
+                       () -> () -> ImportMembres.importer(roster, ImportMembres.Type.STUDENT));
+            Files.delete(roster);
+        }
+    }
+
+    /**
+     * Sauvegarde et chargement du Gala, par sérialisation Java (ServiceStockage) et au format binaire
+     * (ServiceStockageBinaire).
+     */
+    private static void storage(BenchmarkRunner runner, Path work, int[] sizes) throws Exception
+    {
+        if(!runner.selected("ServiceStockage"))
+            return;
+
+        for(int size : sizes)
+        {
+            Gala gala = gala(work, size - size / 4, size / 4);
+            fill(gala, 50);
+            Map<String, String> params = params("members", String.valueOf(size));
+
+            File ser = work.resolve("gala.ser").toFile();
+            runner.run("ServiceStockage.enregistrer", params, () -> {
+                ServiceStockage io = new ServiceStockage(ser);
+                return () -> {
+                    io.enregistrer(gala);
+                    return ser;
+                };
+            });
+            runner.run("ServiceStockage.charger", params, () -> {
+                new ServiceStockage(ser).enregistrer(gala);
+                return () -> new ServiceStockage(ser).charger(); // the service reads its file only once
+            });
+
+            File bin = work.resolve("gala.bin").toFile();
+            ServiceStockageBinaire binaire = new ServiceStockageBinaire(bin);
+            runner.run("ServiceStockageBinaire.enregistrer", params, () -> () -> {
+                binaire.enregistrer(gala);
+                return bin;
+            });
+            runner.run("ServiceStockageBinaire.charger", params, () -> {
+                binaire.enregistrer(gala);
+                return binaire::charger;
+            });
+
+            Files.deleteIfExists(ser.toPath());
+            Files.deleteIfExists(bin.toPath());
+        }
+    }
+
+    //---------------------------------- DATA
+
+    /**
+     * Construit les paramètres d'un benchmark, dans l'ordre donné.
+     * @param nameValues les noms et valeurs des paramètres, en alternance
+     * @return les paramètres
+     */
+    private static Map<String, String> params(String... nameValues)
+    {
+        Map<String, String> params = new LinkedHashMap<>();
+        for(int i = 0; i < nameValues.length; i += 2)
+            params.put(nameValues[i], nameValues[i + 1]);
+        return params;
+    }
+
+    /**
+     * Crée un Gala de 1000 étudiants et 250 membres du personnel, dont les tables étudiantes sont remplies au taux
+     * donné.
+     * @param work le répertoire des jeux de données générés
+     * @param fill le taux de remplissage des tables étudiantes, en pourcentage
+     * @return le Gala
+     */
+    private static Gala filledGala(Path work, int fill) throws Exception
+    {
+        Gala gala = gala(work, 1000, 250);
+        fill(gala, fill);
+        return gala;
+    }
+
+    /**
+     * Réserve une place (sans accompagnant) pour les premiers étudiants, jusqu'au taux de remplissage donné.
+     * @param gala le Gala
+     * @param fill le taux de remplissage des tables étudiantes, en pourcentage
+     */
+    private static void fill(Gala gala, int fill) throws Exception
+    {
+        for(int i = 0; i < STUDENT_SEATS * fill / 100; i++)
+        {
+            gala.subscribeMember(FIRST_ID + i);
+            gala.addReservation(FIRST_ID + i, 0);
+        }
+    }
+
+    /**
+     * Crée un Gala à partir de jeux de données générés.
+     * @param work le répertoire des jeux de données générés
+     * @param nbrStudents le nombre d'étudiants, identifiants à partir de {@link #FIRST_ID}
+     * @param nbrStaff le nombre de membres du personnel, identifiants à la suite des étudiants
+     * @return le Gala
+     */
+    private static Gala gala(Path work, int nbrStudents, int nbrStaff) throws IOException
+    {
+        Path students = work.resolve("etudiants.txt");
+        Path staff = work.resolve("personnel.txt");
+        writeRoster(students, ImportMembres.Type.STUDENT, FIRST_ID, nbrStudents);
+        writeRoster(staff, ImportMembres.Type.STAFF, FIRST_ID + nbrStudents, nbrStaff);
+        Gala gala = new Gala(GALA_DATE, students, staff);
+        Files.delete(students);
+        Files.delete(staff);
+        return gala;
+    }
+
+    /**
+     * Génère un jeu de données au format des fichiers de jeuDeDonnees.
+     * @param file le fichier à écrire
+     * @param type le type de membre décrit par le fichier
+     * @param firstId l'identifiant du premier membre, les suivants étant consécutifs
+     * @param size le nombre de membres
+     */
+    static void writeRoster(Path file, ImportMembres.Type type, int firstId, int size) throws IOException
+    {
+        List<String> lastNames = List.of("MARTIN", "BERNARD", "THOMAS", "PETIT", "ROBERT", "RICHARD", "DURAND");
+        List<String> firstNames = new ArrayList<>(List.of("ADAM", "HARIS", "KAMELIA", "MOHAMED", "AYOUB", "LÉA"));
+        try(BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            for(int i = 0; i < size; i++)
+            {
+                String lastName = lastNames.get(i % lastNames.size());
+                String firstName = firstNames.get(i % firstNames.size());
+                out.write((firstId + i) + "\t" + lastName + "\t" + firstName + "\t" + (600000000 + i) + "\t" +
+                          firstName.toLowerCase() + "." + lastName.toLowerCase() + i + "@etu-ec.fr");
+                if(type == ImportMembres.Type.STUDENT)
+                    out.write("\t" + (1 + i % 5));
+                out.write('\n');
+            }
+        }
+    }
+}
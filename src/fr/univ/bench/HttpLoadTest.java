@@ -0,0 +1,217 @@
+package fr.univ.bench;
+
+import fr.univ.controller.HttpController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test de charge de {@link HttpController}. Des clients simultanés enchaînent, pendant une durée donnée, un mélange de
+ * requêtes représentatif de l'ouverture de la billetterie : consultation des tables, connexion, et cycles
+ * inscription / réservation / désinscription. Chaque client travaille sur son propre membre de l'école, le Gala
+ * retrouve donc son état initial à la fin du test.
+ *
+ * Paramètres, tous facultatifs : url (sans url, un serveur est démarré dans le processus sur un port libre), durée en
+ * secondes (10), nombre de clients (64), premier identifiant de membre (2165001), nombre d'identifiants (150).
+ * Exemple : java fr.univ.bench.HttpLoadTest http://localhost:8080 30 200
+ */
+public final class HttpLoadTest
+{
+    private HttpLoadTest() {}
+
+    public static void main(String[] args) throws Exception
+    {
+        String url = args.length > 0 && !args[0].equals("-") ? args[0] : null;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int nbrClients = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int firstId = args.length > 3 ? Integer.parseInt(args[3]) : 2165001;
+        int nbrIds = args.length > 4 ? Integer.parseInt(args[4]) : 150;
+
+        HttpController server = null;
+        if(url == null)
+        {
+            server = new HttpController(LocalDate.of(2022, 1, 1), 0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                                    .connectTimeout(Duration.ofSeconds(5)).build();
+        Client[] clients = new Client[nbrClients];
+        for(int c = 0; c < nbrClients; c++)
+            clients[c] = new Client(http, url, firstId + c % nbrIds, c);
+
+        // a short warm-up lets the JIT compile the request path before measuring
+        run(clients, Math.min(2, seconds));
+        for(Client client : clients)
+            client.reset();
+
+        long start = System.nanoTime();
+        run(clients, seconds);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        report(clients, elapsed);
+        if(server != null)
+            server.stop();
+    }
+
+    /**
+     * Fait tourner tous les clients pendant la durée donnée.
+     * @param clients les clients
+     * @param seconds la durée, en secondes
+     * @throws InterruptedException Interrompu pendant l'attente des clients
+     */
+    private static void run(Client[] clients, int seconds) throws InterruptedException
+    {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(clients.length);
+        for(Client client : clients)
+        {
+            Thread thread = new Thread(() -> {
+                try
+                {
+                    client.run(end);
+                } finally
+                {
+                    done.countDown();
+                }
+            }, "client-" + client.number);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+    }
+
+    /**
+     * Affiche le débit et la distribution des latences.
+     * @param clients les clients
+     * @param elapsed la durée de la mesure, en secondes
+     */
+    private static void report(Client[] clients, double elapsed)
+    {
+        int total = 0;
+        for(Client client : clients)
+            total += client.nbrLatencies;
+        long[] latencies = new long[total];
+        int n = 0;
+        long[] statuses = new long[6];
+        long failures = 0;
+        for(Client client : clients)
+        {
+            System.arraycopy(client.latencies, 0, latencies, n, client.nbrLatencies);
+            n += client.nbrLatencies;
+            for(int i = 0; i < statuses.length; i++)
+                statuses[i] += client.statuses[i];
+            failures += client.failures;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%d requêtes en %.1f s, %d clients : %.0f requêtes/s%n", total, elapsed, clients.length,
+                          total / elapsed);
+        if(total > 0)
+            System.out.printf("latence (µs) : p50=%d p90=%d p99=%d max=%d%n", percentile(latencies, 0.50),
+                              percentile(latencies, 0.90), percentile(latencies, 0.99), latencies[total - 1]);
+        System.out.printf("réponses : 2xx=%d 4xx=%d 5xx=%d, échecs réseau=%d%n", statuses[2], statuses[4], statuses[5],
+                          failures);
+    }
+
+    private static long percentile(long[] sorted, double p)
+    {
+        return sorted[Math.min(sorted.length - 1, (int)(sorted.length * p))];
+    }
+
+    /**
+     * Un utilisateur simulé.
+     */
+    private static final class Client
+    {
+        private final HttpClient http;
+        private final String url;
+        private final int memberId;
+        private final int number;
+        private final Random random;
+
+        /**
+         * Latences des requêtes, en microsecondes.
+         */
+        private long[] latencies = new long[1024];
+        private int nbrLatencies;
+        /**
+         * Nombre de réponses par classe de code HTTP (1xx à 5xx).
+         */
+        private final long[] statuses = new long[6];
+        private long failures;
+
+        private Client(HttpClient http, String url, int memberId, int number)
+        {
+            this.http = http;
+            this.url = url;
+            this.memberId = memberId;
+            this.number = number;
+            this.random = new Random(number);
+        }
+
+        private void reset()
+        {
+            nbrLatencies = 0;
+            failures = 0;
+            Arrays.fill(statuses, 0);
+        }
+
+        private void run(long end)
+        {
+            String id = "{\"id\":" + memberId + "}";
+            while(System.nanoTime() < end)
+            {
+                int choice = random.nextInt(4);
+                if(choice < 2)
+                    send("GET", "/tables?type=student", null);
+                else if(choice == 2)
+                    send("POST", "/login", id);
+                else
+                {
+                    send("POST", "/subscribe", id);
+                    send("POST", "/reserve", "{\"id\":" + memberId + ",\"accompanists\":0}");
+                    send("POST", "/unsubscribe", id);
+                }
+            }
+        }
+
+        private void send(String method, String path, String body)
+        {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                                             .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                                                                          : HttpRequest.BodyPublishers.ofString(body))
+                                             .timeout(Duration.ofSeconds(10))
+                                             .build();
+            long start = System.nanoTime();
+            try
+            {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                record((System.nanoTime() - start) / 1000);
+                statuses[Math.min(5, response.statusCode() / 100)]++;
+            } catch(IOException e)
+            {
+                failures++;
+            } catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void record(long micros)
+        {
+            if(nbrLatencies == latencies.length)
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            latencies[nbrLatencies++] = micros;
+        }
+    }
+}
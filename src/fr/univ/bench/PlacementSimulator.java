@@ -0,0 +1,274 @@
+package fr.univ.bench;
+
+import fr.univ.exception.NoSuchReservationException;
+import fr.univ.exception.TooLateToUnsubscribeException;
+import fr.univ.io.EntreeJournal;
+import fr.univ.io.ImportMembres;
+import fr.univ.io.ImportSalle;
+import fr.univ.io.ServiceJournal;
+import fr.univ.modele.Gala;
+import fr.univ.modele.PlacementStrategy;
+import fr.univ.modele.ReservationResult;
+import fr.univ.modele.ReservationStatus;
+import fr.univ.modele.SchoolMember;
+import fr.univ.modele.Table;
+import fr.univ.modele.Venue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Simulateur hors ligne des stratégies de placement automatique. Une même trace de réservations et d'annulations est
+ * rejouée sur un Gala neuf pour chaque stratégie (premier, meilleur et pire ajustement, puis meilleur ajustement avec
+ * réorganisation des tables lorsqu'une réservation est refusée alors que la catégorie dispose encore d'assez de places
+ * au total). Pour chacune sont affichés le nombre de réservations acceptées et refusées, les refus dus à la seule
+ * fragmentation des places, le taux d'occupation au premier refus et en fin de trace, et la latence des décisions.
+ *
+ * La trace provient d'un journal (--journal fichier, membres lus dans --dataset, jeuDeDonnees par défaut) dont seules
+ * les réservations et leurs suppressions sont retenues, la table choisie à l'origine étant ignorée. Sans journal, une
+ * trace est générée : --requests n demandes (600 par défaut) de membres tous différents, dont le nombre
+ * d'accompagnants est tiré au hasard dans la limite autorisée, chacune suivie avec une probabilité --cancel p (0.25 par
+ * défaut) de l'annulation d'une réservation antérieure. Options communes : --salles fichier (plan de la salle, plan par
+ * défaut sinon), --seed n.
+ * Exemple : java fr.univ.bench.PlacementSimulator --salles jeuDeDonnees/salles.txt --requests 2000 --cancel 0.3
+ */
+public final class PlacementSimulator
+{
+    /**
+     * Date de début du Gala utilisée par le simulateur. Les annulations restent possibles pendant toute la trace.
+     */
+    private static final LocalDate GALA_DATE = LocalDate.of(2022, 1, 1);
+    /**
+     * Premier identifiant des membres générés.
+     */
+    private static final int FIRST_ID = 1_000_000;
+
+    private PlacementSimulator() {}
+
+    /**
+     * Une demande de la trace : réservation (nbrAccompanist >= 0) ou annulation (nbrAccompanist < 0).
+     */
+    private record Request(int memberId, int nbrAccompanist)
+    {
+        boolean isCancellation()
+        {
+            return nbrAccompanist < 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path journal = null;
+        Path dataset = Path.of("jeuDeDonnees");
+        Path venueFile = null;
+        int nbrRequests = 600;
+        double cancel = 0.25;
+        long seed = 42;
+        for(int i = 0; i < args.length; i++)
+        {
+            switch(args[i])
+            {
+                case "--journal" -> journal = Path.of(args[++i]);
+                case "--dataset" -> dataset = Path.of(args[++i]);
+                case "--salles" -> venueFile = Path.of(args[++i]);
+                case "--requests" -> nbrRequests = Integer.parseInt(args[++i]);
+                case "--cancel" -> cancel = Double.parseDouble(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Option inconnue : " + args[i]);
+            }
+        }
+        Venue venue = venueFile == null ? Venue.defaultLayout() : ImportSalle.importer(venueFile);
+
+        Path work = null;
+        Path students = dataset.resolve("etudiants.txt");
+        Path staff = dataset.resolve("personnel.txt");
+        List<Request> trace;
+        if(journal != null)
+            trace = journalTrace(journal);
+        else
+        {
+            // one student out of ten is replaced by a staff member, as in the school
+            work = Files.createTempDirectory("gala-simulation");
+            students = work.resolve("etudiants.txt");
+            staff = work.resolve("personnel.txt");
+            GalaBenchmarks.writeRoster(students, ImportMembres.Type.STUDENT, FIRST_ID, nbrRequests - nbrRequests / 10);
+            GalaBenchmarks.writeRoster(staff, ImportMembres.Type.STAFF, FIRST_ID + nbrRequests - nbrRequests / 10,
+                                       nbrRequests / 10);
+            trace = syntheticTrace(new Gala(GALA_DATE, students, staff, venue), nbrRequests, cancel, new Random(seed));
+        }
+
+        try
+        {
+            System.out.println(trace.size() + " demandes, " + venue.getNbrTables() + " tables");
+            System.out.printf("%-22s %9s %9s %14s %14s %12s %10s %10s %10s%n", "stratégie", "acceptées", "refusées",
+                              "fragmentation", "1er refus (%)", "final (%)", "p50 (µs)", "p99 (µs)", "max (µs)");
+            for(PlacementStrategy strategy : PlacementStrategy.values())
+                simulate(strategy.name(), new Gala(GALA_DATE, students, staff, venue), strategy, false, trace);
+            simulate("BEST_FIT+REPACK", new Gala(GALA_DATE, students, staff, venue), PlacementStrategy.BEST_FIT, true, trace);
+        } finally
+        {
+            if(work != null)
+            {
+                Files.delete(students);
+                Files.delete(staff);
+                Files.delete(work);
+            }
+        }
+    }
+
+    /**
+     * Extrait la trace des réservations et de leurs suppressions d'un journal.
+     * @param journal le fichier du journal
+     * @return la trace
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    private static List<Request> journalTrace(Path journal) throws IOException
+    {
+        List<Request> trace = new ArrayList<>();
+        for(EntreeJournal entree : ServiceJournal.lireEntrees(journal))
+        {
+            if(entree.getOperation() == EntreeJournal.Operation.ADD_RESERVATION)
+                trace.add(new Request(entree.getMemberId(), entree.getNbrAccompanist()));
+            else if(entree.getOperation() == EntreeJournal.Operation.REMOVE_RESERVATION)
+                trace.add(new Request(entree.getMemberId(), -1));
+        }
+        return trace;
+    }
+
+    /**
+     * Génère une trace aléatoire : une demande par membre, dans l'ordre des identifiants, entrecoupées d'annulations.
+     * @param gala un Gala contenant les membres générés, pour connaître leur nombre maximal d'accompagnants
+     * @param nbrRequests le nombre de demandes de réservation
+     * @param cancel la probabilité qu'une demande soit suivie d'une annulation
+     * @param random le générateur
+     * @return la trace
+     */
+    private static List<Request> syntheticTrace(Gala gala, int nbrRequests, double cancel, Random random)
+    {
+        List<Request> trace = new ArrayList<>();
+        List<Integer> cancellable = new ArrayList<>();
+        for(int i = 0; i < nbrRequests; i++)
+        {
+            SchoolMember member = gala.findMember(FIRST_ID + i);
+            trace.add(new Request(member.getId(), random.nextInt(gala.getMaxAccompanist(member) + 1)));
+            cancellable.add(member.getId());
+            if(random.nextDouble() < cancel)
+                trace.add(new Request(cancellable.remove(random.nextInt(cancellable.size())), -1));
+        }
+        return trace;
+    }
+
+    /**
+     * Rejoue la trace sur un Gala avec une stratégie donnée, et affiche le résultat.
+     * @param name le nom affiché
+     * @param gala un Gala neuf
+     * @param strategy la stratégie de placement
+     * @param repack réorganise les tables de la catégorie lorsqu'un refus n'est dû qu'à la fragmentation
+     * @param trace la trace
+     */
+    private static void simulate(String name, Gala gala, PlacementStrategy strategy, boolean repack, List<Request> trace)
+    {
+        gala.setPlacementStrategy(strategy);
+        int capacity = 0;
+        for(Table table : gala.getStudentTables())
+            capacity += table.getCapacity();
+        for(Table table : gala.getStaffTables())
+            capacity += table.getCapacity();
+
+        long[] latencies = new long[trace.size()];
+        int nbrDecisions = 0;
+        int accepted = 0;
+        int rejected = 0;
+        int fragmented = 0;
+        double firstRejection = Double.NaN;
+        for(Request request : trace)
+        {
+            if(request.isCancellation())
+            {
+                try
+                {
+                    if(gala.hasReserved(request.memberId()))
+                        gala.removeReservation(request.memberId());
+                } catch(NoSuchReservationException | TooLateToUnsubscribeException e)
+                {
+                    throw new IllegalStateException(e); // can't happen, the gala is two months away
+                }
+                continue;
+            }
+
+            long start = System.nanoTime();
+            ReservationResult result = gala.tryAddReservation(request.memberId(), request.nbrAccompanist());
+            boolean fragmentation = result.getStatus() == ReservationStatus.NO_SEAT_REMAINING &&
+                                    enoughSeats(gala, request);
+            if(fragmentation && repack)
+            {
+                gala.repack();
+                result = gala.tryAddReservation(request.memberId(), request.nbrAccompanist());
+            }
+            latencies[nbrDecisions++] = System.nanoTime() - start;
+
+            if(result.isAccepted())
+                accepted++;
+            else if(result.getStatus() == ReservationStatus.NO_SEAT_REMAINING)
+            {
+                if(rejected++ == 0)
+                    firstRejection = 100.0 * occupied(gala, capacity) / capacity;
+                if(fragmentation)
+                    fragmented++;
+            }
+        }
+
+        long[] sorted = Arrays.copyOf(latencies, nbrDecisions);
+        Arrays.sort(sorted);
+        System.out.printf("%-22s %9d %9d %14d %14.1f %12.1f %10.1f %10.1f %10.1f%n", name, accepted, rejected, fragmented,
+                          firstRejection, 100.0 * occupied(gala, capacity) / capacity,
+                          percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3,
+                          (sorted.length == 0 ? 0 : sorted[sorted.length - 1]) / 1e3);
+    }
+
+    /**
+     * Indique si les catégories du public du membre disposent, au total, d'assez de places pour la demande.
+     * @param gala le Gala
+     * @param request la demande
+     * @return true si le refus d'une telle demande n'est dû qu'à la fragmentation des places
+     */
+    private static boolean enoughSeats(Gala gala, Request request)
+    {
+        Venue.Audience audience = Venue.Audience.of(gala.findMember(request.memberId()));
+        for(Venue.Category category : gala.getVenue().getCategories())
+            if(category.getAudience() == audience && gala.getSeatsRemaining(category) >= request.nbrAccompanist() + 1)
+                return true;
+        return false;
+    }
+
+    /**
+     * Le nombre de places occupées dans toute la salle.
+     * @param gala le Gala
+     * @param capacity le nombre total de places
+     * @return le nombre de places occupées
+     */
+    private static int occupied(Gala gala, int capacity)
+    {
+        int remaining = 0;
+        for(Venue.Category category : gala.getVenue().getCategories())
+            remaining += gala.getSeatsRemaining(category);
+        return capacity - remaining;
+    }
+
+    /**
+     * Le quantile d'une série triée.
+     * @param sorted les valeurs triées
+     * @param quantile le quantile, entre 0 et 1
+     * @return la valeur du quantile, 0 pour une série vide
+     */
+    private static long percentile(long[] sorted, double quantile)
+    {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int)(sorted.length * quantile))];
+    }
+}
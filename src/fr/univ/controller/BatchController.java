@@ -0,0 +1,408 @@
+package fr.univ.controller;
+
+import fr.univ.exception.*;
+import fr.univ.io.EntreeJournal;
+import fr.univ.modele.Gala;
+import fr.univ.modele.GalaStatistics;
+import fr.univ.modele.GroupReservationResult;
+import fr.univ.modele.Reservation;
+import fr.univ.modele.ReservationResult;
+import fr.univ.modele.ReservationStatus;
+import fr.univ.modele.SchoolMember;
+import fr.univ.modele.SeatRequest;
+import fr.univ.modele.Staff;
+import fr.univ.modele.Table;
+import fr.univ.modele.Venue;
+import fr.univ.util.IntIntMap;
+import fr.univ.util.IntSet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Controller non interactif : applique au Gala une suite de commandes lues dans un fichier ou sur l'entrée standard,
+ * une par ligne, par exemple pour inscrire toute une promotion ou placer d'avance des membres du personnel. Les
+ * commandes suivent les règles de l'application console (inscription préalable à toute réservation, participation du
+ * personnel confirmée d'office, liste d'attente lors d'un placement automatique) mais ne sont pas journalisées une à
+ * une : les événements de tout le lot sont soumis ensemble au journal à la fin du lot, puis le Gala n'est sauvegardé
+ * qu'une seule fois. Une interruption en cours de lot perd donc tout le lot, ou ce qui suit la dernière réorganisation :
+ * celle-ci journalise d'abord les commandes qui la précèdent.
+ * Commandes (les lignes vides et celles commençant par # sont ignorées) :
+ * <pre>
+ * subscribe &lt;id&gt;
+ * reserve &lt;id&gt; &lt;accompagnants&gt; [table]    placement automatique sans table
+ * group &lt;id&gt;[:accompagnants] ...           tout le groupe sur des tables voisines, ou personne
+ * accept &lt;id&gt;
+ * cancel &lt;id&gt;                               supprime la réservation, le membre reste inscrit
+ * repack                                    regroupe les places libres de chaque catégorie de tables
+ * </pre>
+ * L'issue de chaque commande est affichée, suivie d'un bilan : commandes appliquées, refusées et invalides, et débit.
+ */
+public class BatchController
+{
+    /**
+     * Attribut en charge de la persistance du Gala : chargement puis sauvegarde unique à la fin du lot.
+     */
+    private final GalaStorage storage;
+    /**
+     * Attribut contenant une instance du modèle Gala.
+     */
+    private final Gala gala;
+    /**
+     * Les événements des commandes appliquées, dans l'ordre, journalisés ensemble à la fin du lot.
+     */
+    private final List<EntreeJournal> entrees = new ArrayList<>();
+
+    /**
+     * Bilan d'un lot de commandes.
+     * @param nbrApplied le nombre de commandes appliquées, inscriptions en liste d'attente comprises
+     * @param nbrRefused le nombre de commandes refusées par le Gala
+     * @param nbrInvalid le nombre de lignes qui ne sont pas des commandes valides
+     * @param nanos la durée d'application du lot, en nanosecondes, sauvegarde exclue
+     */
+    public record Summary(int nbrApplied, int nbrRefused, int nbrInvalid, long nanos)
+    {
+        /**
+         * Le nombre de commandes lues, invalides comprises.
+         * @return le nombre de commandes
+         */
+        public int nbrCommands()
+        {
+            return nbrApplied + nbrRefused + nbrInvalid;
+        }
+    }
+
+    /**
+     * L'issue d'une commande.
+     * @param applied true si la commande a été appliquée, false si le Gala l'a refusée
+     * @param description la description de l'issue
+     */
+    private record Outcome(boolean applied, String description)
+    {
+        static Outcome applied(String description)
+        {
+            return new Outcome(true, description);
+        }
+    }
+
+    /**
+     * Charge (ou crée) le Gala, à 15 jours de son début comme dans l'application console.
+     * @param galaDate La date à laquelle débute le Gala, utilisée si aucun Gala n'a encore été sauvegardé
+     */
+    public BatchController(LocalDate galaDate)
+    {
+        this.storage = new GalaStorage();
+        this.gala = storage.initGala(galaDate);
+        storage.advanceDate(gala, galaDate.minusDays(15)); // Gala begin in 15 days
+    }
+
+    /**
+     * Reconstruit le Gala en rejouant tout son historique depuis l'instantané d'origine, sans partir du dernier
+     * instantané, puis le sauvegarde, par exemple après la correction d'un défaut des règles de réservation. Affiche le
+     * nombre d'événements de l'historique, la durée du rejeu, les totaux avant et après la reconstruction, et le nombre
+     * de réservations qui ne se retrouvent pas sur la même table : toute modification étant journalisée, il n'est
+     * différent de 0 que si les règles de placement ont changé depuis.
+     * @param galaDate La date à laquelle débute le Gala, utilisée si aucun Gala n'a encore été sauvegardé
+     * @param out la destination du compte rendu
+     */
+    public static void rebuild(LocalDate galaDate, PrintWriter out)
+    {
+        GalaStorage storage = new GalaStorage();
+        Gala previous = storage.initGala(galaDate);
+        GalaStatistics before = previous.getStatistics();
+
+        long start = System.nanoTime();
+        Gala gala = storage.rebuildGala();
+        long nanos = System.nanoTime() - start;
+        storage.close();
+
+        GalaStatistics after = gala.getStatistics();
+        out.printf("historique de %d événements rejoué en %.1f ms%n", gala.getJournalPosition(), nanos / 1e6);
+        out.printf("avant : %d réservations, %d places, %d€%n", before.getNbrReservations(), before.getNbrSeats(),
+                   before.getRevenue());
+        out.printf("après : %d réservations, %d places, %d€%n", after.getNbrReservations(), after.getNbrSeats(),
+                   after.getRevenue());
+        int nbrMoved = countMoved(previous, gala);
+        if(nbrMoved > 0)
+            out.printf("\033[1;31m%d réservation(s) ne se trouvent plus sur la même table\033[0m%n", nbrMoved);
+        out.flush();
+    }
+
+    /**
+     * Compte les réservations d'un Gala qui ne se trouvent pas sur la même table dans un autre Gala, ou n'y existent pas.
+     * @param previous le Gala de référence
+     * @param gala le Gala comparé
+     * @return le nombre de réservations de previous placées différemment dans gala
+     */
+    private static int countMoved(Gala previous, Gala gala)
+    {
+        IntIntMap tableIds = new IntIntMap();
+        for(Venue.Category category : gala.getVenue().getCategories())
+            for(Table table : gala.getTables(category))
+                for(Reservation reservation : table.getReservations())
+                    tableIds.put(reservation.getOwner().getId(), table.getTableId());
+
+        int nbrMoved = 0;
+        for(Venue.Category category : previous.getVenue().getCategories())
+            for(Table table : previous.getTables(category))
+                for(Reservation reservation : table.getReservations())
+                    if(tableIds.get(reservation.getOwner().getId(), -1) != table.getTableId())
+                        nbrMoved++;
+        return nbrMoved;
+    }
+
+    /**
+     * Applique toutes les commandes d'un flux, en affichant l'issue de chacune puis le bilan du lot.
+     * @param in le flux des commandes
+     * @param out la destination des issues et du bilan
+     * @return le bilan du lot
+     * @throws IOException Le flux des commandes ne peut être lu
+     */
+    public Summary run(BufferedReader in, PrintWriter out) throws IOException
+    {
+        int applied = 0;
+        int refused = 0;
+        int invalid = 0;
+        long start = System.nanoTime();
+        String line;
+        for(int lineNumber = 1; (line = in.readLine()) != null; lineNumber++)
+        {
+            line = line.strip();
+            if(line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            out.print(lineNumber);
+            out.print(" : ");
+            out.print(line);
+            out.print(" -> ");
+            String[] words = line.split("\\s+");
+            try
+            {
+                Outcome outcome = apply(words);
+                if(outcome.applied())
+                {
+                    out.println(outcome.description());
+                    applied++;
+                }
+                else
+                {
+                    out.println("refusée : " + outcome.description());
+                    refused++;
+                }
+            } catch(IllegalArgumentException e)
+            {
+                out.println("invalide : " + e.getMessage());
+                invalid++;
+            } catch(Exception e) // Gala's business exceptions: the command is refused, the batch goes on
+            {
+                out.println("refusée : " + e.getMessage());
+                refused++;
+            }
+        }
+        Summary summary = new Summary(applied, refused, invalid, System.nanoTime() - start);
+
+        out.printf("%d commandes : %d appliquées, %d refusées, %d invalides, en %.1f ms (%.0f commandes/s)%n",
+                   summary.nbrCommands(), applied, refused, invalid, summary.nanos() / 1e6,
+                   summary.nbrCommands() / Math.max(summary.nanos() / 1e9, 1e-9));
+        out.flush();
+        return summary;
+    }
+
+    /**
+     * Journalise les événements du lot et sauvegarde le Gala, une seule fois pour tout le lot, puis ferme le journal.
+     */
+    public void close()
+    {
+        if(!entrees.isEmpty())
+            storage.journalize(gala, entrees);
+        storage.saveGala(gala);
+        storage.close();
+    }
+
+    /**
+     * Applique une commande.
+     * @param words la commande et ses arguments
+     * @return l'issue de la commande
+     * @throws IllegalArgumentException La commande est inconnue ou ses arguments sont invalides
+     * @throws Exception La commande est refusée par le Gala
+     */
+    private Outcome apply(String[] words) throws Exception
+    {
+        switch(words[0])
+        {
+            case "subscribe" -> {
+                arguments(words, 1, 1);
+                int id = gala.getMemberById(intArgument(words[1])).getId();
+                gala.subscribeMember(id);
+                entrees.add(EntreeJournal.subscribeMember(id, gala.getCurrentDate()));
+                return Outcome.applied("inscrit");
+            }
+            case "reserve" -> {
+                arguments(words, 2, 3);
+                int id = intArgument(words[1]);
+                int nbrAccompanist = intArgument(words[2]);
+                int tableId = words.length > 3 ? intArgument(words[3]) : -1;
+                return reserve(gala.getMemberById(id), nbrAccompanist, tableId);
+            }
+            case "group" -> {
+                if(words.length < 2)
+                    throw new IllegalArgumentException("group attend au moins 1 membre");
+                List<SeatRequest> requests = new ArrayList<>(words.length - 1);
+                for(int i = 1; i < words.length; i++)
+                {
+                    int separator = words[i].indexOf(':');
+                    requests.add(separator == -1 ? new SeatRequest(intArgument(words[i]), 0)
+                                                 : new SeatRequest(intArgument(words[i].substring(0, separator)),
+                                                                   intArgument(words[i].substring(separator + 1))));
+                }
+                return reserveGroup(requests);
+            }
+            case "accept" -> {
+                arguments(words, 1, 1);
+                int id = intArgument(words[1]);
+                gala.acceptMember(id);
+                entrees.add(EntreeJournal.acceptMember(id, gala.getCurrentDate()));
+                return Outcome.applied("confirmée");
+            }
+            case "cancel" -> {
+                arguments(words, 1, 1);
+                int id = intArgument(words[1]);
+                List<Reservation> promoted = gala.removeReservation(id);
+                entrees.add(EntreeJournal.removeReservation(id, gala.getCurrentDate()));
+                acceptStaff(promoted);
+                return Outcome.applied(promoted.isEmpty() ? "annulée"
+                                       : "annulée, " + promoted.size() + " membre(s) promu(s) depuis la liste d'attente");
+            }
+            case "repack" -> {
+                arguments(words, 0, 0);
+                if(!entrees.isEmpty()) // the moves are replayed after the commands preceding them
+                    storage.journalize(gala, entrees);
+                entrees.clear();
+                int nbrPromoted = storage.repack(gala);
+                return Outcome.applied(nbrPromoted == 0 ? "tables réorganisées"
+                                       : "tables réorganisées, " + nbrPromoted + " membre(s) promu(s) depuis la liste d'attente");
+            }
+            default -> throw new IllegalArgumentException("commande inconnue");
+        }
+    }
+
+    /**
+     * Réserve des places pour un membre inscrit.
+     * @param member le membre de l'école
+     * @param nbrAccompanist le nombre d'accompagnants
+     * @param tableId la table choisie, ou -1 pour un placement automatique
+     * @return l'issue de la réservation
+     * @throws NoSuchSubscriptionException Le membre n'est pas inscrit au Gala
+     * @throws NoSuchMemberException Le membre du personnel ne peut être confirmé (ne peut pas arriver)
+     */
+    private Outcome reserve(SchoolMember member, int nbrAccompanist, int tableId) throws NoSuchSubscriptionException,
+            NoSuchMemberException
+    {
+        int id = member.getId();
+        if(!gala.isMemberSubscribed(id))
+            throw new NoSuchSubscriptionException("Vous devez être inscrit au Gala pour réserver");
+
+        ReservationResult result = tableId == -1 ? gala.tryAddReservationOrWait(id, nbrAccompanist)
+                                                 : gala.tryAddReservation(id, nbrAccompanist, tableId);
+        if(result.getStatus() == ReservationStatus.WAITLISTED)
+        {
+            entrees.add(EntreeJournal.joinWaitlist(id, nbrAccompanist, gala.getCurrentDate()));
+            return Outcome.applied("en liste d'attente");
+        }
+        if(!result.isAccepted()) // Rejections come without exception, as for the HTTP API
+            return new Outcome(false, result.getStatus().getMessage());
+
+        entrees.add(EntreeJournal.addReservation(id, nbrAccompanist, result.getTableId(), gala.getCurrentDate()));
+        if(member instanceof Staff)
+        {
+            gala.acceptMember(id); // Auto-confirm staff participation
+            entrees.add(EntreeJournal.acceptMember(id, gala.getCurrentDate()));
+        }
+        return Outcome.applied("table " + result.getTableId() + ", " + result.getPrice() + "€");
+    }
+
+    /**
+     * Réserve d'un seul tenant les places d'un groupe de membres inscrits (voir {@link Gala#tryAddGroupReservation(List)}).
+     * @param requests les demandes des membres du groupe
+     * @return l'issue de la réservation
+     * @throws NoSuchSubscriptionException Un membre du groupe n'est pas inscrit au Gala
+     */
+    private Outcome reserveGroup(List<SeatRequest> requests) throws NoSuchSubscriptionException
+    {
+        for(SeatRequest request : requests)
+            if(gala.findMember(request.memberId()) != null && !gala.isMemberSubscribed(request.memberId()))
+                throw new NoSuchSubscriptionException("Le membre " + request.memberId() + " doit être inscrit au Gala pour réserver");
+
+        GroupReservationResult result = gala.tryAddGroupReservation(requests);
+        if(!result.isAccepted())
+            return new Outcome(false, result.getMemberId() == -1 ? result.getStatus().getMessage()
+                                      : "membre " + result.getMemberId() + " : " + result.getStatus().getMessage());
+
+        for(Reservation reservation : result.getReservations())
+            entrees.add(EntreeJournal.addReservation(reservation.getOwner().getId(), reservation.getNbrSeatsOccupied() - 1,
+                                                     reservation.getTableId(), gala.getCurrentDate()));
+        acceptStaff(result.getReservations());
+        IntSet tableIds = new IntSet();
+        for(Reservation reservation : result.getReservations())
+            tableIds.add(reservation.getTableId());
+        int[] sortedIds = tableIds.toArray();
+        Arrays.sort(sortedIds);
+        return Outcome.applied(requests.size() + " membres, tables " + Arrays.toString(sortedIds) + ", " +
+                               result.getPrice() + "€");
+    }
+
+    /**
+     * Confirme d'office la participation des membres du personnel parmi des réservations qui viennent d'être
+     * enregistrées, par un groupe ou par promotion depuis la liste d'attente, comme lors d'une réservation.
+     * @param reservations les réservations
+     */
+    private void acceptStaff(List<Reservation> reservations)
+    {
+        for(Reservation reservation : reservations)
+        {
+            if(!(reservation.getOwner() instanceof Staff staff))
+                continue;
+            try
+            {
+                gala.acceptMember(staff.getId());
+                entrees.add(EntreeJournal.acceptMember(staff.getId(), gala.getCurrentDate()));
+            } catch(NoSuchMemberException e){e.printStackTrace();} // Can't happen, the reservation has just been made
+        }
+    }
+
+    /**
+     * Vérifie le nombre d'arguments d'une commande.
+     * @param words la commande et ses arguments
+     * @param min le nombre minimal d'arguments
+     * @param max le nombre maximal d'arguments
+     * @throws IllegalArgumentException Le nombre d'arguments est incorrect
+     */
+    private static void arguments(String[] words, int min, int max)
+    {
+        int nbrArguments = words.length - 1;
+        if(nbrArguments < min || nbrArguments > max)
+            throw new IllegalArgumentException(words[0] + " attend " + (min == max ? min : min + " à " + max) + " arguments");
+    }
+
+    /**
+     * Lit un argument entier.
+     * @param word l'argument
+     * @return sa valeur
+     * @throws IllegalArgumentException L'argument n'est pas un entier
+     */
+    private static int intArgument(String word)
+    {
+        try
+        {
+            return Integer.parseInt(word);
+        } catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("entier attendu : " + word);
+        }
+    }
+}
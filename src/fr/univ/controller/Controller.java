@@ -1,14 +1,20 @@
 package fr.univ.controller;
 
 import fr.univ.exception.*;
-import fr.univ.io.ServiceStockage;
+import fr.univ.io.EntreeJournal;
 import fr.univ.modele.Gala;
+import fr.univ.modele.Reservation;
+import fr.univ.modele.ReservationResult;
+import fr.univ.modele.ReservationStatus;
+import fr.univ.modele.SchoolMember;
+import fr.univ.modele.Staff;
 import fr.univ.modele.Student;
+import fr.univ.modele.Table;
+import fr.univ.modele.Venue;
 import fr.univ.view.Ihm;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Classe de type Controller, typique des architectures MVC pour faire le lien entre la vue et le modèle.
@@ -16,10 +22,14 @@ import java.time.LocalDate;
 public class Controller
 {
     /**
-     * Attribut permettant d'échanger avec le disque dur afin de sérialiser et charger une instance Gala + les instances
-     * qui y sont attachées.
+     * Nombre de tables affichées par page du plan des tables.
      */
-    private ServiceStockage io;
+    private static final int TABLES_PER_PAGE = 10;
+
+    /**
+     * Attribut en charge de la persistance du Gala : chargement, journalisation des modifications et sauvegarde.
+     */
+    private final GalaStorage storage;
     /**
      * Attribut contenant une instance du modèle Gala.
      */
@@ -46,11 +56,11 @@ public class Controller
      */
     public Controller(LocalDate galaDate)
     {
-        initServiceStockage();
-        initGala(galaDate);
+        this.storage = new GalaStorage();
+        this.gala = storage.initGala(galaDate);
         this.ihm = new Ihm();
 
-        gala.setCurrentDate(galaDate.minusDays(15)); // Gala begin in 15 days
+        storage.advanceDate(gala, galaDate.minusDays(15)); // Gala begin in 15 days
 
         launchApplication();
     }
@@ -58,80 +68,20 @@ public class Controller
     //---------------------------------- INITIALISATION AND I/O METHODS
 
     /**
-     * Initialisation d'une instance ServiceStockage.
+     * Soumet une modification du modèle au journal.
+     * @param entree l'entrée décrivant la modification qui vient d'être appliquée au Gala
      */
-    private void initServiceStockage()
+    private void journalize(EntreeJournal entree)
     {
-        try {
-            io = new ServiceStockage();
-        } catch(IOException e) {
-            System.err.println("Un problème est survenu lors de l'initialisation avec le fichier \033[1mgala.ser\033[0m");
-            e.printStackTrace();
-        }
+        storage.journalize(gala, entree);
     }
 
     /**
-     * Initialisation d'une instance Gala. Si loadGala() ne trouve pas de fichier de sérialisation, alors Gala est
-     * instancié.
-     * @param galaDate
+     * Journalise la réservation que l'utilisateur vient d'effectuer, avec la table qui lui a été attribuée.
      */
-    private void initGala(LocalDate galaDate)
+    private void journalizeReservation()
     {
-        this.gala = loadGala(); // Try to load Gala from file gala.ser
-        if( gala == null ) // if we launch the application for the first time ever
-        {
-            try
-            {
-                gala = new Gala(galaDate);
-            } catch( FileNotFoundException e )
-            {
-                System.err.println("Un fichier permettant l'initialisation des membres de l'école est introuvable.");
-                e.printStackTrace();
-                System.exit(1);
-            }
-            saveGala(gala); // Write on disk the new instance Gala.
-        }
-    }
-
-    /**
-     * Charge une instance Gala depuis le disque dur
-     * @return Une instance Gala sérialisée
-     */
-    private Gala loadGala()
-    {
-        try{
-            Object obj = io.charger();
-            if(obj == null)
-            {
-                return null;
-            }
-            else
-            {
-                return (Gala)obj;
-            }
-        } catch(IOException | ClassNotFoundException e){
-            System.err.println("Une erreur est survenue lors d'un traitement de serialisation");
-            e.printStackTrace();
-            System.exit(1);
-            return null; // This line can't happen. However, remove it generate compilation error.
-        }
-    }
-
-    /**
-     * Sauvegarde une instance Gala sur le disque dur
-     * @param gala l'instant à sauvegarder
-     */
-    private void saveGala(Gala gala)
-    {
-        try
-        {
-            io.enregistrer(gala);
-        } catch(IOException e)
-        {
-            System.err.println("Une erreur est survenue lors de la sauvegarde de l'instance \033[1;31mGala\033[0m.");
-            e.printStackTrace();
-            System.exit(1);
-        }
+        storage.journalizeReservation(gala, userId);
     }
 
     //--------------------------- "USER" METHOD
@@ -162,6 +112,7 @@ public class Controller
             }
         }while(repeatLoop);
 
+        storage.close();
         System.out.println("\nMerci d'avoir utilisé notre application de Gala !");
     }
 
@@ -175,34 +126,24 @@ public class Controller
         {
             userId = ihm.inputLoginNumber();
 
-            if(memberType == 1) // If the member is a Staff
+            SchoolMember member = gala.findMember(userId);
+            if(member == null)
             {
-                try {
-                    gala.getStaffById(userId); // allow the program to know if the user is really a Staff as he has chosen previously
-                } catch(WrongMemberTypeException wmte) // If the user is a Student, we return true to repeat connection procedure
-                {
-                    System.err.println("\n"+wmte.getMessage()+"\n");
-                    return true;
-                } catch(NoSuchMemberException nsme)
-                {
-                    System.err.println("Identifiant invalide. Réessayez.\n");
-                    continue;
-                }
+                System.err.println("Identifiant invalide. Réessayez.\n");
+                continue;
             }
-            else // otherwise, the user is a Student
+
+            // allow the program to know if the user is really of the type he has chosen previously. If not, we return
+            // true to repeat connection procedure
+            if(memberType == 1 && !(member instanceof Staff))
             {
-                try
-                {
-                    gala.getStudentById(userId); // allow the program to know if the user is really a Student as he has chosen previously
-                } catch(WrongMemberTypeException wmte) // If the user is a Staff, we return true to repeat connection procedure
-                {
-                    System.err.println("\n"+wmte.getMessage()+"\n");
-                    return true;
-                } catch(NoSuchMemberException e)
-                {
-                    System.err.println("Identifiant invalide. Réessayez.\n");
-                    continue;
-                }
+                System.err.println("\nLe membre du personnel recherché est en fait un étudiant\n");
+                return true;
+            }
+            if(memberType != 1 && !(member instanceof Student))
+            {
+                System.err.println("\nL'étudiant recherché est en fait un membre du personnel\n");
+                return true;
             }
 
             break;
@@ -240,6 +181,10 @@ public class Controller
             {
                 showReservation(); // ...we show the reservation
             }
+            else if(gala.isMemberWaiting(userId)) // If the member is on the waitlist, a seat will come by itself
+            {
+                ihm.dispMessage("\n" + ReservationStatus.WAITLISTED.getMessage() + ".");
+            }
             else // If the member hasn't a reservation...
             {
                 if(memberType == 1)
@@ -273,7 +218,7 @@ public class Controller
         try
         {
             gala.subscribeMember(userId);
-            saveGala(gala); // serialize Gala because the model has juste changed.
+            journalize(EntreeJournal.subscribeMember(userId, gala.getCurrentDate())); // the model has just changed
         } catch(MemberIsAlreadySubscribeException mhre)
         {
             System.err.println("\n"+mhre.getMessage()+"\n");
@@ -281,20 +226,23 @@ public class Controller
     }
 
     /**
-     * Désincris l'utilisateur du Gala. Supprime également toutes ses réservations.
+     * Désincris l'utilisateur du Gala. Supprime également toutes ses réservations, et le retire de la liste d'attente.
      */
     private void unsubscribeMember()
     {
         try
         {
-            gala.removeReservation(userId);
+            try
+            {
+                storage.journalizeRemoval(gala, userId, gala.removeReservation(userId));
+            } catch(NoSuchReservationException ignored){} // Member doesn't necessarily have a reservation
             gala.unsubscribeMember(userId);
-            saveGala(gala); // serialize Gala because the model has juste changed.
+            journalize(EntreeJournal.unsubscribeMember(userId, gala.getCurrentDate()));
             ihm.dispMessage("\nVous avez été désinscris.");
         } catch(NoSuchSubscriptionException | TooLateToUnsubscribeException e)
         {
             System.err.println("\n"+e.getMessage()+"\n");
-        } catch(NoSuchReservationException ignored){} // Member doesn't necessarily have a reservation
+        }
     }
 
     private void confirmMemberParticipation()
@@ -303,7 +251,7 @@ public class Controller
         {
             try{
                 gala.acceptMember(userId); // confirm member participation
-                saveGala(gala); // serialize Gala because the model has juste changed.
+                journalize(EntreeJournal.acceptMember(userId, gala.getCurrentDate())); // the model has just changed
                 ihm.dispConfirmation();
             } catch( NoSuchMemberException e ){e.printStackTrace();} // Can't happen
         }
@@ -317,7 +265,7 @@ public class Controller
      */
     private boolean haveToDisplayConfirmOption()
     {
-        if(gala.getNbrDaysBeforeGala() > 30 || memberType == 1)
+        if(!gala.isConfirmationOpen() || memberType == 1)
             return false;
 
         return gala.isMemberOnHold(userId);
@@ -335,19 +283,25 @@ public class Controller
 
         do
         {
-            try {
-                int price = gala.addReservation(userId, ihm.chooseNbrAccompanist(maxNbrAccompanist));
-                ihm.dispReservationPrice(price);
-                saveGala(gala); // serialize Gala because the model has juste changed.
-            } catch(MemberAlreadyHasReservationException | NoSeatRemainingException e)
+            int nbrAccompanist = ihm.chooseNbrAccompanist(maxNbrAccompanist);
+            ReservationResult result = gala.tryAddReservationOrWait(userId, nbrAccompanist);
+            if(result.getStatus() == ReservationStatus.ILLEGAL_ACCOMPANIST_NUMBER) // Too much or too few accompanists
+            {
+                System.err.println("\n"+result.getStatus().getMessage()+"\n");
+                continue;
+            }
+            if(result.getStatus() == ReservationStatus.WAITLISTED)
             {
-                System.err.println("\n"+e.getMessage()+"\n");
+                waitlisted(nbrAccompanist);
                 return;
-            } catch(IllegalAccompanistNumberException e) // Too much or too few accompanists
+            }
+            if(!result.isAccepted()) // Already reserved or no seat remaining
             {
-                System.err.println("\n"+e.getMessage()+"\n");
-                continue;
+                System.err.println("\n"+result.getStatus().getMessage()+"\n");
+                return;
             }
+            ihm.dispReservationPrice(result.getPrice());
+            journalizeReservation(); // the model has just changed
             break;
         }while(true);
 
@@ -355,6 +309,40 @@ public class Controller
     }
 
 
+    /**
+     * Affiche le plan des tables d'un public page par page, en laissant l'utilisateur naviguer entre les pages et
+     * n'afficher que les tables ayant assez de places libres, jusqu'à ce qu'il choisisse de réserver. Chaque page est
+     * lue dans le dernier instantané publié du plan des places (voir {@link Gala#getSeatingPlan()}), sans verrou.
+     * @param audience le public dont les tables sont affichées
+     */
+    private void browseTables(Venue.Audience audience)
+    {
+        int minSeatsRemaining = 0;
+        int page = 0;
+        do
+        {
+            List<Table.Snapshot> tables = gala.getSeatingPlan().getTables(audience, minSeatsRemaining);
+            int nbrPages = Math.max(1, (tables.size() + TABLES_PER_PAGE - 1) / TABLES_PER_PAGE);
+            page = Math.min(page, nbrPages - 1);
+
+            ihm.dispTables(tables.subList(page * TABLES_PER_PAGE, Math.min(tables.size(), (page + 1) * TABLES_PER_PAGE)),
+                           page + 1, nbrPages, minSeatsRemaining);
+
+            switch(ihm.chooseTablesPageAction(page > 0, page < nbrPages - 1))
+            {
+                case 's' -> page++;
+                case 'p' -> page--;
+                case 'f' -> {
+                    minSeatsRemaining = ihm.chooseMinSeatsRemaining();
+                    page = 0;
+                }
+                default -> {
+                    return;
+                }
+            }
+        }while(true);
+    }
+
     /**
      * Menu de réservation spécifique au personnel étant donné que les options de base dont ils disposent ne sont pas
      * les mêmes que les options des étudiants.
@@ -370,24 +358,20 @@ public class Controller
         {
             do
             {
-                ihm.dispTables(gala.getStaffTables()); // display tables
-                try
-                {
-                    // retrieve 2 inputs : the number of accompanists, but also the table chosen
-                    int price = gala.addReservation(userId, ihm.chooseNbrAccompanist(maxNbrAccompanist), ihm.chooseTableId());
-                    // Auto-confirm staff participation. By default, they don't have a "(4) Confirmer" option.
-                    gala.acceptMember(userId);
-                    ihm.dispReservationPrice(price);
-                    saveGala(gala); // serialize Gala because the model has juste changed.
-                } catch(MemberAlreadyHasReservationException e)
+                browseTables(Venue.Audience.STAFF); // display tables
+                // retrieve 2 inputs : the number of accompanists, but also the table chosen
+                ReservationResult result = gala.tryAddReservation(userId, ihm.chooseNbrAccompanist(maxNbrAccompanist), ihm.chooseTableId());
+                if(result.getStatus() == ReservationStatus.ALREADY_RESERVED)
                 {
-                    System.err.println("\n"+e.getMessage()+"\n");
+                    System.err.println("\n"+result.getStatus().getMessage()+"\n");
                     return;
-                } catch(TablePermissionException | IllegalAccompanistNumberException | NoSuchTableException | NoSeatRemainingException e)
+                }
+                if(!result.isAccepted()) // Wrong table, too much accompanists or no seat remaining: let the user retry
                 {
-                    System.err.println("\n"+e.getMessage()+"\n");
+                    System.err.println("\n"+result.getStatus().getMessage()+"\n");
                     continue;
-                } catch(NoSuchMemberException e){e.printStackTrace();} // Can't happen
+                }
+                confirmStaffReservation(result.getPrice());
                 break;
             }while(true);
         }
@@ -395,22 +379,25 @@ public class Controller
         {
             do
             {
-                try {
-                    // retrieve 1 input : the number of accompanists
-                    int price = gala.addReservation(userId, ihm.chooseNbrAccompanist(maxNbrAccompanist));
-                    // Auto-confirm staff participation. By default, they don't have a "(4) Confirmer" option.
-                    gala.acceptMember(userId);
-                    ihm.dispReservationPrice(price);
-                    saveGala(gala); // serialize Gala because the model has juste changed.
-                } catch(MemberAlreadyHasReservationException | NoSeatRemainingException e)
+                // retrieve 1 input : the number of accompanists
+                int nbrAccompanist = ihm.chooseNbrAccompanist(maxNbrAccompanist);
+                ReservationResult result = gala.tryAddReservationOrWait(userId, nbrAccompanist);
+                if(result.getStatus() == ReservationStatus.ILLEGAL_ACCOMPANIST_NUMBER)
                 {
-                    System.err.println("\n"+e.getMessage()+"\n");
+                    System.err.println("\n"+result.getStatus().getMessage()+"\n");
+                    continue;
+                }
+                if(result.getStatus() == ReservationStatus.WAITLISTED)
+                {
+                    waitlisted(nbrAccompanist);
                     return;
-                } catch(IllegalAccompanistNumberException e)
+                }
+                if(!result.isAccepted()) // Already reserved or no seat remaining
                 {
-                    System.err.println("\n"+e.getMessage()+"\n");
-                    continue;
-                } catch(NoSuchMemberException e){e.printStackTrace();}
+                    System.err.println("\n"+result.getStatus().getMessage()+"\n");
+                    return;
+                }
+                confirmStaffReservation(result.getPrice());
                 break;
             }while(true);
         }
@@ -418,17 +405,42 @@ public class Controller
         System.out.println("Réservation enregistrée.");
     }
 
+    /**
+     * Journalise la réservation que l'utilisateur, membre du personnel, vient de faire puis confirme sa participation.
+     * Par défaut, le personnel ne dispose pas de l'option "(4) Confirmer".
+     * @param price le coût total de la réservation
+     */
+    private void confirmStaffReservation(int price)
+    {
+        journalizeReservation(); // the model has just changed
+        try
+        {
+            gala.acceptMember(userId);
+            journalize(EntreeJournal.acceptMember(userId, gala.getCurrentDate()));
+        } catch(NoSuchMemberException e){e.printStackTrace();} // Can't happen, the reservation has just been made
+        ihm.dispReservationPrice(price);
+    }
+
+    /**
+     * Journalise l'inscription de l'utilisateur en liste d'attente, faute de place, et l'en informe.
+     * @param nbrAccompanist le nombre d'accompagnants demandé
+     */
+    private void waitlisted(int nbrAccompanist)
+    {
+        journalize(EntreeJournal.joinWaitlist(userId, nbrAccompanist, gala.getCurrentDate())); // the model has just changed
+        ihm.dispMessage("\n" + ReservationStatus.WAITLISTED.getMessage() + ".");
+    }
+
     /**
      * Affiche la réservation actuelle de l'utilisateur (lorsqu'il choisit l'option "(1) Gérer les tables").
      */
     private void showReservation()
     {
-        try {
-            ihm.dispReservation(gala.getReservationById(userId));
-        } catch(NoSuchReservationException nsre)
-        {
-            System.err.println(nsre.getMessage());
-        }
+        Reservation reservation = gala.findReservation(userId);
+        if(reservation == null)
+            System.err.println("La réservation demandée n'existe pas");
+        else
+            ihm.dispReservation(reservation);
     }
 
     /**
@@ -442,19 +454,8 @@ public class Controller
     {
         if(memberType == 1) // If the user is a staff
             return gala.getMAX_STAFF_ACCOMPANIST();
-        else { // if the membre is a student
-            try{
-                Student student = gala.getStudentById(userId);
-                if( student.getYear() == 5 ) // The student is in M2
-                    return gala.getMAX_ACCOMPANIST_M2();
-                else // The student is in <M2
-                    return gala.getMAX_ACCOMPANIST_LESSER_THAN_M2();
-            } catch( WrongMemberTypeException | NoSuchMemberException e ) // Both exceptions shouldn't happen
-            {
-                e.printStackTrace();
-                return 0; // Shouldn't return 0
-            }
-        }
+        else // if the membre is a student, the maximum depends on his year (M2 or <M2)
+            return gala.getMaxAccompanist(gala.findMember(userId));
     }
 }
 
@@ -0,0 +1,492 @@
+package fr.univ.controller;
+
+import fr.univ.exception.NoSuchMemberException;
+import fr.univ.exception.NoSuchReservationException;
+import fr.univ.io.EntreeJournal;
+import fr.univ.io.ServiceJournal;
+import fr.univ.io.ServiceStockage;
+import fr.univ.io.ServiceStockageAsynchrone;
+import fr.univ.io.ServiceStockageBinaire;
+import fr.univ.modele.Gala;
+import fr.univ.modele.Reservation;
+import fr.univ.modele.Staff;
+import fr.univ.modele.Venue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persistance du Gala partagée par les controllers : chargement (ou création) du Gala au démarrage, journalisation des
+ * modifications, sauvegarde complète et fermeture. Une erreur de persistance est fatale : elle est affichée puis
+ * l'application s'arrête, comme l'a toujours fait le Controller.
+ * Lorsque plusieurs threads modifient le Gala, chaque modification et sa journalisation forment une section (voir
+ * {@link #lockMembers(int...)} et {@link #lockAll()}) : le journal reçoit alors les entrées qui dépendent l'une de
+ * l'autre dans l'ordre où elles ont été appliquées, et la compaction, faite en arrière-plan, écrit un instantané
+ * correspondant exactement à une position du journal.
+ */
+class GalaStorage
+{
+    /**
+     * Nombre de verrous répartissant les membres de l'école entre les sections.
+     */
+    private static final int NBR_MEMBER_LOCKS = 64;
+
+    /**
+     * Attribut permettant d'échanger avec le disque dur afin de sérialiser et charger une instance Gala + les instances
+     * qui y sont attachées. Chaque modification du modèle y est journalisée plutôt que de réécrire tout le Gala, et les
+     * écritures ont lieu en arrière-plan afin de ne pas bloquer l'utilisateur. Le journal conserve tout l'historique,
+     * depuis l'instantané d'origine gala.origine.bin.
+     */
+    private ServiceStockageAsynchrone io;
+    /**
+     * Indique que les compactions sont faites en arrière-plan, sous le verrou exclusif de {@link #order}, plutôt que par
+     * le thread qui vient de journaliser.
+     */
+    private final boolean backgroundCompaction;
+    /**
+     * Ordre des entrées du journal. Les modifications qui ne dépendent que des membres qu'elles concernent (inscription,
+     * réservation, confirmation) le partagent ; celles qui libèrent ou déplacent des places ou changent la date, dont
+     * le rejeu dépend de tout ce qui précède, ainsi que la compaction, le prennent seules.
+     */
+    private final ReentrantReadWriteLock order = new ReentrantReadWriteLock();
+    /**
+     * Verrous des membres de l'école : les modifications d'un même membre sont journalisées dans l'ordre où elles ont
+     * été appliquées.
+     */
+    private final ReentrantLock[] memberLocks = new ReentrantLock[NBR_MEMBER_LOCKS];
+    /**
+     * Verrou des inscriptions en liste d'attente, dont le rejeu dans un autre ordre changerait les priorités.
+     */
+    private final ReentrantLock waitlistLock = new ReentrantLock();
+
+    /**
+     * Initialisation d'une instance ServiceStockage, pour un seul thread modifiant le Gala : les compactions sont
+     * faites par ce thread.
+     */
+    GalaStorage()
+    {
+        this(false);
+    }
+
+    /**
+     * Initialisation d'une instance ServiceStockage.
+     * @param backgroundCompaction true si plusieurs threads modifient le Gala, chacun dans une section : les
+     * compactions sont alors faites en arrière-plan
+     */
+    GalaStorage(boolean backgroundCompaction)
+    {
+        this.backgroundCompaction = backgroundCompaction;
+        for(int i = 0; i < NBR_MEMBER_LOCKS; i++)
+            memberLocks[i] = new ReentrantLock();
+
+        try {
+            io = new ServiceStockageAsynchrone(new ServiceJournal(new ServiceStockageBinaire(),
+                                                                  new ServiceStockageBinaire(new File("gala.origine.bin"))));
+        } catch(IOException e) {
+            System.err.println("Un problème est survenu lors de l'initialisation avec le fichier \033[1mgala.journal\033[0m");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Initialisation d'une instance Gala. Si loadGala() ne trouve pas de fichier de sérialisation, alors Gala est
+     * instancié.
+     * @param galaDate La date à laquelle débute le Gala, utilisée si aucun Gala n'a encore été sauvegardé
+     * @return le Gala chargé ou créé
+     */
+    Gala initGala(LocalDate galaDate)
+    {
+        Gala gala = loadGala(); // Try to load Gala from file gala.bin
+        if( gala == null && (gala = loadLegacyGala()) != null ) // Gala was saved with the former Java serialization
+            saveGala(gala); // Convert it to the binary format
+        if( gala == null ) // if we launch the application for the first time ever
+        {
+            try
+            {
+                gala = new Gala(galaDate);
+            } catch( FileNotFoundException e )
+            {
+                System.err.println("Un fichier permettant l'initialisation des membres de l'école est introuvable.");
+                e.printStackTrace();
+                System.exit(1);
+            } catch( IOException e )
+            {
+                System.err.println("Un fichier permettant l'initialisation des membres de l'école est illisible.");
+                e.printStackTrace();
+                System.exit(1);
+            }
+            for(String error : gala.getImportErrors()) // malformed lines were skipped, let the operator know
+                System.err.println(error);
+            saveGala(gala); // Write on disk the new instance Gala.
+        }
+        return gala;
+    }
+
+    /**
+     * Charge une instance Gala depuis le disque dur
+     * @return Une instance Gala sérialisée
+     */
+    private Gala loadGala()
+    {
+        try{
+            Object obj = io.charger();
+            if(obj == null)
+            {
+                return null;
+            }
+            else
+            {
+                return (Gala)obj;
+            }
+        } catch(IOException | ClassNotFoundException e){
+            System.err.println("Une erreur est survenue lors d'un traitement de serialisation");
+            e.printStackTrace();
+            System.exit(1);
+            return null; // This line can't happen. However, remove it generate compilation error.
+        }
+    }
+
+    /**
+     * Charge une instance Gala depuis l'ancien fichier de sérialisation Java gala.ser (et son journal), afin de migrer
+     * une installation existante vers le format binaire.
+     * Si l'ancien fichier ne peut être converti, l'erreur est signalée et l'application s'arrête, plutôt que de créer un
+     * nouveau Gala qui masquerait l'ancien.
+     * @return Une instance Gala, ou null si aucun ancien fichier n'existe
+     */
+    private Gala loadLegacyGala()
+    {
+        File file = new File("gala.ser");
+        if(!file.exists() || file.length() == 0)
+            return null;
+
+        try{
+            ServiceJournal legacy = new ServiceJournal(new ServiceStockage());
+            Object obj = legacy.charger();
+            legacy.fermer();
+            if(!(obj instanceof Gala gala)) // a truncated file reads as null
+                throw new InvalidObjectException("gala.ser ne contient pas de Gala complet");
+            return gala;
+        } catch(IOException | ClassNotFoundException | RuntimeException e){ // RuntimeException: conversion failure
+            System.err.println("L'ancien fichier \033[1mgala.ser\033[0m n'a pas pu être converti : il est conservé tel quel.");
+            e.printStackTrace();
+            System.exit(1);
+            return null; // This line can't happen. However, remove it generate compilation error.
+        }
+    }
+
+    /**
+     * Reconstruit le Gala depuis tout son historique, l'instantané d'origine et chacun des événements journalisés
+     * depuis, puis le sauvegarde : les prochains chargements partiront de l'état reconstruit.
+     * @return le Gala reconstruit
+     */
+    Gala rebuildGala()
+    {
+        Gala gala = null;
+        try
+        {
+            gala = io.reconstruire();
+        } catch(IOException e)
+        {
+            System.err.println("L'historique du \033[1;31mGala\033[0m n'a pas pu être rejoué.");
+            e.printStackTrace();
+            System.exit(1);
+        }
+        saveGala(gala);
+        return gala;
+    }
+
+    /**
+     * Sauvegarde une instance Gala sur le disque dur
+     * @param gala l'instant à sauvegarder
+     */
+    void saveGala(Gala gala)
+    {
+        try
+        {
+            io.enregistrer(gala);
+        } catch(IOException e)
+        {
+            System.err.println("Une erreur est survenue lors de la sauvegarde de l'instance \033[1;31mGala\033[0m.");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Section de modification du Gala : les verrous pris par {@link #lockMembers(int...)}, {@link #lockWaitlists()} ou
+     * {@link #lockAll()}, rendus par {@link #unlock()}.
+     */
+    static final class Section
+    {
+        /**
+         * Les verrous, dans l'ordre où ils ont été pris.
+         */
+        private final Lock[] locks;
+
+        /**
+         * Prend les verrous dans l'ordre donné.
+         * @param locks les verrous
+         */
+        private Section(Lock... locks)
+        {
+            this.locks = locks;
+            for(Lock lock : locks)
+                lock.lock();
+        }
+
+        /**
+         * Rend les verrous, dans l'ordre inverse.
+         */
+        void unlock()
+        {
+            for(int i = locks.length - 1; i >= 0; i--)
+                locks[i].unlock();
+        }
+    }
+
+    /**
+     * Ouvre la section d'une modification qui ne concerne que des membres donnés, et ne libère aucune place :
+     * inscription, réservation, confirmation. De telles sections s'exécutent en parallèle tant qu'elles ne partagent
+     * aucun membre.
+     * @param memberIds les identifiants des membres concernés
+     * @return la section, à fermer par {@link Section#unlock()}
+     */
+    Section lockMembers(int... memberIds)
+    {
+        boolean[] needed = new boolean[NBR_MEMBER_LOCKS];
+        int nbrLocks = 0;
+        for(int memberId : memberIds)
+        {
+            int index = memberLockIndex(memberId);
+            if(!needed[index])
+                nbrLocks++;
+            needed[index] = true;
+        }
+
+        Lock[] locks = new Lock[nbrLocks + 1];
+        locks[0] = order.readLock();
+        for(int i = 0, j = 1; i < NBR_MEMBER_LOCKS; i++) // always taken in the same order
+            if(needed[i])
+                locks[j++] = memberLocks[i];
+        return new Section(locks);
+    }
+
+    /**
+     * Ouvre, à l'intérieur de la section d'un membre, la section de son inscription en liste d'attente.
+     * @return la section, à fermer par {@link Section#unlock()}
+     */
+    Section lockWaitlists()
+    {
+        return new Section(waitlistLock);
+    }
+
+    /**
+     * Ouvre la section d'une modification qui libère ou déplace des places, ou change la date : aucune autre
+     * modification ne s'exécute en même temps.
+     * @return la section, à fermer par {@link Section#unlock()}
+     */
+    Section lockAll()
+    {
+        return new Section(order.writeLock());
+    }
+
+    /**
+     * Le rang du verrou d'un membre de l'école.
+     * @param memberId l'identifiant du membre
+     * @return le rang du verrou du membre dans memberLocks
+     */
+    private static int memberLockIndex(int memberId)
+    {
+        return (memberId * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(NBR_MEMBER_LOCKS));
+    }
+
+    /**
+     * Soumet une modification du modèle au journal, écrite en arrière-plan, puis compacte le journal (en sauvegardant
+     * la totalité du Gala) s'il est devenu trop long.
+     * @param gala le Gala qui vient d'être modifié
+     * @param entree l'entrée décrivant la modification qui vient d'être appliquée au Gala
+     */
+    void journalize(Gala gala, EntreeJournal entree)
+    {
+        journalize(gala, List.of(entree));
+    }
+
+    /**
+     * Soumet ensemble plusieurs modifications du modèle au journal, écrites en arrière-plan, puis compacte le journal
+     * s'il est devenu trop long : la compaction n'est envisagée qu'une fois pour toutes les modifications. Elle est
+     * confiée au thread de compaction si plusieurs threads modifient le Gala, la section en cours ne l'attendant pas.
+     * @param gala le Gala qui vient d'être modifié
+     * @param entrees les entrées décrivant les modifications qui viennent d'être appliquées au Gala, dans l'ordre
+     */
+    void journalize(Gala gala, List<EntreeJournal> entrees)
+    {
+        try
+        {
+            io.soumettre(entrees);
+        } catch(IOException e)
+        {
+            System.err.println("Une erreur est survenue lors de la journalisation d'une modification du \033[1;31mGala\033[0m.");
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        if(!io.compactionRequise())
+            return;
+        if(backgroundCompaction)
+            io.demanderCompaction(gala, order.writeLock()); // written once every section has been left
+        else
+            saveGala(gala);
+    }
+
+    /**
+     * Journalise la réservation qu'un membre vient d'effectuer, avec la table qui lui a été attribuée.
+     * @param gala le Gala qui vient d'être modifié
+     * @param memberId l'identifiant du membre à l'origine de la réservation
+     */
+    void journalizeReservation(Gala gala, int memberId)
+    {
+        try
+        {
+            Reservation reservation = gala.getReservationById(memberId);
+            journalize(gala, EntreeJournal.addReservation(memberId, reservation.getNbrSeatsOccupied() - 1,
+                                                          reservation.getTableId(), gala.getCurrentDate()));
+        } catch(NoSuchReservationException e){e.printStackTrace();} // Can't happen
+    }
+
+    /**
+     * Journalise les réservations d'un groupe (voir {@link Gala#tryAddGroupReservation(List)}), en confirmant d'office
+     * la participation des membres du personnel comme lors d'une réservation. Toutes les entrées sont soumises
+     * ensemble, et la compaction n'est envisagée qu'une fois pour tout le groupe.
+     * @param gala le Gala qui vient d'être modifié
+     * @param group les réservations du groupe
+     */
+    void journalizeGroup(Gala gala, List<Reservation> group)
+    {
+        List<EntreeJournal> entrees = new ArrayList<>(group.size());
+        for(Reservation reservation : group)
+            entrees.add(EntreeJournal.addReservation(reservation.getOwner().getId(), reservation.getNbrSeatsOccupied() - 1,
+                                                     reservation.getTableId(), gala.getCurrentDate()));
+        for(Reservation reservation : group)
+        {
+            if(!(reservation.getOwner() instanceof Staff staff))
+                continue;
+            try
+            {
+                gala.acceptMember(staff.getId()); // Auto-confirm staff participation
+                entrees.add(EntreeJournal.acceptMember(staff.getId(), gala.getCurrentDate()));
+            } catch(NoSuchMemberException e){e.printStackTrace();} // Can't happen, the reservation has just been made
+        }
+        journalize(gala, entrees);
+    }
+
+    /**
+     * Journalise la suppression de la réservation d'un membre. Les membres promus depuis la liste d'attente sur les
+     * places libérées ne sont pas journalisés, le rejeu de la suppression les promouvant de nouveau ; la participation
+     * des membres du personnel parmi eux est en revanche confirmée d'office, comme lors d'une réservation, puis
+     * journalisée.
+     * @param gala le Gala qui vient d'être modifié
+     * @param memberId l'identifiant du membre dont la réservation a été supprimée
+     * @param promoted les réservations des membres promus, retournées par {@link Gala#removeReservation(int)}
+     */
+    void journalizeRemoval(Gala gala, int memberId, List<Reservation> promoted)
+    {
+        journalize(gala, EntreeJournal.removeReservation(memberId, gala.getCurrentDate()));
+        confirmPromotedStaff(gala, promoted);
+    }
+
+    /**
+     * Avance la date du jour du Gala (voir {@link Gala#advanceDate(LocalDate)}) et journalise le changement de date,
+     * puis confirme d'office la participation des membres du personnel promus sur les places des réservations expirées.
+     * Les expirations et les promotions ne sont pas journalisées, le rejeu du changement de date les reproduisant.
+     * Aucune autre modification ne s'exécute pendant le changement de date (voir {@link #lockAll()}).
+     * @param gala le Gala
+     * @param date la nouvelle date du jour
+     */
+    void advanceDate(Gala gala, LocalDate date)
+    {
+        Section section = lockAll();
+        try
+        {
+            if(date.equals(gala.getCurrentDate()))
+                return;
+            List<Reservation> promoted = gala.advanceDate(date);
+            journalize(gala, EntreeJournal.setCurrentDate(date));
+            confirmPromotedStaff(gala, promoted);
+        } finally
+        {
+            section.unlock();
+        }
+    }
+
+    /**
+     * Réorganise les réservations de chaque catégorie de tables (voir {@link Gala#repack(Venue.Category)}) et journalise
+     * chaque réorganisation, puis confirme d'office la participation des membres du personnel promus sur les places
+     * regroupées. Les déplacements et les promotions ne sont pas journalisés, le rejeu de la réorganisation les
+     * reproduisant. Aucune autre modification ne s'exécute pendant la réorganisation (voir {@link #lockAll()}).
+     * @param gala le Gala
+     * @return le nombre de membres promus depuis la liste d'attente
+     */
+    int repack(Gala gala)
+    {
+        Section section = lockAll();
+        try
+        {
+            int nbrPromoted = 0;
+            for(Venue.Category category : gala.getVenue().getCategories())
+            {
+                List<Reservation> promoted = gala.repack(category);
+                journalize(gala, EntreeJournal.repack(category.getIndex(), gala.getCurrentDate()));
+                confirmPromotedStaff(gala, promoted);
+                nbrPromoted += promoted.size();
+            }
+            return nbrPromoted;
+        } finally
+        {
+            section.unlock();
+        }
+    }
+
+    /**
+     * Confirme d'office, puis journalise, la participation des membres du personnel promus depuis la liste d'attente,
+     * que ce soit après une suppression ou l'expiration de réservations (voir {@link Gala#advanceDate(LocalDate)}).
+     * Les promotions elles-mêmes ne sont pas journalisées, le rejeu de l'opération qui les a causées les reproduisant.
+     * @param gala le Gala qui vient d'être modifié
+     * @param promoted les réservations des membres promus
+     */
+    void confirmPromotedStaff(Gala gala, List<Reservation> promoted)
+    {
+        for(Reservation reservation : promoted)
+        {
+            if(!(reservation.getOwner() instanceof Staff staff))
+                continue;
+            try
+            {
+                gala.acceptMember(staff.getId());
+                journalize(gala, EntreeJournal.acceptMember(staff.getId(), gala.getCurrentDate()));
+            } catch(NoSuchMemberException e){e.printStackTrace();} // Can't happen, the reservation has just been made
+        }
+    }
+
+    /**
+     * Attend l'écriture des dernières modifications puis ferme proprement le journal.
+     */
+    void close()
+    {
+        try
+        {
+            io.fermer();
+        } catch(IOException e)
+        {
+            System.err.println("Les dernières modifications du \033[1;31mGala\033[0m n'ont pas pu être sauvegardées.");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,694 @@
+package fr.univ.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.univ.exception.*;
+import fr.univ.io.EntreeJournal;
+import fr.univ.metrics.Metrics;
+import fr.univ.modele.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Controller exposant le Gala à plusieurs utilisateurs simultanés au travers d'une API HTTP/JSON, en remplacement de
+ * la vue console. Chaque requête est traitée sur son propre thread virtuel lorsque la JVM en dispose, sinon sur un pool
+ * de threads. Toutes les requêtes partagent la même instance Gala.
+ *
+ * Les lectures (connexion, liste des tables, statistiques) s'exécutent en parallèle, sans verrou. Chaque modification
+ * est appliquée puis journalisée dans une section de {@link GalaStorage}, afin que le journal contienne dans l'ordre où
+ * elles ont été appliquées les modifications qui dépendent l'une de l'autre (condition pour qu'il puisse être rejoué) :
+ * - inscription, réservation (de groupe comprise) et confirmation ne prennent que les verrous des membres concernés,
+ *   répartis entre 64 verrous, et le verrou d'ordre en mode partagé : elles s'exécutent en parallèle tant qu'elles ne
+ *   partagent aucun verrou de membre. Un placement automatique qui ne trouve pas de place prend en plus le verrou des
+ *   inscriptions en liste d'attente ;
+ * - la désinscription, qui libère des places attribuées aux membres en attente, prend le verrou d'ordre en mode
+ *   exclusif et s'exécute seule.
+ * Une section n'est tenue que le temps de modifier le modèle et de placer les entrées dans la file du journal :
+ * l'écriture sur le disque a lieu en arrière-plan, tout comme la compaction, qui attend le verrou d'ordre exclusif
+ * pour écrire un instantané correspondant exactement à une position du journal.
+ *
+ * Routes :
+ * - POST /login       {"id", "type" ("student" ou "staff", facultatif)} : état du membre
+ * - POST /subscribe   {"id"} : inscription au Gala
+ * - POST /unsubscribe {"id"} : désinscription, et suppression de l'éventuelle réservation
+ * - POST /reserve     {"id", "accompanists", "table" (facultatif)} : réservation, placement automatique sans table
+ * - POST /reserve-group {"ids": [...], "accompanists": [...] (facultatif)} : réservation d'un groupe sur des tables
+ *                     voisines, tout ou rien
+ * - POST /confirm     {"id"} : confirmation de la participation d'un étudiant
+ * - GET  /tables      ?type=student|staff ou ?category=nom : tables et places restantes
+ * - GET  /statistics  : réservations, places et recettes
+ * - GET  /metrics     : les mesures de l'application, en texte (voir {@link Metrics})
+ */
+public class HttpController
+{
+    /**
+     * Port d'écoute par défaut.
+     */
+    public static final int PORT = 8080;
+    /**
+     * Nombre de threads du pool utilisé lorsque la JVM ne dispose pas des threads virtuels.
+     */
+    private static final int NBR_THREADS_FALLBACK = 256;
+
+    /**
+     * Persistance du Gala.
+     */
+    private final GalaStorage storage;
+    /**
+     * L'instance du modèle, partagée par toutes les requêtes.
+     */
+    private final Gala gala;
+    /**
+     * Le serveur HTTP.
+     */
+    private final HttpServer server;
+    /**
+     * Les threads traitant les requêtes.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Crée le controller : charge (ou crée) le Gala et prépare le serveur, sans le démarrer.
+     * @param galaDate La date à laquelle débute le Gala, utilisée si aucun Gala n'a encore été sauvegardé
+     * @param port le port d'écoute, 0 pour un port libre quelconque
+     * @throws IOException Le port ne peut être ouvert
+     */
+    public HttpController(LocalDate galaDate, int port) throws IOException
+    {
+        this.storage = new GalaStorage(true); // requests modify the Gala concurrently
+        this.gala = storage.initGala(galaDate);
+        // Gala begin in 15 days, as in the console application
+        storage.advanceDate(gala, galaDate.minusDays(15));
+
+        // Headers and body are written separately: without TCP_NODELAY, each response waits for the client's
+        // delayed acknowledgement (about 40 ms). Read once by the JDK, before the first server is created.
+        if(System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        this.executor = createExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+
+        route("/login", "POST", this::login);
+        route("/subscribe", "POST", this::subscribe);
+        route("/unsubscribe", "POST", this::unsubscribe);
+        route("/reserve", "POST", this::reserve);
+        route("/reserve-group", "POST", this::reserveGroup);
+        route("/confirm", "POST", this::confirm);
+        route("/tables", "GET", this::tables);
+        route("/statistics", "GET", this::statistics);
+        route("/metrics", "GET", params -> new Response(200, Metrics.dump(), "text/plain; charset=utf-8"));
+    }
+
+    /**
+     * Démarre le serveur.
+     */
+    public void start()
+    {
+        server.start();
+        System.out.println("Gala disponible sur http://localhost:" + getPort());
+    }
+
+    /**
+     * Arrête le serveur après avoir laissé une seconde aux requêtes en cours, puis ferme le journal.
+     */
+    public void stop()
+    {
+        server.stop(1);
+        executor.shutdown();
+        storage.close();
+    }
+
+    /**
+     * Le port sur lequel le serveur écoute.
+     * @return le port d'écoute
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    //---------------------------------- ROUTES
+
+    /**
+     * Connecte un membre de l'école, en vérifiant éventuellement qu'il est du type annoncé.
+     * @param params id, et type facultatif
+     * @return l'état du membre
+     */
+    private Response login(Map<String, String> params)
+    {
+        int id = intParam(params, "id");
+        String type = params.get("type");
+        if(type != null && !type.equals("staff") && !type.equals("student"))
+            throw new IllegalArgumentException("Type de membre inconnu : " + type);
+
+        SchoolMember member = gala.findMember(id);
+        if(member == null)
+            return new Response(404, Json.error("La personne recherchée est introuvable"));
+        if("staff".equals(type) && !(member instanceof Staff))
+            return Response.conflict("Le membre du personnel recherché est en fait un étudiant");
+        if("student".equals(type) && !(member instanceof Student))
+            return Response.conflict("L'étudiant recherché est en fait un membre du personnel");
+
+        return Response.ok(memberJson(member));
+    }
+
+    /**
+     * Inscrit un membre de l'école au Gala.
+     * @param params id
+     * @return l'état du membre
+     */
+    private Response subscribe(Map<String, String> params) throws NoSuchMemberException,
+            MemberIsAlreadySubscribeException
+    {
+        SchoolMember member = gala.getMemberById(intParam(params, "id"));
+        GalaStorage.Section section = storage.lockMembers(member.getId());
+        try
+        {
+            gala.subscribeMember(member.getId());
+            storage.journalize(gala, EntreeJournal.subscribeMember(member.getId(), gala.getCurrentDate()));
+        } finally
+        {
+            section.unlock();
+        }
+        return Response.ok(memberJson(member));
+    }
+
+    /**
+     * Désinscrit un membre de l'école du Gala, supprime son éventuelle réservation et le retire de la liste d'attente.
+     * @param params id
+     * @return l'état du membre
+     */
+    private Response unsubscribe(Map<String, String> params) throws NoSuchMemberException,
+            NoSuchSubscriptionException, TooLateToUnsubscribeException
+    {
+        SchoolMember member = gala.getMemberById(intParam(params, "id"));
+        int id = member.getId();
+        GalaStorage.Section section = storage.lockAll(); // the freed seats go to waiting members
+        try
+        {
+            if(!gala.isMemberSubscribed(id))
+                throw new NoSuchSubscriptionException("Vous n'êtes pas inscrit");
+            try
+            {
+                storage.journalizeRemoval(gala, id, gala.removeReservation(id));
+            } catch(NoSuchReservationException ignored){} // Member doesn't necessarily have a reservation
+            gala.unsubscribeMember(id);
+            storage.journalize(gala, EntreeJournal.unsubscribeMember(id, gala.getCurrentDate()));
+        } finally
+        {
+            section.unlock();
+        }
+        return Response.ok(memberJson(member));
+    }
+
+    /**
+     * Réserve des places pour un membre de l'école inscrit. La participation d'un membre du personnel est confirmée
+     * immédiatement, comme dans l'application console. Lors d'un placement automatique, un membre ne trouvant pas de
+     * place est inscrit en liste d'attente (réponse 202).
+     * @param params id, accompanists (0 par défaut) et table (facultatif, placement automatique sinon)
+     * @return le prix et la table de la réservation, ou l'inscription en liste d'attente
+     */
+    private Response reserve(Map<String, String> params) throws NoSuchMemberException, NoSuchSubscriptionException,
+            IllegalAccompanistNumberException
+    {
+        SchoolMember member = gala.getMemberById(intParam(params, "id"));
+        int id = member.getId();
+        int nbrAccompanist = intParam(params, "accompanists", 0);
+        if(nbrAccompanist < 0)
+            throw new IllegalAccompanistNumberException("Le nombre d'accompagnants ne peut pas être négatif");
+
+        ReservationResult result;
+        GalaStorage.Section section = storage.lockMembers(id);
+        try
+        {
+            if(!gala.isMemberSubscribed(id))
+                throw new NoSuchSubscriptionException("Vous devez être inscrit au Gala pour réserver");
+
+            // Rejections (sold-out tables above all) are answered without building any exception
+            if(params.containsKey("table"))
+                result = gala.tryAddReservation(id, nbrAccompanist, intParam(params, "table"));
+            else if((result = gala.tryAddReservation(id, nbrAccompanist)).getStatus() == ReservationStatus.NO_SEAT_REMAINING)
+            {
+                GalaStorage.Section waitlists = storage.lockWaitlists();
+                try
+                {
+                    result = gala.tryAddReservationOrWait(id, nbrAccompanist);
+                    if(result.getStatus() == ReservationStatus.WAITLISTED)
+                    {
+                        storage.journalize(gala, EntreeJournal.joinWaitlist(id, nbrAccompanist, gala.getCurrentDate()));
+                        return new Response(202, "{\"waitlisted\":true}");
+                    }
+                } finally
+                {
+                    waitlists.unlock();
+                }
+            }
+            if(!result.isAccepted())
+                return rejected(result.getStatus());
+            storage.journalizeReservation(gala, id);
+
+            if(member instanceof Staff)
+            {
+                gala.acceptMember(id); // Auto-confirm staff participation
+                storage.journalize(gala, EntreeJournal.acceptMember(id, gala.getCurrentDate()));
+            }
+        } finally
+        {
+            section.unlock();
+        }
+
+        return Response.ok("{\"price\":" + result.getPrice() + ",\"table\":" + result.getTableId() + "}");
+    }
+
+    /**
+     * Réserve d'un seul tenant les places d'un groupe de membres de l'école inscrits (voir
+     * {@link Gala#tryAddGroupReservation(List)}) : toutes les réservations sont enregistrées, ou aucune. La
+     * participation des membres du personnel est confirmée immédiatement. Un groupe refusé ne rejoint pas la liste
+     * d'attente.
+     * @param params ids, et accompanists (facultatif, aucun accompagnant sinon) : le nombre d'accompagnants de chaque
+     * membre, dans l'ordre des identifiants
+     * @return le prix total et la table de chaque membre, ou le motif du refus et le membre qui l'a causé
+     */
+    private Response reserveGroup(Map<String, String> params) throws NoSuchSubscriptionException
+    {
+        int[] ids = intArrayParam(params, "ids");
+        int[] nbrAccompanists = params.containsKey("accompanists") ? intArrayParam(params, "accompanists")
+                                                                   : new int[ids.length];
+        if(ids.length == 0)
+            throw new IllegalArgumentException("Le groupe est vide");
+        if(nbrAccompanists.length != ids.length)
+            throw new IllegalArgumentException("Paramètre \"accompanists\" invalide : un nombre par membre attendu");
+        List<SeatRequest> requests = new ArrayList<>(ids.length);
+        for(int i = 0; i < ids.length; i++)
+            requests.add(new SeatRequest(ids[i], nbrAccompanists[i]));
+
+        GroupReservationResult result;
+        GalaStorage.Section section = storage.lockMembers(ids);
+        try
+        {
+            for(int id : ids)
+                if(gala.findMember(id) != null && !gala.isMemberSubscribed(id))
+                    throw new NoSuchSubscriptionException("Le membre " + id + " doit être inscrit au Gala pour réserver");
+
+            result = gala.tryAddGroupReservation(requests);
+            if(!result.isAccepted())
+            {
+                Response rejection = rejected(result.getStatus());
+                if(result.getMemberId() == -1)
+                    return rejection;
+                return new Response(rejection.status(), Json.error("Membre " + result.getMemberId() + " : " +
+                                                                   result.getStatus().getMessage()));
+            }
+            storage.journalizeGroup(gala, result.getReservations());
+        } finally
+        {
+            section.unlock();
+        }
+
+        StringBuilder json = new StringBuilder("{\"price\":").append(result.getPrice()).append(",\"tables\":{");
+        for(Reservation reservation : result.getReservations())
+        {
+            if(json.charAt(json.length() - 1) != '{')
+                json.append(',');
+            json.append('"').append(reservation.getOwner().getId()).append("\":").append(reservation.getTableId());
+        }
+        return Response.ok(json.append("}}").toString());
+    }
+
+    /**
+     * La réponse à une demande de réservation refusée, avec le même code que l'exception correspondante.
+     * @param status le motif du refus
+     * @return la réponse
+     */
+    private static Response rejected(ReservationStatus status)
+    {
+        int code = switch(status)
+        {
+            case NO_SUCH_MEMBER, NO_SUCH_TABLE -> 404;
+            case TABLE_PERMISSION -> 403;
+            case ILLEGAL_ACCOMPANIST_NUMBER, DUPLICATE_MEMBER, MIXED_AUDIENCE -> 400;
+            default -> 409;
+        };
+        return new Response(code, Json.error(status.getMessage()));
+    }
+
+    /**
+     * Confirme la participation d'un étudiant dont la réservation est en attente, à 30 jours ou moins du Gala.
+     * @param params id
+     * @return l'état du membre
+     */
+    private Response confirm(Map<String, String> params) throws NoSuchMemberException
+    {
+        SchoolMember member = gala.getMemberById(intParam(params, "id"));
+        int id = member.getId();
+        if(!(member instanceof Student))
+            return Response.conflict("La participation du personnel est confirmée dès la réservation");
+        if(!gala.isConfirmationOpen())
+            return Response.conflict("La confirmation n'est possible qu'à 30 jours ou moins du Gala");
+
+        GalaStorage.Section section = storage.lockMembers(id);
+        try
+        {
+            if(!gala.isMemberOnHold(id))
+                return Response.conflict("Aucune réservation en attente de confirmation");
+            gala.acceptMember(id);
+            storage.journalize(gala, EntreeJournal.acceptMember(id, gala.getCurrentDate()));
+        } finally
+        {
+            section.unlock();
+        }
+        return Response.ok(memberJson(member));
+    }
+
+    /**
+     * Liste les tables et leurs places restantes, toutes décrites par le même instantané du plan des places, sans
+     * verrou.
+     * @param params type (facultatif) : student ou staff, toutes les tables sinon
+     * @return les tables, et le numéro de l'instantané
+     */
+    private Response tables(Map<String, String> params)
+    {
+        String type = params.get("type");
+        SeatingPlan plan = gala.getSeatingPlan();
+        StringBuilder json = new StringBuilder("{\"version\":").append(plan.getVersion()).append(",\"tables\":[");
+        String categoryName = params.get("category");
+        if(categoryName != null)
+        {
+            for(Venue.Category category : gala.getVenue().getCategories())
+                if(category.getName().equals(categoryName))
+                {
+                    appendTables(json, plan.getTables(category),
+                                 category.getAudience() == Venue.Audience.STAFF ? "staff" : "student");
+                    return Response.ok(json.append("]}").toString());
+                }
+            return new Response(404, Json.error("Catégorie de tables inconnue : " + categoryName));
+        }
+        if(type == null || type.equals("student"))
+            appendTables(json, plan.getTables(Venue.Audience.STUDENT, 0), "student");
+        if(type == null || type.equals("staff"))
+            appendTables(json, plan.getTables(Venue.Audience.STAFF, 0), "staff");
+        else if(!type.equals("student"))
+            throw new IllegalArgumentException("Type de table inconnu : " + type);
+
+        return Response.ok(json.append("]}").toString());
+    }
+
+    /**
+     * Décrit les totaux du Gala : réservations, places et recettes par catégorie tarifaire, confirmées ou non, et places
+     * vendues par catégorie de tables. Ne parcourt pas les tables, le tableau de bord peut donc être rafraîchi
+     * souvent.
+     * @param params aucun
+     * @return les totaux
+     */
+    private Response statistics(Map<String, String> params)
+    {
+        GalaStatistics statistics = gala.getStatistics();
+        StringBuilder json = new StringBuilder("{\"reservations\":").append(statistics.getNbrReservations());
+        json.append(",\"confirmed\":").append(statistics.getNbrConfirmedReservations());
+        json.append(",\"onHold\":").append(statistics.getNbrReservationsOnHold());
+        json.append(",\"seats\":").append(statistics.getNbrSeats());
+        json.append(",\"accompanists\":").append(statistics.getNbrAccompanists());
+        json.append(",\"revenue\":").append(statistics.getRevenue());
+        json.append(",\"confirmedRevenue\":").append(statistics.getConfirmedRevenue());
+        json.append(",\"prices\":{");
+        for(PriceCategory category : PriceCategory.values())
+        {
+            if(category.ordinal() > 0)
+                json.append(',');
+            json.append('"').append(category.name()).append("\":{\"reservations\":")
+                .append(statistics.getNbrReservations(category));
+            json.append(",\"confirmed\":").append(statistics.getNbrConfirmedReservations(category));
+            json.append(",\"seats\":").append(statistics.getNbrSeats(category));
+            json.append(",\"accompanists\":").append(statistics.getNbrAccompanists(category));
+            json.append(",\"revenue\":").append(statistics.getRevenue(category));
+            json.append(",\"confirmedRevenue\":").append(statistics.getConfirmedRevenue(category)).append('}');
+        }
+        json.append("},\"categories\":{");
+        List<Venue.Category> categories = gala.getVenue().getCategories();
+        for(Venue.Category category : categories)
+        {
+            if(category.getIndex() > 0)
+                json.append(',');
+            Json.string(json, category.getName()).append(':').append(statistics.getSeatsSold(category));
+        }
+        return Response.ok(json.append("}}").toString());
+    }
+
+    //---------------------------------- JSON
+
+    /**
+     * Décrit un membre de l'école et son état vis-à-vis du Gala.
+     * @param member le membre de l'école
+     * @return l'objet JSON décrivant le membre
+     */
+    private String memberJson(SchoolMember member)
+    {
+        int id = member.getId();
+        StringBuilder json = new StringBuilder("{\"id\":").append(id);
+        json.append(",\"type\":\"").append(member instanceof Staff ? "staff" : "student").append('"');
+        Json.string(json.append(",\"lastName\":"), member.getLastName());
+        Json.string(json.append(",\"firstName\":"), member.getFirstName());
+        json.append(",\"subscribed\":").append(gala.isMemberSubscribed(id));
+        json.append(",\"reserved\":").append(gala.hasReserved(id));
+        json.append(",\"onHold\":").append(gala.isMemberOnHold(id));
+        json.append(",\"waiting\":").append(gala.isMemberWaiting(id));
+        json.append(",\"maxAccompanists\":").append(getMaxNbrAccompanist(member));
+        return json.append('}').toString();
+    }
+
+    /**
+     * Ajoute la description d'une liste de tables.
+     * @param json l'objet JSON en cours d'écriture
+     * @param tables les instantanés des tables
+     * @param type le type des tables : student ou staff
+     */
+    private void appendTables(StringBuilder json, List<Table.Snapshot> tables, String type)
+    {
+        Venue venue = gala.getVenue();
+        for(Table.Snapshot table : tables)
+        {
+            if(json.charAt(json.length() - 1) == '}')
+                json.append(',');
+            json.append("{\"id\":").append(table.tableId())
+                .append(",\"type\":\"").append(type).append('"');
+            Json.string(json.append(",\"category\":"), venue.getCategory(table.tableId()).getName())
+                .append(",\"seatsRemaining\":").append(table.seatsRemaining())
+                .append(",\"capacity\":").append(table.capacity())
+                .append(",\"reservations\":").append(table.reservations().size())
+                .append('}');
+        }
+    }
+
+    /**
+     * Calcule le nombre maximal d'accompagnants d'un membre de l'école.
+     * @param member le membre de l'école
+     * @return le nombre maximal d'accompagnants
+     */
+    private int getMaxNbrAccompanist(SchoolMember member)
+    {
+        if(member instanceof Student student)
+            return student.getYear() == 5 ? gala.getMAX_ACCOMPANIST_M2() : gala.getMAX_ACCOMPANIST_LESSER_THAN_M2();
+        return gala.getMAX_STAFF_ACCOMPANIST();
+    }
+
+    //---------------------------------- HTTP
+
+    /**
+     * Traitement d'une route.
+     */
+    @FunctionalInterface
+    private interface Route
+    {
+        Response handle(Map<String, String> params) throws Exception;
+    }
+
+    /**
+     * Réponse à une requête : un code HTTP et un corps, un objet JSON le plus souvent.
+     * @param status le code HTTP
+     * @param body le corps de la réponse
+     * @param contentType le type du corps
+     */
+    private record Response(int status, String body, String contentType)
+    {
+        Response(int status, String body)
+        {
+            this(status, body, "application/json; charset=utf-8");
+        }
+
+        static Response ok(String body)
+        {
+            return new Response(200, body);
+        }
+
+        static Response conflict(String message)
+        {
+            return new Response(409, Json.error(message));
+        }
+    }
+
+    /**
+     * Enregistre une route. Les exceptions du modèle sont traduites en codes HTTP : 404 pour un élément introuvable,
+     * 403 pour une table interdite, 400 pour une requête invalide et 409 pour une opération incompatible avec l'état
+     * du Gala.
+     * @param path le chemin exact de la route
+     * @param method la méthode HTTP acceptée
+     * @param route le traitement de la route
+     */
+    private void route(String path, String method, Route route)
+    {
+        server.createContext(path, exchange -> {
+            Response response;
+            try
+            {
+                if(!exchange.getRequestURI().getPath().equals(path))
+                    response = new Response(404, Json.error("Route inconnue"));
+                else if(!exchange.getRequestMethod().equals(method))
+                    response = new Response(405, Json.error("Méthode non autorisée, " + method + " attendu"));
+                else
+                    response = route.handle(params(exchange));
+            } catch(NoSuchMemberException | NoSuchTableException | NoSuchReservationException |
+                    NoSuchSubscriptionException e)
+            {
+                response = new Response(404, Json.error(e.getMessage()));
+            } catch(TablePermissionException e)
+            {
+                response = new Response(403, Json.error(e.getMessage()));
+            } catch(IllegalAccompanistNumberException | IllegalArgumentException e)
+            {
+                response = new Response(400, Json.error(e.getMessage()));
+            } catch(MemberIsAlreadySubscribeException | MemberAlreadyHasReservationException |
+                    NoSeatRemainingException | TooLateToUnsubscribeException | WrongMemberTypeException e)
+            {
+                response = Response.conflict(e.getMessage());
+            } catch(Exception e)
+            {
+                e.printStackTrace();
+                response = new Response(500, Json.error("Erreur interne"));
+            }
+            send(exchange, response);
+        });
+    }
+
+    /**
+     * Réunit les paramètres d'une requête : ceux de l'URL puis ceux du corps JSON.
+     * @param exchange la requête
+     * @return les paramètres, indexés par nom
+     * @throws IOException Le corps de la requête ne peut être lu
+     */
+    private static Map<String, String> params(HttpExchange exchange) throws IOException
+    {
+        Map<String, String> params = Json.parseObject(new String(exchange.getRequestBody().readAllBytes(),
+                                                                 StandardCharsets.UTF_8));
+        String query = exchange.getRequestURI().getRawQuery();
+        if(query != null)
+        {
+            for(String pair : query.split("&"))
+            {
+                int equals = pair.indexOf('=');
+                if(equals > 0)
+                    params.putIfAbsent(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                                       URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Envoie la réponse et termine l'échange.
+     * @param exchange la requête
+     * @param response la réponse
+     * @throws IOException La réponse ne peut être envoyée
+     */
+    private static void send(HttpExchange exchange, Response response) throws IOException
+    {
+        byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType());
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try(OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Lit un paramètre entier obligatoire.
+     * @param params les paramètres de la requête
+     * @param name le nom du paramètre
+     * @return la valeur du paramètre
+     * @throws IllegalArgumentException Le paramètre est absent ou n'est pas un entier
+     */
+    private static int intParam(Map<String, String> params, String name)
+    {
+        String value = params.get(name);
+        if(value == null)
+            throw new IllegalArgumentException("Paramètre \"" + name + "\" manquant");
+        try
+        {
+            return Integer.parseInt(value);
+        } catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Paramètre \"" + name + "\" invalide : " + value);
+        }
+    }
+
+    /**
+     * Lit un paramètre obligatoire formé d'un tableau d'entiers.
+     * @param params les paramètres de la requête
+     * @param name le nom du paramètre
+     * @return les entiers du tableau
+     * @throws IllegalArgumentException Le paramètre est absent ou n'est pas un tableau d'entiers
+     */
+    private static int[] intArrayParam(Map<String, String> params, String name)
+    {
+        String value = params.get(name);
+        if(value == null)
+            throw new IllegalArgumentException("Paramètre \"" + name + "\" manquant");
+        try
+        {
+            return Json.parseIntArray(value);
+        } catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Paramètre \"" + name + "\" invalide : " + value);
+        }
+    }
+
+    /**
+     * Lit un paramètre entier facultatif.
+     * @param params les paramètres de la requête
+     * @param name le nom du paramètre
+     * @param defaultValue la valeur utilisée si le paramètre est absent
+     * @return la valeur du paramètre
+     * @throws IllegalArgumentException Le paramètre n'est pas un entier
+     */
+    private static int intParam(Map<String, String> params, String name, int defaultValue)
+    {
+        return params.containsKey(name) ? intParam(params, name) : defaultValue;
+    }
+
+    /**
+     * Crée l'exécuteur des requêtes : un thread virtuel par requête si la JVM le permet (Java 21 et plus), un pool de
+     * threads sinon. La méthode est appelée par réflexion afin que l'application compile et fonctionne sur Java 17.
+     * @return l'exécuteur des requêtes
+     */
+    private static ExecutorService createExecutor()
+    {
+        try
+        {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(ReflectiveOperationException e) // no virtual threads (or preview features disabled)
+        {
+            return Executors.newFixedThreadPool(NBR_THREADS_FALLBACK);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package fr.univ.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lecture et écriture du JSON échangé par {@link HttpController}. Les requêtes ne contiennent que des objets plats
+ * (nombres, chaînes et booléens, ou tableaux de nombres), un analyseur complet n'est donc pas nécessaire.
+ */
+final class Json
+{
+    private Json() {}
+
+    /**
+     * Analyse un objet JSON plat.
+     * @param body le texte de l'objet, éventuellement vide
+     * @return les valeurs de l'objet, sous forme de texte, indexées par nom. Les éléments d'un tableau sont séparés par
+     * des virgules (voir {@link #parseIntArray(String)}).
+     * @throws IllegalArgumentException Le texte n'est pas un objet JSON plat
+     */
+    static Map<String, String> parseObject(String body)
+    {
+        Map<String, String> values = new HashMap<>();
+        Reader in = new Reader(body);
+        in.skipSpaces();
+        if(in.atEnd())
+            return values; // an empty body stands for an empty object
+
+        in.expect('{');
+        in.skipSpaces();
+        if(in.peek() == '}')
+            return values;
+        do
+        {
+            in.skipSpaces();
+            String name = in.readString();
+            in.skipSpaces();
+            in.expect(':');
+            in.skipSpaces();
+            values.put(name, switch(in.peek())
+            {
+                case '"' -> in.readString();
+                case '[' -> in.readArray();
+                default -> in.readLiteral();
+            });
+            in.skipSpaces();
+        } while(in.tryRead(','));
+        in.expect('}');
+        return values;
+    }
+
+    /**
+     * Lit les entiers d'un tableau analysé par {@link #parseObject(String)}.
+     * @param value le tableau, ses éléments séparés par des virgules
+     * @return les entiers du tableau
+     * @throws NumberFormatException Un élément n'est pas un entier
+     */
+    static int[] parseIntArray(String value)
+    {
+        if(value.isEmpty())
+            return new int[0];
+        String[] elements = value.split(",");
+        int[] result = new int[elements.length];
+        for(int i = 0; i < elements.length; i++)
+            result[i] = Integer.parseInt(elements[i]);
+        return result;
+    }
+
+    /**
+     * Ecrit une chaîne JSON, entre guillemets et échappée.
+     * @param out le texte en cours d'écriture
+     * @param value la chaîne
+     * @return out
+     */
+    static StringBuilder string(StringBuilder out, String value)
+    {
+        out.append('"');
+        for(int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            switch(c)
+            {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if(c < 0x20)
+                        out.append(String.format("\\u%04x", (int)c));
+                    else
+                        out.append(c);
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Construit un objet JSON ne contenant qu'un message d'erreur.
+     * @param message le message
+     * @return l'objet JSON
+     */
+    static String error(String message)
+    {
+        return string(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    /**
+     * Curseur sur le texte en cours d'analyse.
+     */
+    private static final class Reader
+    {
+        private final String text;
+        private int position;
+
+        private Reader(String text)
+        {
+            this.text = text;
+        }
+
+        private boolean atEnd()
+        {
+            return position >= text.length();
+        }
+
+        private char peek()
+        {
+            if(atEnd())
+                throw new IllegalArgumentException("JSON incomplet");
+            return text.charAt(position);
+        }
+
+        private void skipSpaces()
+        {
+            while(!atEnd() && Character.isWhitespace(text.charAt(position)))
+                position++;
+        }
+
+        private boolean tryRead(char c)
+        {
+            if(atEnd() || text.charAt(position) != c)
+                return false;
+            position++;
+            return true;
+        }
+
+        private void expect(char c)
+        {
+            if(!tryRead(c))
+                throw new IllegalArgumentException("JSON invalide : '" + c + "' attendu en position " + position);
+        }
+
+        private String readString()
+        {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while(peek() != '"')
+            {
+                char c = text.charAt(position++);
+                if(c == '\\')
+                {
+                    char escaped = peek();
+                    position++;
+                    switch(escaped)
+                    {
+                        case 'n' -> value.append('\n');
+                        case 'r' -> value.append('\r');
+                        case 't' -> value.append('\t');
+                        case 'b' -> value.append('\b');
+                        case 'f' -> value.append('\f');
+                        case 'u' -> {
+                            if(position + 4 > text.length())
+                                throw new IllegalArgumentException("JSON incomplet");
+                            value.append((char)Integer.parseInt(text.substring(position, position + 4), 16));
+                            position += 4;
+                        }
+                        default -> value.append(escaped);
+                    }
+                }
+                else
+                    value.append(c);
+            }
+            position++;
+            return value.toString();
+        }
+
+        private String readArray()
+        {
+            expect('[');
+            StringBuilder value = new StringBuilder();
+            skipSpaces();
+            if(tryRead(']'))
+                return "";
+            do
+            {
+                skipSpaces();
+                if(!value.isEmpty())
+                    value.append(',');
+                value.append(readLiteral());
+                skipSpaces();
+            } while(tryRead(','));
+            expect(']');
+            return value.toString();
+        }
+
+        private String readLiteral()
+        {
+            int start = position;
+            while(!atEnd() && "-+.eE0123456789truefalsn".indexOf(text.charAt(position)) >= 0)
+                position++;
+            if(start == position)
+                throw new IllegalArgumentException("JSON invalide : valeur attendue en position " + position);
+            return text.substring(start, position);
+        }
+    }
+}
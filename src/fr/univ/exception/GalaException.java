@@ -0,0 +1,43 @@
+package fr.univ.exception;
+
+import java.io.Serial;
+
+/**
+ * Classe mère des exceptions signalant le refus d'une opération du Gala : table complète, membre déjà inscrit, nombre
+ * d'accompagnants incorrect, etc. Ces refus font partie du fonctionnement normal de l'application et ne sont pas des
+ * erreurs de programmation. La pile d'appels n'est donc pas capturée : créer une de ces exceptions coûte alors à peine
+ * plus que créer un objet ordinaire, même lorsque les refus s'enchaînent.
+ */
+public abstract class GalaException extends Exception
+{
+    /**
+     * Version 1 de la forme sérialisée, celle de la première version de cette classe. La pile d'appels n'étant jamais
+     * capturée, elle y est vide.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    protected GalaException() {}
+
+    protected GalaException(String message) {
+        super(message);
+    }
+
+    protected GalaException(Throwable cause) {
+        super(cause);
+    }
+
+    protected GalaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Ne capture pas la pile d'appels, coûteuse à construire et inutile pour un refus.
+     * @return cette exception
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace()
+    {
+        return this;
+    }
+}
@@ -3,7 +3,7 @@ package fr.univ.exception;
 /**
  * Exception levée lorsque l'utilisateur choisit un nombre d'accompagnants trop élevé ou négatif.
  */
-public class IllegalAccompanistNumberException extends Exception
+public class IllegalAccompanistNumberException extends GalaException
 {
     public IllegalAccompanistNumberException() {}
 
@@ -4,7 +4,7 @@ package fr.univ.exception;
  * Exception levée lorsque le membre de l'école a déjà une réservation et qu'il en fait une nouvelle.
  * Cette exception ne devrait jamais être levée.
  */
-public class MemberAlreadyHasReservationException extends Exception
+public class MemberAlreadyHasReservationException extends GalaException
 {
     public MemberAlreadyHasReservationException() {}
 
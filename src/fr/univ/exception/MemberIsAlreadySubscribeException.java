@@ -4,7 +4,7 @@ package fr.univ.exception;
  * Exception levée lorsque l'utilisateur s'inscrit au Gala alors qu'il était déjà inscris.
  * Cette exception ne devrait jamais être levée.
  */
-public class MemberIsAlreadySubscribeException extends Exception
+public class MemberIsAlreadySubscribeException extends GalaException
 {
     public MemberIsAlreadySubscribeException() {}
 
@@ -5,7 +5,7 @@ package fr.univ.exception;
  * table choisit par l'utilisateur, ou lorsque l'utilisateur remet le choix du numéro de table au programme mais qu'il
  * n'y a manifestement plus une place de disponible.
  */
-public class NoSeatRemainingException extends Exception
+public class NoSeatRemainingException extends GalaException
 {
     public NoSeatRemainingException() {}
 
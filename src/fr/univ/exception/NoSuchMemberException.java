@@ -3,7 +3,7 @@ package fr.univ.exception;
 /**
  * Exception levée lorsqu'un membre ne répond à un identifiant donné.
  */
-public class NoSuchMemberException extends Exception
+public class NoSuchMemberException extends GalaException
 {
     public NoSuchMemberException() {}
 
@@ -4,7 +4,7 @@ package fr.univ.exception;
  * Exception levée quand aucune réservation ne correspond à un id donné.
  * Cette exception ne devrait jamais être levée.
  */
-public class NoSuchReservationException extends Exception
+public class NoSuchReservationException extends GalaException
 {
     public NoSuchReservationException() {}
 
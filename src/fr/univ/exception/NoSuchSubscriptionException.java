@@ -5,7 +5,7 @@ package fr.univ.exception;
  * inscris.
  * Cette exception ne devrait jamais être levée.
  */
-public class NoSuchSubscriptionException extends Exception
+public class NoSuchSubscriptionException extends GalaException
 {
     public NoSuchSubscriptionException() {}
 
@@ -3,7 +3,7 @@ package fr.univ.exception;
 /**
  * Exception levée lorsque la table choisit par l'utilisateur n'existe pas.
  */
-public class NoSuchTableException extends Exception
+public class NoSuchTableException extends GalaException
 {
     public NoSuchTableException() {}
 
@@ -4,7 +4,7 @@ package fr.univ.exception;
  * Exception levée lorsqu'un utilisateur (typiquement un membre du personnel) fait une réservation pour une table
  * d'étudiants.
  */
-public class TablePermissionException extends Exception
+public class TablePermissionException extends GalaException
 {
     public TablePermissionException() {}
 
@@ -8,7 +8,7 @@ package fr.univ.exception;
  * de recommencer l'opération en totalité. Cela évite que l'utilisateur reste bloqué indéfiniment sur un message
  * d'erreur tel que "Identifiant incorrect, essayez un nouvel identifiant".
  */
-public class WrongMemberTypeException extends Exception
+public class WrongMemberTypeException extends GalaException
 {
     public WrongMemberTypeException() {}
 
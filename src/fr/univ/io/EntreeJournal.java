@@ -0,0 +1,255 @@
+package fr.univ.io;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Classe représentant une entrée du journal des modifications du Gala, c'est-à-dire un événement immuable. Une entrée
+ * correspond à une seule mutation du modèle (inscription, réservation, confirmation, annulation, désinscription, entrée
+ * ou sortie de la liste d'attente, changement de la date du jour, réorganisation d'une catégorie de tables) et occupe un nombre fixe d'octets sur le disque, ce
+ * qui permet de l'ajouter en fin de fichier sans réécrire le reste du Gala, et de retrouver le n-ième événement sans
+ * lire les précédents.
+ */
+public final class EntreeJournal
+{
+    /**
+     * Les différentes mutations du Gala pouvant être journalisées.
+     */
+    public enum Operation
+    {
+        SUBSCRIBE_MEMBER,
+        ADD_RESERVATION,
+        ACCEPT_MEMBER,
+        REMOVE_RESERVATION,
+        UNSUBSCRIBE_MEMBER,
+        JOIN_WAITLIST,
+        LEAVE_WAITLIST,
+        SET_CURRENT_DATE,
+        REPACK
+    }
+
+    /**
+     * Taille en octets d'une entrée sérialisée : l'opération, l'identifiant du membre, le nombre d'accompagnants,
+     * l'identifiant de la table et la date du jour (en nombre de jours depuis l'epoch).
+     */
+    public static final int TAILLE = 1 + 4 + 4 + 4 + 8;
+
+    /**
+     * La mutation effectuée sur le Gala.
+     */
+    private final Operation operation;
+    /**
+     * L'identifiant du membre de l'école concerné par la mutation.
+     */
+    private final int memberId;
+    /**
+     * Le nombre d'accompagnants. N'a de sens que pour une réservation ou une inscription en liste d'attente.
+     */
+    private final int nbrAccompanist;
+    /**
+     * L'identifiant de la table retenue pour une réservation, ou le rang de la catégorie de tables réorganisée.
+     */
+    private final int tableId;
+    /**
+     * La date du jour au moment de la mutation. Elle est rejouée afin que les règles dépendant de la date (comme
+     * l'impossibilité de se désinscrire à moins de 10 jours du Gala) donnent le même résultat au chargement.
+     */
+    private final LocalDate date;
+
+    /**
+     * Constructeur en charge d'initialiser une entrée du journal.
+     * @param operation la mutation effectuée
+     * @param memberId l'identifiant du membre de l'école concerné
+     * @param nbrAccompanist le nombre d'accompagnants (0 si l'opération n'est ni une réservation ni une inscription en
+     * liste d'attente)
+     * @param tableId l'identifiant de la table (0 si l'opération n'est pas une réservation)
+     * @param date la date du jour au moment de la mutation
+     */
+    private EntreeJournal(Operation operation, int memberId, int nbrAccompanist, int tableId, LocalDate date)
+    {
+        this.operation = operation;
+        this.memberId = memberId;
+        this.nbrAccompanist = nbrAccompanist;
+        this.tableId = tableId;
+        this.date = date;
+    }
+
+    /**
+     * Crée une entrée correspondant à l'inscription d'un membre de l'école.
+     * @param memberId l'identifiant du membre
+     * @param date la date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal subscribeMember(int memberId, LocalDate date)
+    {
+        return new EntreeJournal(Operation.SUBSCRIBE_MEMBER, memberId, 0, 0, date);
+    }
+
+    /**
+     * Crée une entrée correspondant à une réservation. La table retenue est toujours enregistrée, même lorsqu'elle a
+     * été choisie automatiquement, afin que le rejeu place la réservation exactement au même endroit.
+     * @param memberId l'identifiant du membre
+     * @param nbrAccompanist le nombre d'accompagnants
+     * @param tableId l'identifiant de la table recevant la réservation
+     * @param date la date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal addReservation(int memberId, int nbrAccompanist, int tableId, LocalDate date)
+    {
+        return new EntreeJournal(Operation.ADD_RESERVATION, memberId, nbrAccompanist, tableId, date);
+    }
+
+    /**
+     * Crée une entrée correspondant à la confirmation de la participation d'un membre.
+     * @param memberId l'identifiant du membre
+     * @param date la date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal acceptMember(int memberId, LocalDate date)
+    {
+        return new EntreeJournal(Operation.ACCEPT_MEMBER, memberId, 0, 0, date);
+    }
+
+    /**
+     * Crée une entrée correspondant à la suppression d'une réservation.
+     * @param memberId l'identifiant du membre
+     * @param date la date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal removeReservation(int memberId, LocalDate date)
+    {
+        return new EntreeJournal(Operation.REMOVE_RESERVATION, memberId, 0, 0, date);
+    }
+
+    /**
+     * Crée une entrée correspondant à la désinscription d'un membre.
+     * @param memberId l'identifiant du membre
+     * @param date la date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal unsubscribeMember(int memberId, LocalDate date)
+    {
+        return new EntreeJournal(Operation.UNSUBSCRIBE_MEMBER, memberId, 0, 0, date);
+    }
+
+    /**
+     * Crée une entrée correspondant à l'inscription d'un membre en liste d'attente. Les places libérées par la suite
+     * lui sont attribuées lors du rejeu des suppressions de réservations, comme elles l'ont été par l'application.
+     * @param memberId l'identifiant du membre
+     * @param nbrAccompanist le nombre d'accompagnants
+     * @param date la date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal joinWaitlist(int memberId, int nbrAccompanist, LocalDate date)
+    {
+        return new EntreeJournal(Operation.JOIN_WAITLIST, memberId, nbrAccompanist, 0, date);
+    }
+
+    /**
+     * Crée une entrée correspondant au retrait d'un membre de la liste d'attente.
+     * @param memberId l'identifiant du membre
+     * @param date la date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal leaveWaitlist(int memberId, LocalDate date)
+    {
+        return new EntreeJournal(Operation.LEAVE_WAITLIST, memberId, 0, 0, date);
+    }
+
+    /**
+     * Crée une entrée correspondant au changement de la date du jour. Les réservations expirées et les promotions depuis
+     * la liste d'attente qui en découlent ne sont pas journalisées : le rejeu du changement de date les reproduit.
+     * @param date la nouvelle date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal setCurrentDate(LocalDate date)
+    {
+        return new EntreeJournal(Operation.SET_CURRENT_DATE, 0, 0, 0, date);
+    }
+
+    /**
+     * Crée une entrée correspondant à la réorganisation d'une catégorie de tables (voir
+     * {@link fr.univ.modele.Gala#repack(fr.univ.modele.Venue.Category)}). Les déplacements de réservations et les
+     * promotions depuis la liste d'attente qui en découlent ne sont pas journalisés : la réorganisation ne dépendant que
+     * de l'état du Gala, son rejeu les reproduit.
+     * @param categoryIndex le rang de la catégorie de tables
+     * @param date la date du jour
+     * @return l'entrée du journal
+     */
+    public static EntreeJournal repack(int categoryIndex, LocalDate date)
+    {
+        return new EntreeJournal(Operation.REPACK, 0, 0, categoryIndex, date);
+    }
+
+    /**
+     * Ecrit l'entrée dans le buffer, à sa position courante.
+     * @param buffer le buffer de destination, disposant d'au moins {@link #TAILLE} octets restants
+     */
+    void ecrire(ByteBuffer buffer)
+    {
+        buffer.put((byte)operation.ordinal());
+        buffer.putInt(memberId);
+        buffer.putInt(nbrAccompanist);
+        buffer.putInt(tableId);
+        buffer.putLong(date.toEpochDay());
+    }
+
+    /**
+     * Lit une entrée depuis le buffer, à sa position courante.
+     * @param buffer le buffer source, disposant d'au moins {@link #TAILLE} octets restants
+     * @return l'entrée lue, ou null si l'opération lue est inconnue
+     */
+    static EntreeJournal lire(ByteBuffer buffer)
+    {
+        int ordinal = buffer.get();
+        int memberId = buffer.getInt();
+        int nbrAccompanist = buffer.getInt();
+        int tableId = buffer.getInt();
+        long epochDay = buffer.getLong();
+
+        if(ordinal < 0 || ordinal >= Operation.values().length)
+            return null;
+
+        return new EntreeJournal(Operation.values()[ordinal], memberId, nbrAccompanist, tableId, LocalDate.ofEpochDay(epochDay));
+    }
+
+    /**
+     * Retourne la mutation effectuée
+     * @return la mutation effectuée
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Retourne l'identifiant du membre de l'école concerné
+     * @return l'identifiant du membre de l'école concerné
+     */
+    public int getMemberId() {
+        return memberId;
+    }
+
+    /**
+     * Retourne le nombre d'accompagnants de la réservation
+     * @return le nombre d'accompagnants de la réservation
+     */
+    public int getNbrAccompanist() {
+        return nbrAccompanist;
+    }
+
+    /**
+     * Retourne l'identifiant de la table de la réservation, ou le rang de la catégorie réorganisée
+     * @return l'identifiant de la table de la réservation, ou le rang de la catégorie réorganisée
+     */
+    public int getTableId() {
+        return tableId;
+    }
+
+    /**
+     * Retourne la date du jour au moment de la mutation
+     * @return la date du jour au moment de la mutation
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+}
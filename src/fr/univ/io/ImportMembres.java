@@ -0,0 +1,341 @@
+package fr.univ.io;
+
+import fr.univ.modele.SchoolMember;
+import fr.univ.modele.Staff;
+import fr.univ.modele.Student;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Import des membres de l'école depuis un jeu de données au format texte, un membre par ligne et des champs séparés
+ * par des tabulations. Le fichier est projeté en mémoire et découpé en tranches (sur des fins de ligne) analysées en
+ * parallèle. Les champs sont lus directement dans les octets du fichier, sans passer par une chaîne par ligne ni par
+ * {@link String#split(String)}. Une ligne mal formée n'interrompt pas l'import : elle est signalée dans le résultat.
+ */
+public final class ImportMembres
+{
+    /**
+     * Le type de membre décrit par un jeu de données, et le nombre de champs attendus par ligne.
+     */
+    public enum Type
+    {
+        /**
+         * id, nom, prénom, téléphone, mail, année
+         */
+        STUDENT(6),
+        /**
+         * id, nom, prénom, téléphone, mail
+         */
+        STAFF(5);
+
+        /**
+         * Le nombre de champs attendus sur chaque ligne.
+         */
+        private final int nbrChamps;
+
+        /**
+         * Constructeur en charge d'initialiser un type de membre.
+         * @param nbrChamps le nombre de champs attendus sur chaque ligne
+         */
+        Type(int nbrChamps)
+        {
+            this.nbrChamps = nbrChamps;
+        }
+    }
+
+    /**
+     * Taille minimale d'une tranche analysée par un même thread. En deçà, le découpage coûte plus qu'il ne rapporte.
+     */
+    private static final int TAILLE_TRANCHE_MIN = 1 << 20;
+
+    private ImportMembres() {}
+
+    /**
+     * Importe les membres décrits par un jeu de données.
+     * @param fichier le jeu de données
+     * @param type le type de membre décrit par le fichier
+     * @return les membres importés et les lignes rejetées, dans l'ordre du fichier
+     * @throws FileNotFoundException Le fichier n'existe pas
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public static ResultatImport importer(Path fichier, Type type) throws IOException
+    {
+        ByteBuffer contenu;
+        try(FileChannel channel = FileChannel.open(fichier, StandardOpenOption.READ))
+        {
+            if(channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Le jeu de données " + fichier + " est trop volumineux");
+            contenu = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch(NoSuchFileException e)
+        {
+            throw new FileNotFoundException(fichier.toString());
+        }
+
+        int[] bornes = decouper(contenu);
+        List<Tranche> tranches = IntStream.range(0, bornes.length - 1)
+                                          .parallel()
+                                          .mapToObj(i -> analyser(contenu, bornes[i], bornes[i + 1], type))
+                                          .toList();
+
+        // Line numbers are local to each slice until the slices are put back in file order.
+        List<SchoolMember> membres = new ArrayList<>();
+        List<String> erreurs = new ArrayList<>();
+        int premiereLigne = 0;
+        for(Tranche tranche : tranches)
+        {
+            membres.addAll(tranche.membres);
+            for(int i = 0; i < tranche.erreurs.size(); i++)
+                erreurs.add(fichier.getFileName() + ", ligne " + (premiereLigne + tranche.lignesErreurs.get(i)) +
+                            " : " + tranche.erreurs.get(i));
+            premiereLigne += tranche.nbrLignes;
+        }
+
+        return new ResultatImport(membres, erreurs);
+    }
+
+    /**
+     * Découpe le contenu en tranches de taille comparable, chacune commençant en début de ligne.
+     * @param contenu le contenu du fichier
+     * @return les positions de début de chaque tranche, suivies de la position de fin du contenu
+     */
+    private static int[] decouper(ByteBuffer contenu)
+    {
+        int taille = contenu.limit();
+        int nbrTranches = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4,
+                                               taille / TAILLE_TRANCHE_MIN));
+        int[] bornes = new int[nbrTranches + 1];
+        int nbr = 1;
+        for(int i = 1; i < nbrTranches; i++)
+        {
+            int position = (int)((long)taille * i / nbrTranches);
+            while(position < taille && contenu.get(position - 1) != '\n')
+                position++;
+            if(position > bornes[nbr - 1] && position < taille)
+                bornes[nbr++] = position;
+        }
+        bornes[nbr++] = taille;
+
+        int[] resultat = new int[nbr];
+        System.arraycopy(bornes, 0, resultat, 0, nbr);
+        return resultat;
+    }
+
+    /**
+     * Analyse les lignes d'une tranche.
+     * @param contenu le contenu du fichier
+     * @param debut la position du début de la tranche, en début de ligne
+     * @param fin la position de fin de la tranche (exclue)
+     * @param type le type de membre décrit par le fichier
+     * @return les membres et les erreurs de la tranche
+     */
+    private static Tranche analyser(ByteBuffer contenu, int debut, int fin, Type type)
+    {
+        Tranche tranche = new Tranche();
+        int[] champs = new int[type.nbrChamps + 1]; // start of each field, then end of line
+        int position = debut;
+
+        while(position < fin)
+        {
+            int finLigne = position;
+            while(finLigne < fin && contenu.get(finLigne) != '\n')
+                finLigne++;
+            int suivante = finLigne + 1;
+            if(finLigne > position && contenu.get(finLigne - 1) == '\r')
+                finLigne--;
+            tranche.nbrLignes++;
+
+            if(finLigne > position) // empty lines are ignored
+                analyserLigne(contenu, position, finLigne, type, champs, tranche);
+
+            position = suivante;
+        }
+
+        return tranche;
+    }
+
+    /**
+     * Analyse une ligne et ajoute le membre, ou l'erreur, à la tranche.
+     * @param contenu le contenu du fichier
+     * @param debut le début de la ligne
+     * @param fin la fin de la ligne, hors fin de ligne
+     * @param type le type de membre décrit par le fichier
+     * @param champs tableau de travail recevant le début de chaque champ
+     * @param tranche la tranche en cours d'analyse
+     */
+    private static void analyserLigne(ByteBuffer contenu, int debut, int fin, Type type, int[] champs, Tranche tranche)
+    {
+        int nbrChamps = 1;
+        champs[0] = debut;
+        for(int i = debut; i < fin; i++)
+        {
+            if(contenu.get(i) == '\t')
+            {
+                if(nbrChamps == type.nbrChamps)
+                {
+                    tranche.erreur("trop de champs (" + type.nbrChamps + " attendus)");
+                    return;
+                }
+                champs[nbrChamps++] = i + 1;
+            }
+        }
+        if(nbrChamps != type.nbrChamps)
+        {
+            tranche.erreur(nbrChamps + " champs au lieu de " + type.nbrChamps);
+            return;
+        }
+        champs[nbrChamps] = fin + 1; // as if followed by a separator
+
+        int id = lireEntier(contenu, champs[0], champs[1] - 1);
+        if(id < 0)
+        {
+            tranche.erreur("identifiant invalide");
+            return;
+        }
+        String lastName = lireChaine(contenu, champs[1], champs[2] - 1);
+        String firstName = lireChaine(contenu, champs[2], champs[3] - 1);
+        String phoneNumber = lireChaine(contenu, champs[3], champs[4] - 1);
+        String mail = lireChaine(contenu, champs[4], champs[5] - 1);
+
+        if(type == Type.STUDENT)
+        {
+            int year = lireEntier(contenu, champs[5], champs[6] - 1);
+            if(year < 1 || year > 5)
+            {
+                tranche.erreur("année d'étude invalide");
+                return;
+            }
+            tranche.membres.add(new Student(id, lastName, firstName, phoneNumber, mail, year));
+        }
+        else
+            tranche.membres.add(new Staff(id, lastName, firstName, phoneNumber, mail));
+    }
+
+    /**
+     * Lit un entier positif écrit en décimal.
+     * @param contenu le contenu du fichier
+     * @param debut le début du champ
+     * @param fin la fin du champ (exclue)
+     * @return l'entier lu, ou -1 si le champ est vide, contient autre chose que des chiffres ou déborde
+     */
+    private static int lireEntier(ByteBuffer contenu, int debut, int fin)
+    {
+        if(debut >= fin)
+            return -1;
+
+        long valeur = 0;
+        for(int i = debut; i < fin; i++)
+        {
+            int chiffre = contenu.get(i) - '0';
+            if(chiffre < 0 || chiffre > 9)
+                return -1;
+            valeur = valeur * 10 + chiffre;
+            if(valeur > Integer.MAX_VALUE)
+                return -1;
+        }
+        return (int)valeur;
+    }
+
+    /**
+     * Lit une chaîne encodée en UTF-8.
+     * @param contenu le contenu du fichier
+     * @param debut le début du champ
+     * @param fin la fin du champ (exclue)
+     * @return la chaîne lue
+     */
+    private static String lireChaine(ByteBuffer contenu, int debut, int fin)
+    {
+        byte[] octets = new byte[fin - debut];
+        contenu.get(debut, octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Résultat de l'analyse d'une tranche, les numéros de ligne étant relatifs au début de la tranche.
+     */
+    private static final class Tranche
+    {
+        /**
+         * Les membres lus dans la tranche, dans l'ordre du fichier.
+         */
+        private final List<SchoolMember> membres = new ArrayList<>();
+        /**
+         * La raison du rejet de chaque ligne rejetée, dans l'ordre du fichier.
+         */
+        private final List<String> erreurs = new ArrayList<>();
+        /**
+         * Le numéro de chaque ligne rejetée, à partir de 1 pour la première ligne de la tranche : la n-ième raison de
+         * erreurs concerne la n-ième ligne de cette liste.
+         */
+        private final List<Integer> lignesErreurs = new ArrayList<>();
+        /**
+         * Le nombre de lignes de la tranche analysées jusqu'ici, lignes vides comprises.
+         */
+        private int nbrLignes;
+
+        /**
+         * Rejette la ligne en cours d'analyse, la dernière comptée dans nbrLignes.
+         * @param raison la raison du rejet
+         */
+        private void erreur(String raison)
+        {
+            erreurs.add(raison);
+            lignesErreurs.add(nbrLignes);
+        }
+    }
+
+    /**
+     * Résultat d'un import : les membres lus et la description des lignes rejetées.
+     */
+    public static final class ResultatImport
+    {
+        /**
+         * Les membres importés, dans l'ordre du fichier.
+         */
+        private final List<SchoolMember> membres;
+        /**
+         * Les lignes rejetées, sous la forme "fichier, ligne N : raison", N partant de 1 pour la première ligne du
+         * fichier.
+         */
+        private final List<String> erreurs;
+
+        /**
+         * Constructeur en charge d'initialiser le résultat d'un import.
+         * @param membres les membres importés, dans l'ordre du fichier
+         * @param erreurs les lignes rejetées, dans l'ordre du fichier
+         */
+        private ResultatImport(List<SchoolMember> membres, List<String> erreurs)
+        {
+            this.membres = Collections.unmodifiableList(membres);
+            this.erreurs = Collections.unmodifiableList(erreurs);
+        }
+
+        /**
+         * Les membres importés, dans l'ordre du fichier.
+         * @return les membres importés
+         */
+        public List<SchoolMember> getMembres()
+        {
+            return membres;
+        }
+
+        /**
+         * Les lignes rejetées, sous la forme "fichier, ligne N : raison".
+         * @return les lignes rejetées
+         */
+        public List<String> getErreurs()
+        {
+            return erreurs;
+        }
+    }
+}
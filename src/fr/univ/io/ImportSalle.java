@@ -0,0 +1,89 @@
+package fr.univ.io;
+
+import fr.univ.modele.Venue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Import du plan de la salle du Gala depuis un fichier texte. Chaque ligne décrit une plage de tables consécutives,
+ * par quatre champs séparés par des espaces ou des tabulations :
+ * <pre>
+ * # catégorie   public    tables    places
+ * etudiants     STUDENT   1-15      8
+ * personnel     STAFF     16-25     8
+ * loges         STAFF     26        12
+ * </pre>
+ * Le public vaut STUDENT ou STAFF. Une plage peut se réduire à une seule table, ce qui permet de donner une capacité
+ * propre à chaque table. Les lignes vides et les lignes commençant par # sont ignorées. Contrairement aux jeux de
+ * données des membres, une ligne mal formée fait échouer l'import : un plan incomplet fausserait toutes les
+ * réservations.
+ */
+public final class ImportSalle
+{
+    private ImportSalle() {}
+
+    /**
+     * Importe un plan de salle.
+     * @param fichier le fichier décrivant le plan
+     * @return le plan de salle
+     * @throws FileNotFoundException Le fichier n'existe pas
+     * @throws IOException Erreur liée aux entrées/sorties, ou ligne mal formée
+     */
+    public static Venue importer(Path fichier) throws IOException
+    {
+        List<String> lignes;
+        try
+        {
+            lignes = Files.readAllLines(fichier, StandardCharsets.UTF_8);
+        } catch(NoSuchFileException e)
+        {
+            throw new FileNotFoundException(fichier.toString());
+        }
+
+        Venue.Builder builder = new Venue.Builder();
+        for(int i = 0; i < lignes.size(); i++)
+        {
+            String ligne = lignes.get(i).strip();
+            if(ligne.isEmpty() || ligne.startsWith("#"))
+                continue;
+
+            String[] champs = ligne.split("\\s+");
+            try
+            {
+                if(champs.length != 4)
+                    throw new IllegalArgumentException("4 champs attendus, " + champs.length + " trouvés");
+
+                Venue.Audience audience;
+                try
+                {
+                    audience = Venue.Audience.valueOf(champs[1].toUpperCase(Locale.ROOT));
+                } catch(IllegalArgumentException e)
+                {
+                    throw new IllegalArgumentException("public inconnu " + champs[1] + ", STUDENT ou STAFF attendu");
+                }
+                int tiret = champs[2].indexOf('-');
+                int premiere = Integer.parseInt(tiret < 0 ? champs[2] : champs[2].substring(0, tiret));
+                int derniere = tiret < 0 ? premiere : Integer.parseInt(champs[2].substring(tiret + 1));
+                builder.addTables(champs[0], audience, premiere, derniere, Integer.parseInt(champs[3]));
+            } catch(IllegalArgumentException e) // NumberFormatException included
+            {
+                throw new IOException(fichier + " ligne " + (i + 1) + " : " + e.getMessage(), e);
+            }
+        }
+
+        try
+        {
+            return builder.build();
+        } catch(IllegalArgumentException e)
+        {
+            throw new IOException(fichier + " : " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package fr.univ.io;
+
+import fr.univ.exception.*;
+import fr.univ.metrics.Histogram;
+import fr.univ.metrics.Metrics;
+import fr.univ.modele.Gala;
+import fr.univ.modele.ReservationResult;
+import fr.univ.modele.ReservationStatus;
+import fr.univ.modele.Venue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service de stockage combinant un journal d'événements en ajout seul et des instantanés complets du Gala. Chaque
+ * mutation du modèle est ajoutée en fin de journal sous la forme d'une petite entrée binaire de taille fixe (voir
+ * {@link EntreeJournal}), au lieu de réécrire la totalité du Gala. Le journal n'est jamais vidé : il conserve tout
+ * l'historique du Gala, le n-ième événement se trouvant à la position n * {@link EntreeJournal#TAILLE}.
+ * Lorsque assez d'événements se sont accumulés depuis le dernier instantané, un nouvel instantané est écrit : il
+ * retient le nombre d'événements qu'il inclut (voir {@link Gala#getJournalPosition()}), et seuls les événements
+ * suivants sont rejoués par-dessus au chargement, ce qui borne la durée du chargement.
+ * Le tout premier instantané est conservé à part, comme origine de l'historique : {@link #reconstruire()} rejoue tous
+ * les événements depuis cette origine, par exemple pour recalculer l'état du Gala après la correction d'un défaut.
+ */
+public class ServiceJournal implements IServiceStockage
+{
+    /**
+     * Nombre d'entrées par défaut depuis le dernier instantané au-delà duquel un nouvel instantané doit être écrit.
+     */
+    public static final int SEUIL_COMPACTION = 500;
+
+    /**
+     * Durée de l'écriture d'un lot d'entrées, synchronisation avec le disque comprise.
+     */
+    private static final Histogram ECRITURE = Metrics.histogram("stockage.journal.ecriture");
+    /**
+     * Durée du rejeu des entrées du journal, au chargement ou lors d'une reconstruction.
+     */
+    private static final Histogram REJEU = Metrics.histogram("stockage.journal.rejeu");
+
+    /**
+     * Nombre maximal d'entrées projetées en mémoire à la fois lors d'un rejeu.
+     */
+    private static final int ENTREES_PAR_PROJECTION = 1 << 20;
+
+    /**
+     * Le service en charge de l'instantané complet du Gala.
+     */
+    private final IServiceStockage instantane;
+    /**
+     * Le service en charge de l'instantané d'origine, le premier écrit, ou null si l'origine n'est pas conservée.
+     */
+    private final ServiceStockageBinaire origine;
+    /**
+     * Le canal d'écriture du journal, ouvert en ajout.
+     */
+    private final FileChannel journal;
+    /**
+     * Buffer réutilisé pour l'écriture des entrées, afin de ne pas allouer à chaque mutation.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Le nombre d'entrées présentes dans le journal, depuis l'origine.
+     */
+    private long nbrEntrees;
+    /**
+     * Le nombre d'entrées incluses dans le dernier instantané.
+     */
+    private long positionInstantane;
+    /**
+     * Le nombre d'entrées depuis le dernier instantané au-delà duquel un nouvel instantané est demandé.
+     */
+    private final int seuilCompaction;
+
+    /**
+     * Crée un service de journalisation utilisant le fichier "gala.journal" et le seuil de compaction par défaut.
+     * @param instantane le service en charge de l'instantané complet
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public ServiceJournal(IServiceStockage instantane) throws IOException
+    {
+        this(instantane, null, new File("gala.journal"), SEUIL_COMPACTION);
+    }
+
+    /**
+     * Crée un service de journalisation conservant l'instantané d'origine, utilisant le fichier "gala.journal" et le
+     * seuil de compaction par défaut.
+     * @param instantane le service en charge de l'instantané complet
+     * @param origine le service en charge de l'instantané d'origine
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public ServiceJournal(IServiceStockage instantane, ServiceStockageBinaire origine) throws IOException
+    {
+        this(instantane, origine, new File("gala.journal"), SEUIL_COMPACTION);
+    }
+
+    /**
+     * Crée un service de journalisation. Le fichier du journal est créé s'il n'existe pas.
+     * @param instantane le service en charge de l'instantané complet
+     * @param fichierJournal le fichier du journal
+     * @param seuilCompaction le nombre d'entrées depuis le dernier instantané au-delà duquel un nouvel instantané est
+     * demandé
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public ServiceJournal(IServiceStockage instantane, File fichierJournal, int seuilCompaction) throws IOException
+    {
+        this(instantane, null, fichierJournal, seuilCompaction);
+    }
+
+    /**
+     * Crée un service de journalisation. Le fichier du journal est créé s'il n'existe pas.
+     * @param instantane le service en charge de l'instantané complet
+     * @param origine le service en charge de l'instantané d'origine, ou null pour ne pas la conserver
+     * @param fichierJournal le fichier du journal
+     * @param seuilCompaction le nombre d'entrées depuis le dernier instantané au-delà duquel un nouvel instantané est
+     * demandé
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public ServiceJournal(IServiceStockage instantane, ServiceStockageBinaire origine, File fichierJournal,
+                          int seuilCompaction) throws IOException
+    {
+        this.instantane = instantane;
+        this.origine = origine;
+        this.seuilCompaction = seuilCompaction;
+        this.buffer = ByteBuffer.allocate(EntreeJournal.TAILLE * 64);
+        this.journal = FileChannel.open(fichierJournal.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Ecrit un instantané complet de l'objet, qui inclut toutes les entrées du journal écrites jusqu'ici. Le journal
+     * n'est pas vidé. Le premier instantané écrit est aussi conservé comme origine de l'historique.
+     * @param object l'instance Gala à sauvegarder
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    @Override
+    public void enregistrer(Object object) throws IOException
+    {
+        if(object instanceof Gala gala)
+            gala.setJournalPosition(nbrEntrees);
+        instantane.enregistrer(object);
+        positionInstantane = nbrEntrees;
+        if(origine != null && !origine.existe())
+            origine.enregistrer(object); // the first snapshot ever written: full replays start from it
+    }
+
+    /**
+     * Charge le dernier instantané puis rejoue par-dessus les entrées du journal qui le suivent. Une entrée incomplète
+     * en fin de journal (écriture interrompue) est ignorée et retirée du fichier.
+     * @return le Gala à jour, ou null si aucun instantané n'existe
+     * @throws IOException Erreur liée aux entrées/sorties, ou journal incohérent avec l'instantané
+     * @throws ClassNotFoundException La classe d'un objet sérialisé ne peut être trouvée.
+     */
+    @Override
+    public Object charger() throws IOException, ClassNotFoundException
+    {
+        Object o = instantane.charger();
+
+        long tailleValide = (journal.size() / EntreeJournal.TAILLE) * EntreeJournal.TAILLE;
+        if(tailleValide != journal.size())
+            journal.truncate(tailleValide); // drop a partially written trailing entry
+        journal.position(tailleValide);
+        nbrEntrees = tailleValide / EntreeJournal.TAILLE;
+        positionInstantane = nbrEntrees;
+
+        if(o instanceof Gala gala)
+        {
+            positionInstantane = gala.getJournalPosition();
+            rejouerDepuis(gala, positionInstantane);
+        }
+
+        return o;
+    }
+
+    /**
+     * Reconstruit le Gala depuis tout son historique : l'instantané d'origine, puis chacun des événements du journal
+     * qui le suivent, sans utiliser le dernier instantané. L'état obtenu, y compris ce qui en est dérivé (totaux,
+     * expirations, promotions depuis la liste d'attente, déplacements dus aux réorganisations des tables), est donc
+     * celui que calcule le code actuel. Cela suppose que toute modification du Gala ait été journalisée, réorganisations
+     * comprises (voir {@link EntreeJournal#repack(int, LocalDate)}) : une réorganisation non journalisée laisserait
+     * chaque réservation sur la table où le journal l'a placée.
+     * @return le Gala reconstruit
+     * @throws IOException Aucune origine n'a été conservée, erreur liée aux entrées/sorties, ou journal incohérent
+     * avec l'origine
+     */
+    public Gala reconstruire() throws IOException
+    {
+        if(origine == null || !origine.existe())
+            throw new IOException("L'instantané d'origine n'a pas été conservé : l'historique ne peut être rejoué");
+
+        Gala gala = (Gala)origine.charger();
+        rejouerDepuis(gala, gala.getJournalPosition());
+        return gala;
+    }
+
+    /**
+     * Lit toutes les entrées d'un fichier de journal sans les appliquer, par exemple pour rejouer une trace de
+     * réservations hors ligne. Une entrée incomplète en fin de fichier est ignorée.
+     * @param fichier le fichier du journal
+     * @return les entrées, dans l'ordre du journal
+     * @throws IOException Erreur liée aux entrées/sorties, ou opération inconnue
+     */
+    public static List<EntreeJournal> lireEntrees(Path fichier) throws IOException
+    {
+        ByteBuffer contenu = ByteBuffer.wrap(Files.readAllBytes(fichier));
+        List<EntreeJournal> entrees = new ArrayList<>(contenu.remaining() / EntreeJournal.TAILLE);
+        while(contenu.remaining() >= EntreeJournal.TAILLE)
+        {
+            EntreeJournal entree = EntreeJournal.lire(contenu);
+            if(entree == null)
+                throw new IOException("Le journal contient une opération inconnue");
+            entrees.add(entree);
+        }
+        return entrees;
+    }
+
+    /**
+     * Ajoute une entrée en fin de journal.
+     * @param entree l'entrée à ajouter
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public void journaliser(EntreeJournal entree) throws IOException
+    {
+        journaliser(List.of(entree));
+    }
+
+    /**
+     * Ajoute un lot d'entrées en fin de journal, puis force leur écriture sur le disque. Le coût de la synchronisation
+     * avec le disque est ainsi partagé par toutes les entrées du lot.
+     * @param entrees les entrées à ajouter, dans l'ordre où elles ont été appliquées au Gala
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public void journaliser(List<EntreeJournal> entrees) throws IOException
+    {
+        long start = Metrics.start();
+        buffer.clear();
+        for(EntreeJournal entree : entrees)
+        {
+            if(buffer.remaining() < EntreeJournal.TAILLE)
+                ecrireBuffer();
+            entree.ecrire(buffer);
+        }
+        ecrireBuffer();
+        journal.force(false);
+        nbrEntrees += entrees.size();
+        if(start != 0)
+        {
+            Metrics.stop(ECRITURE, start);
+            Metrics.counter("stockage.journal.entrees").add(entrees.size());
+            Metrics.counter("stockage.journal.octetsEcrits").add((long)entrees.size() * EntreeJournal.TAILLE);
+        }
+    }
+
+    /**
+     * Indique si assez d'entrées se sont accumulées depuis le dernier instantané pour justifier l'écriture d'un nouvel
+     * instantané.
+     * @return true si une compaction est souhaitable, false sinon
+     */
+    public boolean compactionRequise()
+    {
+        return getNbrEntreesDepuisInstantane() >= seuilCompaction;
+    }
+
+    /**
+     * Le nombre d'entrées depuis le dernier instantané au-delà duquel un nouvel instantané est demandé.
+     * @return le seuil de compaction
+     */
+    public int getSeuilCompaction()
+    {
+        return seuilCompaction;
+    }
+
+    /**
+     * Le nombre d'entrées présentes dans le journal, depuis l'origine.
+     * @return Le nombre d'entrées présentes dans le journal
+     */
+    public long getNbrEntrees()
+    {
+        return nbrEntrees;
+    }
+
+    /**
+     * Le nombre d'entrées ajoutées au journal depuis le dernier instantané, à rejouer au prochain chargement.
+     * @return Le nombre d'entrées postérieures au dernier instantané
+     */
+    public int getNbrEntreesDepuisInstantane()
+    {
+        return (int)(nbrEntrees - positionInstantane);
+    }
+
+    /**
+     * Ferme le journal. Le service ne doit plus être utilisé ensuite.
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public void fermer() throws IOException
+    {
+        journal.close();
+    }
+
+    /**
+     * Ecrit le contenu du buffer en fin de journal puis le vide.
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    private void ecrireBuffer() throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            journal.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Rejoue sur le Gala les entrées du journal à partir d'une position, jusqu'à la fin du journal. Le journal est
+     * projeté en mémoire par tranches plutôt que lu dans un buffer : rejouer des millions d'événements ne demande pas
+     * de les copier.
+     * @param gala le Gala sur lequel rejouer les entrées, résultat des entrées précédant la position
+     * @param debut la position de la première entrée à rejouer
+     * @throws IOException Erreur liée aux entrées/sorties, ou journal incohérent avec le Gala
+     */
+    private void rejouerDepuis(Gala gala, long debut) throws IOException
+    {
+        if(debut > nbrEntrees)
+            throw new IOException("Le journal est incohérent avec l'instantané du Gala : " + nbrEntrees +
+                                  " événements, l'instantané en inclut " + debut);
+        if(debut == nbrEntrees)
+            return;
+
+        long start = Metrics.start();
+        for(long position = debut; position < nbrEntrees; position += ENTREES_PAR_PROJECTION)
+        {
+            long nbr = Math.min(ENTREES_PAR_PROJECTION, nbrEntrees - position);
+            ByteBuffer entrees = journal.map(FileChannel.MapMode.READ_ONLY, position * EntreeJournal.TAILLE,
+                                             nbr * EntreeJournal.TAILLE);
+            while(entrees.hasRemaining())
+            {
+                EntreeJournal entree = EntreeJournal.lire(entrees);
+                if(entree == null)
+                    throw new IOException("Le journal contient une opération inconnue");
+                rejouer(gala, entree);
+            }
+        }
+        Metrics.stop(REJEU, start);
+    }
+
+    /**
+     * Applique une entrée du journal au Gala, en passant par les mêmes méthodes que l'application.
+     * @param gala le Gala sur lequel rejouer l'entrée
+     * @param entree l'entrée à rejouer
+     * @throws IOException L'entrée ne peut être appliquée : le journal ne correspond pas à l'instantané
+     */
+    private void rejouer(Gala gala, EntreeJournal entree) throws IOException
+    {
+        if(!entree.getDate().equals(gala.getCurrentDate()))
+            gala.setCurrentDate(entree.getDate()); // the deadlines reached meanwhile fall due, as they did then
+        try
+        {
+            switch(entree.getOperation())
+            {
+                case SET_CURRENT_DATE -> {} // the date has just been applied
+                case SUBSCRIBE_MEMBER -> gala.subscribeMember(entree.getMemberId());
+                case ADD_RESERVATION -> gala.addReservation(entree.getMemberId(), entree.getNbrAccompanist(), entree.getTableId());
+                case ACCEPT_MEMBER -> gala.acceptMember(entree.getMemberId());
+                case REMOVE_RESERVATION -> gala.removeReservation(entree.getMemberId());
+                case UNSUBSCRIBE_MEMBER -> gala.unsubscribeMember(entree.getMemberId());
+                case JOIN_WAITLIST -> {
+                    ReservationResult result = gala.joinWaitlist(entree.getMemberId(), entree.getNbrAccompanist());
+                    if(result.getStatus() != ReservationStatus.WAITLISTED)
+                        throw new IOException("Le journal est incohérent avec l'instantané du Gala : " +
+                                              result.getStatus().getMessage());
+                }
+                case REPACK -> {
+                    List<Venue.Category> categories = gala.getVenue().getCategories();
+                    if(entree.getTableId() < 0 || entree.getTableId() >= categories.size())
+                        throw new IOException("Le journal est incohérent avec l'instantané du Gala : la catégorie " +
+                                              entree.getTableId() + " n'existe pas");
+                    gala.repack(categories.get(entree.getTableId()));
+                }
+                case LEAVE_WAITLIST -> {
+                    if(!gala.leaveWaitlist(entree.getMemberId()))
+                        throw new IOException("Le journal est incohérent avec l'instantané du Gala : le membre " +
+                                              entree.getMemberId() + " n'est pas en liste d'attente");
+                }
+            }
+        } catch(MemberIsAlreadySubscribeException | MemberAlreadyHasReservationException | TablePermissionException |
+                IllegalAccompanistNumberException | NoSuchTableException | NoSeatRemainingException |
+                NoSuchMemberException | NoSuchReservationException | TooLateToUnsubscribeException |
+                NoSuchSubscriptionException e)
+        {
+            throw new IOException("Le journal est incohérent avec l'instantané du Gala", e);
+        }
+    }
+}
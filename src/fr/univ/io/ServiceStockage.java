@@ -1,5 +1,7 @@
 package fr.univ.io;
 
+import fr.univ.metrics.Metrics;
+
 import java.io.*;
 
 public class ServiceStockage implements IServiceStockage{
@@ -15,7 +17,17 @@ public class ServiceStockage implements IServiceStockage{
      * @throws IOException Erreur liée aux entrées/sorties
      */
     public ServiceStockage() throws IOException {
-        f = new File("gala.ser");
+        this(new File("gala.ser"));
+    }
+
+    /**
+     * Crée un objet de type ServiceStockage qui va accéder au fichier donné en lecture et en écriture.
+     * Le fichier est créé s'il n'existe.
+     * @param f le fichier de sérialisation
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public ServiceStockage(File f) throws IOException {
+        this.f = f;
         f.createNewFile();
         fis = new FileInputStream(f);
     }
@@ -27,6 +39,7 @@ public class ServiceStockage implements IServiceStockage{
      */
     @Override
     public void enregistrer(Object object) throws IOException {
+        long start = Metrics.start();
         try {
             fos = new FileOutputStream(f);
             oos = new ObjectOutputStream(fos);
@@ -36,6 +49,10 @@ public class ServiceStockage implements IServiceStockage{
             oos.close();
             fos.close();
         }
+        if(start != 0) {
+            Metrics.stop(Metrics.histogram("stockage.serialisation.enregistrer"), start);
+            Metrics.counter("stockage.serialisation.octetsEcrits").add(f.length());
+        }
 
     }
 
@@ -48,6 +65,7 @@ public class ServiceStockage implements IServiceStockage{
     @Override
     public Object charger() throws IOException, ClassNotFoundException{
         Object o = null;
+        long start = Metrics.start();
         try {
 
             ois = new ObjectInputStream(fis);
@@ -55,6 +73,10 @@ public class ServiceStockage implements IServiceStockage{
         }
         catch (EOFException e ) {
 
+        }
+        if(start != 0) {
+            Metrics.stop(Metrics.histogram("stockage.serialisation.charger"), start);
+            Metrics.counter("stockage.serialisation.octetsLus").add(f.length());
         }
         return o;
     }
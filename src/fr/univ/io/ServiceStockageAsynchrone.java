@@ -0,0 +1,488 @@
+package fr.univ.io;
+
+import fr.univ.metrics.Metrics;
+import fr.univ.modele.Gala;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Etage de persistance asynchrone placé devant un {@link ServiceJournal}. Les entrées soumises sont placées dans une
+ * file bornée puis écrites par un thread dédié : toutes les entrées arrivées pendant une écriture sont regroupées en un
+ * seul lot, écrit et synchronisé sur le disque en une seule fois (group commit). Le thread de l'interface n'attend donc
+ * plus le disque, sauf si la file est pleine ou lors d'une barrière explicite ({@link #vider()}). Les compactions
+ * peuvent elles aussi être confiées à un thread dédié (voir {@link #demanderCompaction(Object, Lock)}).
+ */
+public class ServiceStockageAsynchrone implements IServiceStockage
+{
+    /**
+     * Capacité par défaut de la file des entrées en attente d'écriture.
+     */
+    public static final int CAPACITE_FILE = 1024;
+    /**
+     * Durée maximale pendant laquelle le thread d'écriture attend une entrée avant de vérifier si le service est fermé.
+     * Un thread interrompu pendant une écriture fermerait le canal du journal, on ne l'interrompt donc jamais.
+     */
+    private static final long ATTENTE_MS = 100;
+
+    /**
+     * Le journal dans lequel les lots sont écrits. Sert aussi de verrou : il n'est manipulé que par un thread à la fois.
+     */
+    private final ServiceJournal journal;
+    /**
+     * Les entrées soumises mais pas encore écrites.
+     */
+    private final BlockingQueue<EntreeJournal> file;
+    /**
+     * Le thread en charge des écritures.
+     */
+    private final Thread ecrivain;
+    /**
+     * Le thread en charge des compactions demandées par {@link #demanderCompaction(Object, Lock)}.
+     */
+    private final Thread compacteur;
+    /**
+     * L'objet à sauvegarder lors de la compaction demandée, ou null si aucune n'est en attente.
+     */
+    private Object aCompacter;
+    /**
+     * Le verrou sous lequel sauvegarder l'objet de la compaction demandée, excluant toute modification de l'objet
+     * pendant l'écriture de l'instantané, ou null si aucune compaction n'est en attente.
+     */
+    private Lock verrouCompaction;
+
+    /**
+     * Le nombre d'entrées soumises depuis la création du service.
+     */
+    private long nbrSoumises;
+    /**
+     * Le nombre d'entrées soumises depuis le dernier instantané, écrites ou non. Permet de savoir si une compaction
+     * est requise sans attendre le thread d'écriture.
+     */
+    private long nbrDepuisInstantane;
+    /**
+     * Le nombre d'entrées écrites durablement depuis la création du service.
+     */
+    private long nbrEcrites;
+    /**
+     * La première erreur rencontrée par le thread d'écriture ou de compaction. Une fois positionnée, plus rien n'est
+     * écrit.
+     */
+    private volatile IOException erreur;
+    /**
+     * Indique que le service a été fermé.
+     */
+    private volatile boolean ferme;
+
+    /**
+     * Le nombre de lots écrits.
+     */
+    private long nbrLots;
+    /**
+     * La durée de la dernière écriture d'un lot, en nanosecondes.
+     */
+    private volatile long latenceDerniere;
+    /**
+     * La durée cumulée des écritures, en nanosecondes.
+     */
+    private long latenceTotale;
+    /**
+     * La durée de l'écriture la plus longue, en nanosecondes.
+     */
+    private volatile long latenceMax;
+
+    /**
+     * Crée un étage de persistance asynchrone avec une file de capacité par défaut.
+     * @param journal le journal dans lequel écrire
+     */
+    public ServiceStockageAsynchrone(ServiceJournal journal)
+    {
+        this(journal, CAPACITE_FILE);
+    }
+
+    /**
+     * Crée un étage de persistance asynchrone et démarre son thread d'écriture.
+     * @param journal le journal dans lequel écrire
+     * @param capacite le nombre maximal d'entrées en attente. Au-delà, {@link #soumettre(EntreeJournal)} attend.
+     */
+    public ServiceStockageAsynchrone(ServiceJournal journal, int capacite)
+    {
+        this.journal = journal;
+        this.file = new ArrayBlockingQueue<>(capacite);
+        this.ecrivain = new Thread(this::ecrire, "gala-persistance");
+        this.ecrivain.setDaemon(true);
+        this.ecrivain.start();
+        this.compacteur = new Thread(this::compacter, "gala-compaction");
+        this.compacteur.setDaemon(true);
+        this.compacteur.start();
+        Metrics.gauge("stockage.file.profondeur", this::getProfondeurFile);
+    }
+
+    /**
+     * Soumet une entrée à écrire. Retourne immédiatement, sauf si la file est pleine.
+     * @param entree l'entrée décrivant la modification qui vient d'être appliquée au Gala
+     * @throws IOException Une écriture précédente a échoué, ou le service est fermé
+     */
+    public void soumettre(EntreeJournal entree) throws IOException
+    {
+        verifierEtat();
+        synchronized(this)
+        {
+            nbrSoumises++;
+            nbrDepuisInstantane++;
+        }
+        try
+        {
+            file.put(entree);
+        } catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompu pendant la soumission d'une entrée du journal", e);
+        }
+    }
+
+    /**
+     * Soumet ensemble les entrées d'une même opération, par exemple les réservations d'un groupe. Elles se suivent dans
+     * la file et sont donc le plus souvent écrites dans un même lot. Retourne immédiatement, sauf si la file est pleine.
+     * @param entrees les entrées, dans l'ordre où elles ont été appliquées au Gala
+     * @throws IOException Une écriture précédente a échoué, ou le service est fermé
+     */
+    public void soumettre(List<EntreeJournal> entrees) throws IOException
+    {
+        verifierEtat();
+        synchronized(this)
+        {
+            nbrSoumises += entrees.size();
+            nbrDepuisInstantane += entrees.size();
+        }
+        try
+        {
+            for(EntreeJournal entree : entrees)
+                file.put(entree);
+        } catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompu pendant la soumission d'une entrée du journal", e);
+        }
+    }
+
+    /**
+     * Barrière : attend que toutes les entrées soumises jusqu'ici soient écrites durablement.
+     * @throws IOException Une écriture a échoué
+     */
+    public void vider() throws IOException
+    {
+        synchronized(this)
+        {
+            long cible = nbrSoumises;
+            while(nbrEcrites < cible && erreur == null)
+            {
+                try
+                {
+                    wait();
+                } catch(InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrompu pendant l'attente de l'écriture du journal", e);
+                }
+            }
+        }
+        if(erreur != null)
+            throw erreur;
+    }
+
+    /**
+     * Ecrit un instantané complet du Gala après avoir vidé la file.
+     * @param object l'instance Gala à sauvegarder
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    @Override
+    public void enregistrer(Object object) throws IOException
+    {
+        vider();
+        synchronized(journal)
+        {
+            journal.enregistrer(object);
+        }
+        synchronized(this)
+        {
+            nbrDepuisInstantane = 0;
+        }
+    }
+
+    /**
+     * Charge le Gala depuis l'instantané et le journal.
+     * @return le Gala à jour, ou null si aucun instantané n'existe
+     * @throws IOException Erreur liée aux entrées/sorties
+     * @throws ClassNotFoundException La classe d'un objet sérialisé ne peut être trouvée.
+     */
+    @Override
+    public Object charger() throws IOException, ClassNotFoundException
+    {
+        synchronized(journal)
+        {
+            Object o = journal.charger();
+            synchronized(this)
+            {
+                nbrDepuisInstantane = journal.getNbrEntreesDepuisInstantane();
+            }
+            return o;
+        }
+    }
+
+    /**
+     * Reconstruit le Gala depuis tout son historique (voir {@link ServiceJournal#reconstruire()}), après avoir vidé la
+     * file.
+     * @return le Gala reconstruit
+     * @throws IOException Aucune origine n'a été conservée, erreur liée aux entrées/sorties, ou journal incohérent
+     */
+    public Gala reconstruire() throws IOException
+    {
+        vider();
+        synchronized(journal)
+        {
+            return journal.reconstruire();
+        }
+    }
+
+    /**
+     * Indique si le journal est devenu assez long pour justifier l'écriture d'un nouvel instantané. Les entrées encore
+     * dans la file sont comptées : la réponse ne dépend donc pas de l'avancement du thread d'écriture, qui n'est pas
+     * attendu.
+     * @return true si une compaction est souhaitable, false sinon
+     */
+    public synchronized boolean compactionRequise()
+    {
+        return nbrDepuisInstantane >= journal.getSeuilCompaction();
+    }
+
+    /**
+     * Demande l'écriture d'un nouvel instantané par le thread de compaction, sans l'attendre. L'instantané est écrit
+     * sous le verrou donné, après que toutes les entrées soumises jusque-là ont été écrites : l'appelant choisit un
+     * verrou excluant toute modification de l'objet, afin que l'instantané corresponde exactement à la position du
+     * journal qu'il enregistre. Sans effet si une compaction est déjà en attente.
+     * @param object l'instance Gala à sauvegarder
+     * @param verrou le verrou sous lequel écrire l'instantané, que l'appelant ne doit pas détenir
+     */
+    public synchronized void demanderCompaction(Object object, Lock verrou)
+    {
+        if(aCompacter != null || ferme)
+            return;
+        aCompacter = object;
+        verrouCompaction = verrou;
+        notifyAll();
+    }
+
+    /**
+     * Vide la file, termine la compaction en attente, arrête les threads et ferme le journal.
+     * @throws IOException Une écriture a échoué
+     */
+    public void fermer() throws IOException
+    {
+        if(ferme)
+            return;
+        try
+        {
+            vider();
+        } finally
+        {
+            ferme = true; // the writer notices it within ATTENTE_MS; it is never interrupted mid-write
+            try
+            {
+                compacteur.join(); // a pending compaction still needs the writer
+                ecrivain.join();
+            } catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            synchronized(journal)
+            {
+                journal.fermer();
+            }
+        }
+    }
+
+    /**
+     * Le nombre d'entrées en attente d'écriture.
+     * @return la profondeur de la file
+     */
+    public int getProfondeurFile()
+    {
+        return file.size();
+    }
+
+    /**
+     * La durée de la dernière écriture d'un lot.
+     * @return la durée en microsecondes
+     */
+    public long getLatenceDerniere()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(latenceDerniere);
+    }
+
+    /**
+     * La durée moyenne d'écriture d'un lot.
+     * @return la durée en microsecondes
+     */
+    public synchronized long getLatenceMoyenne()
+    {
+        return nbrLots == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latenceTotale / nbrLots);
+    }
+
+    /**
+     * La durée de l'écriture de lot la plus longue.
+     * @return la durée en microsecondes
+     */
+    public long getLatenceMax()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(latenceMax);
+    }
+
+    /**
+     * Le nombre de lots écrits.
+     * @return le nombre de lots écrits
+     */
+    public synchronized long getNbrLots()
+    {
+        return nbrLots;
+    }
+
+    /**
+     * Le nombre d'entrées écrites durablement.
+     * @return le nombre d'entrées écrites
+     */
+    public synchronized long getNbrEcrites()
+    {
+        return nbrEcrites;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "lots=" + nbrLots + " entrées=" + nbrEcrites +
+               " entrées/lot=" + (nbrLots == 0 ? 0 : nbrEcrites / nbrLots) +
+               " file=" + file.size() +
+               " latence(µs) dernière=" + getLatenceDerniere() + " moyenne=" + getLatenceMoyenne() +
+               " max=" + getLatenceMax();
+    }
+
+    /**
+     * Boucle du thread d'écriture : attend une entrée, récupère toutes celles arrivées entre-temps et les écrit en un
+     * seul lot.
+     */
+    private void ecrire()
+    {
+        List<EntreeJournal> lot = new ArrayList<>();
+        while(true)
+        {
+            EntreeJournal premiere;
+            try
+            {
+                premiere = file.poll(ATTENTE_MS, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e)
+            {
+                return;
+            }
+            if(premiere == null)
+            {
+                if(ferme)
+                    return;
+                continue;
+            }
+            lot.add(premiere);
+            file.drainTo(lot);
+
+            long debut = System.nanoTime();
+            try
+            {
+                if(erreur == null)
+                {
+                    synchronized(journal)
+                    {
+                        journal.journaliser(lot);
+                    }
+                }
+            } catch(IOException e)
+            {
+                erreur = e;
+            }
+            long duree = System.nanoTime() - debut;
+
+            synchronized(this)
+            {
+                nbrEcrites += lot.size();
+                nbrLots++;
+                latenceTotale += duree;
+                latenceDerniere = duree;
+                latenceMax = Math.max(latenceMax, duree);
+                notifyAll();
+            }
+            lot.clear();
+        }
+    }
+
+    /**
+     * Boucle du thread de compaction : attend une demande, puis écrit l'instantané sous le verrou demandé. Une erreur
+     * d'écriture est conservée comme celles du thread d'écriture : les soumissions suivantes échouent.
+     */
+    private void compacter()
+    {
+        while(true)
+        {
+            Object object;
+            Lock verrou;
+            synchronized(this)
+            {
+                while(aCompacter == null && !ferme)
+                {
+                    try
+                    {
+                        wait(ATTENTE_MS);
+                    } catch(InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+                if(aCompacter == null)
+                    return;
+                object = aCompacter;
+                verrou = verrouCompaction;
+            }
+
+            verrou.lock();
+            try
+            {
+                if(erreur == null && compactionRequise())
+                    enregistrer(object);
+            } catch(IOException e)
+            {
+                erreur = e;
+            } finally
+            {
+                verrou.unlock();
+                synchronized(this)
+                {
+                    aCompacter = null;
+                    verrouCompaction = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Vérifie que le service peut encore accepter des entrées.
+     * @throws IOException Une écriture précédente a échoué, ou le service est fermé
+     */
+    private void verifierEtat() throws IOException
+    {
+        if(erreur != null)
+            throw erreur;
+        if(ferme)
+            throw new IOException("Le service de stockage est fermé");
+    }
+}
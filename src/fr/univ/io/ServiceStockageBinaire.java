@@ -0,0 +1,102 @@
+package fr.univ.io;
+
+import fr.univ.metrics.Histogram;
+import fr.univ.metrics.Metrics;
+import fr.univ.modele.Gala;
+import fr.univ.modele.GalaCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Service de stockage écrivant le Gala dans le format binaire de {@link GalaCodec}, dans un fichier "gala.bin".
+ * Plus compact et plus rapide que la sérialisation Java de {@link ServiceStockage}.
+ */
+public class ServiceStockageBinaire implements IServiceStockage
+{
+    /**
+     * Durée des écritures et des lectures de l'instantané.
+     */
+    private static final Histogram ENREGISTRER = Metrics.histogram("stockage.binaire.enregistrer");
+    private static final Histogram CHARGER = Metrics.histogram("stockage.binaire.charger");
+
+    /**
+     * Le fichier contenant l'instantané.
+     */
+    private final File f;
+
+    /**
+     * Crée un service de stockage binaire utilisant le fichier "gala.bin".
+     */
+    public ServiceStockageBinaire()
+    {
+        this(new File("gala.bin"));
+    }
+
+    /**
+     * Crée un service de stockage binaire utilisant le fichier donné.
+     * @param f le fichier contenant l'instantané
+     */
+    public ServiceStockageBinaire(File f)
+    {
+        this.f = f;
+    }
+
+    /**
+     * Indique si un instantané a déjà été écrit.
+     * @return true si le fichier de l'instantané existe, false sinon
+     */
+    public boolean existe()
+    {
+        return f.exists();
+    }
+
+    /**
+     * Ecrit le Gala passé en paramètre. L'instantané est d'abord écrit dans un fichier temporaire qui remplace ensuite
+     * l'ancien, afin qu'une écriture interrompue ne corrompe pas le dernier instantané valide. Cela garantit aussi
+     * qu'un instantané encore projeté en mémoire par un Gala chargé précédemment n'est jamais modifié.
+     * @param object le Gala à écrire
+     * @throws IOException Erreur liée aux entrées/sorties
+     * @throws IllegalArgumentException l'objet n'est pas une instance de Gala
+     */
+    @Override
+    public void enregistrer(Object object) throws IOException
+    {
+        if(!(object instanceof Gala gala))
+            throw new IllegalArgumentException("Seule une instance de Gala peut être enregistrée au format binaire");
+
+        long start = Metrics.start();
+        File tmp = new File(f.getPath() + ".tmp");
+        GalaCodec.write(gala, tmp.toPath());
+        Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if(start != 0)
+        {
+            Metrics.stop(ENREGISTRER, start);
+            Metrics.counter("stockage.binaire.octetsEcrits").add(f.length());
+        }
+    }
+
+    /**
+     * Lit le Gala depuis le fichier. L'instantané est projeté en mémoire et les membres de l'école ne sont construits
+     * qu'au moment où ils sont consultés.
+     * @return le Gala lu, ou null si aucun instantané n'a encore été écrit
+     * @throws IOException Erreur liée aux entrées/sorties, ou instantané invalide
+     */
+    @Override
+    public Object charger() throws IOException
+    {
+        if(!f.exists() || f.length() == 0)
+            return null;
+
+        long start = Metrics.start();
+        Gala gala = GalaCodec.read(f.toPath());
+        if(start != 0)
+        {
+            Metrics.stop(CHARGER, start);
+            Metrics.counter("stockage.binaire.octetsLus").add(f.length());
+        }
+        return gala;
+    }
+}
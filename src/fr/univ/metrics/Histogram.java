@@ -0,0 +1,185 @@
+package fr.univ.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de valeurs positives (des durées en nanosecondes le plus souvent), à la manière de HdrHistogram :
+ * chaque puissance de 2 est découpée en {@link #SOUS_INTERVALLES} intervalles égaux. La précision relative est donc
+ * d'environ 6 %, quelle que soit la grandeur mesurée, pour une taille fixe (moins de 1000 compteurs) et un
+ * enregistrement sans allocation ni verrou.
+ */
+public final class Histogram
+{
+    /**
+     * Nombre de bits de la mantisse conservés.
+     */
+    private static final int BITS_MANTISSE = 4;
+    /**
+     * Nombre d'intervalles par puissance de 2.
+     */
+    private static final int SOUS_INTERVALLES = 1 << BITS_MANTISSE;
+    /**
+     * Nombre d'intervalles nécessaires pour couvrir toutes les valeurs positives d'un long.
+     */
+    private static final int NBR_INTERVALLES = (63 - BITS_MANTISSE + 1) * SOUS_INTERVALLES;
+
+    /**
+     * Le nom de l'histogramme, sous lequel il est enregistré dans {@link Metrics}.
+     */
+    private final String name;
+    /**
+     * Le nombre de valeurs enregistrées dans chaque intervalle.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(NBR_INTERVALLES);
+    /**
+     * Le nombre total de valeurs enregistrées.
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * La somme des valeurs enregistrées, pour le calcul de la moyenne.
+     */
+    private final LongAdder sum = new LongAdder();
+    /**
+     * La plus grande valeur enregistrée, exacte, 0 si aucune valeur n'a été enregistrée.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Crée un histogramme vide. Les histogrammes sont créés par {@link Metrics#histogram(String)}.
+     * @param name le nom de l'histogramme
+     */
+    Histogram(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Le nom de l'histogramme.
+     * @return le nom
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Enregistre une valeur. Une valeur négative est comptée comme 0.
+     * @param value la valeur
+     */
+    public void record(long value)
+    {
+        value = Math.max(0, value);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Le nombre de valeurs enregistrées.
+     * @return le nombre de valeurs
+     */
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * La moyenne exacte des valeurs enregistrées.
+     * @return la moyenne, 0 si aucune valeur n'a été enregistrée
+     */
+    public double getMean()
+    {
+        long n = count.sum();
+        return n == 0 ? 0 : (double)sum.sum() / n;
+    }
+
+    /**
+     * La plus grande valeur enregistrée.
+     * @return la valeur maximale, 0 si aucune valeur n'a été enregistrée
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * La valeur en dessous de laquelle se trouve une proportion donnée des valeurs enregistrées, à la précision de
+     * l'histogramme.
+     * @param quantile la proportion, entre 0 et 1 (0.99 pour le 99e centile)
+     * @return le milieu de l'intervalle contenant le quantile, 0 si aucune valeur n'a été enregistrée
+     */
+    public long getPercentile(double quantile)
+    {
+        long total = 0;
+        for(int i = 0; i < NBR_INTERVALLES; i++)
+            total += counts.get(i);
+        if(total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long)Math.ceil(quantile * total));
+        long seen = 0;
+        for(int i = 0; i < NBR_INTERVALLES; i++)
+        {
+            seen += counts.get(i);
+            if(seen >= rank)
+                return Math.min(getMax(), (lowerBound(i) + upperBound(i)) / 2);
+        }
+        return getMax();
+    }
+
+    /**
+     * Remet l'histogramme à zéro. Les valeurs enregistrées pendant la remise à zéro peuvent être perdues.
+     */
+    public void reset()
+    {
+        for(int i = 0; i < NBR_INTERVALLES; i++)
+            counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * L'intervalle d'une valeur positive.
+     * @param value la valeur
+     * @return l'indice de l'intervalle
+     */
+    static int index(long value)
+    {
+        if(value < SOUS_INTERVALLES)
+            return (int)value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int)(value >>> (exponent - BITS_MANTISSE)) & (SOUS_INTERVALLES - 1);
+        return (exponent - BITS_MANTISSE + 1) * SOUS_INTERVALLES + mantissa;
+    }
+
+    /**
+     * La plus petite valeur d'un intervalle.
+     * @param index l'indice de l'intervalle
+     * @return la borne inférieure
+     */
+    static long lowerBound(int index)
+    {
+        if(index < SOUS_INTERVALLES)
+            return index;
+        int exponent = index / SOUS_INTERVALLES + BITS_MANTISSE - 1;
+        long mantissa = index % SOUS_INTERVALLES;
+        return (SOUS_INTERVALLES + mantissa) << (exponent - BITS_MANTISSE);
+    }
+
+    /**
+     * La plus grande valeur d'un intervalle.
+     * @param index l'indice de l'intervalle
+     * @return la borne supérieure
+     */
+    static long upperBound(int index)
+    {
+        if(index < SOUS_INTERVALLES)
+            return index;
+        int exponent = index / SOUS_INTERVALLES + BITS_MANTISSE - 1;
+        return lowerBound(index) + (1L << (exponent - BITS_MANTISSE)) - 1;
+    }
+}
@@ -0,0 +1,163 @@
+package fr.univ.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registre des mesures de l'application : compteurs, histogrammes de durées et jauges, identifiés par un nom pointé
+ * ("gala.addReservation", "stockage.binaire.enregistrer"...). Les mesures sont consultables depuis l'application et
+ * peuvent être affichées sous forme de texte ({@link #dump()}).
+ *
+ * Les mesures sont désactivées par défaut (sauf -Dgala.metrics=true) : le code instrumenté ne fait alors que lire
+ * {@link #isEnabled()} avant de sauter la mesure. Les objets de mesure étant créés une fois pour toutes, le code
+ * instrumenté peut les conserver dans des constantes et éviter toute recherche par nom.
+ */
+public final class Metrics
+{
+    /**
+     * Indique si les mesures sont enregistrées.
+     */
+    private static volatile boolean enabled = Boolean.getBoolean("gala.metrics");
+
+    /**
+     * Les compteurs, indexés par nom.
+     */
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    /**
+     * Les histogrammes de durées, indexés par nom.
+     */
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    /**
+     * Les jauges, indexées par nom : chacune calcule sa valeur à la lecture.
+     */
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /**
+     * Indique si les mesures sont enregistrées.
+     * @return true si les mesures sont activées
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Active ou désactive l'enregistrement des mesures. Les valeurs déjà enregistrées sont conservées.
+     * @param enabled true pour activer les mesures
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Récupère (en le créant au besoin) un compteur.
+     * @param name le nom du compteur
+     * @return le compteur
+     */
+    public static LongAdder counter(String name)
+    {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Incrémente un compteur si les mesures sont activées.
+     * @param name le nom du compteur
+     */
+    public static void increment(String name)
+    {
+        if(enabled)
+            counter(name).increment();
+    }
+
+    /**
+     * Récupère (en le créant au besoin) un histogramme.
+     * @param name le nom de l'histogramme
+     * @return l'histogramme
+     */
+    public static Histogram histogram(String name)
+    {
+        Histogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Enregistre une jauge, dont la valeur est lue à chaque consultation. Une jauge de même nom est remplacée.
+     * @param name le nom de la jauge
+     * @param gauge la fonction donnant la valeur de la jauge
+     */
+    public static void gauge(String name, LongSupplier gauge)
+    {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * La valeur actuelle d'une jauge.
+     * @param name le nom de la jauge
+     * @return la valeur, ou 0 si la jauge n'existe pas
+     */
+    public static long gaugeValue(String name)
+    {
+        LongSupplier gauge = gauges.get(name);
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+
+    /**
+     * Début d'une mesure de durée.
+     * @return l'instant de début, ou 0 si les mesures sont désactivées
+     */
+    public static long start()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Fin d'une mesure de durée commencée par {@link #start()}.
+     * @param histogram l'histogramme recevant la durée
+     * @param start la valeur retournée par {@link #start()}
+     */
+    public static void stop(Histogram histogram, long start)
+    {
+        if(start != 0)
+            histogram.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Remet à zéro les compteurs et les histogrammes. Les jauges sont conservées.
+     */
+    public static void reset()
+    {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * Décrit toutes les mesures, une par ligne, triées par nom. Les durées sont données en microsecondes.
+     * @return la description des mesures
+     */
+    public static String dump()
+    {
+        Map<String, String> lines = new TreeMap<>();
+        counters.forEach((name, counter) -> lines.put(name, "count=" + counter.sum()));
+        histograms.forEach((name, h) -> {
+            if(h.getCount() > 0)
+                lines.put(name, String.format(Locale.ROOT,
+                                              "count=%d mean=%.1fµs p50=%.1fµs p90=%.1fµs p99=%.1fµs max=%.1fµs",
+                                              h.getCount(), h.getMean() / 1e3, h.getPercentile(0.5) / 1e3,
+                                              h.getPercentile(0.9) / 1e3, h.getPercentile(0.99) / 1e3,
+                                              h.getMax() / 1e3));
+        });
+        gauges.forEach((name, gauge) -> lines.put(name, "value=" + gauge.getAsLong()));
+
+        StringBuilder text = new StringBuilder();
+        lines.forEach((name, line) -> text.append(name).append(' ').append(line).append('\n'));
+        return text.toString();
+    }
+}
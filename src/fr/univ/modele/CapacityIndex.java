@@ -0,0 +1,156 @@
+package fr.univ.modele;
+
+import java.util.BitSet;
+
+/**
+ * Index des tables d'une même catégorie du plan de salle selon leur nombre de places restantes. Pour chaque
+ * nombre de places r, un ensemble de bits indique quelles tables ont exactement r places libres. Trouver la première
+ * table pouvant accueillir une réservation ne demande donc qu'une recherche par nombre de places possible, sans
+ * parcourir ni copier la liste des tables. L'index est tenu à jour par {@link Table} à chaque ajout ou suppression de
+ * réservation.
+ * Les méthodes sont synchronisées sur l'index : une table le met à jour alors qu'elle détient son propre verrou, tandis
+ * que la recherche ne verrouille que l'index.
+ */
+final class CapacityIndex
+{
+    /**
+     * L'identifiant de la première table de la catégorie. Les tables d'une catégorie peuvent former plusieurs plages
+     * d'identifiants (voir {@link Venue}), les trous entre deux plages ne coûtent alors qu'un bit par nombre de places.
+     */
+    private final int firstTableId;
+    /**
+     * Pour chaque nombre de places restantes, les positions (identifiant - firstTableId) des tables concernées.
+     */
+    private BitSet[] buckets;
+    /**
+     * Le nombre total de places restantes autour des tables de la catégorie.
+     */
+    private int seatsRemaining;
+
+    /**
+     * Crée un index vide.
+     * @param firstTableId l'identifiant de la première table de la catégorie
+     * @param maxSeats le nombre de places maximal autour d'une table, utilisé pour dimensionner l'index
+     */
+    CapacityIndex(int firstTableId, int maxSeats)
+    {
+        this.firstTableId = firstTableId;
+        this.buckets = new BitSet[maxSeats + 1];
+        for(int r = 0; r < buckets.length; r++)
+            buckets[r] = new BitSet();
+    }
+
+    /**
+     * Ajoute une table à l'index, qui sera ensuite prévenu de chacun de ses changements.
+     * @param table la table à indexer
+     */
+    synchronized void add(Table table)
+    {
+        put(table.getTableId(), table.getSeatsRemaining());
+        table.setCapacityIndex(this);
+    }
+
+    /**
+     * Ajoute une table à l'index sans s'y rattacher : l'index sert alors de plan de placement, tenu à jour par
+     * {@link #update(int, int, int)} (voir {@link Gala#repack(Venue.Category)}).
+     * @param tableId l'identifiant de la table
+     * @param seats le nombre de places restantes de la table
+     */
+    synchronized void put(int tableId, int seats)
+    {
+        bucket(seats).set(tableId - firstTableId);
+        seatsRemaining += seats;
+    }
+
+    /**
+     * Déplace une table d'un nombre de places restantes à un autre.
+     * @param tableId l'identifiant de la table
+     * @param before le nombre de places restantes avant la modification
+     * @param after le nombre de places restantes après la modification
+     */
+    synchronized void update(int tableId, int before, int after)
+    {
+        int position = tableId - firstTableId;
+        bucket(before).clear(position);
+        bucket(after).set(position);
+        seatsRemaining += after - before;
+    }
+
+    /**
+     * Le nombre total de places restantes autour des tables de la catégorie.
+     * @return le nombre de places restantes
+     */
+    synchronized int getSeatsRemaining()
+    {
+        return seatsRemaining;
+    }
+
+    /**
+     * Cherche la table de plus petit identifiant disposant d'au moins seats places libres (premier ajustement).
+     * @param seats le nombre de places nécessaires
+     * @return l'identifiant de la table, ou -1 si aucune table n'a assez de place
+     */
+    synchronized int findTable(int seats)
+    {
+        int best = Integer.MAX_VALUE;
+        for(int r = Math.max(seats, 0); r < buckets.length; r++)
+        {
+            int position = buckets[r].nextSetBit(0);
+            if(position >= 0 && position < best)
+                best = position;
+        }
+        return best == Integer.MAX_VALUE ? -1 : firstTableId + best;
+    }
+
+    /**
+     * Cherche une table disposant d'au moins seats places libres, parmi celles qui en ont le moins (meilleur
+     * ajustement). A nombre de places égal, la table de plus petit identifiant est choisie.
+     * @param seats le nombre de places nécessaires
+     * @return l'identifiant de la table, ou -1 si aucune table n'a assez de place
+     */
+    synchronized int findBestFit(int seats)
+    {
+        for(int r = Math.max(seats, 0); r < buckets.length; r++)
+        {
+            int position = buckets[r].nextSetBit(0);
+            if(position >= 0)
+                return firstTableId + position;
+        }
+        return -1;
+    }
+
+    /**
+     * Cherche une table disposant d'au moins seats places libres, parmi celles qui en ont le plus (pire ajustement).
+     * A nombre de places égal, la table de plus petit identifiant est choisie.
+     * @param seats le nombre de places nécessaires
+     * @return l'identifiant de la table, ou -1 si aucune table n'a assez de place
+     */
+    synchronized int findWorstFit(int seats)
+    {
+        for(int r = buckets.length - 1; r >= Math.max(seats, 0); r--)
+        {
+            int position = buckets[r].nextSetBit(0);
+            if(position >= 0)
+                return firstTableId + position;
+        }
+        return -1;
+    }
+
+    /**
+     * L'ensemble des tables ayant exactement r places restantes, agrandissant l'index si besoin.
+     * @param r le nombre de places restantes
+     * @return l'ensemble des positions des tables
+     */
+    private BitSet bucket(int r)
+    {
+        if(r >= buckets.length)
+        {
+            BitSet[] larger = new BitSet[r + 1];
+            System.arraycopy(buckets, 0, larger, 0, buckets.length);
+            for(int i = buckets.length; i < larger.length; i++)
+                larger[i] = new BitSet();
+            buckets = larger;
+        }
+        return buckets[r];
+    }
+}
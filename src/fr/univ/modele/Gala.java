@@ -1,22 +1,55 @@
 package fr.univ.modele;
 
 import fr.univ.exception.*;
+import fr.univ.io.ImportMembres;
+import fr.univ.io.ImportSalle;
+import fr.univ.util.IntFlagMap;
+import fr.univ.util.IntIntMap;
+import fr.univ.util.IntMap;
+import fr.univ.util.IntSet;
+import fr.univ.util.TimingWheel;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.temporal.ChronoUnit;
-import java.util.Scanner;
-import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Classe représentant le modèle de l'application. Elle contient les constantes principales et est en charge de la
  * gestion générale des données. Que ce soit pour stocker les membres de l'école, la date du jour ou la date de début du
  * gala, mais aussi les différents inscrits au Gala, leurs demandes de réservations, la file d'attente, etc.
+ * Lorsqu'il ne reste plus assez de places, un membre peut être inscrit sur la liste d'attente de chaque catégorie de
+ * tables de son public (voir {@link #joinWaitlist(int, int)}) ; toute place libérée est aussitôt attribuée au membre en
+ * attente le plus prioritaire qu'elle peut accueillir.
+ * Les échéances du Gala sont tenues par un échéancier (voir {@link #advanceDate(LocalDate)}) : une réservation non
+ * confirmée à temps (voir {@link #getConfirmationDeadline(Reservation)}) expire et libère ses places, et les annulations
+ * sont refusées à moins de 10 jours du Gala.
+ * Le Gala peut être utilisé par plusieurs threads à la fois :
+ * - les opérations d'un même membre sont sérialisées par un verrou choisi parmi {@link #NBR_MEMBER_LOCKS} selon son
+ * identifiant, deux membres différents n'attendant que rarement l'un après l'autre,
+ * - les places d'une table sont comptées sous le verrou de la table (voir {@link Table}),
+ * - les maps partagées (membres, réservations, états) sont protégées par un verrou tenu le temps d'une lecture ou d'une
+ * écriture seulement.
+ * Les verrous sont toujours pris dans cet ordre : date du jour, membre, puis table, puis maps partagées. Les listes
+ * d'attente et l'échéancier sont verrouillés seuls, sous le verrou d'un membre. Une réservation de groupe prend les
+ * verrous de ses membres par rang croissant, puis ceux de ses tables par identifiant croissant.
+ * Les lecteurs du plan des places n'ont besoin d'aucun verrou : après chaque modification des tables, un instantané
+ * du plan est publié (voir {@link #getSeatingPlan()}). Les changements d'état (réservations ajoutées ou retirées,
+ * confirmations, tables complètes ou libérées) sont aussi diffusés aux abonnés (voir {@link #subscribe(GalaListener)}),
+ * qui se tiennent à jour sans parcourir les tables.
+ * La sauvegarde d'un instantané doit se faire alors qu'aucune réservation n'est en cours.
  */
 public class Gala implements Serializable {
 
@@ -29,40 +62,139 @@ public class Gala implements Serializable {
     /**
      * Date de début du Gala
      */
-    private final LocalDate galaDate;
+    private LocalDate galaDate;
     /**
      * Date du jour
      */
-    private LocalDate currentDate;
+    private volatile LocalDate currentDate;
 
     /**
-     * Map des membres de l'école
+     * Map des membres de l'école, indexée par identifiant. Lorsque le Gala provient d'un instantané projeté en mémoire, elle ne contient que
+     * les membres déjà matérialisés depuis {@link #memberSource}.
      */
-    private final Map<Integer, SchoolMember> members;
+    private IntMap<SchoolMember> members;
+    /**
+     * Les lignes des jeux de données rejetées lors de la création du Gala. Non sauvegardées.
+     */
+    private final transient List<String> importErrors = new ArrayList<>();
+    /**
+     * Source des membres de l'école pas encore matérialisés, ou null si tous les membres sont dans la map members.
+     */
+    private transient MemberSource memberSource;
+
+    /**
+     * Etat de chaque membre de l'école vis-à-vis du Gala : inscrit ({@link #SUBSCRIBED}), réservation en attente
+     * ({@link #ON_HOLD}) et participation confirmée ({@link #ACCEPTED}). Un membre sans aucun de ces états n'y figure
+     * pas. Tient aussi à jour le nombre de membres dans chaque état.
+     */
+    private IntFlagMap memberStates;
+    /**
+     * Map des réservations pour participer au Gala, indexée par identifiant du membre de l'école
+     */
+    private IntMap<Reservation> reservations;
 
     /**
-     * Map des membres de l'école qui se sont inscrits au Gala
+     * Plan de la salle : catégories de tables, identifiants et capacités. Absent des sauvegardes antérieures à son
+     * introduction, remplacé alors par le plan par défaut.
+     */
+    private Venue venue;
+    /**
+     * Map des tables du Gala, indexée par identifiant de table
+     */
+    private IntMap<Table> tables;
+    /**
+     * Index des places restantes des tables de chaque catégorie, indexés par position de la catégorie dans le plan.
+     * Reconstruits au chargement.
+     */
+    private transient CapacityIndex[] seats;
+    /**
+     * Publieur des instantanés du plan des places, prévenu par chaque table de ses modifications. Reconstruit au
+     * chargement.
+     */
+    private transient SeatingPlanPublisher seatingPlan;
+    /**
+     * Diffusion des changements d'état aux abonnés. Recréée, sans abonné, au chargement.
+     */
+    private transient GalaEventHub events;
+    /**
+     * La stratégie de choix de la table lors d'un placement automatique. Réglage de l'application, non sauvegardé.
+     */
+    private transient volatile PlacementStrategy placementStrategy;
+    /**
+     * Listes d'attente des membres n'ayant pas trouvé de place, indexées par position de la catégorie dans le plan.
+     * Absentes des sauvegardes antérieures à leur introduction, recréées vides alors.
+     */
+    private Waitlist[] waitlists;
+    /**
+     * Numéro d'ordre de la prochaine inscription en liste d'attente, départageant les demandes de même rang. Protégé
+     * par stateLock.
+     */
+    private long waitlistSequence;
+    /**
+     * Les totaux des réservations et des recettes, tenus à jour à chaque opération. Protégés par stateLock. Absents des
+     * sauvegardes antérieures à leur introduction, recalculés alors depuis les réservations.
      */
-    private final Map<Integer, SchoolMember> subscribedMembers;
+    private GalaStatistics statistics;
     /**
-     * Map des membres de l'école qui ont fait une réservation pour participer au Gala
+     * Le nombre d'événements du journal (voir {@link fr.univ.io.ServiceJournal}) dont ce Gala est le résultat : au
+     * chargement d'un instantané, seuls les événements suivants sont rejoués. Tenu par le journal à chaque instantané,
+     * 0 pour un Gala jamais sauvegardé.
      */
-    private final Map<Integer, Reservation> reservations;
+    private long journalPosition;
 
     /**
-     * Map des membres de l'école pour lesquels une réservation est actuellement en attente
+     * Nombre de verrous répartissant les membres de l'école (puissance de 2).
+     */
+    private static final int NBR_MEMBER_LOCKS = 64;
+    /**
+     * Echéancier des expirations de réservations non confirmées et de la fin des annulations, en jours depuis le
+     * 1er janvier 1970. Non sauvegardé : reconstruit depuis les réservations au chargement.
+     */
+    private transient volatile TimingWheel deadlines;
+    /**
+     * Indique si les annulations de réservation sont refusées, la date du jour étant à moins de 10 jours du Gala. Levé
+     * par l'échéancier.
+     */
+    private transient volatile boolean cancellationsLocked;
+    /**
+     * Verrou sérialisant les changements de date du jour, pris avant tout autre verrou. Recréé au chargement.
+     */
+    private transient Object dateLock;
+    /**
+     * Verrous sérialisant les opérations d'un même membre de l'école. Recréés au chargement.
      */
-    private final Map<Integer, SchoolMember> membersOnHold;
+    private transient Object[] memberLocks;
     /**
-     * Map des membres de l'école pour lesquels leur réservation a bien été validé, leur participation au Gala pourra
-     * donc avoir lieu
+     * Verrou protégeant les maps partagées : members, memberStates et reservations. Recréé au chargement.
      */
-    private final Map<Integer, SchoolMember> acceptedMembers;
+    private transient Object stateLock;
 
     /**
-     * Map des tables du Gala
+     * Etat d'un membre de l'école qui s'est inscrit au Gala
+     */
+    static final int SUBSCRIBED = 1;
+    /**
+     * Etat d'un membre de l'école pour lequel une réservation est actuellement en attente
+     */
+    static final int ON_HOLD = 1 << 1;
+    /**
+     * Etat d'un membre de l'école pour lequel la réservation a bien été validée, sa participation au Gala pourra donc
+     * avoir lieu
+     */
+    static final int ACCEPTED = 1 << 2;
+    /**
+     * Etat d'un membre de l'école inscrit en liste d'attente, faute de place disponible
+     */
+    static final int WAITING = 1 << 3;
+    /**
+     * Evénement de l'échéancier marquant la fin des annulations.
+     */
+    private static final long CANCELLATION_LOCK = 0;
+    /**
+     * Evénement de l'échéancier marquant l'expiration de la réservation d'un membre, dont l'identifiant occupe les 32
+     * bits de poids faible.
      */
-    private final Map<Integer, Table> tables;
+    private static final long HOLD_EXPIRY = 1L << 32;
 
     /**
      * Prix d'entrée pour un M2
@@ -89,111 +221,264 @@ public class Gala implements Serializable {
      */
     private final int MAX_ACCOMPANIST_LESSER_THAN_M2 = 1;
     /**
-     * Nombre de places maximales autour d'une table
+     * Nombre de jours avant le Gala à partir duquel les réservations peuvent être confirmées
+     */
+    private static final int CONFIRMATION_OPENING = 30;
+    /**
+     * Nombre de jours accordés pour confirmer une réservation, à compter de l'ouverture des confirmations ou de la
+     * réservation si elle est plus tardive
      */
-    private final int MAX_SEATS_NBR = 8;
+    private static final int CONFIRMATION_DELAY = 7;
     /**
-     * Nombre de tables allouées aux étudiants
+     * Nombre de jours avant le Gala en deçà duquel une réservation ne peut plus être annulée
      */
-    private final int STUDENTS_TABLES = 15;
+    private static final int CANCELLATION_CUTOFF = 10;
     /**
-     * Nombre de tables allouées aux membres du personnel
+     * Fichier décrivant le plan de la salle (voir {@link ImportSalle}), lu s'il existe par {@link #Gala(LocalDate)}.
      */
-    private final int STAFF_TABLES = 10;
+    private static final Path VENUE_FILE = Path.of("resources/dataset/salles.txt");
 
     /**
      * Constructeur de la classe Gala. Est en chargé d'initialisé la totalité des variables membres.
      * @param galaDate Date de début du Gala
      * @throws FileNotFoundException Un jeu de donné (de type fichier texte) n'existe pas. L'initialisation échoue.
+     * @throws IOException Un jeu de donné ne peut être lu. L'initialisation échoue.
+     */
+    public Gala(LocalDate galaDate) throws IOException
+    {
+        this(galaDate, Path.of("resources/dataset/etudiants.txt"), Path.of("resources/dataset/personnel.txt"),
+             Files.exists(VENUE_FILE) ? ImportSalle.importer(VENUE_FILE) : Venue.defaultLayout());
+    }
+
+    /**
+     * Constructeur de la classe Gala lisant les membres de l'école depuis des jeux de données donnés.
+     * @param galaDate Date de début du Gala
+     * @param studentsFile le jeu de données des étudiants
+     * @param staffFile le jeu de données du personnel
+     * @throws FileNotFoundException Un jeu de donné (de type fichier texte) n'existe pas. L'initialisation échoue.
+     * @throws IOException Un jeu de donné ne peut être lu. L'initialisation échoue.
+     */
+    public Gala(LocalDate galaDate, Path studentsFile, Path staffFile) throws IOException
+    {
+        this(galaDate, studentsFile, staffFile, Venue.defaultLayout());
+    }
+
+    /**
+     * Constructeur de la classe Gala lisant les membres de l'école depuis des jeux de données donnés, pour une salle
+     * donnée.
+     * @param galaDate Date de début du Gala
+     * @param studentsFile le jeu de données des étudiants
+     * @param staffFile le jeu de données du personnel
+     * @param venue le plan de la salle
+     * @throws FileNotFoundException Un jeu de donné (de type fichier texte) n'existe pas. L'initialisation échoue.
+     * @throws IOException Un jeu de donné ne peut être lu. L'initialisation échoue.
      */
-    public Gala(LocalDate galaDate) throws FileNotFoundException
+    public Gala(LocalDate galaDate, Path studentsFile, Path staffFile, Venue venue) throws IOException
     {
         this.galaDate = galaDate;
         this.currentDate = galaDate.minusMonths(2);
 
-        this.members = new HashMap<>();
-        this.membersOnHold = new HashMap<>();
-        this.subscribedMembers = new HashMap<>();
-        this.acceptedMembers = new HashMap<>();
-        this.tables = new HashMap<>();
-        this.reservations = new HashMap<>();
-
-        studentsFileReading();
-        staffsFileReading();
+        this.members = new IntMap<>();
+        this.memberStates = new IntFlagMap();
+        this.venue = venue;
+        this.tables = new IntMap<>(venue.getNbrTables());
+        this.reservations = new IntMap<>();
+        createLocks();
+        createCapacityIndexes();
+        createWaitlists();
+        statistics = new GalaStatistics(venue.getCategories().size());
+        createDeadlines();
+
+        membersFileReading(studentsFile, ImportMembres.Type.STUDENT);
+        membersFileReading(staffFile, ImportMembres.Type.STAFF);
         tablesCreation();
     }
 
+    /**
+     * Constructeur utilisé lors de la restauration d'un Gala depuis un instantané binaire (voir {@link GalaCodec}).
+     * Aucun jeu de données n'est lu et aucune table n'est créée : le contenu est entièrement fourni par l'instantané.
+     * @param galaDate Date de début du Gala
+     * @param currentDate Date du jour
+     * @param venue le plan de la salle
+     */
+    Gala(LocalDate galaDate, LocalDate currentDate, Venue venue)
+    {
+        this.galaDate = galaDate;
+        this.currentDate = currentDate;
+
+        this.members = new IntMap<>();
+        this.memberStates = new IntFlagMap();
+        this.venue = venue;
+        this.tables = new IntMap<>(venue.getNbrTables());
+        this.reservations = new IntMap<>();
+        createLocks();
+        createCapacityIndexes();
+        createWaitlists();
+        statistics = new GalaStatistics(venue.getCategories().size());
+        createDeadlines();
+    }
+
     //-------------------------- INITIALIZATION
 
-    // Weird to find an io method in Gala class... Would it really be useful to create a new class in IO package ? Probably not.
+    /**
+     * Initialise les membres de l'école depuis un jeu de données donné sous forme de fichier texte. Les lignes mal
+     * formées et les identifiants en double sont ignorés et consignés dans {@link #importErrors}.
+     * @param filePath le jeu de données
+     * @param type le type de membre décrit par le jeu de données
+     * @throws IOException Le fichier n'existe pas ou ne peut être lu.
+     */
+    private void membersFileReading(Path filePath, ImportMembres.Type type) throws IOException
+    {
+        ImportMembres.ResultatImport result = ImportMembres.importer(filePath, type);
+        importErrors.addAll(result.getErreurs());
+
+        for(SchoolMember member : result.getMembres())
+            if(members.putIfAbsent(member.getId(), member) != null)
+                importErrors.add(filePath + " : identifiant " + member.getId() + " en double, ligne ignorée");
+    }
+
+    /**
+     * Initialise les tables du Gala.
+     */
+    private void tablesCreation()
+    {
+        for(Venue.Range range : venue.ranges())
+            for(int i = range.firstTableId; i <= range.lastTableId; ++i)
+            {
+                Table table = new Table(i, range.capacity);
+                tables.put(i, table);
+                attachTable(range.category, table);
+            }
+    }
 
     /**
-     * Méthode transformant un fichier texte en une liste des lignes du fichier.
-     * @param filePath Un fichier
-     * @return Une liste avec une ligne par indice
-     * @throws FileNotFoundException Le fichier devant être lu n'existe pas
+     * Crée les index (vides) des places restantes des tables, un par catégorie, le publieur (vide) du plan des places et
+     * la diffusion (sans abonné) des changements d'état.
      */
-    private List<String> readFile(String filePath) throws FileNotFoundException
+    private void createCapacityIndexes()
     {
-        Scanner fileReader = new Scanner(new File(filePath));
-        List<String> lines = new ArrayList<>();
+        seatingPlan = new SeatingPlanPublisher(venue);
+        events = new GalaEventHub();
+        placementStrategy = PlacementStrategy.fromProperty();
+        seats = new CapacityIndex[venue.getCategories().size()];
+        for(int c = 0; c < seats.length; c++)
+            seats[c] = new CapacityIndex(venue.firstTableId(c), venue.maxCapacity(c));
+        GalaMetrics.registerGauges(this, venue, seats);
+    }
 
-        while (fileReader.hasNextLine())
-            lines.add(fileReader.nextLine());
+    /**
+     * Rattache une table à l'index des places restantes de sa catégorie, au publieur du plan des places et à la
+     * diffusion des changements d'état, qu'elle préviendra de chacune de ses modifications.
+     * @param category la position de la catégorie de la table
+     * @param table la table
+     */
+    private void attachTable(int category, Table table)
+    {
+        seats[category].add(table);
+        seatingPlan.add(table);
+        table.setEvents(events);
+    }
 
-        return lines;
+    /**
+     * Crée les listes d'attente (vides), une par catégorie.
+     */
+    private void createWaitlists()
+    {
+        waitlists = new Waitlist[venue.getCategories().size()];
+        for(int c = 0; c < waitlists.length; c++)
+            waitlists[c] = new Waitlist(venue.maxCapacity(c));
     }
 
     /**
-     * Initialise les étudiants, depuis un jeu de données donné sous forme de fichier texte.
-     * @throws FileNotFoundException Le fichier n'existe pas.
+     * Crée l'échéancier à la date du jour et y programme la fin des annulations, si elle est à venir, et l'expiration
+     * de chaque réservation. Les événements ne sont pas retirés de l'échéancier lorsqu'ils deviennent sans objet
+     * (réservation confirmée ou supprimée) : ils sont ignorés à leur échéance.
      */
-    private void studentsFileReading() throws FileNotFoundException
+    private void createDeadlines()
     {
-        List<String> studentsInformations = readFile("resources/dataset/etudiants.txt");
-        for(String line : studentsInformations)
+        TimingWheel wheel = new TimingWheel(currentDate.toEpochDay());
+        cancellationsLocked = currentDate.plusDays(CANCELLATION_CUTOFF).isAfter(galaDate);
+        if(!cancellationsLocked)
+            wheel.schedule(galaDate.minusDays(CANCELLATION_CUTOFF - 1).toEpochDay(), CANCELLATION_LOCK);
+        deadlines = wheel;
+        synchronized(stateLock)
         {
-            String[] studentInfos = line.split("\t");
-            members.put(
-                    Integer.parseInt(studentInfos[0]), // key
-                    new Student( // value
-                                 Integer.parseInt(studentInfos[0]), studentInfos[1], studentInfos[2], studentInfos[3],
-                                 studentInfos[4], Integer.parseInt(studentInfos[5])
-                    )
-            );
+            for(Reservation reservation : reservations.values())
+                scheduleExpiry(reservation);
         }
     }
 
     /**
-     * Initialise le personnel, depuis un jeu de données donné sous forme de fichier texte.
-     * @throws FileNotFoundException Le fichier n'existe pas.
+     * Programme l'expiration d'une réservation, au lendemain de sa date limite de confirmation.
+     * @param reservation la réservation
      */
-    private void staffsFileReading() throws FileNotFoundException
+    private void scheduleExpiry(Reservation reservation)
     {
-        List<String> staffsInformations = readFile("resources/dataset/personnel.txt");
-        for(String line : staffsInformations)
-        {
-            String[] staffInfos = line.split( "\t" );
-            members.put(
-                    Integer.parseInt( staffInfos[0] ), // key
-                    new Staff( // value
-                               Integer.parseInt( staffInfos[0] ), staffInfos[1], staffInfos[2], staffInfos[3],
-                               staffInfos[4]
-                    )
-            );
-        }
+        deadlines.schedule(expiryDay(reservation), HOLD_EXPIRY | (reservation.getOwner().getId() & 0xFFFFFFFFL));
     }
 
     /**
-     * Initialise les tables du Gala.
+     * Le jour où une réservation non confirmée expire.
+     * @param reservation la réservation
+     * @return le lendemain de sa date limite de confirmation, en jours depuis le 1er janvier 1970
      */
-    private void tablesCreation()
+    private long expiryDay(Reservation reservation)
+    {
+        return getConfirmationDeadline(reservation).toEpochDay() + 1;
+    }
+
+    /**
+     * Crée les verrous du Gala.
+     */
+    private void createLocks()
+    {
+        dateLock = new Object();
+        stateLock = new Object();
+        memberLocks = new Object[NBR_MEMBER_LOCKS];
+        for(int i = 0; i < NBR_MEMBER_LOCKS; i++)
+            memberLocks[i] = new Object();
+    }
+
+    /**
+     * Récupère le verrou sérialisant les opérations d'un membre de l'école.
+     * @param memberId l'identifiant du membre
+     * @return le verrou du membre, partagé avec d'autres membres
+     */
+    private Object memberLock(int memberId)
+    {
+        return memberLocks[memberLockIndex(memberId)];
+    }
+
+    /**
+     * Le rang du verrou sérialisant les opérations d'un membre de l'école.
+     * @param memberId l'identifiant du membre
+     * @return le rang du verrou du membre dans memberLocks
+     */
+    private static int memberLockIndex(int memberId)
+    {
+        // the identifiers are mostly consecutive, the high bits of the product spread them among the locks
+        return (memberId * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(NBR_MEMBER_LOCKS));
+    }
+
+    /**
+     * Exécute une action en détenant plusieurs verrous, pris dans l'ordre du tableau.
+     * @param locks les verrous
+     * @param from le rang du premier verrou pas encore pris
+     * @param action l'action
+     * @return le résultat de l'action
+     * @param <T> le type du résultat
+     */
+    private static <T> T synchronizedAll(Object[] locks, int from, Supplier<T> action)
     {
-        // init tables, with a numbering beginning at 1, as described in the subject.
-        for (int i = 1; i <= (STUDENTS_TABLES + STAFF_TABLES); ++i )
-            tables.put(i, new Table(i, MAX_SEATS_NBR));
+        if(from == locks.length)
+            return action.get();
+        synchronized(locks[from])
+        {
+            return synchronizedAll(locks, from + 1, action);
+        }
     }
 
+
     //---------------------------------- MEMBERS
 
     /**
@@ -204,10 +489,32 @@ public class Gala implements Serializable {
      */
     public SchoolMember getMemberById(int memberId) throws NoSuchMemberException
     {
-        if (!members.containsKey(memberId))
+        SchoolMember member = findMember(memberId);
+        if (member == null)
             throw new NoSuchMemberException("La personne recherchée est introuvable");
 
-        return members.get(memberId);
+        return member;
+    }
+
+    /**
+     * Récupère un membre de l'école depuis son identifiant, sans lever d'exception. A préférer à
+     * {@link #getMemberById(int)} lorsqu'un identifiant inconnu n'a rien d'exceptionnel, par exemple à la connexion.
+     * @param memberId L'identifiant du membre que l'on recherche
+     * @return Un membre de l'école, ou null si aucun membre n'existe pour l'identifiant donné
+     */
+    public SchoolMember findMember(int memberId)
+    {
+        synchronized(stateLock)
+        {
+            SchoolMember member = members.get(memberId);
+            if(member == null && memberSource != null)
+            {
+                member = memberSource.load(memberId); // materialize the member on first access
+                if(member != null)
+                    members.put(memberId, member);
+            }
+            return member;
+        }
     }
 
     /**
@@ -251,10 +558,24 @@ public class Gala implements Serializable {
      */
     public void subscribeMember(int membreId) throws MemberIsAlreadySubscribeException
     {
-        if (subscribedMembers.containsKey(membreId))
-            throw new MemberIsAlreadySubscribeException( "Vous êtes déjà inscrit");
-
-        subscribedMembers.put(membreId, members.get(membreId));
+        long start = GalaMetrics.SUBSCRIBE.start();
+        try
+        {
+            boolean subscribed;
+            synchronized(stateLock)
+            {
+                subscribed = memberStates.set(membreId, SUBSCRIBED);
+            }
+            if (!subscribed)
+                throw new MemberIsAlreadySubscribeException( "Vous êtes déjà inscrit");
+        } catch(Exception e)
+        {
+            GalaMetrics.SUBSCRIBE.rejected(e);
+            throw e;
+        } finally
+        {
+            GalaMetrics.SUBSCRIBE.stop(start);
+        }
     }
 
     /**
@@ -264,20 +585,44 @@ public class Gala implements Serializable {
      */
     public boolean isMemberSubscribed(int memberId)
     {
-        return subscribedMembers.containsKey(memberId);
+        synchronized(stateLock)
+        {
+            return memberStates.has(memberId, SUBSCRIBED);
+        }
     }
 
     /**
-     * Désinscris le membre de l'école du Gala.
+     * Désinscris le membre de l'école du Gala, et le retire de la liste d'attente s'il y figurait.
      * @param userId l'identifiant du membre de l'école que l'on souhaite désinscrire
      * @throws NoSuchSubscriptionException Le membre de l'école n'est pas inscrit et ne peut donc pas être désinscrit
      */
     public void unsubscribeMember(int userId) throws NoSuchSubscriptionException
     {
-        if(!subscribedMembers.containsKey(userId))
-            throw new NoSuchSubscriptionException("Vous n'avez aucune réservation");
-
-        subscribedMembers.remove(userId);
+        long start = GalaMetrics.UNSUBSCRIBE.start();
+        try
+        {
+            synchronized(memberLock(userId))
+            {
+                boolean unsubscribed;
+                boolean waiting;
+                synchronized(stateLock)
+                {
+                    unsubscribed = memberStates.clear(userId, SUBSCRIBED);
+                    waiting = unsubscribed && memberStates.clear(userId, WAITING);
+                }
+                if(!unsubscribed)
+                    throw new NoSuchSubscriptionException("Vous n'avez aucune réservation");
+                if(waiting)
+                    withdraw(findMember(userId));
+            }
+        } catch(Exception e)
+        {
+            GalaMetrics.UNSUBSCRIBE.rejected(e);
+            throw e;
+        } finally
+        {
+            GalaMetrics.UNSUBSCRIBE.stop(start);
+        }
     }
 
     //------------------------- RESERVATION
@@ -294,67 +639,91 @@ public class Gala implements Serializable {
      * avoir une seconde
      * @throws IllegalAccompanistNumberException Le nombre d'accompagnants est incorrect : soit trop grand, soit négatif
      * @throws NoSeatRemainingException La table n'a pas assez de place pour permettre la réservation
+     * @throws IllegalArgumentException Aucun membre n'existe pour l'identifiant donné
      */
     public int addReservation(int memberId, int nbrAccompanist) throws MemberAlreadyHasReservationException,
             IllegalAccompanistNumberException, NoSeatRemainingException
     {
-        if (reservations.containsKey(memberId))
-            throw new MemberAlreadyHasReservationException( "Vous avez déjà une reservation effectuée avec cet identifiant.");
-
-        SchoolMember member = members.get(memberId);
-        Reservation reservation = null;
-        int tableId = -1;
-
-        if(member instanceof Staff)
+        ReservationResult result = tryAddReservation(memberId, nbrAccompanist);
+        ReservationStatus status = result.getStatus();
+        switch(status)
         {
-            if ( nbrAccompanist > MAX_STAFF_ACCOMPANIST )
-                throw new IllegalAccompanistNumberException( "Vous ne pouvez pas réserver plus de " + MAX_ACCOMPANIST_M2 +
-                                                             "places en tant que membre du personnel.");
+            case ACCEPTED -> { return result.getPrice(); }
+            case ALREADY_RESERVED -> throw new MemberAlreadyHasReservationException(status.getMessage());
+            case ILLEGAL_ACCOMPANIST_NUMBER -> throw new IllegalAccompanistNumberException(accompanistMessage(memberId, nbrAccompanist));
+            case NO_SEAT_REMAINING -> throw new NoSeatRemainingException(status.getMessage());
+            default -> throw new IllegalArgumentException(status.getMessage());
+        }
+    }
 
-            // Find a table with enough seats to receive the reservation
-            List<Table> staffTables = getStaffTables(); 
-            for(Table table : staffTables) {
-                if(table.getSeatsRemaining() >= nbrAccompanist + 1) {
-                    tableId = table.getTableId();
-                    break;
-                }
+    /**
+     * Ajoute une réservation au Gala sur la première table de la catégorie du membre disposant d'assez de places, comme
+     * {@link #addReservation(int, int)}, mais signale un refus par le résultat plutôt que par une exception.
+     * @param memberId l'identifiant du membre de l'école effectuant la réservation
+     * @param nbrAccompanist le nombre d'accompagnants du membre de l'école
+     * @return le résultat de la demande : la réservation enregistrée, ou le motif du refus
+     */
+    public ReservationResult tryAddReservation(int memberId, int nbrAccompanist)
+    {
+        long start = GalaMetrics.ADD_RESERVATION.start();
+        try
+        {
+            ReservationResult result;
+            synchronized(memberLock(memberId))
+            {
+                result = reserveAnyTable(memberId, nbrAccompanist);
             }
-            if( tableId == -1 )
-                throw new NoSeatRemainingException("Aucune place restante");
-
-            reservation = new Reservation(tableId, member, nbrAccompanist+1, (nbrAccompanist+1) * PRICE_STAFF, currentDate);
-        }
-        else if(member instanceof Student student)
+            if(!result.isAccepted())
+                GalaMetrics.ADD_RESERVATION.rejected(result.getStatus());
+            return result;
+        } catch(Exception e)
+        {
+            GalaMetrics.ADD_RESERVATION.rejected(e);
+            throw e;
+        } finally
         {
-            if (student.getYear() == 5 && nbrAccompanist > MAX_ACCOMPANIST_M2 )
-                throw new IllegalAccompanistNumberException( "Vous ne pouvez pas réserver plus de " +
-                                                             MAX_ACCOMPANIST_M2 + "places en tant que M2");
-            if (student.getYear() < 5 && nbrAccompanist > MAX_ACCOMPANIST_LESSER_THAN_M2 )
-                throw new IllegalAccompanistNumberException( "Vous ne pouvez pas réserver plus de " +
-                                                             MAX_ACCOMPANIST_LESSER_THAN_M2 + "places en tant que <M2");
+            GalaMetrics.ADD_RESERVATION.stop(start);
+        }
+    }
 
-            // Find a table with enough seats to receive the reservation
-            List<Table> studentTables = getStudentTables();
-            for(Table table : studentTables) {
-                if(table.getSeatsRemaining() >= nbrAccompanist + 1) {
-                    tableId = table.getTableId();
-                    break;
-                }
-            }
+    /**
+     * Ajoute une réservation sur la première table disposant d'assez de places, le verrou du membre étant détenu.
+     * @param memberId l'identifiant du membre de l'école effectuant la réservation
+     * @param nbrAccompanist le nombre d'accompagnants du membre de l'école
+     * @return le résultat de la demande
+     */
+    private ReservationResult reserveAnyTable(int memberId, int nbrAccompanist)
+    {
+        if (hasReserved(memberId))
+            return ReservationResult.rejected(ReservationStatus.ALREADY_RESERVED);
+
+        SchoolMember member = findMember(memberId);
+        if(member == null)
+            return ReservationResult.rejected(ReservationStatus.NO_SUCH_MEMBER);
+        if(nbrAccompanist < 0 || nbrAccompanist > getMaxAccompanist(member))
+            return ReservationResult.rejected(ReservationStatus.ILLEGAL_ACCOMPANIST_NUMBER);
+
+        int[] categories = venue.categoriesOf(Venue.Audience.of(member));
+
+        // Find a table with enough seats to receive the reservation, filling the categories in the venue order.
+        // Another thread may take the seats between the lookup and the reservation: the table then refuses it and the
+        // next table is looked up.
+        while(true)
+        {
+            int tableId = -1;
+            PlacementStrategy strategy = placementStrategy;
+            for(int i = 0; i < categories.length && tableId == -1; i++)
+                tableId = strategy.findTable(seats[categories[i]], nbrAccompanist + 1);
             if( tableId == -1 )
-                throw new NoSeatRemainingException("Aucune place restante");
+                return ReservationResult.rejected(ReservationStatus.NO_SEAT_REMAINING);
 
-            if(student.getYear() == 5)
-                reservation = new Reservation(tableId, member, nbrAccompanist+1, (nbrAccompanist+1) * PRICE_M2, currentDate);
-            else
-                reservation = new Reservation(tableId, member, nbrAccompanist+1, (nbrAccompanist+1) * PRICE_LESSER_THAN_M2, currentDate);
+            Reservation reservation = newReservation(tableId, member, nbrAccompanist);
+            if(tables.get(tableId).tryAddReservation(reservation))
+            {
+                recordReservation(memberId, reservation);
+                return ReservationResult.accepted(reservation);
+            }
         }
-
-        // Add the reservation to the table
-        tables.get(tableId).addReservation(reservation); // don't trust IntelliJ :  can't be null --- Could you explain me why Momo?
-        reservations.put(memberId, reservation);
-        membersOnHold.put( memberId, member);
-        return reservation.getReservationPrice();
     }
 
     /**
@@ -375,55 +744,170 @@ public class Gala implements Serializable {
      * @throws IllegalAccompanistNumberException Le nombre d'accompagnants est incorrect : soit trop grand, soit négatif
      * @throws NoSuchTableException La table ciblée n'existe pas
      * @throws NoSeatRemainingException La table n'a pas assez de place pour permettre la réservation
+     * @throws IllegalArgumentException Aucun membre n'existe pour l'identifiant donné
      */
     public int addReservation(int memberId, int nbrAccompanist, int tableId) throws MemberAlreadyHasReservationException,
             TablePermissionException, IllegalAccompanistNumberException, NoSuchTableException, NoSeatRemainingException
     {
-        if (reservations.containsKey(memberId))
-            throw new MemberAlreadyHasReservationException( "Vous avez déjà une reservation effectuée avec cet identifiant.");
-
-        SchoolMember member = members.get(memberId);
-        Reservation reservation = null;
+        ReservationResult result = tryAddReservation(memberId, nbrAccompanist, tableId);
+        ReservationStatus status = result.getStatus();
+        switch(status)
+        {
+            case ACCEPTED -> { return result.getPrice(); }
+            case ALREADY_RESERVED -> throw new MemberAlreadyHasReservationException(status.getMessage());
+            case TABLE_PERMISSION -> throw new TablePermissionException(tablePermissionMessage(memberId));
+            case ILLEGAL_ACCOMPANIST_NUMBER -> throw new IllegalAccompanistNumberException(accompanistMessage(memberId, nbrAccompanist));
+            case NO_SUCH_TABLE -> throw new NoSuchTableException(status.getMessage());
+            case NO_SEAT_REMAINING -> throw new NoSeatRemainingException("Il n'y a plus de place disponible sur cette table");
+            default -> throw new IllegalArgumentException(status.getMessage());
+        }
+    }
 
-        if(member instanceof Staff)
+    /**
+     * Ajoute une réservation au Gala sur une table choisie, comme {@link #addReservation(int, int, int)}, mais signale
+     * un refus par le résultat plutôt que par une exception.
+     * @param memberId l'identifiant du membre de l'école effectuant la réservation
+     * @param nbrAccompanist le nombre d'accompagnants du membre de l'école
+     * @param tableId l'identifiant de la table ciblée par la réservation
+     * @return le résultat de la demande : la réservation enregistrée, ou le motif du refus
+     */
+    public ReservationResult tryAddReservation(int memberId, int nbrAccompanist, int tableId)
+    {
+        long start = GalaMetrics.ADD_RESERVATION_TABLE.start();
+        try
+        {
+            ReservationResult result;
+            synchronized(memberLock(memberId))
+            {
+                result = reserveTable(memberId, nbrAccompanist, tableId);
+            }
+            if(!result.isAccepted())
+                GalaMetrics.ADD_RESERVATION_TABLE.rejected(result.getStatus());
+            return result;
+        } catch(Exception e)
         {
-            if(tableId <= STUDENTS_TABLES)
-                throw new TablePermissionException("Un membre du personnel ne peut pas faire de réservation pour une " +
-                                                   "table destinée aux étudiants" );
+            GalaMetrics.ADD_RESERVATION_TABLE.rejected(e);
+            throw e;
+        } finally
+        {
+            GalaMetrics.ADD_RESERVATION_TABLE.stop(start);
+        }
+    }
+
+    /**
+     * Ajoute une réservation à une table donnée, le verrou du membre étant détenu.
+     * @param memberId l'identifiant du membre de l'école effectuant la réservation
+     * @param nbrAccompanist le nombre d'accompagnants du membre de l'école
+     * @param tableId l'identifiant de la table ciblée par la réservation
+     * @return le résultat de la demande
+     */
+    private ReservationResult reserveTable(int memberId, int nbrAccompanist, int tableId)
+    {
+        if (hasReserved(memberId))
+            return ReservationResult.rejected(ReservationStatus.ALREADY_RESERVED);
+
+        SchoolMember member = findMember(memberId);
+        if(member == null)
+            return ReservationResult.rejected(ReservationStatus.NO_SUCH_MEMBER);
+        Venue.Category category = venue.getCategory(tableId);
+        if(category == null)
+            return ReservationResult.rejected(ReservationStatus.NO_SUCH_TABLE);
+        if(!category.getAudience().admits(member))
+            return ReservationResult.rejected(ReservationStatus.TABLE_PERMISSION);
+        if(nbrAccompanist < 0 || nbrAccompanist > getMaxAccompanist(member))
+            return ReservationResult.rejected(ReservationStatus.ILLEGAL_ACCOMPANIST_NUMBER);
+
+        Table table = tables.get(tableId);
 
-            if ( nbrAccompanist > MAX_STAFF_ACCOMPANIST )
-                throw new IllegalAccompanistNumberException( "Vous ne pouvez pas réserver plus de " +
-                                                             MAX_ACCOMPANIST_M2 + "places");
+        // Add the reservation to the table
+        Reservation reservation = newReservation(tableId, member, nbrAccompanist);
+        if(!table.tryAddReservation(reservation))
+            return ReservationResult.rejected(ReservationStatus.NO_SEAT_REMAINING);
+        recordReservation(memberId, reservation);
+        return ReservationResult.accepted(reservation);
+    }
 
-            reservation = new Reservation(tableId, member, nbrAccompanist+1, (nbrAccompanist+1) * PRICE_STAFF, currentDate);
-        }
-        else if(member instanceof Student student)
+    /**
+     * Crée la réservation d'un membre de l'école et de ses accompagnants, à la date du jour.
+     * @param tableId l'identifiant de la table
+     * @param member le membre de l'école
+     * @param nbrAccompanist le nombre d'accompagnants
+     * @return la réservation, pas encore ajoutée à sa table
+     */
+    private Reservation newReservation(int tableId, SchoolMember member, int nbrAccompanist)
+    {
+        int price = switch(PriceCategory.of(member))
         {
-            if(tableId > STUDENTS_TABLES)
-                throw new TablePermissionException("Un étudiant ne peut pas faire de réservation pour une table " +
-                                                   "destinée aux membres du personnel");
+            case M2 -> PRICE_M2;
+            case LESSER_THAN_M2 -> PRICE_LESSER_THAN_M2;
+            case STAFF -> PRICE_STAFF;
+        };
 
-            if (student.getYear() == 5 && nbrAccompanist > MAX_ACCOMPANIST_M2 )
-                throw new IllegalAccompanistNumberException( "Vous ne pouvez pas réserver plus de " +
-                                                             MAX_ACCOMPANIST_M2 + "places");
-            if (student.getYear() < 5 && nbrAccompanist > MAX_ACCOMPANIST_LESSER_THAN_M2 )
-                throw new IllegalAccompanistNumberException( "Vous ne pouvez pas réserver plus de " +
-                                                             MAX_ACCOMPANIST_LESSER_THAN_M2 + "places");
+        return new Reservation(tableId, member, nbrAccompanist+1, (nbrAccompanist+1) * price, currentDate);
+    }
 
-            if(student.getYear() == 5)
-                reservation = new Reservation(tableId, member, nbrAccompanist+1, (nbrAccompanist+1) * PRICE_M2, currentDate);
-            else
-                reservation = new Reservation(tableId, member, nbrAccompanist+1, (nbrAccompanist+1) * PRICE_LESSER_THAN_M2, currentDate);
-        }
+    /**
+     * Le nombre maximal d'accompagnants d'un membre de l'école, selon qu'il soit membre du personnel, étudiant en M2
+     * ou étudiant en <M2.
+     * @param member le membre de l'école
+     * @return le nombre maximal d'accompagnants
+     */
+    public int getMaxAccompanist(SchoolMember member)
+    {
+        if(member instanceof Student student)
+            return student.getYear() == 5 ? MAX_ACCOMPANIST_M2 : MAX_ACCOMPANIST_LESSER_THAN_M2;
+        return MAX_STAFF_ACCOMPANIST;
+    }
+
+    /**
+     * Le message d'un refus pour nombre d'accompagnants incorrect. N'est construit que pour lever l'exception.
+     * @param memberId l'identifiant du membre de l'école
+     * @param nbrAccompanist le nombre d'accompagnants demandé
+     * @return le message
+     */
+    private String accompanistMessage(int memberId, int nbrAccompanist)
+    {
+        if(nbrAccompanist < 0)
+            return "Le nombre d'accompagnants ne peut pas être négatif";
 
-        if(!tables.containsKey(tableId))
-            throw new NoSuchTableException("La table demandée n'existe pas.");
+        SchoolMember member = findMember(memberId);
+        String category = member instanceof Staff ? "membre du personnel"
+                        : ((Student)member).getYear() == 5 ? "M2" : "<M2";
+        return "Vous ne pouvez pas réserver plus de " + getMaxAccompanist(member) + " places en tant que " + category;
+    }
 
-        // Add the reservation to the table
-        tables.get(tableId).addReservation(reservation); // don't trust IntelliJ :  can't be null --- Could you explain me why Momo?
-        reservations.put(memberId, reservation);
-        membersOnHold.put( memberId, member);
-        return reservation.getReservationPrice();
+    /**
+     * Le message d'un refus pour table destinée à une autre catégorie de membres. N'est construit que pour lever
+     * l'exception.
+     * @param memberId l'identifiant du membre de l'école
+     * @return le message
+     */
+    private String tablePermissionMessage(int memberId)
+    {
+        if(findMember(memberId) instanceof Staff)
+            return "Un membre du personnel ne peut pas faire de réservation pour une table destinée aux étudiants";
+        return "Un étudiant ne peut pas faire de réservation pour une table destinée aux membres du personnel";
+    }
+
+    /**
+     * Enregistre une réservation déjà acceptée par sa table et met le membre en attente de confirmation, jusqu'à
+     * l'expiration de la réservation. S'il figurait en liste d'attente, il en est retiré.
+     * @param memberId l'identifiant du membre de l'école
+     * @param reservation la réservation
+     */
+    private void recordReservation(int memberId, Reservation reservation)
+    {
+        boolean waiting;
+        synchronized(stateLock)
+        {
+            reservations.put(memberId, reservation);
+            memberStates.set(memberId, ON_HOLD);
+            waiting = memberStates.clear(memberId, WAITING);
+            statistics.add(reservation, venue.categoryOf(reservation.getTableId()));
+        }
+        if(waiting)
+            withdraw(reservation.getOwner());
+        scheduleExpiry(reservation);
     }
 
     /**
@@ -434,10 +918,24 @@ public class Gala implements Serializable {
      */
     public Reservation getReservationById(int memberId) throws NoSuchReservationException
     {
-        if (!reservations.containsKey(memberId))
+        Reservation reservation = findReservation(memberId);
+        if (reservation == null)
             throw new NoSuchReservationException("La réservation demandée n'existe pas");
 
-        return reservations.get(memberId);
+        return reservation;
+    }
+
+    /**
+     * Récupère la réservation d'un membre de l'école, sans lever d'exception.
+     * @param memberId identifiant du membre de l'école possédant la réservation
+     * @return La réservation du membre de l'école, ou null s'il n'en a pas
+     */
+    public Reservation findReservation(int memberId)
+    {
+        synchronized(stateLock)
+        {
+            return reservations.get(memberId);
+        }
     }
 
     /**
@@ -447,74 +945,862 @@ public class Gala implements Serializable {
      */
     public boolean hasReserved(int memberId)
     {
-        return reservations.containsKey(memberId);
+        synchronized(stateLock)
+        {
+            return reservations.containsKey(memberId);
+        }
     }
 
     /**
      * Supprime une réservation d'un membre de l'école donné en paramètre. Cela engendre diverses opérations :
      * - La réservation est supprimée de la table ciblée par ladite réservation,
-     * - Le membre de l'école est supprimé de la liste d'attente,
-     * - Enfin, la réservation est supprimée de la map des réservations.
+     * - Le membre de l'école n'est plus en attente de confirmation,
+     * - La réservation est supprimée de la map des réservations,
+     * - Enfin, les places libérées sont attribuées aux membres de la liste d'attente qu'elles peuvent accueillir (voir
+     * {@link #joinWaitlist(int, int)}). Ces promotions ne dépendent que de la table libérée et de la liste d'attente :
+     * rejouer la suppression les reproduit à l'identique.
      * @param userId L'identifiant de l'utilisateur dont on souhaite supprimer sa réservation
+     * @return les réservations des membres promus depuis la liste d'attente, en attente de confirmation, le plus
+     * souvent aucune
      * @throws NoSuchReservationException l'utilisateur en question ne dispose d'aucune réservation
      * @throws TooLateToUnsubscribeException Nous sommes à <10j du Gala et il est donc impossible de supprimer la
      * réservation
      */
-    public void removeReservation(int userId) throws NoSuchReservationException, TooLateToUnsubscribeException
+    public List<Reservation> removeReservation(int userId) throws NoSuchReservationException, TooLateToUnsubscribeException
     {
-        if(!reservations.containsKey(userId))
-            throw new NoSuchReservationException("La réservation demandée n'existe pas");
-
-        if(currentDate.plusDays(10).isAfter(galaDate))
-            throw new TooLateToUnsubscribeException("Il est impossible de se désincrire à moins de 10 jours du début du gala");
-
-        // Remove the reservation from the table
-        tables.get(reservations.get(userId).getTableId()).removeReservation(userId);
-        membersOnHold.remove(userId);
-        reservations.remove(userId);
+        long start = GalaMetrics.REMOVE_RESERVATION.start();
+        try
+        {
+            int tableId;
+            synchronized(memberLock(userId))
+            {
+                Reservation reservation = getReservationById(userId);
+
+                if(cancellationsLocked)
+                    throw new TooLateToUnsubscribeException("Il est impossible de se désincrire à moins de 10 jours du début du gala");
+
+                // Remove the reservation from the table
+                tableId = reservation.getTableId();
+                tables.get(tableId).removeReservation(userId);
+                synchronized(stateLock)
+                {
+                    boolean onHold = memberStates.clear(userId, ON_HOLD);
+                    reservations.remove(userId);
+                    statistics.remove(reservation, venue.categoryOf(tableId), !onHold);
+                }
+            }
+            // Once the member's lock is released, as each promoted member's lock is taken in turn
+            return promoteWaiters(tableId);
+        } catch(Exception e)
+        {
+            GalaMetrics.REMOVE_RESERVATION.rejected(e);
+            throw e;
+        } finally
+        {
+            GalaMetrics.REMOVE_RESERVATION.stop(start);
+        }
     }
 
-    //----------------------------- HOLD AND ACCEPTED
+    //------------------------- GROUP RESERVATION
 
     /**
-     * Cherche à savoir si le membre de l'école donné en paramètre est actuellement en attente.
-     * @param memberId le membre de l'école ciblé par la méthode
-     * @return vrai s'il est en attente, faux sinon
+     * Réserve d'un seul tenant les places d'un groupe de membres de l'école, une association par exemple. Chaque membre
+     * obtient sa propre réservation, aux conditions d'une réservation individuelle (voir {@link #addReservation(int, int)}),
+     * mais toutes sont placées sur une suite de tables voisines (d'identifiants consécutifs) d'une même catégorie, la
+     * plus courte possible. Le groupe est accepté ou refusé en entier : si un membre ne peut pas réserver, ou si aucune
+     * suite de tables ne peut accueillir tout le groupe, aucune réservation n'est enregistrée et le groupe ne rejoint
+     * pas la liste d'attente.
+     * Les tables ne sont cherchées qu'une fois pour tout le groupe, et les réservations sont enregistrées ensemble.
+     * @param requests les demandes des membres du groupe
+     * @return le résultat de la demande : les réservations du groupe, ou le motif du refus et le membre qui l'a causé
+     * @throws IllegalArgumentException Le groupe est vide
      */
-    public boolean isMemberOnHold(int memberId)
+    public GroupReservationResult tryAddGroupReservation(List<SeatRequest> requests)
     {
-        return membersOnHold.containsKey( memberId);
+        if(requests.isEmpty())
+            throw new IllegalArgumentException("Le groupe est vide");
+
+        long start = GalaMetrics.ADD_GROUP_RESERVATION.start();
+        try
+        {
+            // Each member lock once, in increasing order: two groups can't wait for each other
+            int[] lockIndexes = new int[requests.size()];
+            for(int i = 0; i < lockIndexes.length; i++)
+                lockIndexes[i] = memberLockIndex(requests.get(i).memberId());
+            Object[] locks = Arrays.stream(lockIndexes).sorted().distinct().mapToObj(index -> memberLocks[index]).toArray();
+
+            GroupReservationResult result = synchronizedAll(locks, 0, () -> reserveGroup(requests));
+            if(!result.isAccepted())
+                GalaMetrics.ADD_GROUP_RESERVATION.rejected(result.getStatus());
+            return result;
+        } catch(Exception e)
+        {
+            GalaMetrics.ADD_GROUP_RESERVATION.rejected(e);
+            throw e;
+        } finally
+        {
+            GalaMetrics.ADD_GROUP_RESERVATION.stop(start);
+        }
     }
 
     /**
-     * Confirme la réservation d'un membre de l'école et valide ainsi sa participation au Gala.
-     * @param memberId le membre de l'école dont on souhaite confirmer la réservation
-     * @throws NoSuchMemberException Le membre en question n'existe pas
+     * Réserve les places d'un groupe, les verrous de ses membres étant détenus.
+     * @param requests les demandes des membres du groupe
+     * @return le résultat de la demande
      */
-    public void acceptMember(int memberId) throws NoSuchMemberException
+    private GroupReservationResult reserveGroup(List<SeatRequest> requests)
     {
-        if (!membersOnHold.containsKey( memberId))
-            throw new NoSuchMemberException("Impossible de trouver le membre demandé");
+        SchoolMember[] members = new SchoolMember[requests.size()];
+        int[] nbrSeats = new int[members.length];
+        IntSet ids = new IntSet(members.length);
+        Venue.Audience audience = null;
+        for(int i = 0; i < members.length; i++)
+        {
+            SeatRequest request = requests.get(i);
+            int memberId = request.memberId();
+            if(!ids.add(memberId))
+                return GroupReservationResult.rejected(ReservationStatus.DUPLICATE_MEMBER, memberId);
+            if(hasReserved(memberId))
+                return GroupReservationResult.rejected(ReservationStatus.ALREADY_RESERVED, memberId);
+            SchoolMember member = findMember(memberId);
+            if(member == null)
+                return GroupReservationResult.rejected(ReservationStatus.NO_SUCH_MEMBER, memberId);
+            if(request.nbrAccompanist() < 0 || request.nbrAccompanist() > getMaxAccompanist(member))
+                return GroupReservationResult.rejected(ReservationStatus.ILLEGAL_ACCOMPANIST_NUMBER, memberId);
+            if(audience == null)
+                audience = Venue.Audience.of(member);
+            else if(!audience.admits(member))
+                return GroupReservationResult.rejected(ReservationStatus.MIXED_AUDIENCE, memberId);
+            members[i] = member;
+            nbrSeats[i] = request.nbrAccompanist() + 1;
+        }
+
+        // Largest reservations first, the smallest ones then fill the gaps
+        int[] order = IntStream.range(0, members.length).boxed()
+                               .sorted(Comparator.comparingInt((Integer i) -> nbrSeats[i]).reversed())
+                               .mapToInt(Integer::intValue).toArray();
+        int[] categories = venue.categoriesOf(audience);
+
+        // Another thread may take the seats between the planning and the reservation: the tables then refuse the
+        // group, which is planned again
+        while(true)
+        {
+            int[] targets = null;
+            for(int i = 0; i < categories.length && targets == null; i++)
+                targets = planGroup(getTables(venue.getCategories().get(categories[i])), nbrSeats, order);
+            if(targets == null)
+                return GroupReservationResult.rejected(ReservationStatus.NO_SEAT_REMAINING, -1);
+
+            List<Reservation> group = new ArrayList<>(members.length);
+            for(int i = 0; i < members.length; i++)
+                group.add(newReservation(targets[i], members[i], nbrSeats[i] - 1));
+            Object[] groupTables = Arrays.stream(targets).sorted().distinct().mapToObj(tables::get).toArray();
+            // Readers see the whole group seated, or none of it
+            if(seatingPlan.deferring(() -> synchronizedAll(groupTables, 0, () -> seatGroup(group))))
+            {
+                recordReservations(group);
+                return GroupReservationResult.accepted(group);
+            }
+        }
+    }
+
+    /**
+     * Cherche la plus courte suite de tables voisines d'une catégorie pouvant accueillir un groupe : chaque réservation,
+     * de la plus grande à la plus petite, est placée sur la table de la suite où il reste le moins de places suffisantes
+     * (meilleur ajustement décroissant). Seules les suites disposant d'assez de places au total sont essayées, et une
+     * suite n'est retenue que si le groupe en occupe chaque table : il n'est jamais séparé par une table qui lui est
+     * étrangère.
+     * @param categoryTables les tables de la catégorie, par identifiant croissant
+     * @param nbrSeats le nombre de places de chaque réservation du groupe
+     * @param order les positions des réservations, de la plus grande à la plus petite
+     * @return la table de chaque réservation, ou null si aucune suite de tables ne peut accueillir le groupe
+     */
+    private static int[] planGroup(List<Table> categoryTables, int[] nbrSeats, int[] order)
+    {
+        int nbrTables = categoryTables.size();
+        int[] tableIds = new int[nbrTables];
+        int[] remaining = new int[nbrTables];
+        int[] cumulated = new int[nbrTables + 1]; // seats remaining before each table
+        for(int t = 0; t < nbrTables; t++)
+        {
+            Table table = categoryTables.get(t);
+            tableIds[t] = table.getTableId();
+            remaining[t] = table.getSeatsRemaining();
+            cumulated[t + 1] = cumulated[t] + remaining[t];
+        }
+        int total = 0;
+        for(int seats : nbrSeats)
+            total += seats;
+        if(cumulated[nbrTables] < total)
+            return null;
+
+        int[] targets = new int[nbrSeats.length];
+        int[] left = new int[nbrTables];
+        for(int length = 1; length <= nbrTables; length++)
+            for(int first = 0, last = length - 1; last < nbrTables; first++, last++)
+            {
+                if(cumulated[last + 1] - cumulated[first] < total || tableIds[last] - tableIds[first] != last - first)
+                    continue; // not enough seats, or a gap between the identifiers
+                System.arraycopy(remaining, first, left, first, length);
+                boolean placed = true;
+                for(int r = 0; r < order.length && placed; r++)
+                {
+                    int seats = nbrSeats[order[r]];
+                    int best = -1;
+                    for(int t = first; t <= last; t++)
+                        if(left[t] >= seats && (best == -1 || left[t] < left[best]))
+                            best = t;
+                    placed = best != -1;
+                    if(placed)
+                    {
+                        left[best] -= seats;
+                        targets[order[r]] = tableIds[best];
+                    }
+                }
+                for(int t = first; t <= last && placed; t++)
+                    placed = left[t] < remaining[t]; // a table of the run left empty would split the group
+                if(placed)
+                    return targets;
+            }
+        return null;
+    }
+
+    /**
+     * Ajoute les réservations d'un groupe à leurs tables si toutes y trouvent encore leur place, les verrous des tables
+     * étant détenus.
+     * @param group les réservations du groupe
+     * @return true si les réservations sont ajoutées, false si une table n'a plus assez de places (rien n'est ajouté)
+     */
+    private boolean seatGroup(List<Reservation> group)
+    {
+        IntIntMap needed = new IntIntMap();
+        for(Reservation reservation : group)
+            needed.put(reservation.getTableId(), needed.get(reservation.getTableId(), 0) + reservation.getNbrSeatsOccupied());
+        for(Reservation reservation : group)
+            if(tables.get(reservation.getTableId()).getSeatsRemaining() < needed.get(reservation.getTableId(), 0))
+                return false;
+
+        for(Reservation reservation : group)
+            tables.get(reservation.getTableId()).tryAddReservation(reservation); // always fits, the tables are locked
+        return true;
+    }
+
+    /**
+     * Enregistre ensemble les réservations d'un groupe déjà acceptées par leurs tables, comme
+     * {@link #recordReservation(int, Reservation)}.
+     * @param group les réservations du groupe
+     */
+    private void recordReservations(List<Reservation> group)
+    {
+        boolean[] waiting = new boolean[group.size()];
+        synchronized(stateLock)
+        {
+            for(int i = 0; i < waiting.length; i++)
+            {
+                Reservation reservation = group.get(i);
+                int memberId = reservation.getOwner().getId();
+                reservations.put(memberId, reservation);
+                memberStates.set(memberId, ON_HOLD);
+                waiting[i] = memberStates.clear(memberId, WAITING);
+                statistics.add(reservation, venue.categoryOf(reservation.getTableId()));
+            }
+        }
+        for(int i = 0; i < waiting.length; i++)
+        {
+            if(waiting[i])
+                withdraw(group.get(i).getOwner());
+            scheduleExpiry(group.get(i));
+        }
+    }
+
+    //----------------------------- HOLD AND ACCEPTED
 
-        SchoolMember member = membersOnHold.get( memberId);
-        membersOnHold.remove( memberId);
-        acceptedMembers.put( memberId, member);
+    /**
+     * Cherche à savoir si le membre de l'école donné en paramètre est actuellement en attente.
+     * @param memberId le membre de l'école ciblé par la méthode
+     * @return vrai s'il est en attente, faux sinon
+     */
+    public boolean isMemberOnHold(int memberId)
+    {
+        synchronized(stateLock)
+        {
+            return memberStates.has(memberId, ON_HOLD);
+        }
+    }
+
+    /**
+     * Le nombre de membres de l'école inscrits au Gala.
+     * @return le nombre d'inscrits
+     */
+    public int getNbrSubscribedMembers()
+    {
+        synchronized(stateLock)
+        {
+            return memberStates.count(SUBSCRIBED);
+        }
+    }
+
+    /**
+     * Le nombre de membres de l'école dont la réservation est en attente de confirmation.
+     * @return le nombre de membres en attente
+     */
+    public int getNbrMembersOnHold()
+    {
+        synchronized(stateLock)
+        {
+            return memberStates.count(ON_HOLD);
+        }
+    }
+
+    /**
+     * Le nombre de membres de l'école dont la participation est confirmée.
+     * @return le nombre de membres confirmés
+     */
+    public int getNbrAcceptedMembers()
+    {
+        synchronized(stateLock)
+        {
+            return memberStates.count(ACCEPTED);
+        }
+    }
+
+    /**
+     * Confirme la réservation d'un membre de l'école et valide ainsi sa participation au Gala.
+     * @param memberId le membre de l'école dont on souhaite confirmer la réservation
+     * @throws NoSuchMemberException Le membre en question n'existe pas
+     */
+    public void acceptMember(int memberId) throws NoSuchMemberException
+    {
+        long start = GalaMetrics.ACCEPT.start();
+        try
+        {
+            Reservation accepted = null;
+            synchronized(stateLock)
+            {
+                if(memberStates.transition(memberId, ON_HOLD, ACCEPTED))
+                {
+                    accepted = reservations.get(memberId);
+                    statistics.confirm(accepted);
+                }
+            }
+            if (accepted == null)
+                throw new NoSuchMemberException("Impossible de trouver le membre demandé");
+            events.emit(GalaEvent.Type.MEMBER_ACCEPTED, memberId, accepted.getTableId(), accepted.getNbrSeatsOccupied());
+        } catch(Exception e)
+        {
+            GalaMetrics.ACCEPT.rejected(e);
+            throw e;
+        } finally
+        {
+            GalaMetrics.ACCEPT.stop(start);
+        }
+    }
+
+    //------------------------------------- WAITLIST
+
+    /**
+     * Ajoute une réservation au Gala comme {@link #tryAddReservation(int, int)} mais, s'il ne reste pas assez de
+     * places, inscrit le membre en liste d'attente (voir {@link #joinWaitlist(int, int)}) plutôt que de refuser la
+     * demande.
+     * @param memberId l'identifiant du membre de l'école effectuant la réservation
+     * @param nbrAccompanist le nombre d'accompagnants du membre de l'école
+     * @return le résultat de la demande : la réservation enregistrée, {@link ReservationStatus#WAITLISTED} si le membre
+     * est inscrit en liste d'attente, ou le motif du refus
+     */
+    public ReservationResult tryAddReservationOrWait(int memberId, int nbrAccompanist)
+    {
+        long start = GalaMetrics.ADD_RESERVATION.start();
+        try
+        {
+            ReservationResult result;
+            synchronized(memberLock(memberId))
+            {
+                result = reserveAnyTable(memberId, nbrAccompanist);
+                if(result.getStatus() == ReservationStatus.NO_SEAT_REMAINING)
+                    result = enqueue(memberId, nbrAccompanist);
+            }
+            if(!result.isAccepted())
+                GalaMetrics.ADD_RESERVATION.rejected(result.getStatus());
+            return result;
+        } catch(Exception e)
+        {
+            GalaMetrics.ADD_RESERVATION.rejected(e);
+            throw e;
+        } finally
+        {
+            GalaMetrics.ADD_RESERVATION.stop(start);
+        }
+    }
+
+    /**
+     * Inscrit un membre de l'école sans réservation en liste d'attente, sans chercher de place. Le membre attend sur
+     * chaque catégorie de tables de son public ; les demandes y sont servies par ordre de priorité : le personnel
+     * d'abord, puis les étudiants de la promotion la plus avancée à la moins avancée, et à rang égal par ordre
+     * d'inscription. Lorsqu'une réservation est supprimée, les places libérées sont attribuées à la demande la plus
+     * prioritaire qu'elles peuvent accueillir, puis à la suivante, etc. : une grande demande en tête de liste ne bloque
+     * donc pas les plus petites.
+     * @param memberId l'identifiant du membre de l'école
+     * @param nbrAccompanist le nombre d'accompagnants du membre de l'école
+     * @return {@link ReservationStatus#WAITLISTED}, ou le motif du refus : {@link ReservationStatus#NO_SEAT_REMAINING}
+     * si aucune table n'est assez grande pour la demande
+     */
+    public ReservationResult joinWaitlist(int memberId, int nbrAccompanist)
+    {
+        long start = GalaMetrics.JOIN_WAITLIST.start();
+        try
+        {
+            ReservationResult result;
+            synchronized(memberLock(memberId))
+            {
+                result = enqueue(memberId, nbrAccompanist);
+            }
+            if(result.getStatus() != ReservationStatus.WAITLISTED)
+                GalaMetrics.JOIN_WAITLIST.rejected(result.getStatus());
+            return result;
+        } catch(Exception e)
+        {
+            GalaMetrics.JOIN_WAITLIST.rejected(e);
+            throw e;
+        } finally
+        {
+            GalaMetrics.JOIN_WAITLIST.stop(start);
+        }
+    }
+
+    /**
+     * Inscrit un membre en liste d'attente, le verrou du membre étant détenu.
+     * @param memberId l'identifiant du membre de l'école
+     * @param nbrAccompanist le nombre d'accompagnants du membre de l'école
+     * @return le résultat de la demande
+     */
+    private ReservationResult enqueue(int memberId, int nbrAccompanist)
+    {
+        if (hasReserved(memberId))
+            return ReservationResult.rejected(ReservationStatus.ALREADY_RESERVED);
+
+        SchoolMember member = findMember(memberId);
+        if(member == null)
+            return ReservationResult.rejected(ReservationStatus.NO_SUCH_MEMBER);
+        if(nbrAccompanist < 0 || nbrAccompanist > getMaxAccompanist(member))
+            return ReservationResult.rejected(ReservationStatus.ILLEGAL_ACCOMPANIST_NUMBER);
+
+        int nbrSeats = nbrAccompanist + 1;
+        int[] categories = venue.categoriesOf(Venue.Audience.of(member));
+        boolean servable = false;
+        for(int category : categories)
+            servable |= waitlists[category].accepts(nbrSeats);
+        if(!servable) // no table is large enough, waiting would be endless
+            return ReservationResult.rejected(ReservationStatus.NO_SEAT_REMAINING);
+
+        long priority;
+        synchronized(stateLock)
+        {
+            if(!memberStates.set(memberId, WAITING))
+                return ReservationResult.rejected(ReservationStatus.ALREADY_WAITING);
+            priority = waitlistPriority(member, waitlistSequence++);
+        }
+        for(int category : categories)
+            if(waitlists[category].accepts(nbrSeats))
+                waitlists[category].add(memberId, nbrSeats, priority);
+        return ReservationResult.rejected(ReservationStatus.WAITLISTED);
+    }
+
+    /**
+     * La priorité d'une demande en liste d'attente, la plus petite étant servie en premier : le rang du membre (0 pour
+     * le personnel, puis 1 pour un M2 jusqu'à 5 pour une première année) dans les bits de poids fort, puis le numéro
+     * d'ordre de la demande.
+     * @param member le membre de l'école
+     * @param sequence le numéro d'ordre de la demande
+     * @return la priorité
+     */
+    private static long waitlistPriority(SchoolMember member, long sequence)
+    {
+        long rank = member instanceof Student student ? Math.max(1, 6 - student.getYear()) : 0;
+        return rank << 48 | sequence;
+    }
+
+    /**
+     * Retire un membre de l'école de la liste d'attente.
+     * @param memberId l'identifiant du membre de l'école
+     * @return true si le membre a été retiré, false s'il n'était pas en liste d'attente
+     */
+    public boolean leaveWaitlist(int memberId)
+    {
+        long start = GalaMetrics.LEAVE_WAITLIST.start();
+        try
+        {
+            synchronized(memberLock(memberId))
+            {
+                boolean waiting;
+                synchronized(stateLock)
+                {
+                    waiting = memberStates.clear(memberId, WAITING);
+                }
+                if(waiting)
+                    withdraw(findMember(memberId));
+                return waiting;
+            }
+        } finally
+        {
+            GalaMetrics.LEAVE_WAITLIST.stop(start);
+        }
+    }
+
+    /**
+     * Retire un membre des listes d'attente de toutes les catégories de son public, le verrou du membre étant détenu et
+     * son état {@link #WAITING} déjà retiré.
+     * @param member le membre de l'école
+     */
+    private void withdraw(SchoolMember member)
+    {
+        for(int category : venue.categoriesOf(Venue.Audience.of(member)))
+            waitlists[category].remove(member.getId());
+    }
+
+    /**
+     * Attribue les places libres d'une table aux membres en liste d'attente de sa catégorie : tant qu'il en reste, la
+     * demande la plus prioritaire qu'elles peuvent accueillir devient une réservation, en attente de confirmation.
+     * Aucun verrou ne doit être détenu, le verrou de chaque membre promu étant pris à son tour.
+     * @param tableId l'identifiant de la table
+     * @return les réservations des membres promus
+     */
+    private List<Reservation> promoteWaiters(int tableId)
+    {
+        Table table = tables.get(tableId);
+        Waitlist waitlist = waitlists[venue.categoryOf(tableId)];
+        List<Reservation> promoted = List.of();
+        int memberId;
+        while((memberId = waitlist.peek(table.getSeatsRemaining())) != -1)
+        {
+            Reservation reservation;
+            synchronized(memberLock(memberId))
+            {
+                // The member may have been promoted or withdrawn, or the seats taken, since the lookup: look again
+                int nbrSeats = waitlist.seatsOf(memberId);
+                if(nbrSeats < 0)
+                    continue;
+                reservation = newReservation(tableId, findMember(memberId), nbrSeats - 1);
+                if(!table.tryAddReservation(reservation))
+                    continue;
+                recordReservation(memberId, reservation); // withdraws the member from every waitlist
+            }
+            if(promoted.isEmpty())
+                promoted = new ArrayList<>();
+            promoted.add(reservation);
+            GalaMetrics.promoted();
+        }
+        return promoted;
+    }
+
+    /**
+     * Cherche à savoir si le membre de l'école donné en paramètre est en liste d'attente.
+     * @param memberId le membre de l'école
+     * @return vrai s'il est en liste d'attente, faux sinon
+     */
+    public boolean isMemberWaiting(int memberId)
+    {
+        synchronized(stateLock)
+        {
+            return memberStates.has(memberId, WAITING);
+        }
+    }
+
+    /**
+     * Le nombre de membres de l'école en liste d'attente.
+     * @return le nombre de membres en liste d'attente
+     */
+    public int getNbrMembersWaiting()
+    {
+        synchronized(stateLock)
+        {
+            return memberStates.count(WAITING);
+        }
+    }
+
+    /**
+     * Le nombre de membres en liste d'attente sur une catégorie de tables. Un membre dont le public dispose de
+     * plusieurs catégories est compté dans chacune.
+     * @param category la catégorie de tables
+     * @return le nombre de membres en attente
+     */
+    public int getWaitlistSize(Venue.Category category)
+    {
+        return waitlists[category.getIndex()].size();
+    }
+
+    //------------------------------------- DEADLINES
+
+    /**
+     * Avance la date du jour et déclenche, dans l'ordre chronologique, les échéances atteintes :
+     * - les réservations toujours en attente de confirmation après leur date limite (voir
+     * {@link #getConfirmationDeadline(Reservation)}) expirent : elles sont supprimées et leurs places attribuées aux
+     * membres de la liste d'attente qu'elles peuvent accueillir, comme lors d'une annulation,
+     * - à moins de 10 jours du Gala, les annulations sont refusées.
+     * Seules les échéances atteintes sont examinées, sans parcourir les réservations. Les échéances d'un même jour sont
+     * traitées par identifiant de membre croissant : les expirations et les promotions ne dépendent que des
+     * réservations et de la date, rejouer un changement de date les reproduit donc à l'identique.
+     * Revenir en arrière ne rétablit pas les réservations expirées, mais reprogramme les échéances de toutes les
+     * réservations : cela ne doit pas se faire alors qu'une réservation est en cours.
+     * @param date la nouvelle date du jour
+     * @return les réservations des membres promus depuis la liste d'attente sur les places libérées, en attente de
+     * confirmation, le plus souvent aucune
+     */
+    public List<Reservation> advanceDate(LocalDate date)
+    {
+        synchronized(dateLock)
+        {
+            currentDate = date;
+            if(date.toEpochDay() < deadlines.now())
+            {
+                createDeadlines();
+                return List.of();
+            }
+
+            List<Reservation> promoted = List.of();
+            for(long event : deadlines.advance(date.toEpochDay()))
+            {
+                if(event == CANCELLATION_LOCK)
+                {
+                    cancellationsLocked = true;
+                    continue;
+                }
+                int tableId = expireHold((int)event);
+                if(tableId == -1)
+                    continue;
+                // Once the member's lock is released, as in removeReservation
+                List<Reservation> tablePromoted = promoteWaiters(tableId);
+                if(!tablePromoted.isEmpty())
+                {
+                    if(promoted.isEmpty())
+                        promoted = new ArrayList<>();
+                    promoted.addAll(tablePromoted);
+                }
+            }
+            return promoted;
+        }
+    }
+
+    /**
+     * Fait expirer la réservation d'un membre si elle est toujours en attente de confirmation et que sa date limite
+     * de confirmation est passée : l'événement de l'échéancier peut concerner une réservation depuis confirmée,
+     * supprimée ou remplacée.
+     * @param memberId l'identifiant du membre
+     * @return l'identifiant de la table libérée, ou -1 si la réservation n'a pas expiré
+     */
+    private int expireHold(int memberId)
+    {
+        synchronized(memberLock(memberId))
+        {
+            Reservation reservation;
+            synchronized(stateLock)
+            {
+                reservation = reservations.get(memberId);
+                if(reservation == null || !memberStates.has(memberId, ON_HOLD) ||
+                   expiryDay(reservation) > currentDate.toEpochDay())
+                    return -1;
+                // acceptMember only takes stateLock: the member can no longer be accepted from here
+                memberStates.clear(memberId, ON_HOLD);
+                reservations.remove(memberId);
+                statistics.remove(reservation, venue.categoryOf(reservation.getTableId()), false);
+            }
+            try
+            {
+                tables.get(reservation.getTableId()).removeReservation(memberId);
+            } catch(NoSuchReservationException e)
+            {
+                throw new IllegalStateException(e); // can't happen, the member's lock is held
+            }
+            GalaMetrics.expired();
+            return reservation.getTableId();
+        }
+    }
+
+    /**
+     * Récupère la date limite de confirmation d'une réservation : 7 jours après l'ouverture des confirmations, à 30
+     * jours du Gala, ou après la réservation si elle a été faite plus tard. Passé cette date, une réservation non
+     * confirmée expire.
+     * @param reservation la réservation
+     * @return le dernier jour où la réservation peut être confirmée
+     */
+    public LocalDate getConfirmationDeadline(Reservation reservation)
+    {
+        LocalDate opening = galaDate.minusDays(CONFIRMATION_OPENING);
+        LocalDate from = reservation.getReservationDate().isAfter(opening) ? reservation.getReservationDate() : opening;
+        return from.plusDays(CONFIRMATION_DELAY);
+    }
+
+    /**
+     * Cherche à savoir si les réservations peuvent être confirmées, à 30 jours ou moins du Gala.
+     * @return vrai si les confirmations sont ouvertes, faux sinon
+     */
+    public boolean isConfirmationOpen()
+    {
+        return getNbrDaysBeforeGala() <= CONFIRMATION_OPENING;
+    }
+
+    /**
+     * Cherche à savoir si les annulations de réservation sont refusées, à moins de 10 jours du Gala.
+     * @return vrai si les annulations sont refusées, faux sinon
+     */
+    public boolean areCancellationsLocked()
+    {
+        return cancellationsLocked;
+    }
+
+    //------------------------------------- PACKING
+
+    /**
+     * Réorganise les réservations de toutes les catégories de tables (voir {@link #repack(Venue.Category)}).
+     * @return les réservations des membres promus depuis la liste d'attente, en attente de confirmation
+     */
+    public List<Reservation> repack()
+    {
+        List<Reservation> promoted = new ArrayList<>();
+        for(Venue.Category category : venue.getCategories())
+            promoted.addAll(repack(category));
+        return promoted;
+    }
+
+    /**
+     * Réorganise les réservations d'une catégorie de tables afin de regrouper les places libres : les réservations sont
+     * replacées de la plus grande à la plus petite, chacune sur la table où il reste le moins de places suffisantes
+     * (meilleur ajustement décroissant). Les places libres, dispersées par les placements et les annulations
+     * successifs, se retrouvent ainsi concentrées sur quelques tables, où une grande réservation peut de nouveau être
+     * acceptée. Le prix, la date et l'état des réservations ne changent pas, seule leur table change.
+     * Le placement est d'abord calculé à part : si une réservation n'y trouve pas de place, rien n'est modifié. Les
+     * places regroupées sont ensuite attribuées aux membres de la liste d'attente qu'elles peuvent accueillir.
+     * Le placement ne dépend que de l'état du Gala : rejouer la réorganisation le reproduit à l'identique, ainsi que les
+     * promotions qui en découlent. Elle doit se faire alors qu'aucune autre modification n'est en cours.
+     * @param category la catégorie de tables à réorganiser
+     * @return les réservations des membres promus depuis la liste d'attente, en attente de confirmation, aucune si la
+     * réorganisation est impossible
+     */
+    public List<Reservation> repack(Venue.Category category)
+    {
+        List<Table> categoryTables = getTables(category);
+        List<Reservation> placed = new ArrayList<>();
+        CapacityIndex plan = new CapacityIndex(venue.firstTableId(category.getIndex()), venue.maxCapacity(category.getIndex()));
+        IntIntMap remaining = new IntIntMap(categoryTables.size());
+        for(Table table : categoryTables)
+        {
+            Table.Snapshot snapshot = table.snapshot();
+            plan.put(table.getTableId(), snapshot.capacity());
+            remaining.put(table.getTableId(), snapshot.capacity());
+            placed.addAll(snapshot.reservations());
+        }
+
+        // Largest reservations first, the smallest ones then fill the gaps
+        placed.sort(Comparator.comparingInt(Reservation::getNbrSeatsOccupied).reversed()
+                              .thenComparingInt(reservation -> reservation.getOwner().getId()));
+        int[] targets = new int[placed.size()];
+        for(int i = 0; i < targets.length; i++)
+        {
+            int nbrSeats = placed.get(i).getNbrSeatsOccupied();
+            int tableId = plan.findBestFit(nbrSeats);
+            if(tableId == -1)
+                return List.of();
+            int before = remaining.get(tableId, 0);
+            plan.update(tableId, before, before - nbrSeats);
+            remaining.put(tableId, before - nbrSeats);
+            targets[i] = tableId;
+        }
+
+        // Readers see the category as it was, then repacked, never half-emptied
+        GalaMetrics.moved(seatingPlan.deferring(() -> moveReservations(categoryTables, placed, targets)));
+        List<Reservation> promoted = List.of();
+        if(waitlists[category.getIndex()].size() > 0)
+            for(Table table : categoryTables)
+            {
+                List<Reservation> tablePromoted = promoteWaiters(table.getTableId());
+                if(!tablePromoted.isEmpty())
+                {
+                    if(promoted.isEmpty())
+                        promoted = new ArrayList<>();
+                    promoted.addAll(tablePromoted);
+                }
+            }
+        return promoted;
+    }
+
+    /**
+     * Vide les tables d'une catégorie puis y replace les réservations selon le placement calculé par
+     * {@link #repack(Venue.Category)}.
+     * @param categoryTables les tables de la catégorie
+     * @param placed les réservations de la catégorie
+     * @param targets la table de destination de chaque réservation
+     * @return le nombre de réservations ayant changé de table
+     */
+    private int moveReservations(List<Table> categoryTables, List<Reservation> placed, int[] targets)
+    {
+        int moved = 0;
+        for(Table table : categoryTables)
+            table.clearReservations();
+        for(int i = 0; i < targets.length; i++)
+        {
+            Reservation reservation = placed.get(i);
+            if(reservation.getTableId() != targets[i])
+            {
+                reservation = new Reservation(targets[i], reservation.getOwner(), reservation.getNbrSeatsOccupied(),
+                                              reservation.getReservationPrice(), reservation.getReservationDate());
+                moved++;
+            }
+            tables.get(targets[i]).tryAddReservation(reservation); // always fits, as planned
+            synchronized(stateLock)
+            {
+                reservations.put(reservation.getOwner().getId(), reservation);
+            }
+        }
+        return moved;
     }
 
     //------------------------------------- GETTERS
 
+    /**
+     * Abonne un {@link GalaListener} aux changements d'état du Gala, avec une file de
+     * {@link GalaSubscription#DEFAULT_CAPACITY} événements : lorsqu'elle est pleine, les opérations du Gala attendent
+     * que l'abonné la vide.
+     * @param listener l'abonné
+     * @return l'abonnement, à résilier par {@link GalaSubscription#close()}
+     */
+    public GalaSubscription subscribe(GalaListener listener)
+    {
+        return subscribe(listener, GalaSubscription.DEFAULT_CAPACITY, GalaSubscription.Overflow.WAIT);
+    }
+
+    /**
+     * Abonne un {@link GalaListener} aux changements d'état du Gala survenant à partir de maintenant. Les événements
+     * sont déposés sans verrou dans la file de l'abonnement, puis remis par lots à l'abonné sur un thread propre à
+     * l'abonnement (voir {@link GalaSubscription}). Pour repartir d'un état complet, l'abonné peut lire le plan des
+     * places (voir {@link #getSeatingPlan()}) après s'être abonné.
+     * @param listener l'abonné
+     * @param capacity le nombre minimal d'événements de la file de l'abonnement
+     * @param overflow le comportement des opérations du Gala lorsque la file est pleine
+     * @return l'abonnement, à résilier par {@link GalaSubscription#close()}
+     * @throws IllegalArgumentException La capacité n'est pas strictement positive, ou dépasse 2^30
+     */
+    public GalaSubscription subscribe(GalaListener listener, int capacity, GalaSubscription.Overflow overflow)
+    {
+        return events.subscribe(listener, capacity, overflow);
+    }
+
+    /**
+     * Récupère le dernier instantané publié du plan des places de toute la salle, sans verrou. Il ne change plus : le
+     * parcourir, l'afficher ou l'exporter ne retarde aucune réservation, et toutes ses tables sont décrites au même
+     * moment. Une réservation de groupe ou une réorganisation y figure en entier ou pas du tout.
+     * @return le plan des places
+     */
+    public SeatingPlan getSeatingPlan()
+    {
+        return seatingPlan.current();
+    }
+
     /**
      * Récupère exclusivement les tables adressées aux étudiants.
      * @return Les tables des étudiants
      */
     public List<Table> getStudentTables()
     {
-        // students tables are numbered from 1 to 15
-        List<Table> studentsTables = new ArrayList<>();
-        for (int i = 1; i <= STUDENTS_TABLES; ++i)
-            studentsTables.add(tables.get(i));
-
-        return studentsTables;
+        return getTables(Venue.Audience.STUDENT);
     }
 
     /**
@@ -523,12 +1809,94 @@ public class Gala implements Serializable {
      */
     public List<Table> getStaffTables()
     {
-        // students tables are numbered from 11 to 25
-        List<Table> staffTables = new ArrayList<>();
-        for (int i = (STUDENTS_TABLES+1); i <= (STUDENTS_TABLES+STAFF_TABLES); ++i)
-            staffTables.add( tables.get( i));
+        return getTables(Venue.Audience.STAFF);
+    }
 
-        return staffTables;
+    /**
+     * Récupère les tables des catégories destinées à un public, par identifiant croissant. Seules les plages de tables
+     * de ces catégories sont parcourues.
+     * @param audience le public
+     * @return les tables du public
+     */
+    public List<Table> getTables(Venue.Audience audience)
+    {
+        return getTables(audience, 0);
+    }
+
+    /**
+     * Récupère les tables des catégories destinées à un public disposant d'un nombre minimal de places restantes, par
+     * identifiant croissant. Seul le nombre de places restantes de chaque table est consulté, pas ses réservations.
+     * @param audience le public
+     * @param minSeatsRemaining le nombre minimal de places restantes, 0 pour toutes les tables
+     * @return les tables du public ayant au moins ce nombre de places restantes
+     */
+    public List<Table> getTables(Venue.Audience audience, int minSeatsRemaining)
+    {
+        List<Table> result = new ArrayList<>();
+        for(Venue.Range range : venue.ranges())
+            if(venue.getCategories().get(range.category).getAudience() == audience)
+                for(int i = range.firstTableId; i <= range.lastTableId; ++i)
+                {
+                    Table table = tables.get(i);
+                    if(minSeatsRemaining <= 0 || table.getSeatsRemaining() >= minSeatsRemaining)
+                        result.add(table);
+                }
+
+        return result;
+    }
+
+    /**
+     * Récupère les tables d'une catégorie, par identifiant croissant.
+     * @param category la catégorie
+     * @return les tables de la catégorie
+     */
+    public List<Table> getTables(Venue.Category category)
+    {
+        List<Table> result = new ArrayList<>();
+        for(Venue.Range range : venue.ranges())
+            if(range.category == category.getIndex())
+                for(int i = range.firstTableId; i <= range.lastTableId; ++i)
+                    result.add(tables.get(i));
+
+        return result;
+    }
+
+    /**
+     * Le nombre total de places restantes autour des tables d'une catégorie, en temps constant.
+     * @param category la catégorie
+     * @return le nombre de places restantes
+     */
+    public int getSeatsRemaining(Venue.Category category)
+    {
+        return seats[category.getIndex()].getSeatsRemaining();
+    }
+
+    /**
+     * Récupère la stratégie de choix de la table lors d'un placement automatique.
+     * @return la stratégie de placement
+     */
+    public PlacementStrategy getPlacementStrategy()
+    {
+        return placementStrategy;
+    }
+
+    /**
+     * Modifie la stratégie de choix de la table lors d'un placement automatique. Les réservations déjà placées ne sont
+     * pas déplacées (voir {@link #repack(Venue.Category)}).
+     * @param placementStrategy la nouvelle stratégie de placement
+     */
+    public void setPlacementStrategy(PlacementStrategy placementStrategy)
+    {
+        this.placementStrategy = placementStrategy;
+    }
+
+    /**
+     * Récupère le plan de la salle.
+     * @return le plan de la salle
+     */
+    public Venue getVenue()
+    {
+        return venue;
     }
 
     /**
@@ -565,14 +1933,439 @@ public class Gala implements Serializable {
     }
 
     /**
-     * Modifie la date du jour/la date actuelle.
+     * Récupère les lignes des jeux de données rejetées lors de la création du Gala.
+     * @return la description des lignes rejetées, vide si le Gala a été chargé depuis le disque
+     */
+    public List<String> getImportErrors()
+    {
+        return importErrors == null ? List.of() : Collections.unmodifiableList(importErrors);
+    }
+
+    /**
+     * Récupère les totaux des réservations et des recettes du Gala, en temps constant : ils sont tenus à jour à chaque
+     * réservation, confirmation, suppression ou expiration, sans parcourir les tables.
+     * @return une copie cohérente des totaux, qui ne change plus
+     */
+    public GalaStatistics getStatistics()
+    {
+        synchronized(stateLock)
+        {
+            return new GalaStatistics(statistics);
+        }
+    }
+
+    /**
+     * Récupère la date de début du Gala.
+     * @return la date de début du Gala
+     */
+    public LocalDate getGalaDate()
+    {
+        return galaDate;
+    }
+
+    /**
+     * Récupère la date du jour/la date actuelle.
+     * @return la date du jour
+     */
+    public LocalDate getCurrentDate()
+    {
+        return currentDate;
+    }
+
+    /**
+     * Modifie la date du jour/la date actuelle, en déclenchant les échéances atteintes (voir
+     * {@link #advanceDate(LocalDate)}).
      * @param currentDate la nouvelle date représentant le date du jour
      */
     public void setCurrentDate(LocalDate currentDate)
     {
-        this.currentDate = currentDate;
+        advanceDate(currentDate);
+    }
+
+    /**
+     * Récupère le nombre d'événements du journal dont ce Gala est le résultat.
+     * @return la position du Gala dans le journal
+     */
+    public long getJournalPosition()
+    {
+        return journalPosition;
+    }
+
+    /**
+     * Modifie le nombre d'événements du journal dont ce Gala est le résultat, avant l'écriture d'un instantané.
+     * @param journalPosition la position du Gala dans le journal
+     */
+    public void setJournalPosition(long journalPosition)
+    {
+        this.journalPosition = journalPosition;
+    }
+
+    //------------------------------------- SNAPSHOT (package-private, used by GalaCodec)
+
+    /**
+     * Reconstruit les index des places restantes et l'échéancier après une désérialisation Java. Les sauvegardes
+     * antérieures aux maps indexées par entier (gala.ser) rangent membres, réservations et tables dans des HashMap, et
+     * les états des membres dans trois maps distinctes : elles sont converties à la lecture.
+     * @param in le flux de désérialisation
+     * @throws IOException Erreur liée aux entrées/sorties
+     * @throws ClassNotFoundException La classe d'un objet sérialisé ne peut être trouvée.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        ObjectInputStream.GetField fields = in.readFields();
+        galaDate = (LocalDate)fields.get("galaDate", null);
+        currentDate = (LocalDate)fields.get("currentDate", null);
+        if(galaDate == null || currentDate == null)
+            throw new InvalidObjectException("Dates du Gala absentes de la sauvegarde");
+        members = readIntMap(fields, "members", SchoolMember.class);
+        reservations = readIntMap(fields, "reservations", Reservation.class);
+        tables = readIntMap(fields, "tables", Table.class);
+        Object states = fields.get("memberStates", null);
+        if(states instanceof IntFlagMap flags)
+            memberStates = flags;
+        else
+        {
+            memberStates = new IntFlagMap(members.size());
+            readLegacyStates(fields, "subscribedMembers", SUBSCRIBED);
+            readLegacyStates(fields, "membersOnHold", ON_HOLD);
+            readLegacyStates(fields, "acceptedMembers", ACCEPTED);
+        }
+        venue = (Venue)fields.get("venue", null);
+        waitlists = (Waitlist[])fields.get("waitlists", null);
+        waitlistSequence = fields.get("waitlistSequence", 0L);
+        statistics = (GalaStatistics)fields.get("statistics", null);
+        journalPosition = fields.get("journalPosition", 0L);
+
+        if(venue == null)
+            venue = Venue.defaultLayout();
+        if(waitlists == null)
+            createWaitlists();
+        createLocks();
+        if(statistics == null)
+            rebuildStatistics();
+        createCapacityIndexes();
+        for(Table table : tables.values())
+        {
+            int category = venue.categoryOf(table.getTableId());
+            if(category < 0)
+                throw new InvalidObjectException("La table " + table.getTableId() + " ne figure pas dans le plan de la salle");
+            attachTable(category, table);
+        }
+        createDeadlines();
+    }
+
+    /**
+     * Lit une map indexée par identifiant d'une sauvegarde Java : une {@link IntMap}, ou une HashMap dans les sauvegardes
+     * antérieures.
+     * @param fields les champs lus
+     * @param name le nom du champ
+     * @param type le type des valeurs
+     * @return la map, vide si le champ est absent
+     * @param <V> le type des valeurs
+     * @throws IOException Le champ n'a pas le type attendu
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> IntMap<V> readIntMap(ObjectInputStream.GetField fields, String name, Class<V> type)
+            throws IOException
+    {
+        Object value = fields.get(name, null);
+        if(value == null)
+            return new IntMap<>();
+        if(value instanceof IntMap<?> map)
+            return (IntMap<V>)map;
+        if(!(value instanceof Map<?, ?> legacy))
+            throw new InvalidObjectException("Champ " + name + " de type inattendu : " + value.getClass().getName());
+
+        IntMap<V> map = new IntMap<>(legacy.size());
+        for(Map.Entry<?, ?> entry : legacy.entrySet())
+        {
+            if(!(entry.getKey() instanceof Integer key) || !type.isInstance(entry.getValue()))
+                throw new InvalidObjectException("Entrée invalide dans le champ " + name + " : " + entry.getKey());
+            map.put(key, type.cast(entry.getValue()));
+        }
+        return map;
+    }
+
+    /**
+     * Reporte dans {@link #memberStates} l'une des maps d'état des membres des sauvegardes antérieures.
+     * @param fields les champs lus
+     * @param name le nom du champ
+     * @param flag l'état correspondant
+     * @throws IOException Le champ n'a pas le type attendu
+     */
+    private void readLegacyStates(ObjectInputStream.GetField fields, String name, int flag) throws IOException
+    {
+        Object value = fields.get(name, null);
+        if(value == null)
+            return;
+        if(!(value instanceof Map<?, ?> legacy))
+            throw new InvalidObjectException("Champ " + name + " de type inattendu : " + value.getClass().getName());
+        for(Object key : legacy.keySet())
+        {
+            if(!(key instanceof Integer memberId))
+                throw new InvalidObjectException("Entrée invalide dans le champ " + name + " : " + key);
+            memberStates.set(memberId, flag);
+        }
+    }
+
+    /**
+     * Matérialise tous les membres avant une sérialisation Java, la source des membres n'étant pas sérialisable.
+     * @param out le flux de sérialisation
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        synchronized(stateLock)
+        {
+            if(memberSource != null)
+            {
+                for(int i = 0; i < memberSource.size(); i++)
+                    findMember(memberSource.idAt(i));
+                memberSource = null;
+            }
+            out.defaultWriteObject();
+        }
+    }
+
+    /**
+     * Le nombre de membres de l'école connus du Gala, matérialisés ou non.
+     * @return le nombre de membres de l'école
+     */
+    int memberCount()
+    {
+        synchronized(stateLock)
+        {
+            return memberSource != null ? memberSource.size() : members.size();
+        }
+    }
+
+    /**
+     * Parcourt tous les membres de l'école connus du Gala. Les membres pas encore matérialisés sont construits pour
+     * l'occasion mais ne sont pas conservés, afin de ne pas charger tout l'effectif en mémoire lors d'une sauvegarde.
+     * @param action l'action à appliquer à chaque membre
+     */
+    void forEachMember(Consumer<SchoolMember> action)
+    {
+        synchronized(stateLock)
+        {
+            if(memberSource == null)
+            {
+                members.values().forEach(action);
+                return;
+            }
+
+            for(int i = 0; i < memberSource.size(); i++)
+            {
+                int memberId = memberSource.idAt(i);
+                SchoolMember member = members.get(memberId);
+                action.accept(member != null ? member : memberSource.load(memberId));
+            }
+        }
+    }
+
+    /**
+     * Branche une source de membres matérialisés à la demande.
+     * @param memberSource la source des membres
+     */
+    void setMemberSource(MemberSource memberSource)
+    {
+        synchronized(stateLock)
+        {
+            this.memberSource = memberSource;
+        }
+    }
+
+    /**
+     * Les tables du Gala.
+     * @return les tables du Gala
+     */
+    Collection<Table> tables()
+    {
+        return tables.values();
+    }
+
+    /**
+     * Les identifiants des membres de l'école dans un état donné.
+     * @param state l'état : {@link #SUBSCRIBED}, {@link #ON_HOLD}, {@link #ACCEPTED} ou {@link #WAITING}
+     * @return les identifiants des membres dans cet état
+     */
+    int[] idsInState(int state)
+    {
+        synchronized(stateLock)
+        {
+            return memberStates.keysWith(state);
+        }
+    }
+
+    /**
+     * Restaure un membre de l'école.
+     * @param member le membre à restaurer
+     */
+    void restoreMember(SchoolMember member)
+    {
+        synchronized(stateLock)
+        {
+            members.put(member.getId(), member);
+        }
+    }
+
+    /**
+     * Restaure une table, vide de toute réservation.
+     * @param table la table à restaurer
+     * @throws NoSuchTableException La table ne figure pas dans le plan de la salle
+     */
+    void restoreTable(Table table) throws NoSuchTableException
+    {
+        int category = venue.categoryOf(table.getTableId());
+        if(category < 0)
+            throw new NoSuchTableException("La table " + table.getTableId() + " ne figure pas dans le plan de la salle");
+
+        tables.put(table.getTableId(), table);
+        attachTable(category, table);
+    }
+
+    /**
+     * Restaure une réservation, sans repasser par les vérifications métier de addReservation ni mettre à jour les
+     * totaux (voir {@link #restoreStatistics(GalaStatistics)}).
+     * @param reservation la réservation à restaurer. Sa table doit avoir été restaurée au préalable.
+     * @throws NoSeatRemainingException La table de la réservation n'a pas assez de place
+     * @throws NoSuchTableException La table de la réservation n'existe pas
+     */
+    void restoreReservation(Reservation reservation) throws NoSeatRemainingException, NoSuchTableException
+    {
+        Table table = tables.get(reservation.getTableId());
+        if(table == null)
+            throw new NoSuchTableException("La table de la réservation n'existe pas.");
+
+        table.addReservation(reservation);
+        synchronized(stateLock)
+        {
+            reservations.put(reservation.getOwner().getId(), reservation);
+        }
+        scheduleExpiry(reservation);
     }
-}
 
+    /**
+     * Restaure les totaux des réservations et des recettes, une fois les réservations restaurées, ces dernières ne les
+     * mettant pas à jour.
+     * @param statistics les totaux sauvegardés
+     */
+    void restoreStatistics(GalaStatistics statistics)
+    {
+        synchronized(stateLock)
+        {
+            this.statistics = statistics;
+        }
+    }
 
+    /**
+     * Recalcule les totaux des réservations et des recettes depuis les réservations et l'état de leurs membres, pour
+     * les sauvegardes antérieures à leur introduction.
+     */
+    void rebuildStatistics()
+    {
+        synchronized(stateLock)
+        {
+            statistics = new GalaStatistics(venue.getCategories().size());
+            for(Reservation reservation : reservations.values())
+            {
+                statistics.add(reservation, venue.categoryOf(reservation.getTableId()));
+                if(!memberStates.has(reservation.getOwner().getId(), ON_HOLD))
+                    statistics.confirm(reservation);
+            }
+        }
+    }
+
+    /**
+     * Restaure l'inscription d'un membre.
+     * @param memberId l'identifiant du membre inscrit
+     */
+    void restoreSubscription(int memberId)
+    {
+        synchronized(stateLock)
+        {
+            memberStates.set(memberId, SUBSCRIBED);
+        }
+    }
+
+    /**
+     * Restaure la mise en attente d'un membre.
+     * @param memberId l'identifiant du membre en attente
+     */
+    void restoreOnHold(int memberId)
+    {
+        synchronized(stateLock)
+        {
+            memberStates.set(memberId, ON_HOLD);
+        }
+    }
 
+    /**
+     * Le nombre de places demandées par un membre en liste d'attente.
+     * @param memberId l'identifiant du membre
+     * @return le nombre de places, accompagnants compris, ou -1 si le membre n'est pas en liste d'attente
+     */
+    int waitingSeats(int memberId)
+    {
+        for(Waitlist waitlist : waitlists)
+        {
+            int nbrSeats = waitlist.seatsOf(memberId);
+            if(nbrSeats >= 0)
+                return nbrSeats;
+        }
+        return -1;
+    }
+
+    /**
+     * La priorité de la demande d'un membre en liste d'attente.
+     * @param memberId l'identifiant du membre
+     * @return la priorité, ou -1 si le membre n'est pas en liste d'attente
+     */
+    long waitingPriority(int memberId)
+    {
+        for(Waitlist waitlist : waitlists)
+        {
+            long priority = waitlist.priorityOf(memberId);
+            if(priority >= 0)
+                return priority;
+        }
+        return -1;
+    }
+
+    /**
+     * Restaure l'inscription d'un membre en liste d'attente, avec sa priorité d'origine.
+     * @param memberId l'identifiant du membre, déjà restauré
+     * @param nbrSeats le nombre de places demandées, accompagnants compris
+     * @param priority la priorité de la demande
+     * @throws NoSuchMemberException Le membre n'existe pas
+     */
+    void restoreWaiting(int memberId, int nbrSeats, long priority) throws NoSuchMemberException
+    {
+        SchoolMember member = findMember(memberId);
+        if(member == null)
+            throw new NoSuchMemberException("Le membre en liste d'attente n'existe pas");
+
+        for(int category : venue.categoriesOf(Venue.Audience.of(member)))
+            if(waitlists[category].accepts(nbrSeats))
+                waitlists[category].add(memberId, nbrSeats, priority);
+        synchronized(stateLock)
+        {
+            memberStates.set(memberId, WAITING);
+            waitlistSequence = Math.max(waitlistSequence, (priority & ((1L << 48) - 1)) + 1);
+        }
+    }
+
+    /**
+     * Restaure la confirmation de la participation d'un membre.
+     * @param memberId l'identifiant du membre confirmé
+     */
+    void restoreAccepted(int memberId)
+    {
+        synchronized(stateLock)
+        {
+            memberStates.set(memberId, ACCEPTED);
+        }
+    }
+}
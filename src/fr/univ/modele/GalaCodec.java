@@ -0,0 +1,613 @@
+package fr.univ.modele;
+
+import fr.univ.exception.NoSeatRemainingException;
+import fr.univ.exception.NoSuchMemberException;
+import fr.univ.exception.NoSuchTableException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Format binaire compact et versionné d'un instantané du Gala, remplaçant la sérialisation Java.
+ * Chaque membre de l'école n'est écrit qu'une seule fois, dans la table des membres. Les réservations, les inscriptions,
+ * la file d'attente et les membres confirmés ne stockent ensuite que des identifiants entiers.
+ * <p>
+ * Disposition (version 6) :
+ * <pre>
+ * en-tête  : magic "GALA", version, date du gala, date du jour, nombre de membres,
+ *            position de l'index, position des membres, position du reste
+ * index    : pour chaque membre, par identifiant croissant, id et position de son enregistrement
+ * membres  : pour chacun type, id, nom, prénom, téléphone, mail [, année]
+ * reste    : plan de la salle (catégories : nom, public ; plages : catégorie, première et dernière table, capacité),
+ *            tables (id, capacité, réservations : id du membre, places, prix, date),
+ *            puis inscrits, en attente et confirmés (nombre, puis les identifiants),
+ *            liste d'attente (nombre, puis pour chaque membre id, places demandées et priorité),
+ *            totaux (nombre de catégories tarifaires, puis pour chacune réservations, places et recettes, puis les
+ *            mêmes pour les réservations confirmées ; places vendues de chaque catégorie de tables),
+ *            position du Gala dans le journal (nombre d'événements inclus dans l'instantané)
+ * </pre>
+ * A la lecture, le fichier est projeté en mémoire : seules les tables et les listes d'identifiants sont décodées,
+ * les membres sont matérialisés à la demande grâce à l'index, par recherche dichotomique. Le temps de chargement ne
+ * dépend donc plus de la taille de l'effectif. Les versions 1, entièrement séquentielle, et 2, sans plan de salle,
+ * restent lisibles : leurs tables sont celles du plan par défaut. Les versions antérieures à la 4 n'ont pas de liste
+ * d'attente, et celles antérieures à la 5 pas de totaux : ils sont recalculés depuis les réservations. Les versions
+ * antérieures à la 6 sont à la position 0 du journal, qui ne contenait alors que les événements postérieurs à
+ * l'instantané.
+ */
+public final class GalaCodec
+{
+    /**
+     * Marqueur en tête de fichier, "GALA" en ASCII.
+     */
+    public static final int MAGIC = 0x47414C41;
+    /**
+     * La version du format écrite par {@link #write(Gala, Path)}.
+     */
+    public static final short VERSION = 6;
+
+    /**
+     * Taille de l'en-tête des versions 2 et suivantes, en octets.
+     */
+    private static final int TAILLE_EN_TETE = 4 + 2 + 8 + 8 + 4 + 8 + 8 + 8;
+    /**
+     * Taille d'une entrée de l'index des membres : l'identifiant et la position de l'enregistrement.
+     */
+    private static final int TAILLE_INDEX = 4 + 4;
+    /**
+     * Taille des buffers d'entrée/sortie.
+     */
+    private static final int TAILLE_BUFFER = 1 << 16;
+
+    /**
+     * Type d'un membre du personnel dans la table des membres.
+     */
+    private static final byte TYPE_STAFF = 0;
+    /**
+     * Type d'un étudiant dans la table des membres.
+     */
+    private static final byte TYPE_STUDENT = 1;
+
+    private GalaCodec() {}
+
+    //---------------------------------- WRITE
+
+    /**
+     * Ecrit un instantané du Gala dans le fichier donné, au format de la version courante.
+     * @param gala le Gala à écrire
+     * @param file le fichier de destination, écrasé s'il existe
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    public static void write(Gala gala, Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            int nbrMembers = gala.memberCount();
+            long indexPosition = TAILLE_EN_TETE;
+            long membersPosition = indexPosition + (long)nbrMembers * TAILLE_INDEX;
+
+            // Members first, right after the (not yet written) header and index, remembering where each one lands.
+            channel.position(membersPosition);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), TAILLE_BUFFER));
+            long[] index = new long[nbrMembers];
+            int[] count = {0};
+            IOException[] error = {null};
+            gala.forEachMember(member -> {
+                if(error[0] != null)
+                    return;
+                long position = membersPosition + out.size();
+                if(position > Integer.MAX_VALUE)
+                {
+                    error[0] = new IOException("L'effectif est trop grand pour être projeté en mémoire");
+                    return;
+                }
+                index[count[0]++] = ((long)member.getId() << 32) | position; // sorting on this sorts on the id
+                try {
+                    writeMember(member, out);
+                } catch(IOException e) {
+                    error[0] = e;
+                }
+            });
+            if(error[0] != null)
+                throw error[0];
+
+            long restPosition = membersPosition + out.size();
+            writeRest(gala, out);
+            out.flush();
+
+            Arrays.sort(index);
+            ByteBuffer buffer = ByteBuffer.allocate(TAILLE_INDEX * nbrMembers);
+            for(long entry : index)
+                buffer.putInt((int)(entry >>> 32)).putInt((int)entry);
+            buffer.flip();
+            writeFully(channel, buffer, indexPosition);
+
+            ByteBuffer header = ByteBuffer.allocate(TAILLE_EN_TETE);
+            header.putInt(MAGIC).putShort(VERSION)
+                  .putLong(gala.getGalaDate().toEpochDay()).putLong(gala.getCurrentDate().toEpochDay())
+                  .putInt(nbrMembers).putLong(indexPosition).putLong(membersPosition).putLong(restPosition);
+            header.flip();
+            writeFully(channel, header, 0);
+        }
+    }
+
+    /**
+     * Ecrit l'enregistrement d'un membre de l'école.
+     * @param member le membre à écrire
+     * @param out le flux de destination
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    private static void writeMember(SchoolMember member, DataOutputStream out) throws IOException
+    {
+        out.writeByte(member instanceof Student ? TYPE_STUDENT : TYPE_STAFF);
+        out.writeInt(member.getId());
+        writeString(member.getLastName(), out);
+        writeString(member.getFirstName(), out);
+        writeString(member.getPhoneNumber(), out);
+        writeString(member.getMail(), out);
+        if(member instanceof Student student)
+            out.writeByte(student.getYear());
+    }
+
+    /**
+     * Ecrit le plan de la salle, les tables, leurs réservations, les listes d'identifiants, les totaux et la position
+     * dans le journal.
+     * @param gala le Gala à écrire
+     * @param out le flux de destination
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    private static void writeRest(Gala gala, DataOutputStream out) throws IOException
+    {
+        writeVenue(gala.getVenue(), out);
+
+        Collection<Table> tables = gala.tables();
+        out.writeInt(tables.size());
+        for(Table table : tables)
+        {
+            Table.Snapshot snapshot = table.snapshot();
+            out.writeInt(snapshot.tableId());
+            out.writeShort(snapshot.capacity());
+            out.writeShort(snapshot.reservations().size());
+            for(Reservation reservation : snapshot.reservations())
+            {
+                out.writeInt(reservation.getOwner().getId());
+                out.writeShort(reservation.getNbrSeatsOccupied());
+                out.writeInt(reservation.getReservationPrice());
+                out.writeLong(reservation.getReservationDate().toEpochDay());
+            }
+        }
+
+        writeIds(gala.idsInState(Gala.SUBSCRIBED), out);
+        writeIds(gala.idsInState(Gala.ON_HOLD), out);
+        writeIds(gala.idsInState(Gala.ACCEPTED), out);
+
+        int[] waiting = gala.idsInState(Gala.WAITING);
+        out.writeInt(waiting.length);
+        for(int id : waiting)
+        {
+            out.writeInt(id);
+            out.writeShort(gala.waitingSeats(id));
+            out.writeLong(gala.waitingPriority(id));
+        }
+
+        GalaStatistics statistics = gala.getStatistics();
+        out.writeByte(PriceCategory.values().length);
+        for(PriceCategory category : PriceCategory.values())
+        {
+            out.writeInt(statistics.getNbrReservations(category));
+            out.writeInt(statistics.getNbrSeats(category));
+            out.writeLong(statistics.getRevenue(category));
+            out.writeInt(statistics.getNbrConfirmedReservations(category));
+            out.writeInt(statistics.getNbrConfirmedSeats(category));
+            out.writeLong(statistics.getConfirmedRevenue(category));
+        }
+        for(int c = 0; c < statistics.getNbrTableCategories(); c++)
+            out.writeInt(statistics.getSeatsSold(c));
+
+        out.writeLong(gala.getJournalPosition());
+    }
+
+    /**
+     * Ecrit le plan de la salle.
+     * @param venue le plan de la salle
+     * @param out le flux de destination
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    private static void writeVenue(Venue venue, DataOutputStream out) throws IOException
+    {
+        List<Venue.Category> categories = venue.getCategories();
+        out.writeInt(categories.size());
+        for(Venue.Category category : categories)
+        {
+            writeString(category.getName(), out);
+            out.writeByte(category.getAudience().ordinal());
+        }
+
+        Venue.Range[] ranges = venue.ranges();
+        out.writeInt(ranges.length);
+        for(Venue.Range range : ranges)
+        {
+            out.writeShort(range.category);
+            out.writeInt(range.firstTableId);
+            out.writeInt(range.lastTableId);
+            out.writeShort(range.capacity);
+        }
+    }
+
+    /**
+     * Ecrit une chaîne en UTF-8, précédée de sa longueur en octets.
+     * @param value la chaîne
+     * @param out le flux de destination
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    private static void writeString(String value, DataOutputStream out) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Ecrit une liste d'identifiants, précédée de sa taille.
+     * @param ids les identifiants
+     * @param out le flux de destination
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    private static void writeIds(int[] ids, DataOutput out) throws IOException
+    {
+        out.writeInt(ids.length);
+        for(int id : ids)
+            out.writeInt(id);
+    }
+
+    /**
+     * Ecrit entièrement le buffer à la position donnée du canal.
+     * @param channel le canal de destination
+     * @param buffer le buffer à écrire
+     * @param position la position d'écriture dans le fichier
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        while(buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    //---------------------------------- READ
+
+    /**
+     * Lit un instantané du Gala depuis le fichier donné. Un fichier de version 2 ou suivante est projeté en mémoire et
+     * ses membres sont matérialisés à la demande ; un fichier de version 1 est lu entièrement.
+     * @param file le fichier source
+     * @return le Gala restauré
+     * @throws IOException Erreur liée aux entrées/sorties, ou instantané invalide
+     */
+    public static Gala read(Path file) throws IOException
+    {
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if(channel.size() > Integer.MAX_VALUE)
+                throw new IOException("L'instantané est trop grand pour être projeté en mémoire");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid once closed
+        }
+
+        if(buffer.limit() < 6 || buffer.getInt(0) != MAGIC)
+            throw new IOException("Le fichier n'est pas un instantané de Gala");
+
+        short version = buffer.getShort(4);
+        if(version == 1)
+        {
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile()), TAILLE_BUFFER)))
+            {
+                return readVersion1(in);
+            }
+        }
+        if(version < 2 || version > VERSION)
+            throw new IOException("Version d'instantané non supportée : " + version);
+
+        buffer.position(6);
+        LocalDate galaDate = LocalDate.ofEpochDay(buffer.getLong());
+        LocalDate currentDate = LocalDate.ofEpochDay(buffer.getLong());
+        int nbrMembers = buffer.getInt();
+        long indexPosition = buffer.getLong();
+        buffer.getLong(); // members position, implied by the index
+        long restPosition = buffer.getLong();
+
+        buffer.position((int)restPosition);
+        DataInput in = new ByteBufferInput(buffer);
+        Gala gala = new Gala(galaDate, currentDate, version >= 3 ? readVenue(in) : Venue.defaultLayout());
+        gala.setMemberSource(new MappedMemberSource(buffer, (int)indexPosition, nbrMembers));
+
+        readRest(gala, in, version);
+        return gala;
+    }
+
+    /**
+     * Lit un instantané au format de la version 1, dont l'en-tête a déjà été vérifié mais pas consommé.
+     * @param in le flux source, positionné au début du fichier
+     * @return le Gala restauré
+     * @throws IOException Erreur liée aux entrées/sorties, ou instantané invalide
+     */
+    private static Gala readVersion1(DataInput in) throws IOException
+    {
+        in.readInt(); // magic
+        in.readShort(); // version
+
+        Gala gala = new Gala(LocalDate.ofEpochDay(in.readLong()), LocalDate.ofEpochDay(in.readLong()),
+                             Venue.defaultLayout());
+
+        int nbrMembers = in.readInt();
+        for(int i = 0; i < nbrMembers; i++)
+        {
+            byte type = in.readByte();
+            int id = in.readInt();
+            String lastName = in.readUTF();
+            String firstName = in.readUTF();
+            String phoneNumber = in.readUTF();
+            String mail = in.readUTF();
+            if(type == TYPE_STUDENT)
+                gala.restoreMember(new Student(id, lastName, firstName, phoneNumber, mail, in.readByte()));
+            else
+                gala.restoreMember(new Staff(id, lastName, firstName, phoneNumber, mail));
+        }
+
+        readRest(gala, in, (short)1);
+        return gala;
+    }
+
+    /**
+     * Lit les tables, leurs réservations, les listes d'identifiants, la liste d'attente, les totaux et la position dans
+     * le journal.
+     * @param gala le Gala en cours de restauration, dont les membres sont déjà accessibles
+     * @param in le flux source
+     * @param version la version de l'instantané
+     * @throws IOException Erreur liée aux entrées/sorties, ou instantané invalide
+     */
+    private static void readRest(Gala gala, DataInput in, short version) throws IOException
+    {
+        int nbrTables = in.readInt();
+        try
+        {
+            for(int i = 0; i < nbrTables; i++)
+            {
+                int tableId = in.readInt();
+                gala.restoreTable(new Table(tableId, in.readShort()));
+
+                int nbrReservations = in.readShort();
+                for(int j = 0; j < nbrReservations; j++)
+                {
+                    SchoolMember owner = gala.findMember(in.readInt());
+                    if(owner == null)
+                        throw new IOException("Une réservation référence un membre inconnu");
+
+                    gala.restoreReservation(new Reservation(tableId, owner, in.readShort(), in.readInt(),
+                                                            LocalDate.ofEpochDay(in.readLong())));
+                }
+            }
+        } catch(NoSeatRemainingException e)
+        {
+            throw new IOException("Les réservations de l'instantané dépassent la capacité des tables", e);
+        } catch(NoSuchTableException e)
+        {
+            throw new IOException("L'instantané référence une table absente du plan de la salle", e);
+        }
+
+        int nbrSubscribed = in.readInt();
+        for(int i = 0; i < nbrSubscribed; i++)
+            gala.restoreSubscription(in.readInt());
+        int nbrOnHold = in.readInt();
+        for(int i = 0; i < nbrOnHold; i++)
+            gala.restoreOnHold(in.readInt());
+        int nbrAccepted = in.readInt();
+        for(int i = 0; i < nbrAccepted; i++)
+            gala.restoreAccepted(in.readInt());
+
+        if(version >= 4)
+        {
+            int nbrWaiting = in.readInt();
+            try
+            {
+                for(int i = 0; i < nbrWaiting; i++)
+                    gala.restoreWaiting(in.readInt(), in.readShort(), in.readLong());
+            } catch(NoSuchMemberException e)
+            {
+                throw new IOException("La liste d'attente de l'instantané référence un membre inconnu", e);
+            }
+        }
+
+        if(version < 5)
+            gala.rebuildStatistics();
+        else
+            gala.restoreStatistics(readStatistics(gala, in));
+
+        if(version >= 6)
+            gala.setJournalPosition(in.readLong());
+    }
+
+    /**
+     * Lit les totaux des réservations et des recettes.
+     * @param gala le Gala en cours de restauration, dont le plan de la salle est connu
+     * @param in le flux source
+     * @return les totaux
+     * @throws IOException Erreur liée aux entrées/sorties, ou instantané invalide
+     */
+    private static GalaStatistics readStatistics(Gala gala, DataInput in) throws IOException
+    {
+        int nbrPriceCategories = in.readByte();
+        if(nbrPriceCategories != PriceCategory.values().length)
+            throw new IOException("Nombre de catégories tarifaires invalide : " + nbrPriceCategories);
+
+        GalaStatistics statistics = new GalaStatistics(gala.getVenue().getCategories().size());
+        for(PriceCategory category : PriceCategory.values())
+            statistics.restore(category, in.readInt(), in.readInt(), in.readLong(), in.readInt(), in.readInt(),
+                               in.readLong());
+        for(int c = 0; c < statistics.getNbrTableCategories(); c++)
+            statistics.restoreSeatsSold(c, in.readInt());
+        return statistics;
+    }
+
+    /**
+     * Lit le plan de la salle.
+     * @param in le flux source
+     * @return le plan de la salle
+     * @throws IOException Erreur liée aux entrées/sorties, ou plan invalide
+     */
+    private static Venue readVenue(DataInput in) throws IOException
+    {
+        int nbrCategories = in.readInt();
+        String[] names = new String[nbrCategories];
+        Venue.Audience[] audiences = new Venue.Audience[nbrCategories];
+        for(int i = 0; i < nbrCategories; i++)
+        {
+            byte[] bytes = new byte[in.readUnsignedShort()];
+            in.readFully(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+            audiences[i] = Venue.Audience.values()[in.readByte()];
+        }
+
+        Venue.Builder builder = new Venue.Builder();
+        try
+        {
+            int nbrRanges = in.readInt();
+            for(int i = 0; i < nbrRanges; i++)
+            {
+                int category = in.readShort();
+                builder.addTables(names[category], audiences[category], in.readInt(), in.readInt(), in.readShort());
+            }
+            return builder.build();
+        } catch(IllegalArgumentException | IndexOutOfBoundsException e)
+        {
+            throw new IOException("Le plan de la salle de l'instantané est invalide", e);
+        }
+    }
+
+    /**
+     * Source de membres lisant directement l'index et les enregistrements d'un instantané projeté en mémoire.
+     * Seules des lectures à position absolue sont effectuées, la source peut donc être partagée entre threads.
+     */
+    private static final class MappedMemberSource implements MemberSource
+    {
+        /**
+         * L'instantané projeté en mémoire.
+         */
+        private final ByteBuffer buffer;
+        /**
+         * La position de l'index des membres dans l'instantané.
+         */
+        private final int indexPosition;
+        /**
+         * Le nombre de membres de l'index.
+         */
+        private final int size;
+
+        private MappedMemberSource(ByteBuffer buffer, int indexPosition, int size)
+        {
+            this.buffer = buffer;
+            this.indexPosition = indexPosition;
+            this.size = size;
+        }
+
+        @Override
+        public SchoolMember load(int memberId)
+        {
+            int low = 0;
+            int high = size - 1;
+            while(low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                int id = idAt(mid);
+                if(id < memberId)
+                    low = mid + 1;
+                else if(id > memberId)
+                    high = mid - 1;
+                else
+                    return decode(buffer.getInt(indexPosition + mid * TAILLE_INDEX + 4));
+            }
+            return null;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public int idAt(int index)
+        {
+            return buffer.getInt(indexPosition + index * TAILLE_INDEX);
+        }
+
+        /**
+         * Construit le membre dont l'enregistrement commence à la position donnée.
+         * @param position la position de l'enregistrement
+         * @return le membre
+         */
+        private SchoolMember decode(int position)
+        {
+            byte type = buffer.get(position);
+            int id = buffer.getInt(position + 1);
+            int[] cursor = {position + 5};
+            String lastName = decodeString(cursor);
+            String firstName = decodeString(cursor);
+            String phoneNumber = decodeString(cursor);
+            String mail = decodeString(cursor);
+            if(type == TYPE_STUDENT)
+                return new Student(id, lastName, firstName, phoneNumber, mail, buffer.get(cursor[0]));
+            return new Staff(id, lastName, firstName, phoneNumber, mail);
+        }
+
+        /**
+         * Décode une chaîne UTF-8 précédée de sa longueur, et avance le curseur.
+         * @param cursor la position de lecture, mise à jour après la chaîne
+         * @return la chaîne décodée
+         */
+        private String decodeString(int[] cursor)
+        {
+            int length = buffer.getShort(cursor[0]) & 0xFFFF;
+            byte[] bytes = new byte[length];
+            buffer.get(cursor[0] + 2, bytes);
+            cursor[0] += 2 + length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Adaptateur permettant de décoder la partie séquentielle d'un instantané projeté avec les mêmes méthodes que pour
+     * un flux (voir {@link #readRest(Gala, DataInput, short)}).
+     */
+    private static final class ByteBufferInput extends DataInputStream
+    {
+        private ByteBufferInput(ByteBuffer buffer)
+        {
+            super(new InputStream() {
+                @Override
+                public int read()
+                {
+                    return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len)
+                {
+                    if(!buffer.hasRemaining())
+                        return -1;
+                    int n = Math.min(len, buffer.remaining());
+                    buffer.get(b, off, n);
+                    return n;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package fr.univ.modele;
+
+/**
+ * Un changement d'état du Gala, diffusé aux abonnés (voir {@link Gala#subscribe(GalaListener)}) afin qu'ils tiennent à
+ * jour tableaux de bord, caches ou exports sans parcourir de nouveau les tables et les réservations.
+ * Les événements d'une même table sont émis sous son verrou, ceux de la confirmation d'un membre après la mise à jour
+ * de son état : ils sont reçus dans l'ordre où les changements ont eu lieu. Les événements de tables différentes
+ * peuvent être reçus dans un ordre légèrement différent de leurs numéros.
+ * @param type la nature du changement
+ * @param sequence le numéro de l'événement, croissant dans l'ordre d'émission depuis le chargement du Gala
+ * @param memberId l'identifiant du membre concerné, -1 pour un événement de table
+ * @param tableId l'identifiant de la table concernée
+ * @param nbrSeats le nombre de places de la réservation, accompagnants compris, ou le nombre de places restantes de la
+ * table pour un événement de table
+ */
+public record GalaEvent(Type type, long sequence, int memberId, int tableId, int nbrSeats)
+{
+    /**
+     * Nature d'un changement d'état du Gala.
+     */
+    public enum Type
+    {
+        /**
+         * Une réservation a été ajoutée à une table : nouvelle réservation, promotion depuis la liste d'attente ou
+         * déplacement lors d'une réorganisation. Un déplacement, retrait puis ajout, ne change pas l'état de
+         * confirmation de la réservation.
+         */
+        RESERVATION_ADDED,
+        /**
+         * Une réservation a été retirée d'une table : annulation, expiration ou déplacement lors d'une réorganisation.
+         */
+        RESERVATION_REMOVED,
+        /**
+         * La participation d'un membre a été confirmée.
+         */
+        MEMBER_ACCEPTED,
+        /**
+         * Une table n'a plus aucune place restante.
+         */
+        TABLE_FULL,
+        /**
+         * Une table qui était complète a de nouveau des places restantes.
+         */
+        TABLE_FREED
+    }
+}
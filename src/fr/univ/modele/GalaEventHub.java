@@ -0,0 +1,68 @@
+package fr.univ.modele;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Diffusion des changements d'état du Gala à ses abonnements (voir {@link GalaSubscription}). La liste des
+ * abonnements est copiée à chaque abonnement ou résiliation, rares, afin que l'émission d'un événement, fréquente, ne
+ * prenne aucun verrou ; sans abonnement, elle ne coûte qu'une lecture et n'alloue rien.
+ */
+final class GalaEventHub
+{
+    /**
+     * Les abonnements en cours, remplacés à chaque changement.
+     */
+    private volatile GalaSubscription[] subscriptions = new GalaSubscription[0];
+    /**
+     * Le numéro du dernier événement émis.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Abonne un {@link GalaListener} aux changements d'état du Gala.
+     * @param listener l'abonné
+     * @param capacity le nombre minimal d'événements de la file de l'abonnement
+     * @param overflow le comportement lorsque la file est pleine
+     * @return l'abonnement, déjà démarré
+     */
+    synchronized GalaSubscription subscribe(GalaListener listener, int capacity, GalaSubscription.Overflow overflow)
+    {
+        GalaSubscription subscription = new GalaSubscription(this, listener, capacity, overflow);
+        GalaSubscription[] updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        updated[updated.length - 1] = subscription;
+        subscription.start();
+        subscriptions = updated;
+        return subscription;
+    }
+
+    /**
+     * Retire un abonnement de la diffusion. Sans effet s'il en a déjà été retiré.
+     * @param subscription l'abonnement
+     */
+    synchronized void remove(GalaSubscription subscription)
+    {
+        GalaSubscription[] updated = Arrays.stream(subscriptions).filter(s -> s != subscription)
+                                           .toArray(GalaSubscription[]::new);
+        if(updated.length != subscriptions.length)
+            subscriptions = updated;
+    }
+
+    /**
+     * Emet un événement vers tous les abonnements en cours.
+     * @param type la nature du changement
+     * @param memberId l'identifiant du membre concerné, -1 pour un événement de table
+     * @param tableId l'identifiant de la table concernée
+     * @param nbrSeats le nombre de places de la réservation, ou de places restantes pour un événement de table
+     */
+    void emit(GalaEvent.Type type, int memberId, int tableId, int nbrSeats)
+    {
+        GalaSubscription[] current = subscriptions;
+        if(current.length == 0)
+            return;
+
+        GalaEvent event = new GalaEvent(type, sequence.incrementAndGet(), memberId, tableId, nbrSeats);
+        for(GalaSubscription subscription : current)
+            subscription.publish(event);
+    }
+}
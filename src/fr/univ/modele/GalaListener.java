@@ -0,0 +1,26 @@
+package fr.univ.modele;
+
+import java.util.List;
+
+/**
+ * Abonné aux changements d'état du Gala (voir {@link Gala#subscribe(GalaListener, int, GalaSubscription.Overflow)}).
+ * Les événements sont remis par lots, sur le thread propre à l'abonnement, jamais sur celui qui a modifié le Gala.
+ * Un abonné peut lire le Gala, mais ne doit pas le modifier : lorsque sa file est pleine, les opérations du Gala
+ * attendent qu'il la vide.
+ */
+public interface GalaListener
+{
+    /**
+     * Reçoit un lot d'événements, dans l'ordre de leur réception.
+     * @param events les événements, dans une liste qui n'est valable que pendant l'appel
+     */
+    void onEvents(List<GalaEvent> events);
+
+    /**
+     * Signale que des événements ont été perdus, la file de l'abonnement étant pleine (voir
+     * {@link GalaSubscription.Overflow#DROP}). L'abonné peut alors repartir d'un état complet, par exemple du plan des
+     * places (voir {@link Gala#getSeatingPlan()}). Ne fait rien par défaut.
+     * @param nbrLost le nombre d'événements perdus depuis le lot précédent
+     */
+    default void onEventsLost(long nbrLost) {}
+}
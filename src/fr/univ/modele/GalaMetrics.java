@@ -0,0 +1,182 @@
+package fr.univ.modele;
+
+import fr.univ.metrics.Histogram;
+import fr.univ.metrics.Metrics;
+
+/**
+ * Les mesures des opérations publiques du Gala, résolues une fois pour toutes afin que le code instrumenté ne fasse
+ * aucune recherche par nom. Pour chaque opération : la durée de chaque appel ("gala.addReservation") et le nombre de
+ * refus par motif ("gala.addReservation.rejected.NO_SEAT_REMAINING", ou le nom de l'exception pour les opérations qui
+ * n'ont pas de résultat, comme "gala.subscribeMember.rejected.MemberIsAlreadySubscribeException"), ainsi que le total
+ * des refus par motif toutes opérations confondues ("gala.rejected.NO_SEAT_REMAINING").
+ */
+final class GalaMetrics
+{
+    /**
+     * Les mesures de {@link Gala#subscribeMember(int)}.
+     */
+    static final Operation SUBSCRIBE = new Operation("gala.subscribeMember");
+    /**
+     * Les mesures de {@link Gala#unsubscribeMember(int)}.
+     */
+    static final Operation UNSUBSCRIBE = new Operation("gala.unsubscribeMember");
+    /**
+     * Les mesures d'une réservation avec placement automatique ({@link Gala#tryAddReservation(int, int)},
+     * {@link Gala#tryAddReservationOrWait(int, int)}).
+     */
+    static final Operation ADD_RESERVATION = new Operation("gala.addReservation");
+    /**
+     * Les mesures d'une réservation sur une table choisie ({@link Gala#tryAddReservation(int, int, int)}).
+     */
+    static final Operation ADD_RESERVATION_TABLE = new Operation("gala.addReservationAtTable");
+    /**
+     * Les mesures de {@link Gala#tryAddGroupReservation(java.util.List)}.
+     */
+    static final Operation ADD_GROUP_RESERVATION = new Operation("gala.addGroupReservation");
+    /**
+     * Les mesures de {@link Gala#removeReservation(int)}.
+     */
+    static final Operation REMOVE_RESERVATION = new Operation("gala.removeReservation");
+    /**
+     * Les mesures de {@link Gala#acceptMember(int)}.
+     */
+    static final Operation ACCEPT = new Operation("gala.acceptMember");
+    /**
+     * Les mesures de {@link Gala#joinWaitlist(int, int)}.
+     */
+    static final Operation JOIN_WAITLIST = new Operation("gala.joinWaitlist");
+    /**
+     * Les mesures de {@link Gala#leaveWaitlist(int)}.
+     */
+    static final Operation LEAVE_WAITLIST = new Operation("gala.leaveWaitlist");
+
+    private GalaMetrics() {}
+
+    /**
+     * Enregistre les jauges décrivant un Gala : places restantes par catégorie de tables ("gala.tables.student
+     * .seatsRemaining" pour la catégorie "student"), nombre de membres dans chaque état, liste d'attente comprise, et
+     * recettes, confirmées ou non. Les jauges d'un Gala précédent sont remplacées.
+     * @param gala le Gala
+     * @param venue le plan de la salle du Gala
+     * @param seats l'index des places de chaque catégorie, indexés par position de la catégorie
+     */
+    static void registerGauges(Gala gala, Venue venue, CapacityIndex[] seats)
+    {
+        for(Venue.Category category : venue.getCategories())
+            Metrics.gauge("gala.tables." + category.getName() + ".seatsRemaining",
+                          seats[category.getIndex()]::getSeatsRemaining);
+        Metrics.gauge("gala.members.subscribed", gala::getNbrSubscribedMembers);
+        Metrics.gauge("gala.members.onHold", gala::getNbrMembersOnHold);
+        Metrics.gauge("gala.members.accepted", gala::getNbrAcceptedMembers);
+        Metrics.gauge("gala.members.waiting", gala::getNbrMembersWaiting);
+        Metrics.gauge("gala.revenue", () -> gala.getStatistics().getRevenue());
+        Metrics.gauge("gala.revenue.confirmed", () -> gala.getStatistics().getConfirmedRevenue());
+    }
+
+    /**
+     * Comptabilise la promotion d'un membre de la liste d'attente sur des places libérées.
+     */
+    static void promoted()
+    {
+        Metrics.increment("gala.waitlist.promoted");
+    }
+
+    /**
+     * Comptabilise les réservations ayant changé de table lors d'une réorganisation.
+     * @param nbrMoved le nombre de réservations déplacées
+     */
+    static void moved(int nbrMoved)
+    {
+        if(Metrics.isEnabled())
+            Metrics.counter("gala.repack.moved").add(nbrMoved);
+    }
+
+    /**
+     * Comptabilise l'échec d'un appel d'un abonné aux changements d'état du Gala (voir {@link GalaSubscription}).
+     */
+    static void listenerFailed()
+    {
+        Metrics.increment("gala.events.listenerFailures");
+    }
+
+    /**
+     * Comptabilise l'expiration d'une réservation qui n'a pas été confirmée à temps.
+     */
+    static void expired()
+    {
+        Metrics.increment("gala.holds.expired");
+    }
+
+    /**
+     * Les mesures d'une opération publique du Gala.
+     */
+    static final class Operation
+    {
+        /**
+         * Le nom de l'opération, préfixe des noms de ses compteurs de refus.
+         */
+        private final String name;
+        /**
+         * La durée de chaque appel.
+         */
+        private final Histogram latency;
+
+        /**
+         * Crée les mesures d'une opération.
+         * @param name le nom de l'opération
+         */
+        private Operation(String name)
+        {
+            this.name = name;
+            this.latency = Metrics.histogram(name);
+        }
+
+        /**
+         * Début d'un appel.
+         * @return l'instant de début, 0 si les mesures sont désactivées
+         */
+        long start()
+        {
+            return Metrics.start();
+        }
+
+        /**
+         * Fin d'un appel, réussi ou non.
+         * @param start la valeur retournée par {@link #start()}
+         */
+        void stop(long start)
+        {
+            Metrics.stop(latency, start);
+        }
+
+        /**
+         * Comptabilise le refus d'un appel.
+         * @param e l'exception signalant le refus
+         */
+        void rejected(Exception e)
+        {
+            if(Metrics.isEnabled())
+                rejected(e.getClass().getSimpleName());
+        }
+
+        /**
+         * Comptabilise le refus d'une demande de réservation.
+         * @param status le motif du refus
+         */
+        void rejected(ReservationStatus status)
+        {
+            if(Metrics.isEnabled())
+                rejected(status.name());
+        }
+
+        /**
+         * Comptabilise le refus d'un appel, pour l'opération et toutes opérations confondues.
+         * @param reason le motif du refus
+         */
+        private void rejected(String reason)
+        {
+            Metrics.counter(name + ".rejected." + reason).increment();
+            Metrics.counter("gala.rejected." + reason).increment();
+        }
+    }
+}
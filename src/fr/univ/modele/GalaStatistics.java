@@ -0,0 +1,356 @@
+package fr.univ.modele;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Les totaux du Gala : réservations, places vendues (accompagnants compris) et recettes par catégorie tarifaire, en
+ * distinguant les réservations confirmées de celles en attente de confirmation, ainsi que les places vendues par
+ * catégorie de tables. Le Gala tient ces totaux à jour à chaque réservation, confirmation, suppression ou expiration,
+ * sous le verrou de ses maps partagées : les consulter ne parcourt jamais les tables.
+ * Les instances obtenues par {@link Gala#getStatistics()} sont des copies cohérentes, qui ne changent plus.
+ */
+public final class GalaStatistics implements Serializable
+{
+    /**
+     * Constante nécessaire afin de permettre la sérialisation de la classe Gala.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Le nombre de réservations, par catégorie tarifaire.
+     */
+    private final int[] reservations;
+    /**
+     * Le nombre de places réservées, accompagnants compris, par catégorie tarifaire.
+     */
+    private final int[] seats;
+    /**
+     * Les recettes, par catégorie tarifaire.
+     */
+    private final long[] revenue;
+    /**
+     * Le nombre de réservations confirmées, par catégorie tarifaire.
+     */
+    private final int[] confirmedReservations;
+    /**
+     * Le nombre de places des réservations confirmées, par catégorie tarifaire.
+     */
+    private final int[] confirmedSeats;
+    /**
+     * Les recettes des réservations confirmées, par catégorie tarifaire.
+     */
+    private final long[] confirmedRevenue;
+    /**
+     * Le nombre de places réservées, par position de la catégorie de tables dans le plan de la salle.
+     */
+    private final int[] seatsSold;
+
+    /**
+     * Crée des totaux nuls.
+     * @param nbrTableCategories le nombre de catégories de tables du plan de la salle
+     */
+    GalaStatistics(int nbrTableCategories)
+    {
+        int nbrPriceCategories = PriceCategory.values().length;
+        reservations = new int[nbrPriceCategories];
+        seats = new int[nbrPriceCategories];
+        revenue = new long[nbrPriceCategories];
+        confirmedReservations = new int[nbrPriceCategories];
+        confirmedSeats = new int[nbrPriceCategories];
+        confirmedRevenue = new long[nbrPriceCategories];
+        seatsSold = new int[nbrTableCategories];
+    }
+
+    /**
+     * Copie des totaux.
+     * @param other les totaux à copier
+     */
+    GalaStatistics(GalaStatistics other)
+    {
+        reservations = other.reservations.clone();
+        seats = other.seats.clone();
+        revenue = other.revenue.clone();
+        confirmedReservations = other.confirmedReservations.clone();
+        confirmedSeats = other.confirmedSeats.clone();
+        confirmedRevenue = other.confirmedRevenue.clone();
+        seatsSold = other.seatsSold.clone();
+    }
+
+    /**
+     * Comptabilise une nouvelle réservation, en attente de confirmation.
+     * @param reservation la réservation
+     * @param tableCategory la position de la catégorie de sa table
+     */
+    void add(Reservation reservation, int tableCategory)
+    {
+        int price = PriceCategory.of(reservation.getOwner()).ordinal();
+        reservations[price]++;
+        seats[price] += reservation.getNbrSeatsOccupied();
+        revenue[price] += reservation.getReservationPrice();
+        seatsSold[tableCategory] += reservation.getNbrSeatsOccupied();
+    }
+
+    /**
+     * Comptabilise la confirmation d'une réservation.
+     * @param reservation la réservation
+     */
+    void confirm(Reservation reservation)
+    {
+        int price = PriceCategory.of(reservation.getOwner()).ordinal();
+        confirmedReservations[price]++;
+        confirmedSeats[price] += reservation.getNbrSeatsOccupied();
+        confirmedRevenue[price] += reservation.getReservationPrice();
+    }
+
+    /**
+     * Décompte une réservation supprimée ou expirée.
+     * @param reservation la réservation
+     * @param tableCategory la position de la catégorie de sa table
+     * @param confirmed true si la réservation avait été confirmée
+     */
+    void remove(Reservation reservation, int tableCategory, boolean confirmed)
+    {
+        int price = PriceCategory.of(reservation.getOwner()).ordinal();
+        reservations[price]--;
+        seats[price] -= reservation.getNbrSeatsOccupied();
+        revenue[price] -= reservation.getReservationPrice();
+        seatsSold[tableCategory] -= reservation.getNbrSeatsOccupied();
+        if(confirmed)
+        {
+            confirmedReservations[price]--;
+            confirmedSeats[price] -= reservation.getNbrSeatsOccupied();
+            confirmedRevenue[price] -= reservation.getReservationPrice();
+        }
+    }
+
+    /**
+     * Restaure les totaux d'une catégorie tarifaire.
+     * @param category la catégorie tarifaire
+     * @param nbrReservations le nombre de réservations
+     * @param nbrSeats le nombre de places réservées
+     * @param amount les recettes
+     * @param nbrConfirmed le nombre de réservations confirmées
+     * @param nbrConfirmedSeats le nombre de places des réservations confirmées
+     * @param confirmedAmount les recettes des réservations confirmées
+     */
+    void restore(PriceCategory category, int nbrReservations, int nbrSeats, long amount, int nbrConfirmed,
+                 int nbrConfirmedSeats, long confirmedAmount)
+    {
+        int price = category.ordinal();
+        reservations[price] = nbrReservations;
+        seats[price] = nbrSeats;
+        revenue[price] = amount;
+        confirmedReservations[price] = nbrConfirmed;
+        confirmedSeats[price] = nbrConfirmedSeats;
+        confirmedRevenue[price] = confirmedAmount;
+    }
+
+    /**
+     * Restaure le nombre de places réservées d'une catégorie de tables.
+     * @param tableCategory la position de la catégorie de tables
+     * @param nbrSeats le nombre de places réservées
+     */
+    void restoreSeatsSold(int tableCategory, int nbrSeats)
+    {
+        seatsSold[tableCategory] = nbrSeats;
+    }
+
+    /**
+     * Le nombre de catégories de tables couvertes par les totaux.
+     * @return le nombre de catégories de tables
+     */
+    int getNbrTableCategories()
+    {
+        return seatsSold.length;
+    }
+
+    /**
+     * Le nombre de places réservées à une position de catégorie de tables.
+     * @param tableCategory la position de la catégorie de tables
+     * @return le nombre de places réservées
+     */
+    int getSeatsSold(int tableCategory)
+    {
+        return seatsSold[tableCategory];
+    }
+
+    /**
+     * Le nombre total de réservations.
+     * @return le nombre de réservations
+     */
+    public int getNbrReservations()
+    {
+        return sum(reservations);
+    }
+
+    /**
+     * Le nombre de réservations d'une catégorie tarifaire.
+     * @param category la catégorie tarifaire
+     * @return le nombre de réservations
+     */
+    public int getNbrReservations(PriceCategory category)
+    {
+        return reservations[category.ordinal()];
+    }
+
+    /**
+     * Le nombre total de réservations confirmées.
+     * @return le nombre de réservations confirmées
+     */
+    public int getNbrConfirmedReservations()
+    {
+        return sum(confirmedReservations);
+    }
+
+    /**
+     * Le nombre de réservations confirmées d'une catégorie tarifaire.
+     * @param category la catégorie tarifaire
+     * @return le nombre de réservations confirmées
+     */
+    public int getNbrConfirmedReservations(PriceCategory category)
+    {
+        return confirmedReservations[category.ordinal()];
+    }
+
+    /**
+     * Le nombre total de réservations en attente de confirmation.
+     * @return le nombre de réservations en attente
+     */
+    public int getNbrReservationsOnHold()
+    {
+        return getNbrReservations() - getNbrConfirmedReservations();
+    }
+
+    /**
+     * Le nombre total de places réservées, accompagnants compris.
+     * @return le nombre de places réservées
+     */
+    public int getNbrSeats()
+    {
+        return sum(seats);
+    }
+
+    /**
+     * Le nombre de places réservées par les membres d'une catégorie tarifaire, accompagnants compris.
+     * @param category la catégorie tarifaire
+     * @return le nombre de places réservées
+     */
+    public int getNbrSeats(PriceCategory category)
+    {
+        return seats[category.ordinal()];
+    }
+
+    /**
+     * Le nombre total de places des réservations confirmées, accompagnants compris.
+     * @return le nombre de places confirmées
+     */
+    public int getNbrConfirmedSeats()
+    {
+        return sum(confirmedSeats);
+    }
+
+    /**
+     * Le nombre de places des réservations confirmées des membres d'une catégorie tarifaire, accompagnants compris.
+     * @param category la catégorie tarifaire
+     * @return le nombre de places confirmées
+     */
+    public int getNbrConfirmedSeats(PriceCategory category)
+    {
+        return confirmedSeats[category.ordinal()];
+    }
+
+    /**
+     * Le nombre total d'accompagnants.
+     * @return le nombre d'accompagnants
+     */
+    public int getNbrAccompanists()
+    {
+        return getNbrSeats() - getNbrReservations();
+    }
+
+    /**
+     * Le nombre d'accompagnants des membres d'une catégorie tarifaire.
+     * @param category la catégorie tarifaire
+     * @return le nombre d'accompagnants
+     */
+    public int getNbrAccompanists(PriceCategory category)
+    {
+        return seats[category.ordinal()] - reservations[category.ordinal()];
+    }
+
+    /**
+     * Les recettes totales, réservations en attente comprises.
+     * @return les recettes
+     */
+    public long getRevenue()
+    {
+        return sum(revenue);
+    }
+
+    /**
+     * Les recettes d'une catégorie tarifaire, réservations en attente comprises.
+     * @param category la catégorie tarifaire
+     * @return les recettes
+     */
+    public long getRevenue(PriceCategory category)
+    {
+        return revenue[category.ordinal()];
+    }
+
+    /**
+     * Les recettes des réservations confirmées.
+     * @return les recettes confirmées
+     */
+    public long getConfirmedRevenue()
+    {
+        return sum(confirmedRevenue);
+    }
+
+    /**
+     * Les recettes des réservations confirmées d'une catégorie tarifaire.
+     * @param category la catégorie tarifaire
+     * @return les recettes confirmées
+     */
+    public long getConfirmedRevenue(PriceCategory category)
+    {
+        return confirmedRevenue[category.ordinal()];
+    }
+
+    /**
+     * Le nombre de places réservées aux tables d'une catégorie, accompagnants compris.
+     * @param category la catégorie de tables
+     * @return le nombre de places réservées
+     */
+    public int getSeatsSold(Venue.Category category)
+    {
+        return seatsSold[category.getIndex()];
+    }
+
+    /**
+     * La somme des totaux de toutes les catégories tarifaires.
+     * @param values les totaux, par catégorie tarifaire
+     * @return leur somme
+     */
+    private static int sum(int[] values)
+    {
+        int total = 0;
+        for(int value : values)
+            total += value;
+        return total;
+    }
+
+    /**
+     * La somme des totaux de toutes les catégories tarifaires.
+     * @param values les totaux, par catégorie tarifaire
+     * @return leur somme
+     */
+    private static long sum(long[] values)
+    {
+        long total = 0;
+        for(long value : values)
+            total += value;
+        return total;
+    }
+}
@@ -0,0 +1,255 @@
+package fr.univ.modele;
+
+import fr.univ.util.RingBuffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Abonnement d'un {@link GalaListener} aux changements d'état du Gala (voir
+ * {@link Gala#subscribe(GalaListener, int, Overflow)}). Les opérations du Gala déposent leurs événements dans la file
+ * de l'abonnement, sans verrou (voir {@link RingBuffer}) ; un thread propre à l'abonnement les en retire par lots d'au
+ * plus {@link #BATCH_SIZE} et les remet à l'abonné. Un abonné lent ne retarde donc les opérations du Gala que lorsque
+ * sa file est pleine, et seulement s'il a choisi {@link Overflow#WAIT}.
+ */
+public final class GalaSubscription implements AutoCloseable
+{
+    /**
+     * Comportement d'une opération du Gala lorsque la file de l'abonnement est pleine.
+     */
+    public enum Overflow
+    {
+        /**
+         * L'opération attend que l'abonné ait vidé une partie de sa file : aucun événement n'est perdu, mais un abonné
+         * lent ralentit le Gala.
+         */
+        WAIT,
+        /**
+         * L'événement est abandonné, et l'abonné en est prévenu (voir {@link GalaListener#onEventsLost(long)}) : le
+         * Gala n'attend jamais.
+         */
+        DROP
+    }
+
+    /**
+     * Nombre d'événements par défaut de la file d'un abonnement.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /**
+     * Nombre maximal d'événements remis à l'abonné en un seul appel.
+     */
+    static final int BATCH_SIZE = 256;
+    /**
+     * Durée maximale, en nanosecondes, d'une attente du thread de l'abonnement ou d'un producteur face à une file
+     * pleine, avant de vérifier de nouveau la file.
+     */
+    private static final long PARK_NANOS = 1_000_000;
+    /**
+     * Numéro du prochain thread d'abonnement, pour le nommer.
+     */
+    private static final AtomicInteger NEXT_THREAD = new AtomicInteger();
+
+    /**
+     * La diffusion dont l'abonnement fait partie.
+     */
+    private final GalaEventHub hub;
+    /**
+     * L'abonné.
+     */
+    private final GalaListener listener;
+    /**
+     * La file des événements pas encore remis.
+     */
+    private final RingBuffer<GalaEvent> ring;
+    /**
+     * Le comportement lorsque la file est pleine.
+     */
+    private final Overflow overflow;
+    /**
+     * Le thread remettant les événements à l'abonné.
+     */
+    private final Thread thread;
+    /**
+     * Le nombre d'événements perdus pas encore signalés à l'abonné.
+     */
+    private final AtomicLong nbrLostUnreported = new AtomicLong();
+    /**
+     * Le nombre total d'événements perdus depuis la création de l'abonnement.
+     */
+    private final AtomicLong nbrLost = new AtomicLong();
+    /**
+     * Le nombre d'événements remis à l'abonné. Ecrit par le thread de l'abonnement seul.
+     */
+    private volatile long nbrDelivered;
+    /**
+     * Le nombre d'appels de l'abonné qui ont échoué. Ecrit par le thread de l'abonnement seul.
+     */
+    private volatile long nbrFailures;
+    /**
+     * Indique que le thread de l'abonnement attend des événements et doit être réveillé.
+     */
+    private volatile boolean sleeping;
+    /**
+     * Indique que l'abonnement est résilié.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Crée un abonnement, dont le thread n'est pas encore démarré.
+     * @param hub la diffusion dont l'abonnement fait partie
+     * @param listener l'abonné
+     * @param capacity le nombre minimal d'événements de la file
+     * @param overflow le comportement lorsque la file est pleine
+     */
+    GalaSubscription(GalaEventHub hub, GalaListener listener, int capacity, Overflow overflow)
+    {
+        this.hub = hub;
+        this.listener = listener;
+        this.ring = new RingBuffer<>(capacity);
+        this.overflow = overflow;
+        this.thread = new Thread(this::deliver, "gala-events-" + NEXT_THREAD.getAndIncrement());
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Démarre la remise des événements.
+     */
+    void start()
+    {
+        thread.start();
+    }
+
+    /**
+     * Dépose un événement dans la file, en attendant qu'une place s'y libère ou en l'abandonnant si elle est pleine,
+     * selon {@link #overflow}.
+     * @param event l'événement
+     */
+    void publish(GalaEvent event)
+    {
+        while(!ring.offer(event))
+        {
+            if(overflow == Overflow.DROP || closed)
+            {
+                nbrLost.incrementAndGet();
+                nbrLostUnreported.incrementAndGet();
+                break;
+            }
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(PARK_NANOS / 100);
+        }
+        if(sleeping)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Boucle du thread de l'abonnement : remet les événements par lots, et attend lorsque la file est vide. Après la
+     * résiliation, les événements déjà déposés sont encore remis.
+     */
+    private void deliver()
+    {
+        List<GalaEvent> batch = new ArrayList<>(BATCH_SIZE);
+        List<GalaEvent> view = Collections.unmodifiableList(batch);
+        while(true)
+        {
+            boolean stopping = closed;
+            long lost = nbrLostUnreported.getAndSet(0);
+            if(lost > 0)
+            {
+                try
+                {
+                    listener.onEventsLost(lost);
+                } catch(RuntimeException e){failed();} // a faulty listener only loses its own events
+            }
+
+            if(ring.drain(batch, BATCH_SIZE) > 0)
+            {
+                try
+                {
+                    listener.onEvents(view);
+                } catch(RuntimeException e){failed();}
+                nbrDelivered += batch.size();
+                batch.clear();
+                continue;
+            }
+            if(stopping)
+                return;
+
+            sleeping = true;
+            if(ring.isEmpty() && nbrLostUnreported.get() == 0 && !closed)
+                LockSupport.parkNanos(PARK_NANOS);
+            sleeping = false;
+        }
+    }
+
+    /**
+     * Comptabilise l'échec d'un appel de l'abonné. L'échec ne concerne que l'abonné : il n'est pas propagé, et
+     * l'abonnement continue de lui remettre les événements suivants.
+     */
+    private void failed()
+    {
+        nbrFailures++;
+        GalaMetrics.listenerFailed();
+    }
+
+    /**
+     * Résilie l'abonnement : le Gala cesse d'y déposer des événements, puis attend que ceux déjà déposés soient remis
+     * à l'abonné (sauf si l'abonné résilie lui-même son abonnement depuis {@link GalaListener#onEvents(List)}).
+     */
+    @Override
+    public void close()
+    {
+        hub.remove(this);
+        closed = true;
+        LockSupport.unpark(thread);
+        if(Thread.currentThread() == thread)
+            return;
+        try
+        {
+            thread.join();
+        } catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Le nombre d'événements remis à l'abonné.
+     * @return le nombre d'événements remis
+     */
+    public long getNbrDelivered()
+    {
+        return nbrDelivered;
+    }
+
+    /**
+     * Le nombre d'appels de l'abonné ({@link GalaListener#onEvents(List)} ou {@link GalaListener#onEventsLost(long)})
+     * ayant échoué par une exception. Les événements d'un appel ayant échoué ne sont pas remis de nouveau.
+     * @return le nombre d'appels ayant échoué
+     */
+    public long getNbrFailures()
+    {
+        return nbrFailures;
+    }
+
+    /**
+     * Le nombre d'événements perdus, la file étant pleine.
+     * @return le nombre d'événements perdus
+     */
+    public long getNbrLost()
+    {
+        return nbrLost.get();
+    }
+
+    /**
+     * Le nombre d'événements en attente dans la file.
+     * @return le nombre d'événements en attente
+     */
+    public int getNbrPending()
+    {
+        return ring.size();
+    }
+}
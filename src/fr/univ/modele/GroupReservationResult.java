@@ -0,0 +1,100 @@
+package fr.univ.modele;
+
+import java.util.List;
+
+/**
+ * Le résultat d'une demande de réservation pour un groupe (voir {@link Gala#tryAddGroupReservation(List)}) : soit les
+ * réservations de tous les membres du groupe, soit le motif du refus et le membre qui l'a causé, aucune réservation
+ * n'ayant alors été enregistrée.
+ */
+public final class GroupReservationResult
+{
+    /**
+     * L'issue de la demande.
+     */
+    private final ReservationStatus status;
+    /**
+     * Le membre de l'école à l'origine du refus, -1 si la demande est acceptée ou si le refus concerne tout le groupe.
+     */
+    private final int memberId;
+    /**
+     * Les réservations enregistrées, dans l'ordre des demandes, vide en cas de refus.
+     */
+    private final List<Reservation> reservations;
+
+    private GroupReservationResult(ReservationStatus status, int memberId, List<Reservation> reservations)
+    {
+        this.status = status;
+        this.memberId = memberId;
+        this.reservations = reservations;
+    }
+
+    /**
+     * Le résultat d'un groupe accepté.
+     * @param reservations les réservations enregistrées, dans l'ordre des demandes
+     * @return le résultat
+     */
+    static GroupReservationResult accepted(List<Reservation> reservations)
+    {
+        return new GroupReservationResult(ReservationStatus.ACCEPTED, -1, List.copyOf(reservations));
+    }
+
+    /**
+     * Le résultat d'un refus.
+     * @param status le motif du refus
+     * @param memberId le membre à l'origine du refus, -1 si le refus concerne tout le groupe (places insuffisantes)
+     * @return le résultat
+     */
+    static GroupReservationResult rejected(ReservationStatus status, int memberId)
+    {
+        return new GroupReservationResult(status, memberId, List.of());
+    }
+
+    /**
+     * Retourne l'issue de la demande.
+     * @return l'issue de la demande
+     */
+    public ReservationStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Indique si les réservations du groupe ont été enregistrées.
+     * @return true si le groupe est accepté, false sinon
+     */
+    public boolean isAccepted()
+    {
+        return status == ReservationStatus.ACCEPTED;
+    }
+
+    /**
+     * Retourne le membre de l'école à l'origine du refus.
+     * @return l'identifiant du membre, -1 si la demande est acceptée ou si le refus concerne tout le groupe
+     */
+    public int getMemberId()
+    {
+        return memberId;
+    }
+
+    /**
+     * Retourne les réservations enregistrées.
+     * @return les réservations, dans l'ordre des demandes, vide si la demande a été refusée
+     */
+    public List<Reservation> getReservations()
+    {
+        return reservations;
+    }
+
+    /**
+     * Retourne le coût total des réservations du groupe.
+     * @return le coût total, 0 si la demande a été refusée
+     */
+    public int getPrice()
+    {
+        int price = 0;
+        for(Reservation reservation : reservations)
+            price += reservation.getReservationPrice();
+        return price;
+    }
+}
@@ -0,0 +1,28 @@
+package fr.univ.modele;
+
+/**
+ * Source de membres de l'école pouvant être matérialisés à la demande, par exemple depuis un instantané projeté en
+ * mémoire. Permet au Gala de ne construire que les membres réellement consultés pendant une session.
+ */
+interface MemberSource
+{
+    /**
+     * Construit le membre de l'école correspondant à l'identifiant donné.
+     * @param memberId l'identifiant du membre
+     * @return le membre, ou null si la source ne contient aucun membre pour cet identifiant
+     */
+    SchoolMember load(int memberId);
+
+    /**
+     * Le nombre de membres contenus dans la source.
+     * @return le nombre de membres
+     */
+    int size();
+
+    /**
+     * L'identifiant du i-ème membre de la source, dans l'ordre croissant des identifiants.
+     * @param index la position du membre, entre 0 et size() - 1
+     * @return l'identifiant du membre
+     */
+    int idAt(int index);
+}
@@ -0,0 +1,68 @@
+package fr.univ.modele;
+
+import java.util.Locale;
+
+/**
+ * Stratégie de choix de la table lors d'un placement automatique (voir {@link Gala#tryAddReservation(int, int)}).
+ * Chaque stratégie s'appuie sur l'index des places restantes de la catégorie : elle ne parcourt que les nombres de
+ * places possibles, jamais la liste des tables.
+ */
+public enum PlacementStrategy
+{
+    /**
+     * La table de plus petit identifiant disposant d'assez de places. Remplit la salle dans l'ordre, mais laisse des
+     * trous qu'une réservation plus grande ne pourra pas occuper.
+     */
+    FIRST_FIT
+    {
+        @Override
+        int findTable(CapacityIndex index, int seats)
+        {
+            return index.findTable(seats);
+        }
+    },
+    /**
+     * La table dont il reste le moins de places parmi celles qui en ont assez : complète les tables entamées et
+     * préserve les tables vides pour les grandes réservations.
+     */
+    BEST_FIT
+    {
+        @Override
+        int findTable(CapacityIndex index, int seats)
+        {
+            return index.findBestFit(seats);
+        }
+    },
+    /**
+     * La table dont il reste le plus de places : répartit les convives sur toutes les tables, au risque de n'en laisser
+     * aucune pour une grande réservation.
+     */
+    WORST_FIT
+    {
+        @Override
+        int findTable(CapacityIndex index, int seats)
+        {
+            return index.findWorstFit(seats);
+        }
+    };
+
+    /**
+     * Cherche une table pouvant accueillir une réservation.
+     * @param index l'index des places restantes de la catégorie
+     * @param seats le nombre de places nécessaires
+     * @return l'identifiant de la table, ou -1 si aucune table n'a assez de place
+     */
+    abstract int findTable(CapacityIndex index, int seats);
+
+    /**
+     * La stratégie par défaut des nouveaux Gala, donnée par la propriété système "gala.placement" (first-fit,
+     * best-fit ou worst-fit), premier ajustement sinon.
+     * @return la stratégie par défaut
+     * @throws IllegalArgumentException La propriété ne désigne aucune stratégie
+     */
+    public static PlacementStrategy fromProperty()
+    {
+        String name = System.getProperty("gala.placement");
+        return name == null ? FIRST_FIT : valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
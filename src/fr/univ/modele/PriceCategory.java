@@ -0,0 +1,32 @@
+package fr.univ.modele;
+
+/**
+ * Catégorie tarifaire d'un membre de l'école, qui fixe le prix de ses places (voir {@link Gala#addReservation(int, int)}).
+ */
+public enum PriceCategory
+{
+    /**
+     * Etudiant en M2 (5ème année).
+     */
+    M2,
+    /**
+     * Etudiant de la 1ère à la 4ème année.
+     */
+    LESSER_THAN_M2,
+    /**
+     * Membre du personnel.
+     */
+    STAFF;
+
+    /**
+     * La catégorie tarifaire d'un membre de l'école.
+     * @param member le membre de l'école
+     * @return sa catégorie tarifaire
+     */
+    public static PriceCategory of(SchoolMember member)
+    {
+        if(member instanceof Student student)
+            return student.getYear() == 5 ? M2 : LESSER_THAN_M2;
+        return STAFF;
+    }
+}
@@ -87,6 +87,14 @@ public class Reservation implements Serializable
         return owner;
     }
 
+    /**
+     * Date à laquelle la réservation a été faite
+     * @return Date à laquelle la réservation a été faite
+     */
+    public LocalDate getReservationDate() {
+        return reservationDate;
+    }
+
     @Override
     public String toString() {
         return "\n\033[4mNombre total de places réservées :\033[0m \033[1m" + nbrSeatsOccupied + "\033[0m\n" +
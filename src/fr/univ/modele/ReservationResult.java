@@ -0,0 +1,100 @@
+package fr.univ.modele;
+
+/**
+ * Le résultat d'une demande de réservation faite au Gala sans exception : son issue et, si elle est acceptée, la
+ * réservation enregistrée. Les résultats des refus sont partagés, un refus n'alloue donc rien.
+ */
+public final class ReservationResult
+{
+    /**
+     * Les résultats des refus, indexés par issue.
+     */
+    private static final ReservationResult[] REJECTIONS = new ReservationResult[ReservationStatus.values().length];
+
+    static
+    {
+        for(ReservationStatus status : ReservationStatus.values())
+            if(status != ReservationStatus.ACCEPTED)
+                REJECTIONS[status.ordinal()] = new ReservationResult(status, null);
+    }
+
+    /**
+     * L'issue de la demande.
+     */
+    private final ReservationStatus status;
+    /**
+     * La réservation enregistrée, null en cas de refus.
+     */
+    private final Reservation reservation;
+
+    private ReservationResult(ReservationStatus status, Reservation reservation)
+    {
+        this.status = status;
+        this.reservation = reservation;
+    }
+
+    /**
+     * Le résultat d'une réservation acceptée.
+     * @param reservation la réservation enregistrée
+     * @return le résultat
+     */
+    static ReservationResult accepted(Reservation reservation)
+    {
+        return new ReservationResult(ReservationStatus.ACCEPTED, reservation);
+    }
+
+    /**
+     * Le résultat d'un refus.
+     * @param status le motif du refus
+     * @return le résultat, partagé par tous les refus de même motif
+     */
+    static ReservationResult rejected(ReservationStatus status)
+    {
+        return REJECTIONS[status.ordinal()];
+    }
+
+    /**
+     * Retourne l'issue de la demande.
+     * @return l'issue de la demande
+     */
+    public ReservationStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Indique si la réservation a été enregistrée.
+     * @return true si la réservation est acceptée, false sinon
+     */
+    public boolean isAccepted()
+    {
+        return status == ReservationStatus.ACCEPTED;
+    }
+
+    /**
+     * Retourne la réservation enregistrée.
+     * @return la réservation, ou null si la demande a été refusée
+     */
+    public Reservation getReservation()
+    {
+        return reservation;
+    }
+
+    /**
+     * Retourne le coût total de la réservation enregistrée.
+     * @return le coût total, 0 si la demande a été refusée
+     */
+    public int getPrice()
+    {
+        return reservation == null ? 0 : reservation.getReservationPrice();
+    }
+
+    /**
+     * Retourne l'identifiant de la table de la réservation enregistrée.
+     * @return l'identifiant de la table, -1 si la demande a été refusée
+     */
+    public int getTableId()
+    {
+        return reservation == null ? -1 : reservation.getTableId();
+    }
+}
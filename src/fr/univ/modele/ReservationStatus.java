@@ -0,0 +1,74 @@
+package fr.univ.modele;
+
+/**
+ * L'issue d'une demande de réservation faite au Gala sans exception (voir {@link Gala#tryAddReservation(int, int)}).
+ * Chaque refus correspond à une des exceptions levées par {@link Gala#addReservation(int, int)}, hormis les issues de
+ * la liste d'attente (voir {@link Gala#joinWaitlist(int, int)}) et de la composition d'un groupe (voir
+ * {@link Gala#tryAddGroupReservation(java.util.List)}).
+ */
+public enum ReservationStatus
+{
+    /**
+     * La réservation est enregistrée.
+     */
+    ACCEPTED("Réservation enregistrée"),
+    /**
+     * Aucun membre de l'école n'existe pour l'identifiant donné.
+     */
+    NO_SUCH_MEMBER("La personne recherchée est introuvable"),
+    /**
+     * Le membre de l'école dispose déjà d'une réservation.
+     */
+    ALREADY_RESERVED("Vous avez déjà une reservation effectuée avec cet identifiant."),
+    /**
+     * La table choisie n'est pas destinée au type du membre de l'école.
+     */
+    TABLE_PERMISSION("Cette table n'est pas destinée à votre catégorie de membre"),
+    /**
+     * Le nombre d'accompagnants est négatif ou dépasse le maximum autorisé pour le membre de l'école.
+     */
+    ILLEGAL_ACCOMPANIST_NUMBER("Le nombre d'accompagnants est incorrect"),
+    /**
+     * La table choisie n'existe pas.
+     */
+    NO_SUCH_TABLE("La table demandée n'existe pas."),
+    /**
+     * Il ne reste pas assez de places, sur la table choisie ou sur l'ensemble des tables de la catégorie.
+     */
+    NO_SEAT_REMAINING("Aucune place restante"),
+    /**
+     * Il ne reste pas assez de places : le membre de l'école est inscrit en liste d'attente.
+     */
+    WAITLISTED("Aucune place restante : vous êtes inscrit en liste d'attente, une place vous sera attribuée dès qu'elle se libérera"),
+    /**
+     * Le membre de l'école est déjà en liste d'attente.
+     */
+    ALREADY_WAITING("Vous êtes déjà en liste d'attente"),
+    /**
+     * Un membre de l'école figure plusieurs fois dans un même groupe.
+     */
+    DUPLICATE_MEMBER("Un membre figure plusieurs fois dans le groupe"),
+    /**
+     * Un groupe mêle étudiants et membres du personnel, qui ne peuvent partager les mêmes tables.
+     */
+    MIXED_AUDIENCE("Un groupe ne peut mêler étudiants et membres du personnel");
+
+    /**
+     * Le message destiné à l'utilisateur.
+     */
+    private final String message;
+
+    ReservationStatus(String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Retourne le message décrivant l'issue de la demande, destiné à l'utilisateur.
+     * @return le message
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+}
@@ -76,4 +76,20 @@ public abstract class SchoolMember implements Serializable
     public String getFirstName() {
         return firstName;
     }
+
+    /**
+     * Retourne le numéro de téléphone du membre de l'école
+     * @return le numéro de téléphone du membre de l'école
+     */
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    /**
+     * Retourne l'adresse e-mail du membre de l'école
+     * @return l'adresse e-mail du membre de l'école
+     */
+    public String getMail() {
+        return mail;
+    }
 }
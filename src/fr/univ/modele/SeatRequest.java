@@ -0,0 +1,11 @@
+package fr.univ.modele;
+
+/**
+ * La demande de places d'un membre de l'école au sein d'un groupe (voir
+ * {@link Gala#tryAddGroupReservation(java.util.List)}).
+ * @param memberId l'identifiant du membre de l'école
+ * @param nbrAccompanist le nombre d'accompagnants du membre
+ */
+public record SeatRequest(int memberId, int nbrAccompanist)
+{
+}
@@ -0,0 +1,162 @@
+package fr.univ.modele;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instantané du plan des places de toute la salle : l'instantané de chaque table (voir {@link Table#snapshot()}), tous
+ * pris au même moment. Le Gala en publie un nouveau après chaque modification des tables (voir
+ * {@link Gala#getSeatingPlan()}) ; un instantané ne change plus, il peut donc être parcouru sans verrou, pendant que
+ * les réservations continuent, pour afficher, décrire ou exporter le plan.
+ * Les instantanés des tables sont rangés par blocs de {@link #CHUNK_SIZE} identifiants consécutifs : publier la
+ * modification d'une table ne copie que son bloc et la liste des blocs, les autres blocs étant partagés avec
+ * l'instantané précédent.
+ */
+public final class SeatingPlan
+{
+    /**
+     * Nombre de bits d'identifiant de table couverts par un bloc.
+     */
+    private static final int CHUNK_BITS = 6;
+    /**
+     * Nombre d'instantanés de tables d'un bloc.
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /**
+     * Le plan de la salle.
+     */
+    private final Venue venue;
+    /**
+     * Le plus petit identifiant de table du plan.
+     */
+    private final int firstTableId;
+    /**
+     * Le numéro de l'instantané, croissant d'une publication à la suivante.
+     */
+    private final long version;
+    /**
+     * Les blocs d'instantanés des tables, indexés par (identifiant - firstTableId) / CHUNK_SIZE. Un bloc est null tant
+     * qu'aucune de ses tables n'a été publiée.
+     */
+    private final Table.Snapshot[][] chunks;
+
+    /**
+     * Crée l'instantané vide d'un plan de salle, avant la publication de ses tables.
+     * @param venue le plan de la salle
+     */
+    SeatingPlan(Venue venue)
+    {
+        Venue.Range[] ranges = venue.ranges();
+        this.venue = venue;
+        this.firstTableId = ranges.length == 0 ? 1 : ranges[0].firstTableId;
+        this.version = 0;
+        int span = ranges.length == 0 ? 0 : ranges[ranges.length - 1].lastTableId - firstTableId + 1;
+        this.chunks = new Table.Snapshot[(span + CHUNK_SIZE - 1) >> CHUNK_BITS][];
+    }
+
+    private SeatingPlan(SeatingPlan previous, Table.Snapshot[][] chunks)
+    {
+        this.venue = previous.venue;
+        this.firstTableId = previous.firstTableId;
+        this.version = previous.version + 1;
+        this.chunks = chunks;
+    }
+
+    /**
+     * L'instantané suivant, où les tables données sont remplacées par leurs nouveaux instantanés. Les blocs qui ne
+     * contiennent aucune de ces tables sont partagés.
+     * @param snapshots les nouveaux instantanés des tables, une même table pouvant y figurer plusieurs fois (le dernier
+     * l'emporte)
+     * @param count le nombre d'instantanés à prendre en compte
+     * @return le nouvel instantané du plan
+     */
+    SeatingPlan with(Table.Snapshot[] snapshots, int count)
+    {
+        Table.Snapshot[][] copy = chunks.clone();
+        for(int i = 0; i < count; i++)
+        {
+            int position = snapshots[i].tableId() - firstTableId;
+            int chunk = position >> CHUNK_BITS;
+            if(copy[chunk] == chunks[chunk]) // not yet copied for this publication
+                copy[chunk] = chunks[chunk] == null ? new Table.Snapshot[CHUNK_SIZE] : chunks[chunk].clone();
+            copy[chunk][position & (CHUNK_SIZE - 1)] = snapshots[i];
+        }
+        return new SeatingPlan(this, copy);
+    }
+
+    /**
+     * Le numéro de l'instantané : deux instantanés de même numéro sont identiques, et un numéro plus grand désigne un
+     * état plus récent.
+     * @return le numéro de l'instantané
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Le plan de la salle.
+     * @return le plan de la salle
+     */
+    public Venue getVenue()
+    {
+        return venue;
+    }
+
+    /**
+     * L'instantané d'une table, en temps constant.
+     * @param tableId l'identifiant de la table
+     * @return l'instantané de la table, ou null si le plan ne comporte pas cette table
+     */
+    public Table.Snapshot getTable(int tableId)
+    {
+        int position = tableId - firstTableId;
+        if(position < 0 || (position >> CHUNK_BITS) >= chunks.length)
+            return null;
+        Table.Snapshot[] chunk = chunks[position >> CHUNK_BITS];
+        return chunk == null ? null : chunk[position & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Les instantanés des tables des catégories destinées à un public disposant d'un nombre minimal de places
+     * restantes, par identifiant croissant (voir {@link Gala#getTables(Venue.Audience, int)}).
+     * @param audience le public
+     * @param minSeatsRemaining le nombre minimal de places restantes, 0 pour toutes les tables
+     * @return les instantanés des tables du public ayant au moins ce nombre de places restantes
+     */
+    public List<Table.Snapshot> getTables(Venue.Audience audience, int minSeatsRemaining)
+    {
+        List<Table.Snapshot> result = new ArrayList<>();
+        for(Venue.Range range : venue.ranges())
+            if(venue.getCategories().get(range.category).getAudience() == audience)
+                for(int i = range.firstTableId; i <= range.lastTableId; ++i)
+                {
+                    Table.Snapshot table = getTable(i);
+                    if(table != null && (minSeatsRemaining <= 0 || table.seatsRemaining() >= minSeatsRemaining))
+                        result.add(table);
+                }
+
+        return result;
+    }
+
+    /**
+     * Les instantanés des tables d'une catégorie, par identifiant croissant.
+     * @param category la catégorie
+     * @return les instantanés des tables de la catégorie
+     */
+    public List<Table.Snapshot> getTables(Venue.Category category)
+    {
+        List<Table.Snapshot> result = new ArrayList<>();
+        for(Venue.Range range : venue.ranges())
+            if(range.category == category.getIndex())
+                for(int i = range.firstTableId; i <= range.lastTableId; ++i)
+                {
+                    Table.Snapshot table = getTable(i);
+                    if(table != null)
+                        result.add(table);
+                }
+
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+package fr.univ.modele;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Publie les instantanés du plan des places (voir {@link SeatingPlan}). Chaque table lui transmet son nouvel
+ * instantané à chaque modification, alors qu'elle détient son propre verrou ; un nouvel instantané du plan est alors
+ * publié. Les opérations qui modifient plusieurs tables d'un coup (réservation de groupe, réorganisation) diffèrent la
+ * publication jusqu'à leur fin, afin que les lecteurs ne voient jamais une partie seulement de l'opération.
+ * Les méthodes sont synchronisées sur le publieur, le temps de recevoir un instantané ou de publier ; la lecture du
+ * dernier instantané ne verrouille rien.
+ */
+final class SeatingPlanPublisher
+{
+    /**
+     * Le dernier instantané publié.
+     */
+    private volatile SeatingPlan plan;
+    /**
+     * Les instantanés des tables reçus et pas encore publiés, dans les nbrPending premières cases.
+     */
+    private Table.Snapshot[] pending = new Table.Snapshot[4];
+    /**
+     * Le nombre d'instantanés de tables reçus et pas encore publiés.
+     */
+    private int nbrPending;
+    /**
+     * Le nombre d'opérations en cours dont la publication est différée.
+     */
+    private int nbrDeferring;
+
+    /**
+     * Crée le publieur d'un plan de salle, sans aucune table.
+     * @param venue le plan de la salle
+     */
+    SeatingPlanPublisher(Venue venue)
+    {
+        plan = new SeatingPlan(venue);
+    }
+
+    /**
+     * Ajoute une table au plan, qui préviendra ensuite le publieur de chacun de ses changements.
+     * @param table la table à publier
+     */
+    synchronized void add(Table table)
+    {
+        table.setSeatingPlan(this);
+        update(table.snapshot());
+    }
+
+    /**
+     * Reçoit le nouvel instantané d'une table et le publie, à moins qu'une opération ne diffère la publication.
+     * @param snapshot le nouvel instantané de la table
+     */
+    synchronized void update(Table.Snapshot snapshot)
+    {
+        if(nbrPending == pending.length)
+            pending = Arrays.copyOf(pending, nbrPending << 1);
+        pending[nbrPending++] = snapshot;
+        if(nbrDeferring == 0)
+            publish();
+    }
+
+    /**
+     * Exécute une opération modifiant plusieurs tables, en différant la publication jusqu'à sa fin : le plan publié
+     * comporte alors toutes ses modifications, ou aucune. Le verrou du publieur n'est pas détenu pendant l'opération ;
+     * les modifications faites entre-temps par d'autres opérations sont publiées avec elle.
+     * @param action l'opération
+     * @param <T> le type du résultat de l'opération
+     * @return le résultat de l'opération
+     */
+    <T> T deferring(Supplier<T> action)
+    {
+        synchronized(this)
+        {
+            nbrDeferring++;
+        }
+        try
+        {
+            return action.get();
+        } finally
+        {
+            synchronized(this)
+            {
+                if(--nbrDeferring == 0)
+                    publish();
+            }
+        }
+    }
+
+    /**
+     * Le dernier instantané publié.
+     * @return le plan des places
+     */
+    SeatingPlan current()
+    {
+        return plan;
+    }
+
+    /**
+     * Publie les instantanés des tables reçus depuis la dernière publication.
+     */
+    private void publish()
+    {
+        if(nbrPending == 0)
+            return;
+        plan = plan.with(pending, nbrPending);
+        Arrays.fill(pending, 0, nbrPending, null);
+        nbrPending = 0;
+    }
+}
@@ -2,13 +2,25 @@ package fr.univ.modele;
 
 import fr.univ.exception.NoSeatRemainingException;
 import fr.univ.exception.NoSuchReservationException;
+import fr.univ.util.IntIntMap;
+import fr.univ.util.PersistentList;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Classe représetant une table du Gala. Stocke les réservations et le nombre de places restantes.
+ * Les méthodes qui modifient la table sont synchronisées sur la table : la vérification des places restantes et la
+ * prise de ces places forment une seule opération, deux réservations concurrentes ne peuvent donc pas dépasser la
+ * capacité de la table. Chaque modification publie un nouvel instantané de la table (voir {@link #snapshot()}), que
+ * les lecteurs consultent sans verrou, et émet ses événements (voir {@link GalaEvent}) sous le verrou de la table.
  */
 public class Table implements Serializable
 {
@@ -17,19 +29,53 @@ public class Table implements Serializable
      */
     @Serial
     private static final long serialVersionUID = 1L;
+    /**
+     * Forme sérialisée de la table, inchangée depuis que les réservations étaient rangées dans une ArrayList.
+     */
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("tableId", int.class),
+            new ObjectStreamField("reservations", ArrayList.class),
+            new ObjectStreamField("seatsRemaining", int.class)
+    };
 
     /**
-     * L'identifiant de la table.
+     * L'identifiant de la table. Non final : restauré par readObject.
      */
-    private final int tableId;
+    private int tableId;
     /**
-     * La liste des réservations associées à la table.
+     * La liste des réservations associées à la table. Une réservation supprimée est remplacée par la dernière de la
+     * liste, l'ordre des réservations n'est donc pas conservé. Chaque modification produit une nouvelle liste, qui
+     * partage l'essentiel de son contenu avec la précédente (voir {@link PersistentList}) : l'instantané publié la
+     * reprend telle quelle, sans copie.
      */
-    private final ArrayList<Reservation> reservations;
+    private transient PersistentList<Reservation> reservations;
+    /**
+     * La position de chaque réservation dans la liste, indexée par l'identifiant du membre à l'origine de la
+     * réservation. Reconstruit après chargement.
+     */
+    private transient IntIntMap slots;
     /**
      * Le nombre de places restantes, permettant la réalisation de nouvelles réservations (ou pas).
      */
     private int seatsRemaining;
+    /**
+     * L'index des places restantes de la catégorie de la table, prévenu à chaque changement de seatsRemaining.
+     * Reconstruit par le Gala après chargement.
+     */
+    private transient CapacityIndex capacityIndex;
+    /**
+     * Le dernier instantané publié de la table, remplacé à chaque modification. Recréé après chargement.
+     */
+    private transient volatile Snapshot published;
+    /**
+     * Le publieur du plan des places, prévenu de chaque nouvel instantané. Rattaché par le Gala après chargement.
+     */
+    private transient SeatingPlanPublisher seatingPlan;
+    /**
+     * La diffusion des changements d'état du Gala, ou null. Rattachée par le Gala après chargement.
+     */
+    private transient GalaEventHub events;
 
     /**
      * Le constructeur en charge de l'initialisation d'une instance de la classe Table.
@@ -38,8 +84,57 @@ public class Table implements Serializable
      */
     public Table(int idTable, int placesLibres){
         this.tableId = idTable;
-        this.reservations = new ArrayList<>();
+        this.reservations = PersistentList.of();
+        this.slots = new IntIntMap();
         this.seatsRemaining = placesLibres;
+        this.published = new Snapshot(idTable, 0, placesLibres, placesLibres, reservations);
+    }
+
+    /**
+     * Reconstruit l'index des positions des réservations après une désérialisation Java.
+     * @param in le flux de désérialisation
+     * @throws IOException Erreur liée aux entrées/sorties
+     * @throws ClassNotFoundException La classe d'un objet sérialisé ne peut être trouvée.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        ObjectInputStream.GetField fields = in.readFields();
+        tableId = fields.get("tableId", 0);
+        seatsRemaining = fields.get("seatsRemaining", 0);
+        if(!(fields.get("reservations", null) instanceof List<?> saved))
+            throw new InvalidObjectException("Réservations de la table " + tableId + " absentes de la sauvegarde");
+        reservations = PersistentList.of();
+        for(Object reservation : saved)
+        {
+            if(!(reservation instanceof Reservation r))
+                throw new InvalidObjectException("Réservation invalide à la table " + tableId);
+            reservations = reservations.plus(r);
+        }
+        slots = new IntIntMap(reservations.size());
+        int capacity = seatsRemaining;
+        for(int i = 0; i < reservations.size(); i++)
+        {
+            slots.put(reservations.get(i).getOwner().getId(), i);
+            capacity += reservations.get(i).getNbrSeatsOccupied();
+        }
+        published = new Snapshot(tableId, 0, capacity, seatsRemaining, reservations);
+    }
+
+    /**
+     * Sérialise le dernier instantané publié de la table, sous la forme d'origine (voir {@link #serialPersistentFields}).
+     * @param out le flux de sérialisation
+     * @throws IOException Erreur liée aux entrées/sorties
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        Snapshot snapshot = published;
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("tableId", tableId);
+        fields.put("reservations", new ArrayList<>(snapshot.reservations()));
+        fields.put("seatsRemaining", snapshot.seatsRemaining());
+        out.writeFields();
     }
 
     /**
@@ -47,14 +142,31 @@ public class Table implements Serializable
      * @param reservation Une réservation à ajouter à la table
      * @throws NoSeatRemainingException Nombre de place insuffisant pour permetre l'ajout d'une réservation
      */
-    public void addReservation(Reservation reservation) throws NoSeatRemainingException
+    public synchronized void addReservation(Reservation reservation) throws NoSeatRemainingException
     {
-        if(seatsRemaining - reservation.getNbrSeatsOccupied() < 0)
+        if(!tryAddReservation(reservation))
             throw new NoSeatRemainingException("Il n'y a plus de place disponible sur cette table");
+    }
+
+    /**
+     * Ajoute une réservation à la table si elle dispose d'assez de places, sans lever d'exception sinon.
+     * @param reservation Une réservation à ajouter à la table
+     * @return true si la réservation est ajoutée, false si le nombre de places est insuffisant
+     */
+    public synchronized boolean tryAddReservation(Reservation reservation)
+    {
+        if(seatsRemaining - reservation.getNbrSeatsOccupied() < 0)
+            return false;
 
-        seatsRemaining -= reservation.getNbrSeatsOccupied();
+        setSeatsRemaining(seatsRemaining - reservation.getNbrSeatsOccupied());
 
-        reservations.add(reservation);
+        slots.put(reservation.getOwner().getId(), reservations.size());
+        reservations = reservations.plus(reservation);
+        publish();
+        emit(GalaEvent.Type.RESERVATION_ADDED, reservation.getOwner().getId(), reservation.getNbrSeatsOccupied());
+        if(seatsRemaining == 0)
+            emit(GalaEvent.Type.TABLE_FULL, -1, 0);
+        return true;
     }
 
     /**
@@ -62,17 +174,119 @@ public class Table implements Serializable
      * @param memberId L'identifiant du membre de l'école à l'origine de la réservation
      * @throws NoSuchReservationException La réservation à supprimer n'existe pas
      */
-    public void removeReservation(int memberId) throws NoSuchReservationException
+    public synchronized void removeReservation(int memberId) throws NoSuchReservationException
     {
-        for(int i = 0; i < reservations.size(); i++)
-            if( reservations.get(i).getOwner().getId() == memberId )
-            {
-                seatsRemaining += reservations.get(i).getNbrSeatsOccupied();
-                reservations.remove(i);
-                return;
-            }
+        int slot = slots.remove(memberId, -1);
+        if(slot < 0)
+            throw new NoSuchReservationException("La réservation n'existe pas");
+
+        boolean wasFull = seatsRemaining == 0;
+        int nbrSeats = reservations.get(slot).getNbrSeatsOccupied();
+        setSeatsRemaining(seatsRemaining + nbrSeats);
 
-        throw new NoSuchReservationException("La réservation n'existe pas");
+        // Move the last reservation into the freed slot rather than shifting the whole list
+        Reservation last = reservations.get(reservations.size() - 1);
+        reservations = reservations.withoutLast();
+        if(slot < reservations.size())
+        {
+            reservations = reservations.with(slot, last);
+            slots.put(last.getOwner().getId(), slot);
+        }
+        publish();
+        emit(GalaEvent.Type.RESERVATION_REMOVED, memberId, nbrSeats);
+        if(wasFull)
+            emit(GalaEvent.Type.TABLE_FREED, -1, seatsRemaining);
+    }
+
+    /**
+     * Retire toutes les réservations de la table, qui retrouve toutes ses places.
+     */
+    synchronized void clearReservations()
+    {
+        int capacity = getCapacity();
+        boolean wasFull = seatsRemaining == 0;
+        List<Reservation> removed = reservations;
+        reservations = PersistentList.of();
+        slots = new IntIntMap();
+        setSeatsRemaining(capacity);
+        publish();
+        for(Reservation reservation : removed)
+            emit(GalaEvent.Type.RESERVATION_REMOVED, reservation.getOwner().getId(), reservation.getNbrSeatsOccupied());
+        if(wasFull && capacity > 0)
+            emit(GalaEvent.Type.TABLE_FREED, -1, seatsRemaining);
+    }
+
+    /**
+     * Indique si un membre de l'école dispose d'une réservation à cette table.
+     * @param memberId L'identifiant du membre de l'école
+     * @return vrai si le membre a réservé à cette table, faux sinon
+     */
+    public synchronized boolean hasReservation(int memberId)
+    {
+        return slots.containsKey(memberId);
+    }
+
+    /**
+     * Modifie le nombre de places restantes et en informe l'index des places restantes.
+     * @param seats le nouveau nombre de places restantes
+     */
+    private void setSeatsRemaining(int seats)
+    {
+        if(capacityIndex != null)
+            capacityIndex.update(tableId, seatsRemaining, seats);
+        seatsRemaining = seats;
+    }
+
+    /**
+     * Publie l'instantané de la table qui vient d'être modifiée, puis en informe le publieur du plan des places. La
+     * liste des réservations n'étant jamais modifiée en place, l'instantané la reprend sans la copier.
+     */
+    private void publish()
+    {
+        Snapshot snapshot = new Snapshot(tableId, published.version() + 1, published.capacity(), seatsRemaining,
+                                         reservations);
+        published = snapshot;
+        if(seatingPlan != null)
+            seatingPlan.update(snapshot);
+    }
+
+    /**
+     * Emet un changement d'état de la table, s'il y a des abonnés.
+     * @param type la nature du changement
+     * @param memberId l'identifiant du membre concerné, -1 pour un événement de table
+     * @param nbrSeats le nombre de places de la réservation, ou de places restantes pour un événement de table
+     */
+    private void emit(GalaEvent.Type type, int memberId, int nbrSeats)
+    {
+        if(events != null)
+            events.emit(type, memberId, tableId, nbrSeats);
+    }
+
+    /**
+     * Rattache la table à la diffusion des changements d'état du Gala.
+     * @param events la diffusion
+     */
+    void setEvents(GalaEventHub events)
+    {
+        this.events = events;
+    }
+
+    /**
+     * Rattache la table au publieur du plan des places.
+     * @param seatingPlan le publieur
+     */
+    void setSeatingPlan(SeatingPlanPublisher seatingPlan)
+    {
+        this.seatingPlan = seatingPlan;
+    }
+
+    /**
+     * Rattache la table à l'index des places restantes de sa catégorie.
+     * @param capacityIndex l'index
+     */
+    void setCapacityIndex(CapacityIndex capacityIndex)
+    {
+        this.capacityIndex = capacityIndex;
     }
 
     /**
@@ -85,20 +299,51 @@ public class Table implements Serializable
     }
 
     /**
-     * Retourne la liste des réservations associées à la table
+     * Retourne la liste des réservations associées à la table, dans un ordre quelconque, sans verrou. La liste est celle
+     * du dernier instantané publié : non modifiable, elle reste cohérente même si la table est modifiée pendant son
+     * parcours.
      * @return la liste des réservations associées à la table
      */
-    public ArrayList<Reservation> getReservations()
+    public List<Reservation> getReservations()
+    {
+        return published.reservations();
+    }
+
+    /**
+     * Retourne le dernier instantané publié de la table, sans verrou : son nombre de places et ses réservations, tels
+     * qu'à la fin d'une même modification. L'instantané ne change plus, même si la table est modifiée ensuite.
+     * @return l'instantané de la table
+     */
+    public Snapshot snapshot()
+    {
+        return published;
+    }
+
+    /**
+     * Instantané d'une table (voir {@link #snapshot()}).
+     * @param tableId l'identifiant de la table
+     * @param version le numéro de l'instantané, augmenté à chaque modification de la table depuis son chargement
+     * @param capacity le nombre total de places autour de la table
+     * @param seatsRemaining le nombre de places restantes
+     * @param reservations les réservations de la table, dans un ordre quelconque
+     */
+    public record Snapshot(int tableId, long version, int capacity, int seatsRemaining, List<Reservation> reservations) {}
+
+    /**
+     * Le nombre total de places autour de la table, qu'elles soient occupées ou non.
+     * @return Le nombre total de places autour de la table
+     */
+    public int getCapacity()
     {
-        return reservations;
+        return published.capacity();
     }
 
     /**
-     * Le nombre de places encore restantes
+     * Le nombre de places encore restantes, sans verrou : sous le verrou de la table, c'est aussi le nombre exact.
      * @return Le nombre de places encore restantes
      */
     public int getSeatsRemaining()
     {
-        return seatsRemaining;
+        return published.seatsRemaining();
     }
 }
@@ -0,0 +1,413 @@
+package fr.univ.modele;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Plan de la salle du Gala : les catégories de tables et, pour chacune, des plages d'identifiants de tables de même
+ * capacité. Chaque catégorie est destinée à un public (étudiants ou personnel) ; un public peut disposer de plusieurs
+ * catégories (plusieurs salles par exemple), remplies dans l'ordre de leur déclaration lors d'un placement automatique.
+ * La catégorie d'une table est retrouvée en temps constant grâce à un tableau indexé par identifiant de table, de deux
+ * octets par table : les identifiants doivent donc rester à peu près contigus. Un plan est immuable.
+ */
+public final class Venue implements Serializable
+{
+    /**
+     * Constante nécessaire afin de permettre la sérialisation de la classe Gala.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Nombre maximal de catégories, limité par le tableau des catégories de chaque table.
+     */
+    public static final int MAX_CATEGORIES = Short.MAX_VALUE;
+    /**
+     * Ecart maximal entre le plus petit et le plus grand identifiant de table.
+     */
+    public static final int MAX_TABLE_SPAN = 1 << 24;
+
+    /**
+     * Le public auquel une catégorie de tables est destinée.
+     */
+    public enum Audience
+    {
+        STUDENT, STAFF;
+
+        /**
+         * Indique si un membre de l'école fait partie de ce public.
+         * @param member le membre de l'école
+         * @return true si le membre peut réserver les tables de ce public, false sinon
+         */
+        public boolean admits(SchoolMember member)
+        {
+            return this == STAFF ? member instanceof Staff : member instanceof Student;
+        }
+
+        /**
+         * Le public dont fait partie un membre de l'école.
+         * @param member le membre de l'école
+         * @return le public du membre
+         */
+        public static Audience of(SchoolMember member)
+        {
+            return member instanceof Staff ? STAFF : STUDENT;
+        }
+    }
+
+    /**
+     * Une catégorie de tables.
+     */
+    public static final class Category implements Serializable
+    {
+        /**
+         * Constante nécessaire afin de permettre la sérialisation de la classe Gala.
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * La position de la catégorie dans le plan, dans l'ordre de déclaration.
+         */
+        private final int index;
+        /**
+         * Le nom de la catégorie, unique dans le plan.
+         */
+        private final String name;
+        /**
+         * Le public auquel les tables de la catégorie sont destinées.
+         */
+        private final Audience audience;
+
+        /**
+         * Constructeur en charge d'initialiser une catégorie.
+         * @param index la position de la catégorie dans le plan
+         * @param name le nom de la catégorie
+         * @param audience le public de la catégorie
+         */
+        private Category(int index, String name, Audience audience)
+        {
+            this.index = index;
+            this.name = name;
+            this.audience = audience;
+        }
+
+        /**
+         * Retourne la position de la catégorie dans le plan, dans l'ordre de déclaration.
+         * @return la position de la catégorie
+         */
+        public int getIndex()
+        {
+            return index;
+        }
+
+        /**
+         * Retourne le nom de la catégorie.
+         * @return le nom de la catégorie
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Retourne le public auquel les tables de la catégorie sont destinées.
+         * @return le public de la catégorie
+         */
+        public Audience getAudience()
+        {
+            return audience;
+        }
+    }
+
+    /**
+     * Une plage d'identifiants de tables consécutifs, d'une même catégorie et d'une même capacité.
+     */
+    static final class Range implements Serializable
+    {
+        /**
+         * Constante nécessaire afin de permettre la sérialisation de la classe Gala.
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * La position de la catégorie des tables de la plage.
+         */
+        final int category;
+        /**
+         * L'identifiant de la première table de la plage.
+         */
+        final int firstTableId;
+        /**
+         * L'identifiant de la dernière table de la plage, inclus.
+         */
+        final int lastTableId;
+        /**
+         * Le nombre de places autour de chaque table de la plage.
+         */
+        final int capacity;
+
+        /**
+         * Constructeur en charge d'initialiser une plage de tables.
+         * @param category la position de la catégorie des tables
+         * @param firstTableId l'identifiant de la première table
+         * @param lastTableId l'identifiant de la dernière table, inclus
+         * @param capacity le nombre de places autour de chaque table
+         */
+        private Range(int category, int firstTableId, int lastTableId, int capacity)
+        {
+            this.category = category;
+            this.firstTableId = firstTableId;
+            this.lastTableId = lastTableId;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * Les catégories, dans l'ordre de déclaration.
+     */
+    private final List<Category> categories;
+    /**
+     * Les plages de tables, par premier identifiant croissant.
+     */
+    private final Range[] ranges;
+    /**
+     * Le plus petit identifiant de table.
+     */
+    private final int firstTableId;
+    /**
+     * La position de la catégorie de chaque table, indexée par (identifiant - firstTableId), -1 pour un identifiant
+     * sans table. Reconstruit après chargement.
+     */
+    private transient short[] categoryOf;
+    /**
+     * Les positions des catégories de chaque public, dans l'ordre de déclaration. Reconstruit après chargement.
+     */
+    private transient int[][] categoriesOf;
+
+    /**
+     * Constructeur en charge d'initialiser un plan de salle, utilisé par {@link Builder}.
+     * @param categories les catégories, dans l'ordre de déclaration
+     * @param ranges les plages de tables, par premier identifiant croissant, sans chevauchement
+     */
+    private Venue(List<Category> categories, Range[] ranges)
+    {
+        this.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+        this.ranges = ranges;
+        this.firstTableId = ranges.length == 0 ? 1 : ranges[0].firstTableId;
+        createLookups();
+    }
+
+    /**
+     * Le plan historique du Gala : 15 tables de 8 places pour les étudiants (1 à 15) puis 10 tables de 8 places pour
+     * le personnel (16 à 25).
+     * @return le plan par défaut
+     */
+    public static Venue defaultLayout()
+    {
+        return new Builder()
+                .addTables("student", Audience.STUDENT, 1, 15, 8)
+                .addTables("staff", Audience.STAFF, 16, 25, 8)
+                .build();
+    }
+
+    /**
+     * Reconstruit les tableaux de recherche après une désérialisation Java.
+     * @param in le flux de désérialisation
+     * @throws IOException Erreur liée aux entrées/sorties
+     * @throws ClassNotFoundException La classe d'un objet sérialisé ne peut être trouvée.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        createLookups();
+    }
+
+    /**
+     * Construit les tableaux de recherche des catégories par table et par public.
+     */
+    private void createLookups()
+    {
+        // the ranges are sorted and disjoint, the last one ends with the greatest identifier
+        int span = ranges.length == 0 ? 0 : ranges[ranges.length - 1].lastTableId - firstTableId + 1;
+        categoryOf = new short[span];
+        Arrays.fill(categoryOf, (short)-1);
+        for(Range range : ranges)
+            Arrays.fill(categoryOf, range.firstTableId - firstTableId, range.lastTableId - firstTableId + 1,
+                        (short)range.category);
+
+        categoriesOf = new int[Audience.values().length][];
+        for(Audience audience : Audience.values())
+            categoriesOf[audience.ordinal()] = categories.stream().filter(c -> c.audience == audience)
+                                                         .mapToInt(Category::getIndex).toArray();
+    }
+
+    /**
+     * Retrouve la position de la catégorie d'une table, en temps constant.
+     * @param tableId l'identifiant de la table
+     * @return la position de la catégorie, ou -1 si le plan ne comporte pas cette table
+     */
+    public int categoryOf(int tableId)
+    {
+        int position = tableId - firstTableId;
+        return position >= 0 && position < categoryOf.length ? categoryOf[position] : -1;
+    }
+
+    /**
+     * Retrouve la catégorie d'une table, en temps constant.
+     * @param tableId l'identifiant de la table
+     * @return la catégorie, ou null si le plan ne comporte pas cette table
+     */
+    public Category getCategory(int tableId)
+    {
+        int category = categoryOf(tableId);
+        return category < 0 ? null : categories.get(category);
+    }
+
+    /**
+     * Retourne les catégories, dans l'ordre de déclaration.
+     * @return les catégories
+     */
+    public List<Category> getCategories()
+    {
+        return categories;
+    }
+
+    /**
+     * Retourne les positions des catégories destinées à un public, dans l'ordre de déclaration.
+     * @param audience le public
+     * @return les positions des catégories, à ne pas modifier
+     */
+    int[] categoriesOf(Audience audience)
+    {
+        return categoriesOf[audience.ordinal()];
+    }
+
+    /**
+     * Retourne les plages de tables, par premier identifiant croissant.
+     * @return les plages, à ne pas modifier
+     */
+    Range[] ranges()
+    {
+        return ranges;
+    }
+
+    /**
+     * Le nombre de tables du plan.
+     * @return le nombre de tables
+     */
+    public int getNbrTables()
+    {
+        int nbrTables = 0;
+        for(Range range : ranges)
+            nbrTables += range.lastTableId - range.firstTableId + 1;
+        return nbrTables;
+    }
+
+    /**
+     * Le plus petit identifiant de table d'une catégorie.
+     * @param category la position de la catégorie
+     * @return le plus petit identifiant, ou le premier identifiant du plan si la catégorie n'a pas de table
+     */
+    int firstTableId(int category)
+    {
+        for(Range range : ranges)
+            if(range.category == category)
+                return range.firstTableId;
+        return firstTableId;
+    }
+
+    /**
+     * La plus grande capacité d'une table de la catégorie.
+     * @param category la position de la catégorie
+     * @return la plus grande capacité, 0 si la catégorie n'a pas de table
+     */
+    int maxCapacity(int category)
+    {
+        int max = 0;
+        for(Range range : ranges)
+            if(range.category == category)
+                max = Math.max(max, range.capacity);
+        return max;
+    }
+
+    /**
+     * Construit un plan de salle, plage de tables par plage de tables.
+     */
+    public static final class Builder
+    {
+        /**
+         * Les catégories mentionnées jusqu'ici, dans l'ordre de leur première mention.
+         */
+        private final List<Category> categories = new ArrayList<>();
+        /**
+         * Les plages de tables ajoutées jusqu'ici, dans l'ordre d'ajout.
+         */
+        private final List<Range> ranges = new ArrayList<>();
+
+        /**
+         * Ajoute une plage de tables consécutives à une catégorie, créée à sa première mention.
+         * @param category le nom de la catégorie
+         * @param audience le public de la catégorie, qui doit être le même à chaque mention
+         * @param firstTableId l'identifiant de la première table de la plage
+         * @param lastTableId l'identifiant de la dernière table de la plage, inclus
+         * @param capacity le nombre de places autour de chaque table de la plage
+         * @return ce constructeur
+         * @throws IllegalArgumentException La plage est vide, la capacité n'est pas positive ou la catégorie existe
+         * déjà pour un autre public
+         */
+        public Builder addTables(String category, Audience audience, int firstTableId, int lastTableId, int capacity)
+        {
+            if(firstTableId < 1 || lastTableId < firstTableId)
+                throw new IllegalArgumentException("Plage de tables invalide : " + firstTableId + "-" + lastTableId);
+            if(capacity < 1 || capacity > Short.MAX_VALUE)
+                throw new IllegalArgumentException("Capacité de table invalide : " + capacity);
+
+            Category existing = null;
+            for(Category c : categories)
+                if(c.name.equals(category))
+                    existing = c;
+            if(existing == null)
+            {
+                if(categories.size() == MAX_CATEGORIES)
+                    throw new IllegalArgumentException("Trop de catégories de tables");
+                existing = new Category(categories.size(), category, audience);
+                categories.add(existing);
+            }
+            else if(existing.audience != audience)
+                throw new IllegalArgumentException("La catégorie " + category + " est déjà destinée au public " +
+                                                   existing.audience);
+
+            ranges.add(new Range(existing.index, firstTableId, lastTableId, capacity));
+            return this;
+        }
+
+        /**
+         * Construit le plan.
+         * @return le plan de salle
+         * @throws IllegalArgumentException Deux plages se chevauchent, ou les identifiants sont trop dispersés
+         */
+        public Venue build()
+        {
+            Range[] sorted = ranges.toArray(new Range[0]);
+            Arrays.sort(sorted, Comparator.comparingInt(r -> r.firstTableId));
+            for(int i = 1; i < sorted.length; i++)
+                if(sorted[i].firstTableId <= sorted[i - 1].lastTableId)
+                    throw new IllegalArgumentException("La table " + sorted[i].firstTableId +
+                                                       " appartient à plusieurs plages");
+            if(sorted.length > 0 && (long)sorted[sorted.length - 1].lastTableId - sorted[0].firstTableId >= MAX_TABLE_SPAN)
+                throw new IllegalArgumentException("Les identifiants de tables sont trop dispersés");
+
+            return new Venue(categories, sorted);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package fr.univ.modele;
+
+import fr.univ.util.IntHeap;
+import fr.univ.util.IntIntMap;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Liste d'attente d'une catégorie de tables : les membres de l'école qui n'ont pas trouvé de place, rangés par priorité
+ * (voir {@link Gala#joinWaitlist(int, int)}). Les demandes sont réparties dans une file de priorité par nombre de places
+ * demandées : lorsqu'une table libère r places, la demande la plus prioritaire tenant dans r places est la meilleure
+ * des têtes des files 1 à r. La trouver ne demande donc qu'une comparaison par nombre de places possible, et la retirer
+ * O(log n), sans parcourir la liste ni les tables.
+ * Les méthodes sont synchronisées sur la liste, qui n'est jamais verrouillée en même temps qu'une table.
+ */
+final class Waitlist implements Serializable
+{
+    /**
+     * Constante nécessaire afin de permettre la sérialisation de la classe Gala.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Les demandes, réparties par nombre de places demandées (indice 0 inutilisé).
+     */
+    private final IntHeap[] queues;
+    /**
+     * Le nombre de places demandées par chaque membre en attente.
+     */
+    private final IntIntMap seats;
+
+    /**
+     * Crée une liste d'attente vide.
+     * @param maxSeats le nombre de places maximal autour d'une table de la catégorie : une demande plus grande ne
+     * pourra jamais être servie
+     */
+    Waitlist(int maxSeats)
+    {
+        queues = new IntHeap[maxSeats + 1];
+        for(int r = 1; r < queues.length; r++)
+            queues[r] = new IntHeap();
+        seats = new IntIntMap();
+    }
+
+    /**
+     * Indique si une demande de ce nombre de places peut un jour être servie par une table de la catégorie.
+     * @param nbrSeats le nombre de places demandées
+     * @return true si une table de la catégorie est assez grande
+     */
+    boolean accepts(int nbrSeats)
+    {
+        return nbrSeats >= 1 && nbrSeats < queues.length;
+    }
+
+    /**
+     * Ajoute un membre à la liste d'attente.
+     * @param memberId l'identifiant du membre
+     * @param nbrSeats le nombre de places demandées, accompagnants compris (voir {@link #accepts(int)})
+     * @param priority la priorité de la demande, la plus petite étant servie en premier
+     * @return true si le membre a été ajouté, false s'il attendait déjà
+     */
+    synchronized boolean add(int memberId, int nbrSeats, long priority)
+    {
+        if(seats.containsKey(memberId))
+            return false;
+
+        queues[nbrSeats].add(memberId, priority);
+        seats.put(memberId, nbrSeats);
+        return true;
+    }
+
+    /**
+     * Retire un membre de la liste d'attente.
+     * @param memberId l'identifiant du membre
+     * @return true si le membre a été retiré, false s'il n'attendait pas
+     */
+    synchronized boolean remove(int memberId)
+    {
+        int nbrSeats = seats.remove(memberId, -1);
+        if(nbrSeats < 0)
+            return false;
+
+        queues[nbrSeats].remove(memberId);
+        return true;
+    }
+
+    /**
+     * Cherche la demande la plus prioritaire pouvant être servie avec un nombre de places donné, sans la retirer.
+     * @param seatsRemaining le nombre de places disponibles
+     * @return l'identifiant du membre, ou -1 si aucune demande ne tient dans ces places
+     */
+    synchronized int peek(int seatsRemaining)
+    {
+        int best = -1;
+        long bestPriority = Long.MAX_VALUE;
+        for(int r = 1; r <= seatsRemaining && r < queues.length; r++)
+        {
+            if(queues[r].peekPriority() < bestPriority)
+            {
+                best = queues[r].peek();
+                bestPriority = queues[r].peekPriority();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Le nombre de places demandées par un membre en attente.
+     * @param memberId l'identifiant du membre
+     * @return le nombre de places, ou -1 si le membre n'attend pas
+     */
+    synchronized int seatsOf(int memberId)
+    {
+        return seats.get(memberId, -1);
+    }
+
+    /**
+     * La priorité de la demande d'un membre en attente.
+     * @param memberId l'identifiant du membre
+     * @return la priorité, ou -1 si le membre n'attend pas
+     */
+    synchronized long priorityOf(int memberId)
+    {
+        int nbrSeats = seats.get(memberId, -1);
+        return nbrSeats < 0 ? -1 : queues[nbrSeats].priority(memberId, -1);
+    }
+
+    /**
+     * Le nombre de membres en attente.
+     * @return le nombre de membres en attente
+     */
+    synchronized int size()
+    {
+        return seats.size();
+    }
+}
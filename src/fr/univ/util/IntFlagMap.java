@@ -0,0 +1,298 @@
+package fr.univ.util;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Associe à des clés entières un petit ensemble d'indicateurs (jusqu'à 8 bits), et tient à jour le nombre de clés
+ * portant chaque indicateur. Une seule table à adressage ouvert (un int et un octet par clé) remplace ainsi plusieurs
+ * ensembles séparés : chaque transition ne modifie qu'une case, et chaque comptage est immédiat.
+ * Une clé dont tous les indicateurs sont retirés disparaît de la table.
+ */
+public class IntFlagMap implements Serializable
+{
+    /**
+     * Version de la forme sérialisée : les tableaux des clés et des indicateurs tels quels (cases libres comprises), les
+     * indicateurs de la clé 0, le nombre de cases occupées, le seuil d'agrandissement et le nombre de clés portant chaque
+     * indicateur.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Taux de remplissage au-delà duquel la table est agrandie.
+     */
+    private static final float CHARGE_MAX = 0.6f;
+    /**
+     * Nombre d'indicateurs supportés.
+     */
+    private static final int NBR_FLAGS = 8;
+
+    /**
+     * Les clés. 0 marque une case libre, les indicateurs de la clé 0 sont donc stockés à part.
+     */
+    private int[] keys;
+    /**
+     * Les indicateurs, à la même position que leur clé. Jamais nuls pour une case occupée.
+     */
+    private byte[] flags;
+    /**
+     * Les indicateurs de la clé 0.
+     */
+    private byte zeroFlags;
+    /**
+     * Le nombre de cases occupées (hors clé 0).
+     */
+    private int used;
+    /**
+     * Le nombre de cases occupées au-delà duquel la table est agrandie.
+     */
+    private int threshold;
+    /**
+     * Le nombre de clés portant chaque indicateur.
+     */
+    private final int[] counts = new int[NBR_FLAGS];
+
+    /**
+     * Crée une table vide.
+     */
+    public IntFlagMap()
+    {
+        this(16);
+    }
+
+    /**
+     * Crée une table vide, dimensionnée pour recevoir le nombre de clés donné sans être agrandie.
+     * @param expectedSize le nombre de clés attendu
+     */
+    public IntFlagMap(int expectedSize)
+    {
+        allocate(IntMap.capacityFor(expectedSize));
+    }
+
+    /**
+     * Les indicateurs d'une clé.
+     * @param key la clé
+     * @return les indicateurs, 0 si la clé est absente
+     */
+    public int get(int key)
+    {
+        if(key == 0)
+            return zeroFlags & 0xFF;
+
+        int i = find(key);
+        return i < 0 ? 0 : flags[i] & 0xFF;
+    }
+
+    /**
+     * Indique si une clé porte un indicateur.
+     * @param key la clé
+     * @param flag l'indicateur (un seul bit)
+     * @return true si la clé porte l'indicateur
+     */
+    public boolean has(int key, int flag)
+    {
+        return (get(key) & flag) != 0;
+    }
+
+    /**
+     * Ajoute un indicateur à une clé.
+     * @param key la clé
+     * @param flag l'indicateur (un seul bit)
+     * @return true si l'indicateur a été ajouté, false si la clé le portait déjà
+     */
+    public boolean set(int key, int flag)
+    {
+        return update(key, 0, flag);
+    }
+
+    /**
+     * Retire un indicateur d'une clé.
+     * @param key la clé
+     * @param flag l'indicateur (un seul bit)
+     * @return true si l'indicateur a été retiré, false si la clé ne le portait pas
+     */
+    public boolean clear(int key, int flag)
+    {
+        return update(key, flag, 0);
+    }
+
+    /**
+     * Remplace un indicateur par un autre, uniquement si la clé porte le premier.
+     * @param key la clé
+     * @param from l'indicateur à retirer (un seul bit)
+     * @param to l'indicateur à ajouter (un seul bit)
+     * @return true si la transition a eu lieu, false si la clé ne portait pas l'indicateur from
+     */
+    public boolean transition(int key, int from, int to)
+    {
+        return update(key, from, to);
+    }
+
+    /**
+     * Le nombre de clés portant un indicateur.
+     * @param flag l'indicateur (un seul bit)
+     * @return le nombre de clés
+     */
+    public int count(int flag)
+    {
+        return counts[Integer.numberOfTrailingZeros(flag)];
+    }
+
+    /**
+     * Les clés portant un indicateur, dans un ordre quelconque.
+     * @param flag l'indicateur (un seul bit)
+     * @return une copie des clés
+     */
+    public int[] keysWith(int flag)
+    {
+        int[] result = new int[count(flag)];
+        int n = 0;
+        if((zeroFlags & flag) != 0)
+            result[n++] = 0;
+        for(int i = 0; i < keys.length; i++)
+            if(keys[i] != 0 && (flags[i] & flag) != 0)
+                result[n++] = keys[i];
+        return result;
+    }
+
+    /**
+     * Retire l'indicateur required et ajoute l'indicateur added, si la clé porte required (ou si required vaut 0).
+     * @param key la clé
+     * @param required l'indicateur devant être porté, puis retiré, ou 0
+     * @param added l'indicateur à ajouter, ou 0
+     * @return true si les indicateurs ont changé
+     */
+    private boolean update(int key, int required, int added)
+    {
+        int i = key == 0 ? -1 : find(key);
+        int before = (key == 0 ? zeroFlags : (i < 0 ? 0 : flags[i])) & 0xFF;
+
+        if(required != 0 && (before & required) == 0)
+            return false;
+        int after = (before & ~required) | added;
+        if(after == before)
+            return false;
+
+        count(before, after);
+        if(key == 0)
+            zeroFlags = (byte)after;
+        else if(i >= 0 && after != 0)
+            flags[i] = (byte)after;
+        else if(i >= 0)
+            shiftBack(i);
+        else
+            insert(key, after);
+        return true;
+    }
+
+    /**
+     * Met à jour les compteurs d'indicateurs après une modification.
+     * @param before les indicateurs avant
+     * @param after les indicateurs après
+     */
+    private void count(int before, int after)
+    {
+        int changed = before ^ after;
+        while(changed != 0)
+        {
+            int bit = Integer.numberOfTrailingZeros(changed);
+            counts[bit] += (after & (1 << bit)) != 0 ? 1 : -1;
+            changed &= changed - 1;
+        }
+    }
+
+    /**
+     * La position d'une clé non nulle.
+     * @param key la clé
+     * @return sa position, ou -1 si elle est absente
+     */
+    private int find(int key)
+    {
+        int mask = keys.length - 1;
+        for(int i = IntMap.hash(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+            if(keys[i] == key)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Insère une clé non nulle absente de la table.
+     * @param key la clé
+     * @param value ses indicateurs, non nuls
+     */
+    private void insert(int key, int value)
+    {
+        int mask = keys.length - 1;
+        int i = IntMap.hash(key) & mask;
+        while(keys[i] != 0)
+            i = (i + 1) & mask;
+        keys[i] = key;
+        flags[i] = (byte)value;
+        if(++used > threshold)
+            rehash(keys.length << 1);
+    }
+
+    /**
+     * Libère une case en ramenant vers elle les clés suivantes de la même grappe (suppression sans marqueur).
+     * @param free la case à libérer
+     */
+    private void shiftBack(int free)
+    {
+        int mask = keys.length - 1;
+        int i = free;
+        while(true)
+        {
+            i = (i + 1) & mask;
+            int key = keys[i];
+            if(key == 0)
+                break;
+            int home = IntMap.hash(key) & mask;
+            if(free <= i ? (home <= free || home > i) : (home <= free && home > i))
+            {
+                keys[free] = key;
+                flags[free] = flags[i];
+                free = i;
+            }
+        }
+        keys[free] = 0;
+        flags[free] = 0;
+        used--;
+    }
+
+    /**
+     * Agrandit la table et y replace toutes les clés.
+     * @param capacity la nouvelle capacité, puissance de 2
+     */
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = keys;
+        byte[] oldFlags = flags;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for(int j = 0; j < oldKeys.length; j++)
+        {
+            if(oldKeys[j] == 0)
+                continue;
+            int i = IntMap.hash(oldKeys[j]) & mask;
+            while(keys[i] != 0)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            flags[i] = oldFlags[j];
+            used++;
+        }
+    }
+
+    /**
+     * Alloue une table vide de la capacité donnée.
+     * @param capacity la capacité, puissance de 2
+     */
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        flags = new byte[capacity];
+        used = 0;
+        threshold = (int)(capacity * CHARGE_MAX);
+    }
+}
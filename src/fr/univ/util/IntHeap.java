@@ -0,0 +1,230 @@
+package fr.univ.util;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * File de priorité indexée d'identifiants entiers : un tas binaire minimum, stocké dans deux tableaux parallèles
+ * (identifiants et priorités de type long), doublé d'une {@link IntIntMap} donnant la position de chaque identifiant
+ * dans le tas. Ajouter, retirer n'importe quel identifiant ou extraire le plus prioritaire coûte O(log n), sans aucun
+ * objet par élément. Un identifiant ne figure qu'une fois dans la file. A priorité égale, l'ordre d'extraction n'est
+ * pas défini : l'appelant rend ses priorités uniques s'il a besoin d'un ordre total.
+ */
+public class IntHeap implements Serializable
+{
+    /**
+     * Version de la forme sérialisée : les identifiants et les priorités dans l'ordre du tas, l'index des positions et le
+     * nombre d'éléments.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Les identifiants, dans l'ordre du tas : le plus prioritaire en position 0.
+     */
+    private int[] ids;
+    /**
+     * Les priorités, à la même position que leur identifiant. La plus petite est la plus prioritaire.
+     */
+    private long[] priorities;
+    /**
+     * La position de chaque identifiant dans le tas.
+     */
+    private final IntIntMap positions;
+    /**
+     * Le nombre d'éléments.
+     */
+    private int size;
+
+    /**
+     * Crée une file vide.
+     */
+    public IntHeap()
+    {
+        this(16);
+    }
+
+    /**
+     * Crée une file vide, dimensionnée pour recevoir le nombre d'éléments donné sans être agrandie.
+     * @param expectedSize le nombre d'éléments attendu
+     */
+    public IntHeap(int expectedSize)
+    {
+        int capacity = Math.max(expectedSize, 4);
+        ids = new int[capacity];
+        priorities = new long[capacity];
+        positions = new IntIntMap(expectedSize);
+    }
+
+    /**
+     * Ajoute un identifiant à la file.
+     * @param id l'identifiant
+     * @param priority sa priorité, la plus petite étant servie en premier
+     * @return true si l'identifiant a été ajouté, false s'il figurait déjà dans la file
+     */
+    public boolean add(int id, long priority)
+    {
+        if(positions.containsKey(id))
+            return false;
+
+        if(size == ids.length)
+        {
+            ids = Arrays.copyOf(ids, size << 1);
+            priorities = Arrays.copyOf(priorities, size << 1);
+        }
+        siftUp(size++, id, priority);
+        return true;
+    }
+
+    /**
+     * Retire un identifiant de la file, quelle que soit sa position.
+     * @param id l'identifiant
+     * @return true si l'identifiant a été retiré, false s'il ne figurait pas dans la file
+     */
+    public boolean remove(int id)
+    {
+        int i = positions.remove(id, -1);
+        if(i < 0)
+            return false;
+
+        // Move the last element into the hole, then restore the heap in whichever direction it breaks
+        int lastId = ids[--size];
+        long lastPriority = priorities[size];
+        if(i < size)
+        {
+            if(i > 0 && lastPriority < priorities[(i - 1) >>> 1])
+                siftUp(i, lastId, lastPriority);
+            else
+                siftDown(i, lastId, lastPriority);
+        }
+        return true;
+    }
+
+    /**
+     * Retire et retourne l'identifiant le plus prioritaire.
+     * @return l'identifiant, ou -1 si la file est vide
+     */
+    public int poll()
+    {
+        if(size == 0)
+            return -1;
+
+        int id = ids[0];
+        remove(id);
+        return id;
+    }
+
+    /**
+     * Retourne l'identifiant le plus prioritaire, sans le retirer.
+     * @return l'identifiant, ou -1 si la file est vide
+     */
+    public int peek()
+    {
+        return size == 0 ? -1 : ids[0];
+    }
+
+    /**
+     * Retourne la priorité de l'identifiant le plus prioritaire.
+     * @return la priorité, ou Long.MAX_VALUE si la file est vide
+     */
+    public long peekPriority()
+    {
+        return size == 0 ? Long.MAX_VALUE : priorities[0];
+    }
+
+    /**
+     * Indique si un identifiant figure dans la file.
+     * @param id l'identifiant
+     * @return true si l'identifiant figure dans la file
+     */
+    public boolean contains(int id)
+    {
+        return positions.containsKey(id);
+    }
+
+    /**
+     * Retourne la priorité d'un identifiant.
+     * @param id l'identifiant
+     * @param missing la valeur retournée si l'identifiant est absent
+     * @return la priorité, ou missing si l'identifiant ne figure pas dans la file
+     */
+    public long priority(int id, long missing)
+    {
+        int i = positions.get(id, -1);
+        return i < 0 ? missing : priorities[i];
+    }
+
+    /**
+     * Le nombre d'éléments.
+     * @return le nombre d'éléments
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Retourne l'identifiant à une position du tas, pour parcourir la file dans un ordre quelconque.
+     * @param index la position, entre 0 et size() - 1
+     * @return l'identifiant
+     */
+    public int idAt(int index)
+    {
+        return ids[index];
+    }
+
+    /**
+     * Remonte un élément depuis une position libre jusqu'à sa place.
+     * @param i la position libre
+     * @param id l'identifiant à placer
+     * @param priority sa priorité
+     */
+    private void siftUp(int i, int id, long priority)
+    {
+        while(i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if(priorities[parent] <= priority)
+                break;
+            place(i, ids[parent], priorities[parent]);
+            i = parent;
+        }
+        place(i, id, priority);
+    }
+
+    /**
+     * Descend un élément depuis une position libre jusqu'à sa place.
+     * @param i la position libre
+     * @param id l'identifiant à placer
+     * @param priority sa priorité
+     */
+    private void siftDown(int i, int id, long priority)
+    {
+        int half = size >>> 1; // positions below have at least one child
+        while(i < half)
+        {
+            int child = 2 * i + 1;
+            if(child + 1 < size && priorities[child + 1] < priorities[child])
+                child++;
+            if(priority <= priorities[child])
+                break;
+            place(i, ids[child], priorities[child]);
+            i = child;
+        }
+        place(i, id, priority);
+    }
+
+    /**
+     * Place un élément à une position du tas et met à jour sa position.
+     * @param i la position
+     * @param id l'identifiant
+     * @param priority sa priorité
+     */
+    private void place(int i, int id, long priority)
+    {
+        ids[i] = id;
+        priorities[i] = priority;
+        positions.put(id, i);
+    }
+}
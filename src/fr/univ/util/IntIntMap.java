@@ -0,0 +1,236 @@
+package fr.univ.util;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Map associant des clés entières à des valeurs entières. Même organisation que {@link IntMap}, les valeurs étant
+ * stockées dans un tableau d'int : ni clé ni valeur n'est convertie en Integer.
+ */
+public class IntIntMap implements Serializable
+{
+    /**
+     * Version de la forme sérialisée : les tableaux des clés et des valeurs tels quels (cases libres comprises), la
+     * présence et la valeur de la clé 0, le nombre d'associations et le seuil d'agrandissement.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Taux de remplissage au-delà duquel la table est agrandie.
+     */
+    private static final float CHARGE_MAX = 0.6f;
+
+    /**
+     * Les clés. 0 marque une case libre, la valeur de la clé 0 est donc stockée à part.
+     */
+    private int[] keys;
+    /**
+     * Les valeurs, à la même position que leur clé.
+     */
+    private int[] values;
+    /**
+     * Indique si la clé 0 est présente.
+     */
+    private boolean containsZero;
+    /**
+     * La valeur associée à la clé 0.
+     */
+    private int zeroValue;
+    /**
+     * Le nombre d'associations, clé 0 comprise.
+     */
+    private int size;
+    /**
+     * Le nombre d'associations (hors clé 0) au-delà duquel la table est agrandie.
+     */
+    private int threshold;
+
+    /**
+     * Crée une map vide.
+     */
+    public IntIntMap()
+    {
+        this(16);
+    }
+
+    /**
+     * Crée une map vide, dimensionnée pour recevoir le nombre d'associations donné sans être agrandie.
+     * @param expectedSize le nombre d'associations attendu
+     */
+    public IntIntMap(int expectedSize)
+    {
+        allocate(IntMap.capacityFor(expectedSize));
+    }
+
+    /**
+     * Récupère la valeur associée à une clé.
+     * @param key la clé
+     * @param missing la valeur retournée si la clé est absente
+     * @return la valeur, ou missing si la clé est absente
+     */
+    public int get(int key, int missing)
+    {
+        if(key == 0)
+            return containsZero ? zeroValue : missing;
+
+        int mask = keys.length - 1;
+        for(int i = IntMap.hash(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+            if(keys[i] == key)
+                return values[i];
+
+        return missing;
+    }
+
+    /**
+     * Indique si une clé est présente.
+     * @param key la clé
+     * @return true si la clé est présente, false sinon
+     */
+    public boolean containsKey(int key)
+    {
+        if(key == 0)
+            return containsZero;
+
+        int mask = keys.length - 1;
+        for(int i = IntMap.hash(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+            if(keys[i] == key)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Associe une valeur à une clé, en remplaçant l'éventuelle valeur précédente.
+     * @param key la clé
+     * @param value la valeur
+     */
+    public void put(int key, int value)
+    {
+        if(key == 0)
+        {
+            if(!containsZero)
+                size++;
+            containsZero = true;
+            zeroValue = value;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        int i = IntMap.hash(key) & mask;
+        for(; keys[i] != 0; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+            {
+                values[i] = value;
+                return;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if(++size - (containsZero ? 1 : 0) > threshold)
+            rehash(keys.length << 1);
+    }
+
+    /**
+     * Supprime l'association d'une clé.
+     * @param key la clé
+     * @param missing la valeur retournée si la clé est absente
+     * @return la valeur qui était associée à la clé, ou missing si la clé était absente
+     */
+    public int remove(int key, int missing)
+    {
+        if(key == 0)
+        {
+            if(!containsZero)
+                return missing;
+            containsZero = false;
+            size--;
+            return zeroValue;
+        }
+
+        int mask = keys.length - 1;
+        for(int i = IntMap.hash(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+            {
+                int previous = values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Le nombre d'associations.
+     * @return le nombre d'associations
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Libère une case en ramenant vers elle les clés suivantes de la même grappe (suppression sans marqueur).
+     * @param free la case à libérer
+     */
+    private void shiftBack(int free)
+    {
+        int mask = keys.length - 1;
+        int i = free;
+        while(true)
+        {
+            i = (i + 1) & mask;
+            int key = keys[i];
+            if(key == 0)
+                break;
+            int home = IntMap.hash(key) & mask;
+            if(free <= i ? (home <= free || home > i) : (home <= free && home > i))
+            {
+                keys[free] = key;
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        keys[free] = 0;
+        values[free] = 0;
+    }
+
+    /**
+     * Agrandit la table et y replace toutes les associations.
+     * @param capacity la nouvelle capacité, puissance de 2
+     */
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for(int j = 0; j < oldKeys.length; j++)
+        {
+            int key = oldKeys[j];
+            if(key == 0)
+                continue;
+            int i = IntMap.hash(key) & mask;
+            while(keys[i] != 0)
+                i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * Alloue des tableaux vides de la capacité donnée.
+     * @param capacity la capacité, puissance de 2
+     */
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new int[capacity];
+        threshold = (int)(capacity * CHARGE_MAX);
+    }
+}
@@ -0,0 +1,371 @@
+package fr.univ.util;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Map associant des clés entières à des objets, spécialisée pour les types primitifs : les clés sont stockées dans un
+ * tableau d'int (adressage ouvert, sondage linéaire), sans boxing en Integer ni objet entrée par association.
+ * Les recherches ne sondent la table qu'une seule fois : {@link #get(int)} retourne null en cas d'absence, il n'est donc
+ * pas nécessaire d'appeler containsKey avant get. Les valeurs null ne sont pas autorisées.
+ * @param <V> le type des valeurs
+ */
+public class IntMap<V> implements Serializable
+{
+    /**
+     * Version de la forme sérialisée : les tableaux des clés et des valeurs tels quels (cases libres comprises), la
+     * valeur de la clé 0, le nombre d'associations et le seuil d'agrandissement.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Taux de remplissage au-delà duquel la table est agrandie.
+     */
+    private static final float CHARGE_MAX = 0.6f;
+
+    /**
+     * Les clés. La clé 0 marque une case libre, elle est donc stockée à part.
+     */
+    private int[] keys;
+    /**
+     * Les valeurs, à la même position que leur clé.
+     */
+    private Object[] values;
+    /**
+     * La valeur associée à la clé 0, ou null.
+     */
+    private V zeroValue;
+    /**
+     * Le nombre d'associations, clé 0 comprise.
+     */
+    private int size;
+    /**
+     * Le nombre d'associations (hors clé 0) au-delà duquel la table est agrandie.
+     */
+    private int threshold;
+
+    /**
+     * Crée une map vide.
+     */
+    public IntMap()
+    {
+        this(16);
+    }
+
+    /**
+     * Crée une map vide, dimensionnée pour recevoir le nombre d'associations donné sans être agrandie.
+     * @param expectedSize le nombre d'associations attendu
+     */
+    public IntMap(int expectedSize)
+    {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Récupère la valeur associée à une clé.
+     * @param key la clé
+     * @return la valeur, ou null si la clé est absente
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key)
+    {
+        if(key == 0)
+            return zeroValue;
+
+        int mask = keys.length - 1;
+        for(int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+            if(keys[i] == key)
+                return (V)values[i];
+
+        return null;
+    }
+
+    /**
+     * Indique si une clé est présente.
+     * @param key la clé
+     * @return true si la clé est présente, false sinon
+     */
+    public boolean containsKey(int key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * Associe une valeur à une clé, en remplaçant l'éventuelle valeur précédente.
+     * @param key la clé
+     * @param value la valeur, non null
+     * @return la valeur précédemment associée à la clé, ou null
+     */
+    public V put(int key, V value)
+    {
+        return insert(key, value, true);
+    }
+
+    /**
+     * Associe une valeur à une clé uniquement si la clé est absente.
+     * @param key la clé
+     * @param value la valeur, non null
+     * @return la valeur déjà associée à la clé (qui est alors conservée), ou null si l'association a été faite
+     */
+    public V putIfAbsent(int key, V value)
+    {
+        return insert(key, value, false);
+    }
+
+    /**
+     * Supprime l'association d'une clé.
+     * @param key la clé
+     * @return la valeur qui était associée à la clé, ou null si la clé était absente
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key)
+    {
+        if(key == 0)
+        {
+            V previous = zeroValue;
+            if(previous != null)
+            {
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+
+        int mask = keys.length - 1;
+        for(int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+            {
+                V previous = (V)values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Le nombre d'associations.
+     * @return le nombre d'associations
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Indique si la map est vide.
+     * @return true si la map est vide
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Les valeurs de la map, dans un ordre quelconque. La vue reflète la map mais ne permet pas de la modifier.
+     * @return les valeurs
+     */
+    public Collection<V> values()
+    {
+        return new AbstractCollection<>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Les clés de la map, dans un ordre quelconque.
+     * @return une copie des clés
+     */
+    public int[] keys()
+    {
+        int[] result = new int[size];
+        int n = 0;
+        if(zeroValue != null)
+            result[n++] = 0;
+        for(int i = 0; i < keys.length; i++)
+            if(keys[i] != 0)
+                result[n++] = keys[i];
+        return result;
+    }
+
+    /**
+     * Insère ou remplace une association.
+     * @param key la clé
+     * @param value la valeur
+     * @param replace true pour remplacer une valeur existante
+     * @return la valeur précédente, ou null
+     */
+    @SuppressWarnings("unchecked")
+    private V insert(int key, V value, boolean replace)
+    {
+        if(value == null)
+            throw new NullPointerException("IntMap n'accepte pas les valeurs null");
+
+        if(key == 0)
+        {
+            V previous = zeroValue;
+            if(previous == null)
+                size++;
+            if(previous == null || replace)
+                zeroValue = value;
+            return previous;
+        }
+
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for(; keys[i] != 0; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+            {
+                V previous = (V)values[i];
+                if(replace)
+                    values[i] = value;
+                return previous;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if(++size - (zeroValue != null ? 1 : 0) > threshold)
+            rehash(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Libère une case en ramenant vers elle les clés suivantes de la même grappe, afin qu'aucune recherche ne
+     * s'arrête prématurément (suppression sans marqueur).
+     * @param free la case à libérer
+     */
+    private void shiftBack(int free)
+    {
+        int mask = keys.length - 1;
+        int i = free;
+        while(true)
+        {
+            i = (i + 1) & mask;
+            int key = keys[i];
+            if(key == 0)
+                break;
+            int home = hash(key) & mask;
+            // move the key back if its home slot is not in the cyclic range ]free, i]
+            if(free <= i ? (home <= free || home > i) : (home <= free && home > i))
+            {
+                keys[free] = key;
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        keys[free] = 0;
+        values[free] = null;
+    }
+
+    /**
+     * Agrandit la table et y replace toutes les associations.
+     * @param capacity la nouvelle capacité, puissance de 2
+     */
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for(int j = 0; j < oldKeys.length; j++)
+        {
+            int key = oldKeys[j];
+            if(key == 0)
+                continue;
+            int i = hash(key) & mask;
+            while(keys[i] != 0)
+                i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * Alloue des tableaux vides de la capacité donnée.
+     * @param capacity la capacité, puissance de 2
+     */
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        threshold = (int)(capacity * CHARGE_MAX);
+    }
+
+    /**
+     * La plus petite capacité (puissance de 2) permettant de stocker le nombre d'associations donné.
+     * @param expectedSize le nombre d'associations attendu
+     * @return la capacité
+     */
+    static int capacityFor(int expectedSize)
+    {
+        int capacity = 8;
+        while(capacity * CHARGE_MAX < expectedSize)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * Mélange les bits de la clé : les identifiants sont souvent consécutifs et se regrouperaient sinon en longues
+     * grappes.
+     * @param key la clé
+     * @return l'empreinte de la clé
+     */
+    static int hash(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Itérateur sur les valeurs, la valeur de la clé 0 en premier.
+     */
+    private final class ValueIterator implements Iterator<V>
+    {
+        private int index = zeroValue != null ? -1 : nextIndex(0);
+
+        @Override
+        public boolean hasNext()
+        {
+            return index < keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next()
+        {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            V value = index < 0 ? zeroValue : (V)values[index];
+            index = nextIndex(index + 1);
+            return value;
+        }
+
+        private int nextIndex(int from)
+        {
+            while(from < keys.length && keys[from] == 0)
+                from++;
+            return from;
+        }
+    }
+}
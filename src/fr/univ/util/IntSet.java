@@ -0,0 +1,226 @@
+package fr.univ.util;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.function.IntConsumer;
+
+/**
+ * Ensemble d'entiers spécialisé pour le type primitif int (adressage ouvert, sondage linéaire), sans boxing en
+ * Integer. Même organisation que {@link IntMap}, sans les valeurs.
+ */
+public class IntSet implements Serializable
+{
+    /**
+     * Version de la forme sérialisée : le tableau des éléments tel quel (cases libres comprises), la présence de 0, le
+     * nombre d'éléments et le seuil d'agrandissement.
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Taux de remplissage au-delà duquel la table est agrandie.
+     */
+    private static final float CHARGE_MAX = 0.6f;
+
+    /**
+     * Les éléments. 0 marque une case libre, sa présence est donc stockée à part.
+     */
+    private int[] elements;
+    /**
+     * Indique si 0 fait partie de l'ensemble.
+     */
+    private boolean containsZero;
+    /**
+     * Le nombre d'éléments, 0 compris.
+     */
+    private int size;
+    /**
+     * Le nombre d'éléments (hors 0) au-delà duquel la table est agrandie.
+     */
+    private int threshold;
+
+    /**
+     * Crée un ensemble vide.
+     */
+    public IntSet()
+    {
+        this(16);
+    }
+
+    /**
+     * Crée un ensemble vide, dimensionné pour recevoir le nombre d'éléments donné sans être agrandi.
+     * @param expectedSize le nombre d'éléments attendu
+     */
+    public IntSet(int expectedSize)
+    {
+        allocate(IntMap.capacityFor(expectedSize));
+    }
+
+    /**
+     * Indique si un entier fait partie de l'ensemble.
+     * @param value l'entier
+     * @return true s'il fait partie de l'ensemble
+     */
+    public boolean contains(int value)
+    {
+        if(value == 0)
+            return containsZero;
+
+        int mask = elements.length - 1;
+        for(int i = IntMap.hash(value) & mask; elements[i] != 0; i = (i + 1) & mask)
+            if(elements[i] == value)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Ajoute un entier à l'ensemble.
+     * @param value l'entier
+     * @return true s'il a été ajouté, false s'il était déjà présent
+     */
+    public boolean add(int value)
+    {
+        if(value == 0)
+        {
+            if(containsZero)
+                return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int mask = elements.length - 1;
+        int i = IntMap.hash(value) & mask;
+        for(; elements[i] != 0; i = (i + 1) & mask)
+            if(elements[i] == value)
+                return false;
+
+        elements[i] = value;
+        if(++size - (containsZero ? 1 : 0) > threshold)
+            rehash(elements.length << 1);
+        return true;
+    }
+
+    /**
+     * Retire un entier de l'ensemble.
+     * @param value l'entier
+     * @return true s'il a été retiré, false s'il était absent
+     */
+    public boolean remove(int value)
+    {
+        if(value == 0)
+        {
+            if(!containsZero)
+                return false;
+            containsZero = false;
+            size--;
+            return true;
+        }
+
+        int mask = elements.length - 1;
+        for(int i = IntMap.hash(value) & mask; elements[i] != 0; i = (i + 1) & mask)
+        {
+            if(elements[i] == value)
+            {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Le nombre d'éléments.
+     * @return le nombre d'éléments
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Applique une action à chaque élément, dans un ordre quelconque.
+     * @param action l'action
+     */
+    public void forEach(IntConsumer action)
+    {
+        if(containsZero)
+            action.accept(0);
+        for(int element : elements)
+            if(element != 0)
+                action.accept(element);
+    }
+
+    /**
+     * Les éléments de l'ensemble, dans un ordre quelconque.
+     * @return une copie des éléments
+     */
+    public int[] toArray()
+    {
+        int[] result = new int[size];
+        int n = 0;
+        if(containsZero)
+            result[n++] = 0;
+        for(int element : elements)
+            if(element != 0)
+                result[n++] = element;
+        return result;
+    }
+
+    /**
+     * Libère une case en ramenant vers elle les éléments suivants de la même grappe (suppression sans marqueur).
+     * @param free la case à libérer
+     */
+    private void shiftBack(int free)
+    {
+        int mask = elements.length - 1;
+        int i = free;
+        while(true)
+        {
+            i = (i + 1) & mask;
+            int element = elements[i];
+            if(element == 0)
+                break;
+            int home = IntMap.hash(element) & mask;
+            if(free <= i ? (home <= free || home > i) : (home <= free && home > i))
+            {
+                elements[free] = element;
+                free = i;
+            }
+        }
+        elements[free] = 0;
+    }
+
+    /**
+     * Agrandit la table et y replace tous les éléments.
+     * @param capacity la nouvelle capacité, puissance de 2
+     */
+    private void rehash(int capacity)
+    {
+        int[] old = elements;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for(int element : old)
+        {
+            if(element == 0)
+                continue;
+            int i = IntMap.hash(element) & mask;
+            while(elements[i] != 0)
+                i = (i + 1) & mask;
+            elements[i] = element;
+        }
+    }
+
+    /**
+     * Alloue une table vide de la capacité donnée.
+     * @param capacity la capacité, puissance de 2
+     */
+    private void allocate(int capacity)
+    {
+        elements = new int[capacity];
+        threshold = (int)(capacity * CHARGE_MAX);
+    }
+}
@@ -0,0 +1,196 @@
+package fr.univ.util;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Liste non modifiable dont les versions successives partagent leur contenu : les éléments sont rangés dans un arbre de
+ * tableaux de {@link #WIDTH} cases, et ajouter, remplacer ou retirer un élément ne copie que le chemin de la racine à
+ * la case concernée (quelques tableaux, quelle que soit la taille de la liste), la version précédente restant
+ * inchangée. Elle permet de publier à chaque modification une liste que les lecteurs parcourent sans verrou.
+ * Les éléments null ne sont pas autorisés.
+ * @param <E> le type des éléments
+ */
+public final class PersistentList<E> extends AbstractList<E> implements RandomAccess
+{
+    /**
+     * Nombre de bits d'indice consommés par chaque niveau de l'arbre.
+     */
+    private static final int BITS = 5;
+    /**
+     * Nombre de cases d'un noeud.
+     */
+    private static final int WIDTH = 1 << BITS;
+    /**
+     * Masque de l'indice d'une case dans un noeud.
+     */
+    private static final int MASK = WIDTH - 1;
+    /**
+     * La liste vide, partagée.
+     */
+    private static final PersistentList<?> EMPTY = new PersistentList<>(new Object[WIDTH], 0, 0);
+
+    /**
+     * La racine de l'arbre : les éléments eux-mêmes si shift vaut 0, des noeuds sinon. Un sous-arbre ne contenant aucun
+     * élément est null.
+     */
+    private final Object[] root;
+    /**
+     * Le décalage de l'indice d'un élément donnant sa case dans la racine, multiple de BITS.
+     */
+    private final int shift;
+    /**
+     * Le nombre d'éléments.
+     */
+    private final int size;
+
+    private PersistentList(Object[] root, int shift, int size)
+    {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * La liste vide.
+     * @return la liste vide
+     * @param <E> le type des éléments
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> of()
+    {
+        return (PersistentList<E>)EMPTY;
+    }
+
+    /**
+     * Une liste contenant les éléments d'une autre liste, dans le même ordre.
+     * @param elements les éléments
+     * @return la liste
+     * @param <E> le type des éléments
+     */
+    public static <E> PersistentList<E> copyOf(List<? extends E> elements)
+    {
+        PersistentList<E> list = of();
+        for(E element : elements)
+            list = list.plus(element);
+        return list;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index)
+    {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Indice " + index + " hors de la liste de taille " + size);
+        Object[] node = root;
+        for(int level = shift; level > 0; level -= BITS)
+            node = (Object[])node[(index >>> level) & MASK];
+        return (E)node[index & MASK];
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * La liste augmentée d'un élément à la fin. La liste courante n'est pas modifiée.
+     * @param element l'élément
+     * @return la nouvelle liste
+     */
+    public PersistentList<E> plus(E element)
+    {
+        if(element == null)
+            throw new NullPointerException("Elément null");
+        if(size == 1 << (shift + BITS)) // the tree is full: add a level above the root
+        {
+            Object[] grown = new Object[WIDTH];
+            grown[0] = root;
+            return new PersistentList<>(append(grown, shift + BITS, element), shift + BITS, size + 1);
+        }
+        return new PersistentList<>(append(root, shift, element), shift, size + 1);
+    }
+
+    /**
+     * La liste où l'élément d'un indice est remplacé. La liste courante n'est pas modifiée.
+     * @param index l'indice de l'élément à remplacer
+     * @param element le nouvel élément
+     * @return la nouvelle liste
+     */
+    public PersistentList<E> with(int index, E element)
+    {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Indice " + index + " hors de la liste de taille " + size);
+        if(element == null)
+            throw new NullPointerException("Elément null");
+        return new PersistentList<>(replace(root, shift, index, element), shift, size);
+    }
+
+    /**
+     * La liste privée de son dernier élément. La liste courante n'est pas modifiée.
+     * @return la nouvelle liste
+     */
+    public PersistentList<E> withoutLast()
+    {
+        if(size == 0)
+            throw new IndexOutOfBoundsException("Liste vide");
+        if(size == 1)
+            return of();
+
+        Object[] node = removeLast(root, shift);
+        if(shift > 0 && size - 1 <= 1 << shift) // everything left fits in the first subtree: drop a level
+            return new PersistentList<>((Object[])node[0], shift - BITS, size - 1);
+        return new PersistentList<>(node, shift, size - 1);
+    }
+
+    /**
+     * Copie le chemin menant à la case de l'indice size et y range un élément.
+     * @param node le noeud, ou null s'il n'existe pas encore
+     * @param level le décalage de l'indice au niveau du noeud
+     * @param element l'élément
+     * @return la copie du noeud
+     */
+    private Object[] append(Object[] node, int level, Object element)
+    {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int slot = (size >>> level) & MASK;
+        copy[slot] = level == 0 ? element : append((Object[])copy[slot], level - BITS, element);
+        return copy;
+    }
+
+    /**
+     * Copie le chemin menant à la case d'un indice et y range un élément.
+     * @param node le noeud
+     * @param level le décalage de l'indice au niveau du noeud
+     * @param index l'indice
+     * @param element l'élément
+     * @return la copie du noeud
+     */
+    private static Object[] replace(Object[] node, int level, int index, Object element)
+    {
+        Object[] copy = node.clone();
+        int slot = (index >>> level) & MASK;
+        copy[slot] = level == 0 ? element : replace((Object[])copy[slot], level - BITS, index, element);
+        return copy;
+    }
+
+    /**
+     * Copie le chemin menant à la case du dernier élément et la vide, en retirant les sous-arbres devenus vides.
+     * @param node le noeud
+     * @param level le décalage de l'indice au niveau du noeud
+     * @return la copie du noeud
+     */
+    private Object[] removeLast(Object[] node, int level)
+    {
+        int last = size - 1;
+        Object[] copy = node.clone();
+        int slot = (last >>> level) & MASK;
+        if(level == 0 || (last & ((1 << level) - 1)) == 0) // the element, or a subtree holding only that element
+            copy[slot] = null;
+        else
+            copy[slot] = removeLast((Object[])copy[slot], level - BITS);
+        return copy;
+    }
+}
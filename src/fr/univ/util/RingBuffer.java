@@ -0,0 +1,140 @@
+package fr.univ.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * File bornée sans verrou, à plusieurs producteurs et un seul consommateur, rangée dans un tableau circulaire dont la
+ * taille est une puissance de 2. Chaque case porte un numéro de séquence : un producteur réserve une position par
+ * compare-and-set, écrit l'élément puis publie la case en avançant son numéro ; le consommateur ne lit une case que
+ * lorsqu'elle est publiée, puis la rend aux producteurs pour le tour suivant. Ni les producteurs ni le consommateur ne
+ * s'attendent jamais : une file pleine est signalée au producteur, qui choisit d'attendre ou de renoncer.
+ * @param <E> le type des éléments
+ */
+public final class RingBuffer<E>
+{
+    /**
+     * Les éléments, à la position (séquence &amp; mask).
+     */
+    private final Object[] elements;
+    /**
+     * Le numéro de séquence de chaque case : égal à la position qu'elle attend lorsqu'elle est libre, à cette position
+     * + 1 lorsqu'elle est publiée.
+     */
+    private final AtomicLongArray sequences;
+    /**
+     * Masque des positions dans le tableau (taille - 1).
+     */
+    private final int mask;
+    /**
+     * La prochaine position réservée par un producteur.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * La prochaine position lue par le consommateur. Ecrite par le consommateur seul.
+     */
+    private volatile long head;
+
+    /**
+     * Crée une file vide.
+     * @param capacity le nombre minimal d'éléments que la file peut contenir, arrondi à la puissance de 2 supérieure
+     * (2 au moins)
+     * @throws IllegalArgumentException La capacité n'est pas strictement positive, ou dépasse 2^30
+     */
+    public RingBuffer(int capacity)
+    {
+        if(capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacité de file invalide : " + capacity);
+        int size = capacity == 1 ? 2 : Integer.highestOneBit(capacity - 1) << 1; // a slot can't be both full and free
+        elements = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++)
+            sequences.set(i, i);
+        mask = size - 1;
+    }
+
+    /**
+     * Ajoute un élément à la file s'il y reste de la place, sans jamais attendre. Peut être appelée par plusieurs
+     * producteurs à la fois.
+     * @param element l'élément
+     * @return true si l'élément est ajouté, false si la file est pleine
+     */
+    public boolean offer(E element)
+    {
+        long position = tail.get();
+        while(true)
+        {
+            int index = (int)position & mask;
+            long gap = sequences.get(index) - position;
+            if(gap == 0)
+            {
+                if(tail.compareAndSet(position, position + 1))
+                {
+                    elements[index] = element;
+                    sequences.set(index, position + 1); // publish the slot to the consumer
+                    return true;
+                }
+                position = tail.get();
+            }
+            else if(gap < 0) // the slot still holds the element of the previous lap: full
+                return false;
+            else // another producer took this position
+                position = tail.get();
+        }
+    }
+
+    /**
+     * Retire de la file les éléments publiés, dans l'ordre de leurs positions, jusqu'au premier élément pas encore
+     * publié. Ne doit être appelée que par le consommateur.
+     * @param into la liste recevant les éléments retirés
+     * @param max le nombre maximal d'éléments à retirer
+     * @return le nombre d'éléments retirés
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(List<? super E> into, int max)
+    {
+        long position = head;
+        int count = 0;
+        while(count < max)
+        {
+            int index = (int)position & mask;
+            if(sequences.get(index) != position + 1)
+                break;
+            into.add((E)elements[index]);
+            elements[index] = null;
+            sequences.set(index, position + mask + 1); // free the slot for the next lap
+            position++;
+            count++;
+        }
+        head = position;
+        return count;
+    }
+
+    /**
+     * Indique si la file est vide, à l'instant de l'appel.
+     * @return true si aucun élément n'est en attente
+     */
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Le nombre d'éléments en attente, à l'instant de l'appel, y compris ceux dont la publication est en cours.
+     * @return le nombre d'éléments
+     */
+    public int size()
+    {
+        return (int)Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * Le nombre maximal d'éléments de la file.
+     * @return la capacité
+     */
+    public int capacity()
+    {
+        return mask + 1;
+    }
+}
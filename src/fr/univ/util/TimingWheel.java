@@ -0,0 +1,234 @@
+package fr.univ.util;
+
+import java.util.Arrays;
+
+/**
+ * Echéancier à roues hiérarchiques : des événements, décrits par un entier long choisi par l'appelant, sont programmés
+ * à un instant entier (un jour, pour le Gala) et rendus lorsque le temps de l'échéancier l'atteint.
+ * Les événements sont rangés dans {@link #LEVELS} roues de {@link #SLOTS} cases : un événement est placé dans la roue
+ * du chiffre le plus significatif (en base 64) qui distingue son instant de l'instant courant, dans la case de ce
+ * chiffre. Lorsque le temps franchit le début d'une case d'une roue supérieure, ses événements redescendent d'une roue ;
+ * ceux de la roue inférieure sont rendus à leur instant exact. Programmer un événement coûte O(1), et avancer le temps
+ * O(événements échus + jours écoulés / 64), sans jamais parcourir les événements à venir.
+ * Un événement programmé à un instant déjà passé est rendu à la prochaine avance. Les événements ne peuvent être
+ * annulés : l'appelant ignore ceux devenus sans objet lorsqu'ils sont rendus.
+ * Les méthodes sont synchronisées sur l'échéancier.
+ */
+public class TimingWheel
+{
+    /**
+     * Nombre de bits d'instant couverts par une roue.
+     */
+    private static final int SLOT_BITS = 6;
+    /**
+     * Nombre de cases d'une roue.
+     */
+    private static final int SLOTS = 1 << SLOT_BITS;
+    /**
+     * Nombre de roues : au-delà de 64^4 instants (plus de 45 000 ans en jours), les événements attendent à part.
+     */
+    private static final int LEVELS = 4;
+    /**
+     * Case des événements trop lointains pour les roues.
+     */
+    private static final int OVERFLOW = LEVELS * SLOTS;
+    /**
+     * Case des événements échus, rendus à la prochaine avance.
+     */
+    private static final int DUE = OVERFLOW + 1;
+
+    /**
+     * L'instant courant.
+     */
+    private long now;
+    /**
+     * Les instants des événements de chaque case, roue par roue (case i de la roue l à l'indice l * SLOTS + i), puis
+     * ceux des cases {@link #OVERFLOW} et {@link #DUE}.
+     */
+    private final long[][] times;
+    /**
+     * Les événements de chaque case, à la même position que leur instant.
+     */
+    private final long[][] events;
+    /**
+     * Le nombre d'événements de chaque case.
+     */
+    private final int[] counts;
+    /**
+     * Le nombre d'événements de la première roue et de la case {@link #DUE}, qui seuls peuvent échoir avant la fin
+     * du bloc de 64 instants courant.
+     */
+    private int nbrImminent;
+    /**
+     * Le nombre total d'événements programmés.
+     */
+    private int size;
+    /**
+     * Les événements rendus par l'avance en cours, dans ses nbrFired premières cases.
+     */
+    private long[] fired;
+    /**
+     * Le nombre d'événements rendus par l'avance en cours.
+     */
+    private int nbrFired;
+
+    /**
+     * Crée un échéancier vide.
+     * @param now l'instant courant
+     */
+    public TimingWheel(long now)
+    {
+        this.now = now;
+        times = new long[DUE + 1][];
+        events = new long[DUE + 1][];
+        counts = new int[DUE + 1];
+    }
+
+    /**
+     * Programme un événement.
+     * @param time l'instant auquel l'événement doit être rendu
+     * @param event l'événement
+     */
+    public synchronized void schedule(long time, long event)
+    {
+        insert(time, event);
+        size++;
+    }
+
+    /**
+     * Avance le temps et rend les événements échus, y compris ceux programmés à un instant déjà passé.
+     * @param to le nouvel instant courant, qui ne peut être antérieur à l'instant courant
+     * @return les événements échus, par instant croissant, et pour un même instant par valeur croissante : l'ordre ne
+     * dépend pas de l'ordre dans lequel les événements ont été programmés
+     * @throws IllegalArgumentException Le nouvel instant est antérieur à l'instant courant
+     */
+    public synchronized long[] advance(long to)
+    {
+        if(to < now)
+            throw new IllegalArgumentException("L'échéancier ne peut revenir en arrière");
+
+        fired = new long[Math.min(size, 16)];
+        nbrFired = 0;
+        drain(DUE);
+        Arrays.sort(fired, 0, nbrFired);
+        while(now < to && size > 0)
+        {
+            // Nothing can fall due before the end of the current block: skip to its last instant
+            if(nbrImminent == 0)
+                now = Math.min(to, now | (SLOTS - 1));
+            if(now == to)
+                break;
+
+            now++;
+            int start = nbrFired;
+            if((now & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0)
+                cascade(OVERFLOW);
+            for(int level = LEVELS - 1; level > 0; level--)
+                if((now & ((1L << (SLOT_BITS * level)) - 1)) == 0)
+                    cascade(level * SLOTS + slot(now, level));
+            drain(DUE);
+            drain(slot(now, 0));
+            Arrays.sort(fired, start, nbrFired);
+        }
+        now = to;
+
+        long[] result = Arrays.copyOf(fired, nbrFired);
+        fired = null;
+        return result;
+    }
+
+    /**
+     * L'instant courant.
+     * @return l'instant courant
+     */
+    public synchronized long now()
+    {
+        return now;
+    }
+
+    /**
+     * Le nombre d'événements programmés et pas encore rendus.
+     * @return le nombre d'événements
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Range un événement dans la case correspondant à son instant.
+     * @param time l'instant de l'événement
+     * @param event l'événement
+     */
+    private void insert(long time, long event)
+    {
+        int bucket;
+        if(time <= now)
+            bucket = DUE;
+        else
+        {
+            int level = (63 - Long.numberOfLeadingZeros(time ^ now)) / SLOT_BITS;
+            bucket = level < LEVELS ? level * SLOTS + slot(time, level) : OVERFLOW;
+        }
+
+        int count = counts[bucket];
+        if(times[bucket] == null)
+        {
+            times[bucket] = new long[4];
+            events[bucket] = new long[4];
+        }
+        else if(count == times[bucket].length)
+        {
+            times[bucket] = Arrays.copyOf(times[bucket], count << 1);
+            events[bucket] = Arrays.copyOf(events[bucket], count << 1);
+        }
+        times[bucket][count] = time;
+        events[bucket][count] = event;
+        counts[bucket] = count + 1;
+        if(bucket < SLOTS || bucket == DUE)
+            nbrImminent++;
+    }
+
+    /**
+     * Redescend les événements d'une case vers les roues inférieures, l'instant courant ayant atteint le début de la
+     * case.
+     * @param bucket la case
+     */
+    private void cascade(int bucket)
+    {
+        int count = counts[bucket];
+        counts[bucket] = 0;
+        for(int i = 0; i < count; i++)
+            insert(times[bucket][i], events[bucket][i]);
+    }
+
+    /**
+     * Rend les événements d'une case.
+     * @param bucket la case, de la première roue ou {@link #DUE}
+     */
+    private void drain(int bucket)
+    {
+        int count = counts[bucket];
+        if(count == 0)
+            return;
+
+        if(nbrFired + count > fired.length)
+            fired = Arrays.copyOf(fired, Math.max(nbrFired + count, fired.length << 1));
+        System.arraycopy(events[bucket], 0, fired, nbrFired, count);
+        nbrFired += count;
+        counts[bucket] = 0;
+        nbrImminent -= count;
+        size -= count;
+    }
+
+    /**
+     * La case d'une roue correspondant à un instant.
+     * @param time l'instant
+     * @param level la roue
+     * @return l'indice de la case dans la roue
+     */
+    private static int slot(long time, int level)
+    {
+        return (int)(time >>> (SLOT_BITS * level)) & (SLOTS - 1);
+    }
+}
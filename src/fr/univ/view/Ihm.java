@@ -106,26 +106,89 @@ public class Ihm {
     }
 
     /**
-     * Affiche quelles tables ont été réservé par quelles membres de l'école.
-     * Uniquement les tables adressées aux membres du personnel sont affichées puisque le personnel ne peut pas avoir
-     * accès aux tables des étudiants.
-     * @param tables la liste des tables adressées aux membres du personnel
+     * Affiche une page du plan des tables : quelles tables ont été réservées par quels membres de l'école, et combien
+     * de places il leur reste. La page est composée en entier avant d'être écrite d'un seul coup sur la console.
+     * @param tables les instantanés des tables de la page
+     * @param page le numéro de la page, à partir de 1
+     * @param nbrPages le nombre de pages
+     * @param minSeatsRemaining le nombre minimal de places restantes des tables affichées, 0 si toutes le sont
      */
-    public void dispTables(List<Table> tables)
+    public void dispTables(List<Table.Snapshot> tables, int page, int nbrPages, int minSeatsRemaining)
     {
-        for(Table table : tables)
+        StringBuilder screen = new StringBuilder(256 + tables.size() * 128);
+        screen.append("\n\033[1mPlan des tables\033[0m (page ").append(page).append('/').append(nbrPages);
+        if(minSeatsRemaining > 0)
+            screen.append(", tables ayant au moins ").append(minSeatsRemaining).append(" places libres");
+        screen.append(")\n");
+        if(tables.isEmpty())
+            screen.append("Aucune table ne correspond.\n");
+
+        for(Table.Snapshot table : tables)
         {
-            System.out.println("Numéro de table : " + table.getTableId());
-            for( Reservation reservation : table.getReservations() )
+            screen.append("Numéro de table : ").append(table.tableId()).append(" (").append(table.seatsRemaining())
+                  .append('/').append(table.capacity()).append(" places libres)\n");
+            for(Reservation reservation : table.reservations())
             {
-                System.out.print( reservation.getOwner().getFirstName() + " " + reservation.getOwner().getLastName());
-                if( reservation.getNbrSeatsOccupied() > 1 )
-                {
-                    System.out.print(" + " + (reservation.getNbrSeatsOccupied()-1) + " accompagnants");
-                }
-                System.out.println();
+                screen.append("    ").append(reservation.getOwner().getFirstName()).append(' ')
+                      .append(reservation.getOwner().getLastName());
+                if(reservation.getNbrSeatsOccupied() > 1)
+                    screen.append(" + ").append(reservation.getNbrSeatsOccupied() - 1).append(" accompagnants");
+                screen.append('\n');
             }
         }
+        System.out.print(screen);
+        System.out.flush();
+    }
+
+    /**
+     * Menu de navigation dans le plan des tables.
+     * @param hasPrevious indique s'il existe une page précédente
+     * @param hasNext indique s'il existe une page suivante
+     * @return le choix de l'utilisateur : 's' (page suivante), 'p' (page précédente), 'f' (filtrer les tables) ou
+     * 'r' (réserver)
+     */
+    public char chooseTablesPageAction(boolean hasPrevious, boolean hasNext)
+    {
+        StringBuilder menu = new StringBuilder("Veuillez saisir pour :\n");
+        if(hasNext)
+            menu.append("    (\033[1mS\033[0m) Page suivante\n");
+        if(hasPrevious)
+            menu.append("    (\033[1mP\033[0m) Page précédente\n");
+        menu.append("    (\033[1mF\033[0m) N'afficher que les tables ayant assez de places libres\n");
+        menu.append("    (\033[1mR\033[0m) Réserver");
+
+        char choice;
+        boolean valid;
+        do
+        {
+            System.out.println(menu);
+            choice = charInputRequired();
+            valid = choice == 'f' || choice == 'r' || (choice == 's' && hasNext) || (choice == 'p' && hasPrevious);
+
+            if(!valid)
+                System.err.println("\nChoix invalide.\n");
+
+        }while(!valid);
+        return choice;
+    }
+
+    /**
+     * Récupère le nombre minimal de places libres des tables à afficher.
+     * @return le nombre minimal de places libres, 0 pour afficher toutes les tables
+     */
+    public int chooseMinSeatsRemaining()
+    {
+        int choice;
+        do
+        {
+            System.out.print("\nNombre minimal de places libres (0 pour toutes les tables) : ");
+            choice = integerInputRequired();
+
+            if(choice < 0)
+                System.err.println("Veuillez saisir un nombre positif.\n");
+
+        }while(choice < 0);
+        return choice;
     }
 
     /**